@@ -207,4 +207,22 @@ public interface OperationContext extends Serializable {
      * Returns the current max number of items per batch.
      */
     int getMaxItemsPerPage();
+
+    /**
+     * Sets the number of pages that are fetched in the background while the
+     * items of a list are iterated.
+     * 
+     * Prefetching only applies to iterators that walk through a whole list,
+     * not to a single page returned by {@link ItemIterable#getPage(int)}.
+     * 
+     * @param prefetchPages
+     *            number of pages fetched ahead, 0 turns prefetching off
+     *            (default)
+     */
+    void setPrefetchPages(int prefetchPages);
+
+    /**
+     * Returns the number of pages that are fetched ahead.
+     */
+    int getPrefetchPages();
 }
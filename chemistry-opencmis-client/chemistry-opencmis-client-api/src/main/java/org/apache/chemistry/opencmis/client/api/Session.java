@@ -445,6 +445,33 @@ public interface Session extends Serializable {
      */
     CmisObject getObject(String objectId, OperationContext context);
 
+    /**
+     * Returns several CMIS objects. Objects that are in the session cache are
+     * taken from the cache, the others are loaded from the repository with as
+     * few requests as possible.
+     * <p>
+     * If the repository supports queries and the operation context selects
+     * only properties of the document or folder base type and no ACLs,
+     * policies, relationships or renditions, documents and folders are loaded
+     * in batches with {@code cmis:objectId IN (...)} queries. All other
+     * objects are loaded with concurrent
+     * {@link #getObject(String, OperationContext)} calls. Either way, the
+     * objects are the same that {@code getObject} returns for the context.
+     *
+     * @param objectIds
+     *            the object IDs
+     * @param context
+     *            the {@link OperationContext} to use
+     *
+     * @return the requested objects in the order of the given IDs, objects
+     *         that don't exist are represented by {@code null}
+     *
+     * @see #getObject(String, OperationContext)
+     *
+     * @cmis 1.0
+     */
+    List<CmisObject> getObjects(Collection<? extends ObjectId> objectIds, OperationContext context);
+
     /**
      * Returns a CMIS object from the session cache. If the object is not in the
      * cache or the cache is turned off per default {@link OperationContext}, it
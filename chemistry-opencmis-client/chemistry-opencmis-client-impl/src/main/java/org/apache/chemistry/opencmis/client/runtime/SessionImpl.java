@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -54,9 +55,12 @@ import org.apache.chemistry.opencmis.client.api.Tree;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
 import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.StaleCache;
 import org.apache.chemistry.opencmis.client.runtime.repository.ObjectFactoryImpl;
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
+import org.apache.chemistry.opencmis.client.runtime.util.BatchObjectLoader;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
+import org.apache.chemistry.opencmis.client.runtime.util.InFlightRequests;
 import org.apache.chemistry.opencmis.client.runtime.util.TreeImpl;
 import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
@@ -114,6 +118,9 @@ public class SessionImpl implements Session {
     private static final Set<Updatability> CREATE_UPDATABILITY = EnumSet.noneOf(Updatability.class);
     private static final Set<Updatability> CREATE_AND_CHECKOUT_UPDATABILITY = EnumSet.noneOf(Updatability.class);
 
+    private static final int OBJECT_BATCH_SIZE = 100;
+    private static final int OBJECT_BATCH_THREADS = 4;
+
     static {
         CREATE_UPDATABILITY.add(Updatability.ONCREATE);
         CREATE_UPDATABILITY.add(Updatability.READWRITE);
@@ -124,6 +131,7 @@ public class SessionImpl implements Session {
 
     // private static Logger log = LoggerFactory.getLogger(SessionImpl.class);
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
     private transient LinkedHashMap<String, ObjectType> objectTypeCache;
 
     /*
@@ -162,6 +170,13 @@ public class SessionImpl implements Session {
     private Cache cache;
     private final boolean cachePathOmit;
 
+    /*
+     * Running getObject and getObjectByPath calls, shared by concurrent cache
+     * misses
+     */
+    private final InFlightRequests<CmisObject> objectRequests = new InFlightRequests<CmisObject>();
+    private final InFlightRequests<CmisObject> pathRequests = new InFlightRequests<CmisObject>();
+
     /*
      * Type cache.
      */
@@ -309,7 +324,8 @@ public class SessionImpl implements Session {
         final ObjectFactory of = getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<Document> fetchPage(long skipCount) {
@@ -514,68 +530,140 @@ public class SessionImpl implements Session {
     }
 
     @Override
-    public CmisObject getObject(String objectId, OperationContext context) {
+    public CmisObject getObject(final String objectId, final OperationContext context) {
         checkObjectId(objectId);
         checkContext(context);
 
-        CmisObject result = null;
+        if (!context.isCacheEnabled()) {
+            return fetchObject(objectId, context);
+        }
 
         // ask the cache first
-        if (context.isCacheEnabled()) {
-            result = cache.getById(objectId, context.getCacheKey());
-            if (result != null) {
-                return result;
+        CmisObject result = cache.getById(objectId, context.getCacheKey());
+        if (result != null) {
+            return result;
+        }
+
+        // concurrent misses share one call, others get a stale copy if the
+        // cache has one
+        CmisObject stale = null;
+        if (cache instanceof StaleCache) {
+            stale = ((StaleCache) cache).getStaleById(objectId, context.getCacheKey());
+        }
+
+        return objectRequests.execute(context.getCacheKey() + '\n' + objectId,
+                new InFlightRequests.Loader<CmisObject>() {
+                    @Override
+                    public CmisObject load() {
+                        CmisObject object = fetchObject(objectId, context);
+                        cache.put(object, context.getCacheKey());
+                        return object;
+                    }
+                }, stale);
+    }
+
+    @Override
+    public List<CmisObject> getObjects(Collection<? extends ObjectId> objectIds, OperationContext context) {
+        if (objectIds == null) {
+            throw new IllegalArgumentException("Object IDs must be set!");
+        }
+        checkContext(context);
+
+        List<String> ids = new ArrayList<String>(objectIds.size());
+        Map<String, CmisObject> objects = new HashMap<String, CmisObject>();
+        Set<String> missing = new LinkedHashSet<String>();
+
+        // ask the cache first
+        for (ObjectId objectId : objectIds) {
+            checkObjectId(objectId);
+            ids.add(objectId.getId());
+
+            CmisObject object = null;
+            if (context.isCacheEnabled()) {
+                object = cache.getById(objectId.getId(), context.getCacheKey());
+            }
+
+            if (object != null) {
+                objects.put(objectId.getId(), object);
+            } else {
+                missing.add(objectId.getId());
             }
         }
 
-        // get the object
-        ObjectData objectData = binding.getObjectService().getObject(getRepositoryId(), objectId,
-                context.getFilterString(), context.isIncludeAllowableActions(), context.getIncludeRelationships(),
-                context.getRenditionFilterString(), context.isIncludePolicies(), context.isIncludeAcls(), null);
+        // load the rest
+        if (!missing.isEmpty()) {
+            Map<String, CmisObject> loaded = new BatchObjectLoader(this, OBJECT_BATCH_SIZE, OBJECT_BATCH_THREADS)
+                    .load(missing, context);
 
-        result = getObjectFactory().convertObject(objectData, context);
+            if (context.isCacheEnabled()) {
+                for (CmisObject object : loaded.values()) {
+                    cache.put(object, context.getCacheKey());
+                }
+            }
 
-        // put into cache
-        if (context.isCacheEnabled()) {
-            cache.put(result, context.getCacheKey());
+            objects.putAll(loaded);
+        }
+
+        List<CmisObject> result = new ArrayList<CmisObject>(ids.size());
+        for (String id : ids) {
+            result.add(objects.get(id));
         }
 
         return result;
     }
 
+    private CmisObject fetchObject(String objectId, OperationContext context) {
+        ObjectData objectData = binding.getObjectService().getObject(getRepositoryId(), objectId,
+                context.getFilterString(), context.isIncludeAllowableActions(), context.getIncludeRelationships(),
+                context.getRenditionFilterString(), context.isIncludePolicies(), context.isIncludeAcls(), null);
+
+        return getObjectFactory().convertObject(objectData, context);
+    }
+
     @Override
     public CmisObject getObjectByPath(String path) {
         return getObjectByPath(path, getDefaultContext());
     }
 
     @Override
-    public CmisObject getObjectByPath(String path, OperationContext context) {
+    public CmisObject getObjectByPath(final String path, final OperationContext context) {
         checkPath(path);
         checkContext(context);
 
-        CmisObject result = null;
+        if (!context.isCacheEnabled()) {
+            return fetchObjectByPath(path, context);
+        }
 
         // ask the cache first
-        if (context.isCacheEnabled() && !cachePathOmit) {
-            result = cache.getByPath(path, context.getCacheKey());
+        CmisObject stale = null;
+        if (!cachePathOmit) {
+            CmisObject result = cache.getByPath(path, context.getCacheKey());
             if (result != null) {
                 return result;
             }
+
+            if (cache instanceof StaleCache) {
+                stale = ((StaleCache) cache).getStaleByPath(path, context.getCacheKey());
+            }
         }
 
-        // get the object
+        // concurrent misses share one call
+        return pathRequests.execute(context.getCacheKey() + '\n' + path, new InFlightRequests.Loader<CmisObject>() {
+            @Override
+            public CmisObject load() {
+                CmisObject object = fetchObjectByPath(path, context);
+                cache.putPath(path, object, context.getCacheKey());
+                return object;
+            }
+        }, stale);
+    }
+
+    private CmisObject fetchObjectByPath(String path, OperationContext context) {
         ObjectData objectData = binding.getObjectService().getObjectByPath(getRepositoryId(), path,
                 context.getFilterString(), context.isIncludeAllowableActions(), context.getIncludeRelationships(),
                 context.getRenditionFilterString(), context.isIncludePolicies(), context.isIncludeAcls(), null);
 
-        result = getObjectFactory().convertObject(objectData, context);
-
-        // put into cache
-        if (context.isCacheEnabled()) {
-            cache.putPath(path, result, context.getCacheKey());
-        }
-
-        return result;
+        return getObjectFactory().convertObject(objectData, context);
     }
 
     @Override
@@ -991,7 +1079,8 @@ public class SessionImpl implements Session {
         final ObjectFactory of = getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<QueryResult> fetchPage(long skipCount) {
@@ -1058,7 +1147,8 @@ public class SessionImpl implements Session {
             statement.append(orderBy);
         }
 
-        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<CmisObject> fetchPage(long skipCount) {
@@ -1449,7 +1539,8 @@ public class SessionImpl implements Session {
         final RelationshipService relationshipService = getBinding().getRelationshipService();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<Relationship> fetchPage(long skipCount) {
@@ -37,8 +37,12 @@ import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
 /**
  * Synchronized cache implementation. The cache is limited to a specific size of
  * entries and works in a LRU mode.
+ * <p>
+ * If {@link SessionParameter#CACHE_STALE_OBJECTS} is set, expired objects are
+ * kept for the given time and can be retrieved with
+ * {@link #getStaleById(String, String)}.
  */
-public class CacheImpl implements Cache {
+public class CacheImpl implements StaleCache {
 
     private static final long serialVersionUID = 1L;
 
@@ -46,6 +50,7 @@ public class CacheImpl implements Cache {
 
     private int cacheSize;
     private int cacheTtl;
+    private int cacheStale;
     private int pathToIdSize;
     private int pathToIdTtl;
 
@@ -86,6 +91,16 @@ public class CacheImpl implements Cache {
                 cacheTtl = SessionParameterDefaults.CACHE_TTL_OBJECTS;
             }
 
+            // cache stale period
+            try {
+                cacheStale = Integer.valueOf(parameters.get(SessionParameter.CACHE_STALE_OBJECTS));
+                if (cacheStale < 0) {
+                    cacheStale = SessionParameterDefaults.CACHE_STALE_OBJECTS;
+                }
+            } catch (Exception e) {
+                cacheStale = SessionParameterDefaults.CACHE_STALE_OBJECTS;
+            }
+
             // path-to-id size
             try {
                 pathToIdSize = Integer.valueOf(parameters.get(SessionParameter.CACHE_SIZE_PATHTOID));
@@ -167,12 +182,13 @@ public class CacheImpl implements Cache {
             }
 
             CacheItem<Map<String, CmisObject>> item = objectMap.get(objectId);
-            if (item.isExpired()) {
+            if (item.isExpired(cacheStale)) {
                 objectMap.remove(objectId);
                 return false;
             }
 
-            return true;
+            // stale objects stay in the map but are not served by default
+            return !item.isExpired();
         } finally {
             lock.writeLock().unlock();
         }
@@ -187,11 +203,20 @@ public class CacheImpl implements Cache {
             }
 
             CacheItem<String> item = pathToIdMap.get(path);
-            if (item.isExpired() || !containsId(item.getItem(), cacheKey)) {
+            if (item.isExpired()) {
                 pathToIdMap.remove(path);
                 return false;
             }
 
+            String objectId = item.getItem();
+            if (!containsId(objectId, cacheKey)) {
+                // keep the path while the object is stale
+                if (!objectMap.containsKey(objectId)) {
+                    pathToIdMap.remove(path);
+                }
+                return false;
+            }
+
             return true;
         } finally {
             lock.writeLock().unlock();
@@ -206,7 +231,7 @@ public class CacheImpl implements Cache {
                 return null;
             }
 
-            Map<String, CmisObject> item = objectMap.get(objectId).getItem();
+            Map<String, CmisObject> item = objectMap.get(objectId).getItem(cacheStale);
             return item == null ? null : item.get(cacheKey);
         } finally {
             lock.writeLock().unlock();
@@ -228,6 +253,42 @@ public class CacheImpl implements Cache {
         }
     }
 
+    @Override
+    public CmisObject getStaleById(String objectId, String cacheKey) {
+        lock.writeLock().lock();
+        try {
+            CacheItem<Map<String, CmisObject>> item = objectMap.get(objectId);
+            if (item == null) {
+                return null;
+            }
+
+            Map<String, CmisObject> m = item.getItem(cacheStale);
+            if (m == null) {
+                objectMap.remove(objectId);
+                return null;
+            }
+
+            return m.get(cacheKey);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CmisObject getStaleByPath(String path, String cacheKey) {
+        lock.writeLock().lock();
+        try {
+            String objectId = getObjectIdByPath(path);
+            if (objectId == null) {
+                return null;
+            }
+
+            return getStaleById(objectId, cacheKey);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     @Override
     public String getObjectIdByPath(String path) {
         lock.writeLock().lock();
@@ -263,7 +324,7 @@ public class CacheImpl implements Cache {
         try {
             // get cache key map
             CacheItem<Map<String, CmisObject>> cacheKeyMap = objectMap.get(object.getId());
-            if (cacheKeyMap == null) {
+            if (cacheKeyMap == null || cacheKeyMap.isExpired()) {
                 cacheKeyMap = new CacheItem<Map<String, CmisObject>>(new HashMap<String, CmisObject>(), cacheTtl);
                 objectMap.put(object.getId(), cacheKeyMap);
             }
@@ -352,15 +413,27 @@ public class CacheImpl implements Cache {
         }
 
         public synchronized boolean isExpired() {
+            return isExpired(0);
+        }
+
+        /**
+         * Returns whether the item expired more than {@code stale}
+         * milliseconds ago.
+         */
+        public synchronized boolean isExpired(int stale) {
             if ((item == null) || (item.get() == null)) {
                 return true;
             }
 
-            return timestamp + ttl < System.currentTimeMillis();
+            return timestamp + ttl + stale < System.currentTimeMillis();
         }
 
         public synchronized T getItem() {
-            if (isExpired()) {
+            return getItem(0);
+        }
+
+        public synchronized T getItem(int stale) {
+            if (isExpired(stale)) {
                 item = null;
                 return null;
             }
@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
+
+/**
+ * Concurrent cache implementation for sessions that are shared by many
+ * threads.
+ * <p>
+ * Lookups never take a lock. Each cache is split into stripes, and each stripe
+ * evicts entries in an approximated LRU order (second chance / clock): a hit
+ * only marks an entry as recently used, and the eviction of the thread that
+ * overflows a stripe skips marked entries once. Expired entries are removed
+ * lazily when they are accessed or when the eviction reaches them.
+ * <p>
+ * The path-to-id map only holds object IDs. A path entry whose object is no
+ * longer in the object cache is dropped when it is resolved, so both maps stay
+ * consistent without a global lock.
+ * <p>
+ * This cache uses the same session parameters as {@link CacheImpl}. Set
+ * {@link SessionParameter#CACHE_CLASS} to the name of this class to use it.
+ */
+public class ConcurrentCacheImpl implements Cache {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int STRIPES = 16;
+
+    private int cacheSize;
+    private int cacheTtl;
+    private int pathToIdSize;
+    private int pathToIdTtl;
+
+    private transient volatile StripedLruMap<ConcurrentMap<String, CmisObject>> objectMap;
+    private transient volatile StripedLruMap<String> pathToIdMap;
+
+    /**
+     * Default constructor.
+     */
+    public ConcurrentCacheImpl() {
+    }
+
+    @Override
+    public void initialize(Session session, Map<String, String> parameters) {
+        assert parameters != null;
+
+        // cache size
+        try {
+            cacheSize = Integer.valueOf(parameters.get(SessionParameter.CACHE_SIZE_OBJECTS));
+            if (cacheSize < 0) {
+                cacheSize = 0;
+            }
+        } catch (Exception e) {
+            cacheSize = SessionParameterDefaults.CACHE_SIZE_OBJECTS;
+        }
+
+        // cache time-to-live
+        try {
+            cacheTtl = Integer.valueOf(parameters.get(SessionParameter.CACHE_TTL_OBJECTS));
+            if (cacheTtl < 0) {
+                cacheTtl = SessionParameterDefaults.CACHE_TTL_OBJECTS;
+            }
+        } catch (Exception e) {
+            cacheTtl = SessionParameterDefaults.CACHE_TTL_OBJECTS;
+        }
+
+        // path-to-id size
+        try {
+            pathToIdSize = Integer.valueOf(parameters.get(SessionParameter.CACHE_SIZE_PATHTOID));
+            if (pathToIdSize < 0) {
+                pathToIdSize = 0;
+            }
+        } catch (Exception e) {
+            pathToIdSize = SessionParameterDefaults.CACHE_SIZE_PATHTOID;
+        }
+
+        // path-to-id time-to-live
+        try {
+            pathToIdTtl = Integer.valueOf(parameters.get(SessionParameter.CACHE_TTL_PATHTOID));
+            if (pathToIdTtl < 0) {
+                pathToIdTtl = SessionParameterDefaults.CACHE_TTL_PATHTOID;
+            }
+        } catch (Exception e) {
+            pathToIdTtl = SessionParameterDefaults.CACHE_TTL_PATHTOID;
+        }
+
+        initializeInternals();
+    }
+
+    /**
+     * Sets up the internal objects.
+     */
+    private void initializeInternals() {
+        objectMap = new StripedLruMap<ConcurrentMap<String, CmisObject>>(cacheSize);
+        pathToIdMap = new StripedLruMap<String>(pathToIdSize);
+    }
+
+    @Override
+    public void clear() {
+        initializeInternals();
+    }
+
+    @Override
+    public boolean containsId(String objectId, String cacheKey) {
+        if (objectId == null) {
+            return false;
+        }
+
+        return objectMap.get(objectId) != null;
+    }
+
+    @Override
+    public boolean containsPath(String path, String cacheKey) {
+        if (path == null) {
+            return false;
+        }
+
+        return resolvePath(path) != null;
+    }
+
+    @Override
+    public CmisObject getById(String objectId, String cacheKey) {
+        if (objectId == null || cacheKey == null) {
+            return null;
+        }
+
+        ConcurrentMap<String, CmisObject> item = objectMap.get(objectId);
+        return item == null ? null : item.get(cacheKey);
+    }
+
+    @Override
+    public CmisObject getByPath(String path, String cacheKey) {
+        if (path == null) {
+            return null;
+        }
+
+        String objectId = resolvePath(path);
+        if (objectId == null) {
+            return null;
+        }
+
+        return getById(objectId, cacheKey);
+    }
+
+    @Override
+    public String getObjectIdByPath(String path) {
+        if (path == null) {
+            return null;
+        }
+
+        return pathToIdMap.get(path);
+    }
+
+    /**
+     * Returns the object ID for a path if the path and the object are both
+     * cached. Drops the path entry if the object is gone.
+     */
+    private String resolvePath(String path) {
+        StripedLruMap<String> paths = pathToIdMap;
+
+        Entry<String> entry = paths.getEntry(path);
+        if (entry == null) {
+            return null;
+        }
+
+        String objectId = entry.getValue();
+        if (objectId == null || objectMap.get(objectId) == null) {
+            paths.remove(path, entry);
+            return null;
+        }
+
+        return objectId;
+    }
+
+    @Override
+    public void put(CmisObject object, String cacheKey) {
+        // no object, no cache key - no cache
+        if ((object == null) || (cacheKey == null)) {
+            return;
+        }
+
+        // no id - no cache
+        String objectId = object.getId();
+        if (objectId == null) {
+            return;
+        }
+
+        // put into id cache
+        StripedLruMap<ConcurrentMap<String, CmisObject>> objects = objectMap;
+        while (true) {
+            ConcurrentMap<String, CmisObject> cacheKeyMap = objects.get(objectId);
+            if (cacheKeyMap == null) {
+                cacheKeyMap = new ConcurrentHashMap<String, CmisObject>();
+                cacheKeyMap.put(cacheKey, object);
+                if (objects.putIfAbsent(objectId, cacheKeyMap, cacheTtl)) {
+                    break;
+                }
+            } else {
+                cacheKeyMap.put(cacheKey, object);
+                break;
+            }
+        }
+
+        // folders may have a path, use it!
+        String path = object.getPropertyValue(PropertyIds.PATH);
+        if (path != null) {
+            pathToIdMap.put(path, objectId, pathToIdTtl);
+        }
+    }
+
+    @Override
+    public void putPath(String path, CmisObject object, String cacheKey) {
+        if (path == null) {
+            return;
+        }
+
+        put(object, cacheKey);
+
+        if ((object != null) && (object.getId() != null) && (cacheKey != null)) {
+            pathToIdMap.put(path, object.getId(), pathToIdTtl);
+        }
+    }
+
+    @Override
+    public void remove(String objectId) {
+        if (objectId == null) {
+            return;
+        }
+
+        objectMap.remove(objectId);
+    }
+
+    @Override
+    public void removePath(String path) {
+        if (path == null) {
+            return;
+        }
+
+        pathToIdMap.remove(path);
+    }
+
+    @Override
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        objectMap.writeEntries(out);
+        pathToIdMap.writeEntries(out);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initializeInternals();
+        objectMap.readEntries(in);
+        pathToIdMap.readEntries(in);
+    }
+
+    // --- striped LRU map ---
+
+    /**
+     * Size-bounded map with per-entry expiry. Reads are lock-free; only the
+     * thread that evicts entries from an overflowing stripe holds that stripe's
+     * lock.
+     */
+    private static class StripedLruMap<T> {
+
+        private final Stripe<T>[] stripes;
+
+        @SuppressWarnings("unchecked")
+        StripedLruMap(int maxSize) {
+            int stripeCount = Math.max(1, Math.min(STRIPES, maxSize / STRIPES));
+            int stripeSize = maxSize / stripeCount;
+            int remainder = maxSize % stripeCount;
+
+            stripes = new Stripe[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new Stripe<T>(i < remainder ? stripeSize + 1 : stripeSize);
+            }
+        }
+
+        private Stripe<T> stripeFor(String key) {
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            return stripes[(h & 0x7fffffff) % stripes.length];
+        }
+
+        Entry<T> getEntry(String key) {
+            return stripeFor(key).getEntry(key);
+        }
+
+        T get(String key) {
+            Entry<T> entry = getEntry(key);
+            return entry == null ? null : entry.getValue();
+        }
+
+        void put(String key, T value, int ttl) {
+            stripeFor(key).put(key, new Entry<T>(key, value, ttl), false);
+        }
+
+        boolean putIfAbsent(String key, T value, int ttl) {
+            return stripeFor(key).put(key, new Entry<T>(key, value, ttl), true);
+        }
+
+        void remove(String key) {
+            stripeFor(key).map.remove(key);
+        }
+
+        void remove(String key, Entry<T> entry) {
+            stripeFor(key).map.remove(key, entry);
+        }
+
+        void writeEntries(ObjectOutputStream out) throws IOException {
+            for (Stripe<T> stripe : stripes) {
+                for (Entry<T> entry : stripe.map.values()) {
+                    T value = entry.getValue();
+                    if (value != null) {
+                        out.writeObject(entry.key);
+                        out.writeObject(value);
+                        out.writeLong(entry.expiresAt);
+                    }
+                }
+            }
+            out.writeObject(null);
+        }
+
+        void readEntries(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            long now = System.currentTimeMillis();
+            while (true) {
+                String key = (String) in.readObject();
+                if (key == null) {
+                    break;
+                }
+
+                @SuppressWarnings("unchecked")
+                T value = (T) in.readObject();
+                long expiresAt = in.readLong();
+
+                if (expiresAt >= now) {
+                    stripeFor(key).put(key, new Entry<T>(key, value, expiresAt), false);
+                }
+            }
+        }
+    }
+
+    private static class Stripe<T> {
+
+        final ConcurrentHashMap<String, Entry<T>> map = new ConcurrentHashMap<String, Entry<T>>();
+        final ConcurrentLinkedQueue<Entry<T>> queue = new ConcurrentLinkedQueue<Entry<T>>();
+        final AtomicInteger queueSize = new AtomicInteger();
+        final ReentrantLock evictionLock = new ReentrantLock();
+        final int maxSize;
+
+        Stripe(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        Entry<T> getEntry(String key) {
+            Entry<T> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.isExpired()) {
+                map.remove(key, entry);
+                return null;
+            }
+
+            entry.referenced = true;
+            return entry;
+        }
+
+        boolean put(String key, Entry<T> entry, boolean onlyIfAbsent) {
+            if (maxSize == 0) {
+                return true;
+            }
+
+            if (onlyIfAbsent) {
+                Entry<T> current = map.get(key);
+                if (current != null && !current.isExpired()) {
+                    return false;
+                }
+                if (current == null ? map.putIfAbsent(key, entry) != null : !map.replace(key, current, entry)) {
+                    return false;
+                }
+            } else {
+                map.put(key, entry);
+            }
+
+            queue.offer(entry);
+            if (queueSize.incrementAndGet() > maxSize) {
+                evict();
+            }
+
+            return true;
+        }
+
+        /**
+         * Removes entries until the stripe is back to its maximum size.
+         * Recently used entries get a second chance, stale queue nodes of
+         * replaced or removed entries are discarded.
+         */
+        private void evict() {
+            // re-check after unlocking, another thread may have added entries
+            // while this thread was holding the lock
+            while (queueSize.get() > maxSize && evictionLock.tryLock()) {
+                boolean evicted = false;
+                try {
+                    // entries only get a second chance within the first two
+                    // rounds, so that concurrent hits cannot stall eviction
+                    int secondChances = 2 * queueSize.get();
+                    int budget = 2 * secondChances;
+                    while (queueSize.get() > maxSize && budget-- > 0) {
+                        Entry<T> entry = queue.poll();
+                        if (entry == null) {
+                            break;
+                        }
+
+                        if (map.get(entry.key) != entry) {
+                            // replaced or removed
+                            queueSize.decrementAndGet();
+                            evicted = true;
+                        } else if (map.size() <= maxSize) {
+                            // only stale queue nodes have to go
+                            queue.offer(entry);
+                        } else if (entry.referenced && !entry.isExpired() && secondChances-- > 0) {
+                            entry.referenced = false;
+                            queue.offer(entry);
+                        } else {
+                            map.remove(entry.key, entry);
+                            queueSize.decrementAndGet();
+                            evicted = true;
+                        }
+                    }
+                } finally {
+                    evictionLock.unlock();
+                }
+
+                if (!evicted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // --- cache entry ---
+
+    private static class Entry<T> {
+
+        final String key;
+        final SoftReference<T> value;
+        final long expiresAt;
+        volatile boolean referenced;
+
+        Entry(String key, T value, int ttl) {
+            this(key, value, System.currentTimeMillis() + ttl);
+        }
+
+        Entry(String key, T value, long expiresAt) {
+            this.key = key;
+            this.value = new SoftReference<T>(value);
+            this.expiresAt = expiresAt;
+            this.referenced = true;
+        }
+
+        boolean isExpired() {
+            return value.get() == null || expiresAt < System.currentTimeMillis();
+        }
+
+        T getValue() {
+            return isExpired() ? null : value.get();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+
+/**
+ * A cache that keeps expired objects for a while.
+ * <p>
+ * The session serves such a stale object to concurrent callers while another
+ * thread is fetching a fresh copy from the repository.
+ */
+public interface StaleCache extends Cache {
+
+    /**
+     * Returns an object that is cached or has expired only recently.
+     *
+     * @return the object or {@code null} if the object is not cached or has
+     *         expired too long ago
+     */
+    CmisObject getStaleById(String objectId, String cacheKey);
+
+    /**
+     * Returns an object that is cached or has expired only recently.
+     *
+     * @return the object or {@code null} if the path is not known or the
+     *         object has expired too long ago
+     */
+    CmisObject getStaleByPath(String path, String cacheKey);
+}
@@ -29,9 +29,30 @@ import java.util.List;
 public abstract class AbstractPageFetcher<T> {
 
     protected long maxNumItems;
+    private final int prefetchPages;
 
     protected AbstractPageFetcher(long maxNumItems) {
+        this(maxNumItems, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxNumItems the page size
+     * @param prefetchPages the number of pages an iterator fetches ahead in
+     *            the background, 0 turns prefetching off
+     */
+    protected AbstractPageFetcher(long maxNumItems, int prefetchPages) {
         this.maxNumItems = maxNumItems;
+        this.prefetchPages = prefetchPages;
+    }
+
+    /**
+     * Returns the number of pages an iterator fetches ahead in the
+     * background.
+     */
+    public int getPrefetchPages() {
+        return prefetchPages;
     }
 
     /**
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.QueryStatement;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.ObjectIdImpl;
+import org.apache.chemistry.opencmis.client.runtime.OperationContextImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Loads many objects by id with as few round trips as possible.
+ * <p>
+ * If the repository supports queries, the objects are first searched with
+ * {@code cmis:objectId IN (...)} queries over documents and folders. A query
+ * only returns the properties of the base type it selects from, so it is only
+ * used if the property filter of the operation context names properties of
+ * the base type and the context requests no ACLs, policies, relationships or
+ * renditions. The objects found this way are then the same that
+ * {@link Session#getObject(String, OperationContext)} returns. Objects that
+ * are not found with a query, for example relationships, policies, items or
+ * older versions, and all objects of repositories without query support are
+ * fetched with concurrent {@code getObject} calls.
+ */
+public class BatchObjectLoader {
+
+    private static final BaseTypeId[] QUERY_BASE_TYPES = new BaseTypeId[] { BaseTypeId.CMIS_DOCUMENT,
+            BaseTypeId.CMIS_FOLDER };
+
+    private final Session session;
+    private final int batchSize;
+    private final int threads;
+
+    /**
+     * Creates a loader.
+     *
+     * @param session
+     *            the session
+     * @param batchSize
+     *            the maximum number of ids in one query
+     * @param threads
+     *            the maximum number of concurrent {@code getObject} calls
+     */
+    public BatchObjectLoader(Session session, int batchSize, int threads) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
+        this.session = session;
+        this.batchSize = batchSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Loads objects.
+     *
+     * @param objectIds
+     *            the object ids
+     * @param context
+     *            the operation context
+     *
+     * @return the objects by object id, objects that don't exist are missing
+     */
+    public Map<String, CmisObject> load(Collection<String> objectIds, OperationContext context) {
+        Map<String, CmisObject> result = new HashMap<String, CmisObject>();
+        Set<String> missing = new LinkedHashSet<String>(objectIds);
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        if (canQuery(context)) {
+            queryObjects(missing, context, result);
+        }
+
+        getObjects(missing, context, result);
+
+        return result;
+    }
+
+    /**
+     * Returns whether the objects can be found with a query. Queries don't
+     * return ACLs and policies, and relationships and renditions are
+     * optional.
+     */
+    private boolean canQuery(OperationContext context) {
+        if (context.isIncludeAcls() || context.isIncludePolicies()) {
+            return false;
+        }
+
+        IncludeRelationships includeRelationships = context.getIncludeRelationships();
+        if (includeRelationships != null && includeRelationships != IncludeRelationships.NONE) {
+            return false;
+        }
+
+        String renditionFilter = context.getRenditionFilterString();
+        if (renditionFilter != null && !OperationContextImpl.RENDITION_NONE.equals(renditionFilter)) {
+            return false;
+        }
+
+        // all properties include the properties of subtypes
+        Set<String> filter = context.getFilter();
+        if (filter == null || filter.contains(OperationContextImpl.PROPERTIES_STAR)) {
+            return false;
+        }
+
+        RepositoryInfo info = session.getRepositoryInfo();
+        if (info == null) {
+            return false;
+        }
+
+        RepositoryCapabilities capabilities = info.getCapabilities();
+        if (capabilities == null) {
+            return false;
+        }
+
+        CapabilityQuery query = capabilities.getQueryCapability();
+        return query != null && query != CapabilityQuery.NONE;
+    }
+
+    /**
+     * Queries the missing objects in batches and removes the found objects
+     * from the missing set.
+     */
+    private void queryObjects(Set<String> missing, OperationContext context, Map<String, CmisObject> result) {
+        OperationContext queryContext = new OperationContextImpl(context);
+        queryContext.setMaxItemsPerPage(batchSize);
+        queryContext.setOrderBy(null);
+
+        List<BaseTypeId> baseTypes = new ArrayList<BaseTypeId>();
+        for (BaseTypeId baseType : QUERY_BASE_TYPES) {
+            if (isBaseTypeFilter(baseType, context.getFilter())) {
+                baseTypes.add(baseType);
+            }
+        }
+
+        if (baseTypes.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<String>(missing);
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            List<String> batch = new ArrayList<String>(ids.subList(start, Math.min(start + batchSize, ids.size())));
+
+            for (BaseTypeId baseType : baseTypes) {
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                try {
+                    for (CmisObject object : session.queryObjects(baseType.value(), createWhereClause(batch), false,
+                            queryContext)) {
+                        if (batch.remove(object.getId())) {
+                            result.put(object.getId(), object);
+                            missing.remove(object.getId());
+                        }
+                    }
+                } catch (CmisBaseException e) {
+                    // the repository cannot answer this query, fetch the
+                    // remaining objects one by one
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether all properties of the filter are defined by the base
+     * type.
+     */
+    private boolean isBaseTypeFilter(BaseTypeId baseType, Set<String> filter) {
+        ObjectType type = session.getTypeDefinition(baseType.value());
+        if (type == null || type.getPropertyDefinitions() == null) {
+            return false;
+        }
+
+        Set<String> names = new HashSet<String>();
+        for (PropertyDefinition<?> propDef : type.getPropertyDefinitions().values()) {
+            names.add(propDef.getId());
+            names.add(propDef.getQueryName());
+        }
+
+        return names.containsAll(filter);
+    }
+
+    private String createWhereClause(List<String> ids) {
+        ObjectIdImpl[] objectIds = new ObjectIdImpl[ids.size()];
+        for (int i = 0; i < objectIds.length; i++) {
+            objectIds[i] = new ObjectIdImpl(ids.get(i));
+        }
+
+        QueryStatement statement = session.createQueryStatement(PropertyIds.OBJECT_ID + " IN (?)");
+        statement.setId(1, objectIds);
+
+        return statement.toQueryString();
+    }
+
+    /**
+     * Fetches the missing objects with concurrent {@code getObject} calls.
+     */
+    private void getObjects(Set<String> missing, final OperationContext context, Map<String, CmisObject> result) {
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        if (missing.size() == 1 || threads == 1) {
+            for (String objectId : missing) {
+                CmisObject object = getObject(objectId, context);
+                if (object != null) {
+                    result.put(objectId, object);
+                }
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, missing.size()),
+                new LoaderThreadFactory());
+
+        Map<String, Future<CmisObject>> futures = new HashMap<String, Future<CmisObject>>();
+        try {
+            for (final String objectId : missing) {
+                futures.put(objectId, executor.submit(new Callable<CmisObject>() {
+                    @Override
+                    public CmisObject call() {
+                        return getObject(objectId, context);
+                    }
+                }));
+            }
+
+            for (Map.Entry<String, Future<CmisObject>> future : futures.entrySet()) {
+                CmisObject object = future.getValue().get();
+                if (object != null) {
+                    result.put(future.getKey(), object);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Interrupted while loading objects!", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CmisRuntimeException("Loading objects failed: " + cause, cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CmisObject getObject(String objectId, OperationContext context) {
+        try {
+            return session.getObject(objectId, context);
+        } catch (CmisObjectNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "opencmis-getobjects-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
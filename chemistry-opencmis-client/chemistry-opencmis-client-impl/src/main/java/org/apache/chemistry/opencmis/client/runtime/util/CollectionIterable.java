@@ -39,6 +39,11 @@ public class CollectionIterable<T> extends AbstractIterable<T> {
 
     @Override
     protected AbstractIterator<T> createIterator() {
-        return new CollectionIterator<T>(getSkipCount(), getPageFetcher());
+        AbstractPageFetcher<T> pageFetcher = getPageFetcher();
+        if (pageFetcher.getPrefetchPages() > 0) {
+            pageFetcher = new PrefetchPageFetcher<T>(pageFetcher);
+        }
+
+        return new CollectionIterator<T>(getSkipCount(), pageFetcher);
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Lets concurrent callers that request the same thing share one request.
+ * <p>
+ * The first caller for a key executes the loader. Callers that arrive with
+ * the same key while the loader is running wait for it and get the same
+ * result or exception.
+ *
+ * @param <T>
+ *            the type of the result
+ */
+public class InFlightRequests<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ConcurrentMap<String, Call<T>> calls = new ConcurrentHashMap<String, Call<T>>();
+
+    /**
+     * Loads a value.
+     *
+     * @param <T>
+     *            the type of the value
+     */
+    public interface Loader<T> {
+        T load();
+    }
+
+    /**
+     * Executes the loader or waits for the caller that is already executing
+     * it for the same key.
+     */
+    public T execute(String key, Loader<T> loader) {
+        return execute(key, loader, null);
+    }
+
+    /**
+     * Executes the loader or, if another caller is already executing it for
+     * the same key, returns {@code stale}. If {@code stale} is {@code null}
+     * this method waits for the other caller.
+     */
+    public T execute(String key, Loader<T> loader, T stale) {
+        Call<T> call = new Call<T>();
+        Call<T> running = calls.putIfAbsent(key, call);
+
+        if (running != null) {
+            if (stale != null) {
+                return stale;
+            }
+
+            return running.get();
+        }
+
+        try {
+            call.result = loader.load();
+        } catch (RuntimeException e) {
+            call.exception = e;
+        } catch (Error e) {
+            call.error = e;
+        } finally {
+            calls.remove(key, call);
+            call.done.countDown();
+        }
+
+        return call.get();
+    }
+
+    /**
+     * Returns whether a request for the given key is running.
+     */
+    public boolean isInFlight(String key) {
+        return calls.containsKey(key);
+    }
+
+    /**
+     * Recreates the map of running requests after deserialization.
+     */
+    private Object readResolve() {
+        return new InFlightRequests<T>();
+    }
+
+    private static class Call<T> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private T result;
+        private RuntimeException exception;
+        private Error error;
+
+        T get() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CmisRuntimeException("Interrupted while waiting for a concurrent request!", e);
+            }
+
+            if (exception != null) {
+                throw exception;
+            }
+            if (error != null) {
+                throw error;
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Page fetcher that fetches the following pages in the background while the
+ * current page is consumed.
+ * <p>
+ * After a page has been fetched, the next page is requested on a background
+ * thread, up to {@link AbstractPageFetcher#getPrefetchPages()} pages ahead of
+ * the consumer. Pages are fetched one after the other because the skip count
+ * of a page depends on the size of the previous page. Requesting a page that
+ * has not been prefetched discards all prefetched pages.
+ * <p>
+ * One instance serves one iterator. The background thread ends when it has
+ * been idle for a few seconds, so abandoned iterators don't keep threads
+ * alive.
+ *
+ * @param <T> the type of items fetched
+ */
+public class PrefetchPageFetcher<T> extends AbstractPageFetcher<T> {
+
+    private static final long KEEP_ALIVE_SECONDS = 5;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final AbstractPageFetcher<T> pageFetcher;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<Long, Future<Page<T>>> pending = new HashMap<Long, Future<Page<T>>>();
+    private long nextSkipCount = -1;
+    private int generation = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param pageFetcher the page fetcher that fetches the pages
+     */
+    public PrefetchPageFetcher(AbstractPageFetcher<T> pageFetcher) {
+        super(pageFetcher.maxNumItems, Math.max(1, pageFetcher.getPrefetchPages()));
+
+        this.pageFetcher = pageFetcher;
+        this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "opencmis-prefetch-" + THREAD_COUNT.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    protected Page<T> fetchPage(long skipCount) {
+        Future<Page<T>> future;
+        synchronized (this) {
+            future = pending.remove(skipCount);
+            if (future == null) {
+                reset();
+            }
+        }
+
+        Page<T> page;
+        if (future == null) {
+            page = pageFetcher.fetchPage(skipCount);
+            synchronized (this) {
+                nextSkipCount = getNextSkipCount(skipCount, page);
+            }
+        } else {
+            page = getPage(future);
+        }
+
+        prefetch();
+
+        return page;
+    }
+
+    @Override
+    public void setMaxNumItems(int maxNumItems) {
+        super.setMaxNumItems(maxNumItems);
+        pageFetcher.setMaxNumItems(maxNumItems);
+
+        synchronized (this) {
+            reset();
+        }
+    }
+
+    /**
+     * Discards all prefetched pages. Must be called while holding the lock.
+     */
+    private void reset() {
+        generation++;
+        for (Future<Page<T>> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        nextSkipCount = -1;
+    }
+
+    /**
+     * Requests the next page if its skip count is known and not too many
+     * pages are waiting.
+     */
+    private synchronized void prefetch() {
+        if (nextSkipCount < 0 || pending.size() >= getPrefetchPages()) {
+            return;
+        }
+
+        final long skipCount = nextSkipCount;
+        final int currentGeneration = generation;
+        nextSkipCount = -1;
+
+        pending.put(skipCount, executor.submit(new Callable<Page<T>>() {
+            @Override
+            public Page<T> call() {
+                Page<T> page = pageFetcher.fetchPage(skipCount);
+
+                synchronized (PrefetchPageFetcher.this) {
+                    if (currentGeneration != generation) {
+                        return page;
+                    }
+                    nextSkipCount = getNextSkipCount(skipCount, page);
+                }
+
+                prefetch();
+
+                return page;
+            }
+        }));
+    }
+
+    private Page<T> getPage(Future<Page<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Interrupted while waiting for a page!", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CmisRuntimeException("Fetching page failed: " + cause, cause);
+        }
+    }
+
+    /**
+     * Returns the skip count of the page after the given page or -1 if there
+     * is no such page.
+     */
+    private static long getNextSkipCount(long skipCount, Page<?> page) {
+        if (page == null || !Boolean.TRUE.equals(page.getHasMoreItems())) {
+            return -1;
+        }
+
+        List<?> items = page.getItems();
+        if (items == null || items.isEmpty()) {
+            return -1;
+        }
+
+        long next = skipCount + items.size();
+        Long total = page.getTotalNumItems();
+        if (total != null && total.longValue() >= 0 && next >= total.longValue()) {
+            return -1;
+        }
+
+        return next;
+    }
+}
@@ -0,0 +1,703 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+import org.apache.chemistry.opencmis.client.api.ChangeEvents;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.RepositoryCapabilities;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Follows the change log of a repository and hands the change events to a
+ * {@link Handler} on several worker threads.
+ * <p>
+ * A poller thread compares the latest change log token of the repository with
+ * the last token it has read and fetches the new change events with
+ * {@link Session#getContentChanges(String, boolean, long, OperationContext)}.
+ * The events are put into bounded queues, one per worker. Events of the same
+ * object always go to the same worker, so they are handled in change log
+ * order. If the workers fall behind, the poller blocks until there is room in
+ * the queues.
+ * <p>
+ * The token of a page is saved to the {@link TokenStore} when all events of
+ * this page and of all previous pages have been handled. After a restart, the
+ * follower continues with the first page that has not been handled
+ * completely, so events may be handled more than once but are not lost. If
+ * the store holds no token, the follower starts with the latest change log
+ * token of the repository and only reports changes made after the start.
+ * <p>
+ * The poll interval adapts to the event rate. The next page is fetched
+ * immediately if the repository has more events. Otherwise the interval is
+ * chosen so that a poll returns about half a page, between the minimum and
+ * the maximum poll interval. Connection errors are retried with a growing
+ * interval.
+ * <p>
+ * The follower relies on the repository returning a new change log token with
+ * each page and repeating the event of the requested token as the first
+ * event, as the CMIS specification requires.
+ */
+public class ChangeLogFollower {
+
+    /** Default number of worker threads. */
+    public static final int DEFAULT_WORKERS = 4;
+    /** Default number of queued events. */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+    /** Default number of events per page. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /** Default minimum poll interval in milliseconds. */
+    public static final long DEFAULT_MIN_POLL_INTERVAL = 1000;
+    /** Default maximum poll interval in milliseconds. */
+    public static final long DEFAULT_MAX_POLL_INTERVAL = 60 * 1000;
+
+    private static final AtomicInteger FOLLOWER_COUNT = new AtomicInteger();
+
+    /**
+     * Handles change events. The method is called concurrently from the worker
+     * threads, but never concurrently for the same object.
+     */
+    public interface Handler {
+
+        /**
+         * Handles a change event. A {@code RuntimeException} stops the
+         * follower. The page of the event is not checkpointed and is
+         * delivered again after the next start.
+         *
+         * @param event
+         *            the change event
+         */
+        void handle(ChangeEvent event);
+    }
+
+    /**
+     * Stores the change log token of the last completely handled page.
+     */
+    public interface TokenStore {
+
+        /**
+         * Returns the stored token or {@code null} if no token has been
+         * stored yet.
+         */
+        String load() throws IOException;
+
+        /**
+         * Stores a token.
+         */
+        void save(String token) throws IOException;
+    }
+
+    /**
+     * Stores the change log token in a properties file. The file is replaced
+     * in one step, so a crash never leaves a partially written token behind.
+     */
+    public static class FileTokenStore implements TokenStore {
+
+        private static final String KEY_TOKEN = "changeLogToken";
+
+        private final File file;
+
+        public FileTokenStore(File file) {
+            if (file == null) {
+                throw new IllegalArgumentException("file must be set!");
+            }
+
+            this.file = file;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public String load() throws IOException {
+            if (!file.isFile()) {
+                return null;
+            }
+
+            java.util.Properties properties = new java.util.Properties();
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+
+            return properties.getProperty(KEY_TOKEN);
+        }
+
+        @Override
+        public void save(String token) throws IOException {
+            java.util.Properties properties = new java.util.Properties();
+            properties.setProperty(KEY_TOKEN, token);
+
+            // write a temporary file and replace the old token in one step
+            File tmp = new File(file.getPath() + ".tmp");
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                properties.store(out, "OpenCMIS change log token");
+            } finally {
+                out.close();
+            }
+
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private final Session session;
+    private final TokenStore tokenStore;
+    private int workers = DEFAULT_WORKERS;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private long minPollInterval = DEFAULT_MIN_POLL_INTERVAL;
+    private long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+    private boolean includeProperties = false;
+    private OperationContext context;
+
+    private volatile boolean stopped = true;
+    private volatile Throwable failure;
+    private volatile String checkpoint;
+    private volatile long pollInterval;
+    private final AtomicLong handledEvents = new AtomicLong();
+    private final Deque<Batch> batches = new ArrayDeque<Batch>();
+    private Thread poller;
+    private Thread[] workerThreads;
+    private BlockingQueue<Task>[] queues;
+
+    /**
+     * Creates a follower that stores its token in the given file.
+     */
+    public ChangeLogFollower(Session session, File tokenFile) {
+        this(session, new FileTokenStore(tokenFile));
+    }
+
+    /**
+     * Creates a follower that stores its token in the given store.
+     */
+    public ChangeLogFollower(Session session, TokenStore tokenStore) {
+        if (session == null) {
+            throw new IllegalArgumentException("session must be set!");
+        }
+        if (tokenStore == null) {
+            throw new IllegalArgumentException("tokenStore must be set!");
+        }
+
+        this.session = session;
+        this.tokenStore = tokenStore;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     */
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+
+        this.workers = workers;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Sets the number of events that may wait for a worker. The capacity is
+     * split between the workers.
+     */
+    public void setQueueSize(int queueSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Invalid queue size: " + queueSize);
+        }
+
+        this.queueSize = queueSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Sets the maximum number of events fetched with one call.
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize < 2) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        this.pageSize = pageSize;
+    }
+
+    public long getMinPollInterval() {
+        return minPollInterval;
+    }
+
+    public long getMaxPollInterval() {
+        return maxPollInterval;
+    }
+
+    /**
+     * Sets the range of the poll interval in milliseconds.
+     */
+    public void setPollInterval(long minPollInterval, long maxPollInterval) {
+        if (minPollInterval < 0) {
+            throw new IllegalArgumentException("Invalid minimum poll interval: " + minPollInterval);
+        }
+        if (maxPollInterval < minPollInterval || maxPollInterval == 0) {
+            throw new IllegalArgumentException("Invalid maximum poll interval: " + maxPollInterval);
+        }
+
+        this.minPollInterval = minPollInterval;
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    public boolean isIncludeProperties() {
+        return includeProperties;
+    }
+
+    /**
+     * Sets whether the change events should contain the properties of the
+     * changed objects.
+     */
+    public void setIncludeProperties(boolean includeProperties) {
+        this.includeProperties = includeProperties;
+    }
+
+    public OperationContext getOperationContext() {
+        return context;
+    }
+
+    /**
+     * Sets the operation context for fetching the change events. If no
+     * context is set, the session default context is used.
+     */
+    public void setOperationContext(OperationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Starts following the change log.
+     *
+     * @param handler
+     *            the handler
+     *
+     * @throws CmisNotSupportedException
+     *             if the repository has no change log
+     * @throws CmisRuntimeException
+     *             if the token could not be loaded
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void start(final Handler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must be set!");
+        }
+        if (isRunning()) {
+            throw new IllegalStateException("Follower is already running!");
+        }
+
+        checkChangesCapability();
+
+        String token;
+        try {
+            token = tokenStore.load();
+        } catch (IOException e) {
+            throw new CmisRuntimeException("Cannot load change log token: " + e.getMessage(), e);
+        }
+
+        if (token == null) {
+            token = session.getLatestChangeLogToken();
+            if (token == null) {
+                throw new CmisNotSupportedException("Repository did not return a change log token!");
+            }
+        }
+
+        final OperationContext fetchContext = context == null ? session.getDefaultContext() : context;
+        final String startToken = token;
+
+        stopped = false;
+        failure = null;
+        checkpoint = token;
+        pollInterval = minPollInterval;
+        handledEvents.set(0);
+        synchronized (batches) {
+            batches.clear();
+        }
+
+        int id = FOLLOWER_COUNT.incrementAndGet();
+        int capacity = Math.max(1, queueSize / workers);
+
+        queues = new BlockingQueue[workers];
+        workerThreads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            final BlockingQueue<Task> queue = new ArrayBlockingQueue<Task>(capacity);
+            queues[i] = queue;
+            workerThreads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work(queue, handler);
+                }
+            }, "opencmis-changelog-" + id + "-worker-" + (i + 1));
+            workerThreads[i].setDaemon(true);
+            workerThreads[i].start();
+        }
+
+        poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                poll(startToken, fetchContext);
+            }
+        }, "opencmis-changelog-" + id + "-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    /**
+     * Stops following the change log. Events that have already been queued
+     * are handled before this method returns.
+     */
+    public void stop() {
+        Thread pollerThread;
+        Thread[] threads;
+        BlockingQueue<Task>[] workerQueues;
+        synchronized (this) {
+            if (poller == null) {
+                return;
+            }
+
+            stopped = true;
+            pollerThread = poller;
+            threads = workerThreads;
+            workerQueues = queues;
+        }
+
+        try {
+            pollerThread.interrupt();
+            join(pollerThread);
+
+            for (int i = 0; i < threads.length; i++) {
+                while (threads[i].isAlive() && !workerQueues[i].offer(Task.STOP, 100, TimeUnit.MILLISECONDS)) {
+                    // the worker is busy, wait until there is room
+                }
+            }
+
+            for (Thread thread : threads) {
+                join(thread);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Interrupted while stopping the follower!", e);
+        }
+    }
+
+    /**
+     * Returns whether the follower polls the change log.
+     */
+    public boolean isRunning() {
+        return !stopped;
+    }
+
+    /**
+     * Returns the exception that stopped the follower or {@code null} if the
+     * follower is running or has been stopped with {@link #stop()}.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the last checkpointed change log token.
+     */
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Returns the current poll interval in milliseconds.
+     */
+    public long getPollInterval() {
+        return pollInterval;
+    }
+
+    /**
+     * Returns the number of events handled since the last start.
+     */
+    public long getHandledEvents() {
+        return handledEvents.get();
+    }
+
+    private void checkChangesCapability() {
+        RepositoryInfo info = session.getRepositoryInfo();
+        RepositoryCapabilities capabilities = info == null ? null : info.getCapabilities();
+        if (capabilities != null && capabilities.getChangesCapability() == CapabilityChanges.NONE) {
+            throw new CmisNotSupportedException("Repository does not support change logs!");
+        }
+    }
+
+    private void join(Thread thread) throws InterruptedException {
+        if (thread != Thread.currentThread()) {
+            thread.join();
+        }
+    }
+
+    private void fail(Throwable t) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = t;
+            }
+            stopped = true;
+        }
+
+        poller.interrupt();
+        for (Thread thread : workerThreads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Poller loop.
+     */
+    private void poll(String startToken, OperationContext fetchContext) {
+        String token = startToken;
+        long lastPoll = System.currentTimeMillis();
+        long retryInterval = minPollInterval;
+
+        try {
+            while (!stopped) {
+                long now = System.currentTimeMillis();
+                long elapsed = Math.max(1, now - lastPoll);
+                lastPoll = now;
+
+                Page page;
+                try {
+                    page = fetch(token, fetchContext);
+                    retryInterval = minPollInterval;
+                } catch (CmisConnectionException e) {
+                    // the repository is not reachable, try again later
+                    retryInterval = Math.min(maxPollInterval, Math.max(1, retryInterval * 2));
+                    pollInterval = retryInterval;
+                    Thread.sleep(retryInterval);
+                    continue;
+                }
+
+                if (page != null) {
+                    dispatch(page);
+                    token = page.token;
+                }
+
+                pollInterval = nextPollInterval(page, elapsed);
+                if (pollInterval > 0) {
+                    Thread.sleep(pollInterval);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        } catch (RuntimeException e) {
+            fail(e);
+        } catch (Error e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Fetches the events after the given token or returns {@code null} if
+     * there are no new events.
+     */
+    private Page fetch(String token, OperationContext fetchContext) {
+        String latest = session.getLatestChangeLogToken();
+        if (token.equals(latest)) {
+            return null;
+        }
+
+        ChangeEvents changes = session.getContentChanges(token, includeProperties, pageSize, fetchContext);
+
+        List<ChangeEvent> events = changes.getChangeEvents();
+        // the first event is the event of the requested token, which has
+        // been handled with the previous page
+        if (events != null && !events.isEmpty()) {
+            events = events.subList(1, events.size());
+        }
+
+        String nextToken = changes.getLatestChangeLogToken();
+        if (nextToken == null) {
+            if (changes.getHasMoreItems() || latest == null) {
+                throw new CmisNotSupportedException("Repository did not return a change log token!");
+            }
+            // all events up to the latest token have been returned
+            nextToken = latest;
+        }
+
+        return new Page(nextToken, events, changes.getHasMoreItems());
+    }
+
+    /**
+     * Puts the events of a page into the worker queues. Blocks if a queue is
+     * full.
+     */
+    private void dispatch(Page page) throws InterruptedException {
+        int size = page.events == null ? 0 : page.events.size();
+        Batch batch = new Batch(page.token, size);
+
+        synchronized (batches) {
+            batches.addLast(batch);
+        }
+
+        if (size == 0) {
+            completed();
+            return;
+        }
+
+        for (ChangeEvent event : page.events) {
+            String objectId = event.getObjectId();
+            int index = objectId == null ? 0 : (objectId.hashCode() & Integer.MAX_VALUE) % queues.length;
+            queues[index].put(new Task(event, batch));
+        }
+    }
+
+    /**
+     * Returns the time to wait before the next poll.
+     */
+    private long nextPollInterval(Page page, long elapsed) {
+        if (page == null || page.events == null || page.events.isEmpty()) {
+            return Math.min(maxPollInterval, Math.max(minPollInterval, Math.max(1, pollInterval) * 2));
+        }
+
+        if (page.hasMoreItems) {
+            return 0;
+        }
+
+        // aim for half a page per poll at the current event rate
+        long interval = elapsed * pageSize / (2L * page.events.size());
+        return Math.min(maxPollInterval, Math.max(minPollInterval, interval));
+    }
+
+    /**
+     * Worker loop.
+     */
+    private void work(BlockingQueue<Task> queue, Handler handler) {
+        try {
+            while (true) {
+                Task task = queue.take();
+                if (task == Task.STOP) {
+                    return;
+                }
+
+                handler.handle(task.event);
+                handledEvents.incrementAndGet();
+
+                if (task.batch.remaining.decrementAndGet() == 0) {
+                    completed();
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped after a failure
+        } catch (RuntimeException e) {
+            fail(e);
+        } catch (Error e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Saves the token of the last page that has been handled completely
+     * together with all pages before it.
+     */
+    private void completed() {
+        synchronized (batches) {
+            String token = null;
+            while (!batches.isEmpty() && batches.peekFirst().remaining.get() == 0) {
+                token = batches.removeFirst().token;
+            }
+
+            if (token == null || token.equals(checkpoint)) {
+                return;
+            }
+
+            try {
+                tokenStore.save(token);
+            } catch (IOException e) {
+                throw new CmisRuntimeException("Cannot save change log token: " + e.getMessage(), e);
+            }
+            checkpoint = token;
+        }
+    }
+
+    private static class Page {
+        final String token;
+        final List<ChangeEvent> events;
+        final boolean hasMoreItems;
+
+        Page(String token, List<ChangeEvent> events, boolean hasMoreItems) {
+            this.token = token;
+            this.events = events;
+            this.hasMoreItems = hasMoreItems;
+        }
+    }
+
+    /**
+     * Events of one page that have not been handled yet.
+     */
+    private static class Batch {
+        final String token;
+        final AtomicInteger remaining;
+
+        Batch(String token, int size) {
+            this.token = token;
+            this.remaining = new AtomicInteger(size);
+        }
+    }
+
+    private static class Task {
+        static final Task STOP = new Task(null, null);
+
+        final ChangeEvent event;
+        final Batch batch;
+
+        Task(ChangeEvent event, Batch batch) {
+            this.event = event;
+            this.batch = batch;
+        }
+    }
+}
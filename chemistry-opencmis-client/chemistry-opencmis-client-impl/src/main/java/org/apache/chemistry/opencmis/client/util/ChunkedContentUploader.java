@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.ObjectIdImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FileContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+
+/**
+ * Uploads a local file to a document in chunks. The first chunk is sent with
+ * {@code setContentStream}, all following chunks with
+ * {@code appendContentStream}.
+ * <p>
+ * If a progress file is provided, the uploader records the last acknowledged
+ * offset after each chunk. An interrupted upload of the same, unmodified file
+ * to the same document continues from the content length that the repository
+ * reports for the document, if this length lies between the recorded offset
+ * and the end of the next chunk. Chunks that fail with a connection error are
+ * retried from this content length under the same condition. Otherwise, and
+ * if the first chunk fails, the upload starts over. The progress file is
+ * deleted when the upload is complete.
+ * <p>
+ * The repository must support CMIS 1.1 and {@code appendContentStream}.
+ */
+public class ChunkedContentUploader {
+
+    /** Default chunk size: 8 MiB. */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    /** Default number of retries per chunk. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private static final long RETRY_DELAY = 500;
+
+    private static final String KEY_DOC_ID = "docId";
+    private static final String KEY_OBJECT_ID = "objectId";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_FILE_LENGTH = "fileLength";
+    private static final String KEY_FILE_LAST_MODIFIED = "fileLastModified";
+    private static final String KEY_OFFSET = "offset";
+
+    /**
+     * Receives the progress of an upload.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after a chunk has been acknowledged by the repository.
+         *
+         * @param uploaded
+         *            the number of bytes stored in the repository
+         * @param total
+         *            the file length
+         * @param bytesPerSecond
+         *            the throughput of this upload run
+         */
+        void chunkUploaded(long uploaded, long total, double bytesPerSecond);
+    }
+
+    private final Session session;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private ProgressListener progressListener;
+
+    /**
+     * Creates an uploader for the given session.
+     */
+    public ChunkedContentUploader(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("session must be set!");
+        }
+
+        this.session = session;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of bytes sent with one request.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets how often a chunk is sent again after a connection error.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Invalid number of retries: " + maxRetries);
+        }
+
+        this.maxRetries = maxRetries;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Uploads a file and replaces the content of a document.
+     *
+     * @param docId
+     *            the document id
+     * @param file
+     *            the file
+     * @param mimeType
+     *            the MIME type of the content
+     * @param progressFile
+     *            the file that records the upload progress or {@code null} if
+     *            the upload should not be resumable
+     *
+     * @return the id of the document, which differs from {@code docId} if the
+     *         repository created a new version
+     */
+    public ObjectId upload(ObjectId docId, File file, String mimeType, File progressFile) throws IOException {
+        if (docId == null || docId.getId() == null) {
+            throw new IllegalArgumentException("docId must be set!");
+        }
+        if (file == null || !file.isFile()) {
+            throw new IllegalArgumentException("file must be set to an existing file!");
+        }
+
+        String repositoryId = session.getRepositoryInfo().getId();
+        ObjectService objectService = session.getBinding().getObjectService();
+
+        long total = file.length();
+        long lastModified = file.lastModified();
+
+        Holder<String> objectId = new Holder<String>(docId.getId());
+        Holder<String> changeToken = new Holder<String>();
+
+        // resume a previous upload of the same file to the same document
+        long offset = 0;
+        java.util.Properties progress = loadProgress(progressFile);
+        if (progress != null && docId.getId().equals(progress.getProperty(KEY_DOC_ID))
+                && file.getAbsolutePath().equals(progress.getProperty(KEY_FILE))
+                && String.valueOf(total).equals(progress.getProperty(KEY_FILE_LENGTH))
+                && String.valueOf(lastModified).equals(progress.getProperty(KEY_FILE_LAST_MODIFIED))
+                && progress.getProperty(KEY_OBJECT_ID) != null) {
+            objectId.setValue(progress.getProperty(KEY_OBJECT_ID));
+            long saved = parseOffset(progress.getProperty(KEY_OFFSET));
+            long stored = getContentLength(objectService, repositoryId, objectId, changeToken);
+            if (saved > 0 && stored >= saved && stored <= Math.min(total, saved + chunkSize)) {
+                offset = stored;
+            }
+        }
+
+        long start = System.nanoTime();
+        long startOffset = offset;
+        int failures = 0;
+
+        do {
+            long length = Math.min(chunkSize, total - offset);
+            boolean isLastChunk = offset + length >= total;
+
+            FileContentStreamImpl chunk = new FileContentStreamImpl(file.toPath(), offset, length);
+            chunk.setFileName(file.getName());
+            chunk.setMimeType(mimeType);
+            chunk.setLength(BigInteger.valueOf(length));
+
+            try {
+                if (offset == 0) {
+                    objectService.setContentStream(repositoryId, objectId, Boolean.TRUE, changeToken, chunk, null);
+                } else {
+                    objectService.appendContentStream(repositoryId, objectId, changeToken, chunk, isLastChunk,
+                            null);
+                }
+            } catch (CmisConnectionException e) {
+                // wait until the repository reports the content length again
+                CmisConnectionException failure = e;
+                long stored;
+                while (true) {
+                    if (failures >= maxRetries) {
+                        throw failure;
+                    }
+                    failures++;
+                    sleep(failures);
+
+                    try {
+                        stored = getContentLength(objectService, repositoryId, objectId, changeToken);
+                        break;
+                    } catch (CmisConnectionException probeFailure) {
+                        failure = probeFailure;
+                    }
+                }
+
+                // continue with what the repository has stored if it is the
+                // acknowledged content plus a part of the failed chunk,
+                // otherwise start over - the content length after a failed
+                // first chunk may still be the length of the old content
+                if (offset > 0 && stored >= offset && stored <= offset + length) {
+                    offset = stored;
+                } else {
+                    offset = 0;
+                }
+
+                continue;
+            } finally {
+                IOUtils.closeQuietly((ContentStream) chunk);
+            }
+
+            failures = 0;
+            offset += length;
+
+            if (progressFile != null) {
+                saveProgress(progressFile, docId.getId(), objectId.getValue(), file, total, lastModified, offset);
+            }
+
+            if (progressListener != null) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                progressListener.chunkUploaded(offset, total, seconds > 0 ? (offset - startOffset) / seconds : 0);
+            }
+        } while (offset < total);
+
+        if (progressFile != null && progressFile.exists() && !progressFile.delete()) {
+            throw new IOException("Cannot delete progress file: " + progressFile);
+        }
+
+        return new ObjectIdImpl(objectId.getValue());
+    }
+
+    /**
+     * Returns the content length the repository reports for a document and
+     * updates the change token.
+     *
+     * @return the content length or -1 if it is not known
+     */
+    private static long getContentLength(ObjectService objectService, String repositoryId, Holder<String> objectId,
+            Holder<String> changeToken) {
+        Properties properties = objectService.getProperties(repositoryId, objectId.getValue(),
+                PropertyIds.CONTENT_STREAM_LENGTH + "," + PropertyIds.CHANGE_TOKEN, null);
+        if (properties == null || properties.getProperties() == null) {
+            return -1;
+        }
+
+        PropertyData<?> token = properties.getProperties().get(PropertyIds.CHANGE_TOKEN);
+        changeToken.setValue(token == null ? null : (String) token.getFirstValue());
+
+        PropertyData<?> length = properties.getProperties().get(PropertyIds.CONTENT_STREAM_LENGTH);
+        if (length == null || !(length.getFirstValue() instanceof BigInteger)) {
+            return -1;
+        }
+
+        return ((BigInteger) length.getFirstValue()).longValue();
+    }
+
+    /**
+     * Parses a recorded offset.
+     *
+     * @return the offset or -1 if it is missing or invalid
+     */
+    private static long parseOffset(String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void sleep(int failures) throws InterruptedIOException {
+        try {
+            Thread.sleep(RETRY_DELAY * failures);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted!");
+        }
+    }
+
+    private static java.util.Properties loadProgress(File progressFile) throws IOException {
+        if (progressFile == null || !progressFile.isFile()) {
+            return null;
+        }
+
+        java.util.Properties progress = new java.util.Properties();
+        InputStream in = new FileInputStream(progressFile);
+        try {
+            progress.load(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+
+        return progress;
+    }
+
+    private static void saveProgress(File progressFile, String docId, String objectId, File file, long total,
+            long lastModified, long offset) throws IOException {
+        java.util.Properties progress = new java.util.Properties();
+        progress.setProperty(KEY_DOC_ID, docId);
+        progress.setProperty(KEY_OBJECT_ID, objectId);
+        progress.setProperty(KEY_FILE, file.getAbsolutePath());
+        progress.setProperty(KEY_FILE_LENGTH, String.valueOf(total));
+        progress.setProperty(KEY_FILE_LAST_MODIFIED, String.valueOf(lastModified));
+        progress.setProperty(KEY_OFFSET, String.valueOf(offset));
+
+        // write a temporary file and replace the old progress in one step
+        File tmp = new File(progressFile.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+            progress.store(out, "OpenCMIS upload progress");
+        } finally {
+            out.close();
+        }
+
+        Files.move(tmp.toPath(), progressFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.math.BigInteger;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.ObjectFactory;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+
+/**
+ * Walks a folder tree with several threads.
+ * <p>
+ * A fixed number of threads take folders from a shared stack and list their
+ * children page by page. Visited objects are passed to a {@link Visitor} as
+ * soon as they have been read. Only the ids of subfolders are put on the
+ * stack, and the stack is worked from the top, so the tree is walked roughly
+ * depth first and the number of waiting folders stays small even for very
+ * large trees.
+ * <p>
+ * A crawler runs one crawl at a time. Its settings must not be changed while
+ * a crawl is running.
+ */
+public class FolderCrawler {
+
+    /** Default number of folders listed at the same time. */
+    public static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Receives the visited objects. The methods are called concurrently from
+     * several threads.
+     */
+    public interface Visitor {
+
+        /**
+         * Called for the root folder and every object found below it.
+         *
+         * @param object
+         *            the object
+         * @param depth
+         *            the depth of the object, the root folder has depth 0
+         */
+        void visit(CmisObject object, int depth);
+
+        /**
+         * Called if a folder could not be listed completely. Throw an
+         * exception to abort the crawl, return to continue with the other
+         * folders.
+         *
+         * @param folderId
+         *            the id of the folder
+         * @param depth
+         *            the depth of the folder
+         * @param exception
+         *            the exception
+         */
+        void failed(String folderId, int depth, CmisBaseException exception);
+    }
+
+    /**
+     * Progress of a crawl.
+     */
+    public static class Statistics {
+        private final long folders;
+        private final long objects;
+        private final long elapsedMillis;
+        private final boolean cancelled;
+
+        public Statistics(long folders, long objects, long elapsedMillis, boolean cancelled) {
+            this.folders = folders;
+            this.objects = objects;
+            this.elapsedMillis = elapsedMillis;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * Returns the number of folders that have been listed.
+         */
+        public long getFolders() {
+            return folders;
+        }
+
+        /**
+         * Returns the number of visited objects, including the root folder.
+         */
+        public long getObjects() {
+            return objects;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public double getFoldersPerSecond() {
+            return elapsedMillis == 0 ? 0 : folders * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Folders: " + folders + ", objects: " + objects + ", time: " + elapsedMillis + " ms, folders/s: "
+                    + String.format("%.1f", getFoldersPerSecond()) + (cancelled ? " (cancelled)" : "");
+        }
+    }
+
+    private final Session session;
+    private int threads = DEFAULT_THREADS;
+    private int maxDepth = -1;
+    private OperationContext context;
+
+    private volatile boolean cancelled;
+    private volatile long startTime;
+    private volatile long endTime;
+    private final AtomicLong folders = new AtomicLong();
+    private final AtomicLong objects = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final BlockingDeque<PendingFolder> stack = new LinkedBlockingDeque<PendingFolder>();
+    private volatile CountDownLatch done;
+    private volatile Throwable failure;
+
+    /**
+     * Creates a crawler for the given session.
+     */
+    public FolderCrawler(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("session must be set!");
+        }
+
+        this.session = session;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of folders that are listed at the same time.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
+        this.threads = threads;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets how deep the crawler descends. 1 visits only the children of the
+     * root folder, -1 (default) visits the whole tree.
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < -1) {
+            throw new IllegalArgumentException("Invalid depth: " + maxDepth);
+        }
+
+        this.maxDepth = maxDepth;
+    }
+
+    public OperationContext getOperationContext() {
+        return context;
+    }
+
+    /**
+     * Sets the operation context for listing the folders. If no context is
+     * set, a copy of the session default context with caching turned off is
+     * used.
+     */
+    public void setOperationContext(OperationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Visits the root folder and all objects below it.
+     *
+     * @param root
+     *            the root folder
+     * @param visitor
+     *            the visitor
+     *
+     * @return the statistics of the crawl
+     */
+    public Statistics crawl(Folder root, Visitor visitor) {
+        if (root == null) {
+            throw new IllegalArgumentException("root must be set!");
+        }
+        if (visitor == null) {
+            throw new IllegalArgumentException("visitor must be set!");
+        }
+
+        OperationContext listContext = context;
+        if (listContext == null) {
+            listContext = OperationContextUtils.copyOperationContext(session.getDefaultContext());
+            listContext.setCacheEnabled(false);
+        }
+
+        cancelled = false;
+        failure = null;
+        folders.set(0);
+        objects.set(0);
+        pending.set(0);
+        stack.clear();
+        done = new CountDownLatch(1);
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+
+        ExecutorService executor = null;
+        try {
+            objects.incrementAndGet();
+            visitor.visit(root, 0);
+
+            if (maxDepth != 0) {
+                pending.incrementAndGet();
+                stack.push(new PendingFolder(root.getId(), 0));
+
+                executor = Executors.newFixedThreadPool(threads, new CrawlerThreadFactory());
+                Lister lister = new Lister(session.getRepositoryInfo().getId(), session.getBinding()
+                        .getNavigationService(), session.getObjectFactory(), visitor, listContext);
+                for (int i = 0; i < threads; i++) {
+                    executor.execute(lister);
+                }
+                done.await();
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Crawl interrupted!", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            stack.clear();
+            endTime = System.currentTimeMillis();
+        }
+
+        Throwable t = failure;
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        return getStatistics();
+    }
+
+    /**
+     * Stops a running crawl. Folders that are being listed are finished up
+     * to the current page.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the statistics of the running or the last crawl.
+     */
+    public Statistics getStatistics() {
+        long end = endTime == 0 ? System.currentTimeMillis() : endTime;
+        return new Statistics(folders.get(), objects.get(), startTime == 0 ? 0 : end - startTime, cancelled);
+    }
+
+    private void fail(Throwable t) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = t;
+            }
+        }
+        cancel();
+    }
+
+    /**
+     * A folder that waits to be listed.
+     */
+    private static class PendingFolder {
+        final String id;
+        final int depth;
+
+        PendingFolder(String id, int depth) {
+            this.id = id;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Takes folders from the stack and lists them until the crawl is done.
+     */
+    private class Lister implements Runnable {
+
+        private final String repositoryId;
+        private final NavigationService navigationService;
+        private final ObjectFactory objectFactory;
+        private final Visitor visitor;
+        private final OperationContext listContext;
+
+        Lister(String repositoryId, NavigationService navigationService, ObjectFactory objectFactory,
+                Visitor visitor, OperationContext listContext) {
+            this.repositoryId = repositoryId;
+            this.navigationService = navigationService;
+            this.objectFactory = objectFactory;
+            this.visitor = visitor;
+            this.listContext = listContext;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (done.getCount() > 0) {
+                    PendingFolder folder = stack.pollFirst(100, TimeUnit.MILLISECONDS);
+                    if (folder == null) {
+                        continue;
+                    }
+
+                    try {
+                        // a cancelled crawl only empties the stack
+                        if (!cancelled) {
+                            list(folder);
+                        }
+                    } catch (RuntimeException e) {
+                        fail(e);
+                    } catch (Error e) {
+                        fail(e);
+                    } finally {
+                        if (pending.decrementAndGet() == 0) {
+                            done.countDown();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // the crawl has been stopped
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void list(PendingFolder folder) {
+            int childDepth = folder.depth + 1;
+            boolean descend = maxDepth < 0 || childDepth < maxDepth;
+
+            try {
+                long skipCount = 0;
+                boolean hasMoreItems = true;
+                while (hasMoreItems && !cancelled) {
+                    ObjectInFolderList children = navigationService.getChildren(repositoryId, folder.id,
+                            listContext.getFilterString(), listContext.getOrderBy(),
+                            listContext.isIncludeAllowableActions(), listContext.getIncludeRelationships(),
+                            listContext.getRenditionFilterString(), listContext.isIncludePathSegments(),
+                            BigInteger.valueOf(listContext.getMaxItemsPerPage()), BigInteger.valueOf(skipCount), null);
+                    if (children == null || children.getObjects() == null || children.getObjects().isEmpty()) {
+                        break;
+                    }
+
+                    for (ObjectInFolderData objectInFolder : children.getObjects()) {
+                        skipCount++;
+                        if (objectInFolder == null || objectInFolder.getObject() == null) {
+                            continue;
+                        }
+
+                        CmisObject child = objectFactory.convertObject(objectInFolder.getObject(), listContext);
+                        objects.incrementAndGet();
+                        visitor.visit(child, childDepth);
+
+                        if (descend && child instanceof Folder) {
+                            pending.incrementAndGet();
+                            stack.push(new PendingFolder(child.getId(), childDepth));
+                        }
+                    }
+
+                    hasMoreItems = Boolean.TRUE.equals(children.hasMoreItems());
+                }
+            } catch (CmisBaseException e) {
+                visitor.failed(folder.id, folder.depth, e);
+            }
+
+            folders.incrementAndGet();
+        }
+    }
+
+    private static class CrawlerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "opencmis-crawler-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
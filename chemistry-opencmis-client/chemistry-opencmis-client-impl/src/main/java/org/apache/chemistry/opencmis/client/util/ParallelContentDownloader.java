@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.impl.ByteArrayPool;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Downloads a document content with several concurrent range requests and
+ * writes the chunks into a file at their offsets.
+ * <p>
+ * The first chunk is requested before all others. If the repository ignores
+ * the range and returns the complete content, the content is written
+ * sequentially. Chunks that fail with a connection error or that are
+ * incomplete are requested again, up to the configured number of retries.
+ * <p>
+ * A downloader can be reused, but its settings must not be changed while a
+ * download is running.
+ */
+public class ParallelContentDownloader {
+
+    /** Default chunk size: 8 MiB. */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    /** Default number of concurrent requests. */
+    public static final int DEFAULT_THREADS = 4;
+    /** Default number of retries per chunk. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long RETRY_DELAY = 500;
+
+    private final Session session;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int threads = DEFAULT_THREADS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private ExecutorService executorService;
+
+    /**
+     * Creates a downloader for the given session.
+     */
+    public ParallelContentDownloader(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("session must be set!");
+        }
+
+        this.session = session;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of bytes requested at once.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of concurrent requests. Ignored if an executor service
+     * has been set.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
+        this.threads = threads;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets how often a failed chunk is requested again.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Invalid number of retries: " + maxRetries);
+        }
+
+        this.maxRetries = maxRetries;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Sets the executor service that fetches the chunks. If no executor
+     * service is set, each download creates and shuts down its own thread
+     * pool.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * Downloads the content of a document.
+     *
+     * @param document
+     *            the document
+     * @param file
+     *            the target file, existing files are overwritten
+     *
+     * @return the number of downloaded bytes
+     */
+    public long download(Document document, File file) throws IOException {
+        if (document == null) {
+            throw new IllegalArgumentException("document must be set!");
+        }
+
+        return download(document, null, document.getContentStreamLength(), file);
+    }
+
+    /**
+     * Downloads a content stream of a document.
+     *
+     * @param docId
+     *            the document id
+     * @param streamId
+     *            the stream id or {@code null} for the main content stream
+     * @param length
+     *            the content length or -1 if the length is unknown, content
+     *            of unknown length is downloaded with a single request
+     * @param file
+     *            the target file, existing files are overwritten
+     *
+     * @return the number of downloaded bytes
+     *
+     * @throws IOException
+     *             if the file cannot be written or the downloaded content
+     *             does not have the expected length
+     */
+    public long download(ObjectId docId, String streamId, long length, File file) throws IOException {
+        if (docId == null || docId.getId() == null) {
+            throw new IllegalArgumentException("docId must be set!");
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("file must be set!");
+        }
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            long total;
+            if (length < 0) {
+                total = writeContent(getContentStream(docId, streamId, null, null), channel, 0, -1);
+            } else {
+                total = downloadChunks(docId, streamId, length, channel);
+                if (total != length || channel.size() != length) {
+                    throw new IOException("Downloaded " + channel.size() + " bytes but expected " + length
+                            + " bytes!");
+                }
+            }
+
+            channel.force(false);
+
+            return total;
+        } finally {
+            channel.close();
+        }
+    }
+
+    private long downloadChunks(final ObjectId docId, final String streamId, long length, final FileChannel channel)
+            throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        // probe the repository with the first chunk
+        final long firstLength = Math.min(chunkSize, length);
+        ContentStream first = getContentStream(docId, streamId, BigInteger.ZERO, BigInteger.valueOf(firstLength));
+        if (firstLength < length && !(first instanceof PartialContentStream)) {
+            // the repository does not support ranges
+            return writeContent(first, channel, 0, -1);
+        }
+
+        long firstWritten;
+        try {
+            firstWritten = writeContent(first, channel, 0, firstLength);
+        } catch (IOException e) {
+            firstWritten = -1;
+        }
+        if (firstWritten != firstLength) {
+            downloadChunk(docId, streamId, 0, firstLength, channel);
+        }
+
+        if (firstLength == length) {
+            return length;
+        }
+
+        // fetch the remaining chunks concurrently
+        ExecutorService executor = executorService;
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, new DownloadThreadFactory());
+        }
+
+        List<Future<Long>> futures = new ArrayList<Future<Long>>();
+        try {
+            for (long offset = firstLength; offset < length; offset += chunkSize) {
+                final long chunkOffset = offset;
+                final long chunkLength = Math.min(chunkSize, length - offset);
+
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        downloadChunk(docId, streamId, chunkOffset, chunkLength, channel);
+                        return chunkLength;
+                    }
+                }));
+            }
+
+            long total = firstLength;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download interrupted!");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Download failed: " + cause, cause);
+        } finally {
+            for (Future<Long> future : futures) {
+                future.cancel(true);
+            }
+            if (executor != executorService) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Downloads a chunk and retries if the connection fails or the chunk is
+     * incomplete.
+     */
+    private void downloadChunk(ObjectId docId, String streamId, long offset, long length, FileChannel channel)
+            throws IOException {
+        int attempt = 0;
+        while (true) {
+            try {
+                ContentStream content = getContentStream(docId, streamId, BigInteger.valueOf(offset),
+                        BigInteger.valueOf(length));
+                if (offset > 0 && !(content instanceof PartialContentStream)) {
+                    IOUtils.closeQuietly(content);
+                    throw new IOException("Repository ignored the range request at offset " + offset + "!");
+                }
+
+                long written = writeContent(content, channel, offset, length);
+                if (written == length) {
+                    return;
+                }
+
+                if (attempt >= maxRetries) {
+                    throw new IOException("Chunk at offset " + offset + " is incomplete: " + written + " of "
+                            + length + " bytes!");
+                }
+            } catch (CmisConnectionException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxRetries || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+
+            attempt++;
+            try {
+                Thread.sleep(RETRY_DELAY * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download interrupted!");
+            }
+        }
+    }
+
+    private ContentStream getContentStream(ObjectId docId, String streamId, BigInteger offset, BigInteger length) {
+        ContentStream content = session.getContentStream(docId, streamId, offset, length);
+        if (content == null || content.getStream() == null) {
+            throw new CmisConstraintException("Document has no content!");
+        }
+
+        return content;
+    }
+
+    /**
+     * Writes a content stream into the file, starting at the given position.
+     *
+     * @param maxLength
+     *            the maximum number of bytes to write or -1 to write the
+     *            complete stream
+     *
+     * @return the number of written bytes
+     */
+    private static long writeContent(ContentStream content, FileChannel channel, long position, long maxLength)
+            throws IOException {
+        InputStream stream = content.getStream();
+        ByteArrayPool pool = IOUtils.getBufferPool();
+        byte[] buffer = pool.acquire(BUFFER_SIZE);
+        try {
+            long written = 0;
+            while (maxLength < 0 || written < maxLength) {
+                int len = maxLength < 0 ? buffer.length : (int) Math.min(buffer.length, maxLength - written);
+                int r = stream.read(buffer, 0, len);
+                if (r == -1) {
+                    break;
+                }
+
+                ByteBuffer bb = ByteBuffer.wrap(buffer, 0, r);
+                while (bb.hasRemaining()) {
+                    channel.write(bb, position + written + (r - bb.remaining()));
+                }
+                written += r;
+            }
+
+            return written;
+        } finally {
+            pool.release(buffer);
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private static class DownloadThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "opencmis-download-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.QueryStatement;
+import org.apache.chemistry.opencmis.client.runtime.objecttype.DocumentTypeImpl;
+import org.apache.chemistry.opencmis.client.runtime.objecttype.FolderTypeImpl;
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
+import org.apache.chemistry.opencmis.client.runtime.util.BatchObjectLoader;
+import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractTypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.junit.Test;
+
+public class BatchObjectLoaderTest {
+
+    private static final List<String> DOCUMENTS = Arrays.asList("d1", "d2", "d'3", "d4", "d5");
+    private static final List<String> FOLDERS = Arrays.asList("f1", "f2");
+    private static final List<String> OTHERS = Arrays.asList("r1");
+
+    private static final List<String> IDS = Arrays.asList("d1", "f1", "r1", "d2", "missing", "d'3", "f2", "d4",
+            "d1", "d5");
+
+    @Test
+    public void testQuery() {
+        Repository repository = new Repository(CapabilityQuery.METADATAONLY);
+        Map<String, CmisObject> objects = load(repository);
+
+        assertLoaded(objects);
+
+        // batches of three ids: documents first, then folders in the same
+        // batch, the rest is fetched one by one
+        assertEquals(6, repository.queries.size());
+        assertTrue(repository.queries.get(0).startsWith("cmis:document|"));
+        assertTrue(repository.queries.get(1).startsWith("cmis:folder|"));
+        assertTrue(repository.queries.get(2).contains("'d\\'3'"));
+        assertEquals(Arrays.asList("missing", "r1"), sorted(repository.getObjectCalls));
+    }
+
+    @Test
+    public void testNoQuery() {
+        Repository repository = new Repository(CapabilityQuery.NONE);
+        Map<String, CmisObject> objects = load(repository);
+
+        assertLoaded(objects);
+        assertTrue(repository.queries.isEmpty());
+        assertEquals(9, repository.getObjectCalls.size());
+    }
+
+    @Test
+    public void testNoQueryForContext() {
+        // all properties include subtype properties
+        assertNoQuery(new OperationContextImpl());
+
+        // subtype property
+        assertNoQuery(createContext("cmis:name", "my:prop"));
+
+        // relationships
+        OperationContextImpl context = createContext("cmis:name");
+        context.setIncludeRelationships(IncludeRelationships.BOTH);
+        assertNoQuery(context);
+
+        // renditions
+        context = createContext("cmis:name");
+        context.setRenditionFilterString("*");
+        assertNoQuery(context);
+    }
+
+    @Test
+    public void testQueryDocumentProperty() {
+        Repository repository = new Repository(CapabilityQuery.METADATAONLY);
+        Map<String, CmisObject> objects = load(repository, createContext("cmis:contentStreamLength"));
+
+        assertLoaded(objects);
+
+        // folders don't have this property and are fetched one by one
+        assertEquals(3, repository.queries.size());
+        for (String query : repository.queries) {
+            assertTrue(query.startsWith("cmis:document|"));
+        }
+        assertEquals(Arrays.asList("f1", "f2", "missing", "r1"), sorted(repository.getObjectCalls));
+    }
+
+    @Test
+    public void testQueryFails() {
+        Repository repository = new Repository(CapabilityQuery.BOTHCOMBINED);
+        repository.failQuery = true;
+        Map<String, CmisObject> objects = load(repository);
+
+        assertLoaded(objects);
+        assertEquals(1, repository.queries.size());
+        assertEquals(9, repository.getObjectCalls.size());
+    }
+
+    private static Map<String, CmisObject> load(Repository repository) {
+        return load(repository, createContext("cmis:name"));
+    }
+
+    private static Map<String, CmisObject> load(Repository repository, OperationContextImpl context) {
+        return new BatchObjectLoader(repository, 3, 4).load(IDS, context);
+    }
+
+    private static OperationContextImpl createContext(String... filter) {
+        OperationContextImpl context = new OperationContextImpl();
+        context.setFilter(new HashSet<String>(Arrays.asList(filter)));
+        return context;
+    }
+
+    private static void assertNoQuery(OperationContextImpl context) {
+        Repository repository = new Repository(CapabilityQuery.METADATAONLY);
+        assertLoaded(load(repository, context));
+        assertTrue(repository.queries.isEmpty());
+        assertEquals(9, repository.getObjectCalls.size());
+    }
+
+    private static void assertLoaded(Map<String, CmisObject> objects) {
+        assertEquals(8, objects.size());
+        for (String id : IDS) {
+            if ("missing".equals(id)) {
+                assertFalse(objects.containsKey(id));
+            } else {
+                assertEquals(id, objects.get(id).getId());
+            }
+        }
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> result = new ArrayList<String>(list);
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Session of a repository with a few documents and folders and one
+     * relationship.
+     */
+    private static class Repository extends SessionMock {
+        private static final long serialVersionUID = 1L;
+        private static final Pattern ID_PATTERN = Pattern.compile("'((?:[^'\\\\]|\\\\.)*)'");
+
+        final List<String> queries = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> getObjectCalls = Collections.synchronizedList(new ArrayList<String>());
+        final CapabilityQuery capabilityQuery;
+        boolean failQuery = false;
+
+        Repository(CapabilityQuery capabilityQuery) {
+            this.capabilityQuery = capabilityQuery;
+        }
+
+        @Override
+        public RepositoryInfo getRepositoryInfo() {
+            RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setCapabilityQuery(capabilityQuery);
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId("repo");
+            info.setCapabilities(capabilities);
+            return info;
+        }
+
+        @Override
+        public ObjectType getTypeDefinition(String typeId) {
+            if ("cmis:document".equals(typeId)) {
+                DocumentTypeDefinitionImpl typeDef = new DocumentTypeDefinitionImpl();
+                typeDef.setId(typeId);
+                addPropertyDefinitions(typeDef, "cmis:contentStreamLength");
+                return new DocumentTypeImpl(this, typeDef);
+            } else {
+                FolderTypeDefinitionImpl typeDef = new FolderTypeDefinitionImpl();
+                typeDef.setId(typeId);
+                addPropertyDefinitions(typeDef, "cmis:path");
+                return new FolderTypeImpl(this, typeDef);
+            }
+        }
+
+        private static void addPropertyDefinitions(AbstractTypeDefinition typeDef, String propId) {
+            for (String id : new String[] { "cmis:objectId", "cmis:baseTypeId", "cmis:objectTypeId", "cmis:name",
+                    propId }) {
+                PropertyStringDefinitionImpl propDef = new PropertyStringDefinitionImpl();
+                propDef.setId(id);
+                propDef.setQueryName(id);
+                typeDef.addPropertyDefinition(propDef);
+            }
+        }
+
+        @Override
+        public QueryStatement createQueryStatement(String statement) {
+            return new QueryStatementImpl(this, statement);
+        }
+
+        @Override
+        public ItemIterable<CmisObject> queryObjects(String typeId, String where, boolean searchAllVersions,
+                OperationContext context) {
+            queries.add(typeId + "|" + where);
+            if (failQuery) {
+                throw new CmisNotSupportedException("Query not supported!");
+            }
+
+            final List<CmisObject> result = new ArrayList<CmisObject>();
+            Matcher matcher = ID_PATTERN.matcher(where);
+            while (matcher.find()) {
+                String id = matcher.group(1).replaceAll("\\\\(.)", "$1");
+                if (("cmis:document".equals(typeId) && DOCUMENTS.contains(id))
+                        || ("cmis:folder".equals(typeId) && FOLDERS.contains(id))) {
+                    result.add(new CmisObjectMock(id));
+                }
+            }
+
+            return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(100) {
+                @Override
+                protected Page<CmisObject> fetchPage(long skipCount) {
+                    return new Page<CmisObject>(result, result.size(), false);
+                }
+            });
+        }
+
+        @Override
+        public CmisObject getObject(String id, OperationContext context) {
+            getObjectCalls.add(id);
+            if (DOCUMENTS.contains(id) || FOLDERS.contains(id) || OTHERS.contains(id)) {
+                return new CmisObjectMock(id);
+            }
+            throw new CmisObjectNotFoundException("Object not found: " + id);
+        }
+    }
+}
@@ -34,6 +34,7 @@ import java.util.Map;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
 import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.StaleCache;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.junit.Before;
 import org.junit.Test;
@@ -160,6 +161,46 @@ public class CacheTest {
         assertNull(cache.getById(id, cacheKey));
     }
 
+    @Test
+    public void staleTest() throws InterruptedException {
+        CacheImpl cache = new CacheImpl();
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_TTL_OBJECTS, "200");
+        parameters.put(SessionParameter.CACHE_STALE_OBJECTS, "1000");
+        cache.initialize(null, parameters);
+
+        String cacheKey = "key";
+        String id = "id";
+        String path = "/id";
+
+        StaleCache staleCache = cache;
+        CmisObject obj = createCmisObject(id);
+        staleCache.putPath(path, obj, cacheKey);
+
+        Thread.sleep(400);
+
+        // expired, but still available as stale object
+        assertNull(staleCache.getById(id, cacheKey));
+        assertNull(staleCache.getByPath(path, cacheKey));
+        assertEquals(obj, staleCache.getStaleById(id, cacheKey));
+        assertEquals(obj, staleCache.getStaleByPath(path, cacheKey));
+
+        // a fresh object replaces the stale one
+        CmisObject obj2 = createCmisObject(id);
+        staleCache.put(obj2, cacheKey);
+        assertEquals(obj2, staleCache.getById(id, cacheKey));
+        assertEquals(obj2, staleCache.getByPath(path, cacheKey));
+
+        // without a stale period expired objects are gone
+        StaleCache noStale = (StaleCache) createCache(10, 200);
+        noStale.put(obj, cacheKey);
+
+        Thread.sleep(400);
+
+        assertNull(noStale.getStaleById(id, cacheKey));
+    }
+
     @Test
     public void serializationTest() throws Exception {
         int cacheSize = 10;
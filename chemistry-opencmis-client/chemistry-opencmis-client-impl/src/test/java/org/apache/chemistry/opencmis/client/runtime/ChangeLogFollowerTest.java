@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+import org.apache.chemistry.opencmis.client.api.ChangeEvents;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.util.ChangeLogFollower;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.junit.Test;
+
+public class ChangeLogFollowerTest {
+
+    private static final long TIMEOUT = 10000;
+
+    @Test
+    public void testFollow() throws Exception {
+        ChangeLog changeLog = new ChangeLog(CapabilityChanges.OBJECTIDSONLY);
+        changeLog.add(5);
+        MemoryTokenStore store = new MemoryTokenStore(null);
+        RecordingHandler handler = new RecordingHandler();
+
+        ChangeLogFollower follower = createFollower(changeLog, store);
+        follower.start(handler);
+
+        // events before the start are not reported
+        changeLog.add(23);
+        waitFor(handler, 23);
+        follower.stop();
+
+        assertFalse(follower.isRunning());
+        assertNull(follower.getFailure());
+        assertEquals(23, handler.events.size());
+        assertEquals(String.valueOf(changeLog.size() - 1), store.token);
+        assertEquals(store.token, follower.getCheckpoint());
+        assertInOrder(handler);
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        ChangeLog changeLog = new ChangeLog(CapabilityChanges.OBJECTIDSONLY);
+        changeLog.add(10);
+        MemoryTokenStore store = new MemoryTokenStore("3");
+        RecordingHandler handler = new RecordingHandler();
+
+        ChangeLogFollower follower = createFollower(changeLog, store);
+        follower.start(handler);
+        waitFor(handler, 6);
+        follower.stop();
+
+        assertEquals(6, handler.events.size());
+        assertEquals("9", store.token);
+    }
+
+    @Test
+    public void testConnectionErrors() throws Exception {
+        ChangeLog changeLog = new ChangeLog(CapabilityChanges.OBJECTIDSONLY);
+        changeLog.add(1);
+        changeLog.failures = 3;
+        RecordingHandler handler = new RecordingHandler();
+
+        ChangeLogFollower follower = createFollower(changeLog, new MemoryTokenStore("0"));
+        follower.start(handler);
+        changeLog.add(4);
+        waitFor(handler, 4);
+        follower.stop();
+
+        assertEquals(4, handler.events.size());
+        assertNull(follower.getFailure());
+    }
+
+    @Test
+    public void testHandlerFailure() throws Exception {
+        ChangeLog changeLog = new ChangeLog(CapabilityChanges.OBJECTIDSONLY);
+        changeLog.add(1);
+        MemoryTokenStore store = new MemoryTokenStore("0");
+        final RuntimeException exception = new RuntimeException("Handler failed!");
+
+        ChangeLogFollower follower = createFollower(changeLog, store);
+        follower.setWorkers(1);
+        follower.start(new ChangeLogFollower.Handler() {
+            @Override
+            public void handle(ChangeEvent event) {
+                if ("object-3".equals(event.getObjectId())) {
+                    throw exception;
+                }
+            }
+        });
+        changeLog.add(10);
+
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (follower.isRunning() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        follower.stop();
+
+        assertFalse(follower.isRunning());
+        assertEquals(exception, follower.getFailure());
+        // the first page holds the events 1 to 3 and contains the failing
+        // event, so no page has been checkpointed
+        assertEquals("0", store.token);
+    }
+
+    @Test(expected = CmisNotSupportedException.class)
+    public void testNoChangeLog() {
+        ChangeLog changeLog = new ChangeLog(CapabilityChanges.NONE);
+        createFollower(changeLog, new MemoryTokenStore(null)).start(new RecordingHandler());
+    }
+
+    @Test
+    public void testFileTokenStore() throws Exception {
+        File file = File.createTempFile("opencmis-token", ".properties");
+        try {
+            assertTrue(file.delete());
+
+            ChangeLogFollower.FileTokenStore store = new ChangeLogFollower.FileTokenStore(file);
+            assertNull(store.load());
+
+            store.save("token:1");
+            assertEquals("token:1", store.load());
+
+            store.save("token:2");
+            assertEquals("token:2", store.load());
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static ChangeLogFollower createFollower(ChangeLog changeLog, ChangeLogFollower.TokenStore store) {
+        ChangeLogFollower follower = new ChangeLogFollower(changeLog, store);
+        follower.setWorkers(3);
+        follower.setPageSize(4);
+        follower.setQueueSize(6);
+        follower.setPollInterval(5, 20);
+        return follower;
+    }
+
+    private static void waitFor(RecordingHandler handler, int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (handler.events.size() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Checks that the events of each object have been handled in change log
+     * order.
+     */
+    private static void assertInOrder(RecordingHandler handler) {
+        Map<String, Long> last = new HashMap<String, Long>();
+        synchronized (handler.events) {
+            for (ChangeEvent event : handler.events) {
+                long time = event.getChangeTime().getTimeInMillis();
+                Long previous = last.put(event.getObjectId(), time);
+                assertTrue(previous == null || previous < time);
+            }
+        }
+    }
+
+    private static class RecordingHandler implements ChangeLogFollower.Handler {
+        final List<ChangeEvent> events = Collections.synchronizedList(new ArrayList<ChangeEvent>());
+
+        @Override
+        public void handle(ChangeEvent event) {
+            events.add(event);
+        }
+    }
+
+    private static class MemoryTokenStore implements ChangeLogFollower.TokenStore {
+        volatile String token;
+
+        MemoryTokenStore(String token) {
+            this.token = token;
+        }
+
+        @Override
+        public String load() {
+            return token;
+        }
+
+        @Override
+        public void save(String token) {
+            this.token = token;
+        }
+    }
+
+    /**
+     * Session of a repository whose change log tokens are the positions of
+     * the events in the log. Events cycle through five objects.
+     */
+    private static class ChangeLog extends SessionMock {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ChangeEvent> events = new ArrayList<ChangeEvent>();
+        private final CapabilityChanges capability;
+        volatile int failures = 0;
+
+        ChangeLog(CapabilityChanges capability) {
+            this.capability = capability;
+        }
+
+        synchronized void add(int count) {
+            for (int i = 0; i < count; i++) {
+                int position = events.size();
+                GregorianCalendar time = new GregorianCalendar();
+                time.setTimeInMillis(position);
+                events.add(new ChangeEventImpl(ChangeType.UPDATED, time, "object-" + (position % 5), null, null,
+                        null));
+            }
+        }
+
+        synchronized int size() {
+            return events.size();
+        }
+
+        @Override
+        public RepositoryInfo getRepositoryInfo() {
+            RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+            capabilities.setCapabilityChanges(capability);
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId("repo");
+            info.setCapabilities(capabilities);
+            return info;
+        }
+
+        @Override
+        public OperationContext getDefaultContext() {
+            return new OperationContextImpl();
+        }
+
+        @Override
+        public synchronized String getLatestChangeLogToken() {
+            if (failures > 0) {
+                failures--;
+                throw new CmisConnectionException("Connection refused!");
+            }
+            return String.valueOf(events.size() - 1);
+        }
+
+        @Override
+        public synchronized ChangeEvents getContentChanges(String changeLogToken, boolean includeProperties,
+                long maxNumItems, OperationContext context) {
+            int start = Integer.parseInt(changeLogToken);
+            int end = (int) Math.min(events.size(), start + maxNumItems);
+            List<ChangeEvent> page = new ArrayList<ChangeEvent>(events.subList(start, end));
+            return new ChangeEventsImpl(String.valueOf(end - 1), page, end < events.size(), events.size());
+        }
+    }
+}
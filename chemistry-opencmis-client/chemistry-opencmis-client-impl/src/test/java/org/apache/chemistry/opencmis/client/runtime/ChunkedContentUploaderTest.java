@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.client.util.ChunkedContentUploader;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChunkedContentUploaderTest {
+
+    private static final int SIZE = 100 * 1000 + 17;
+    private static final int CHUNK_SIZE = 10 * 1000;
+
+    private byte[] data;
+    private File file;
+    private File progressFile;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[SIZE];
+        new Random(SIZE).nextBytes(data);
+
+        file = File.createTempFile("opencmis-upload", ".bin");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+
+        progressFile = new File(file.getPath() + ".progress");
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+        progressFile.delete();
+    }
+
+    @Test
+    public void testUpload() throws IOException {
+        Repository repository = new Repository();
+        ChunkedContentUploader uploader = createUploader(repository);
+
+        final List<Long> progress = new ArrayList<Long>();
+        uploader.setProgressListener(new ChunkedContentUploader.ProgressListener() {
+            @Override
+            public void chunkUploaded(long uploaded, long total, double bytesPerSecond) {
+                assertEquals(SIZE, total);
+                progress.add(uploaded);
+            }
+        });
+
+        assertEquals("doc", uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", progressFile)
+                .getId());
+
+        assertArrayEquals(data, repository.content.toByteArray());
+        assertEquals("set,append,append,append,append,append,append,append,append,append,append-last",
+                repository.calls());
+        assertEquals(11, progress.size());
+        assertEquals(SIZE, progress.get(10).longValue());
+        assertFalse(progressFile.exists());
+    }
+
+    @Test
+    public void testRetry() throws IOException {
+        Repository repository = new Repository();
+        // fails before the chunk has been stored
+        repository.failBefore = 3;
+        // fails after the chunk has been stored, the response is lost
+        repository.failAfter = 6;
+        ChunkedContentUploader uploader = createUploader(repository);
+
+        uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", null);
+
+        assertArrayEquals(data, repository.content.toByteArray());
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        Repository repository = new Repository();
+        ChunkedContentUploader uploader = createUploader(repository);
+        uploader.setProgressListener(new ChunkedContentUploader.ProgressListener() {
+            @Override
+            public void chunkUploaded(long uploaded, long total, double bytesPerSecond) {
+                if (uploaded == 4 * CHUNK_SIZE) {
+                    throw new IllegalStateException("interrupted");
+                }
+            }
+        });
+
+        try {
+            uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", progressFile);
+            fail("Upload should be interrupted!");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertTrue(progressFile.exists());
+        assertEquals(4 * CHUNK_SIZE, repository.content.size());
+
+        repository.calls.clear();
+        uploader.setProgressListener(null);
+        uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", progressFile);
+
+        assertArrayEquals(data, repository.content.toByteArray());
+        assertEquals("append,append,append,append,append,append,append-last", repository.calls());
+        assertFalse(progressFile.exists());
+    }
+
+    @Test
+    public void testFirstChunkFailsOnExistingContent() throws IOException {
+        Repository repository = new Repository();
+        // the old content is longer than the first chunk
+        repository.content.write(new byte[3 * CHUNK_SIZE + 5]);
+        repository.failBefore = 1;
+        ChunkedContentUploader uploader = createUploader(repository);
+
+        uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", null);
+
+        assertArrayEquals(data, repository.content.toByteArray());
+        assertEquals("set", repository.calls.get(0));
+    }
+
+    @Test
+    public void testResumeChangedContent() throws IOException {
+        Repository repository = new Repository();
+        ChunkedContentUploader uploader = createUploader(repository);
+        uploader.setProgressListener(new ChunkedContentUploader.ProgressListener() {
+            @Override
+            public void chunkUploaded(long uploaded, long total, double bytesPerSecond) {
+                if (uploaded == 4 * CHUNK_SIZE) {
+                    throw new IllegalStateException("interrupted");
+                }
+            }
+        });
+
+        try {
+            uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", progressFile);
+            fail("Upload should be interrupted!");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // someone else has replaced the content in the meantime
+        repository.content.reset();
+        repository.content.write(new byte[2 * CHUNK_SIZE]);
+
+        repository.calls.clear();
+        uploader.setProgressListener(null);
+        uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", progressFile);
+
+        assertArrayEquals(data, repository.content.toByteArray());
+        assertEquals("set", repository.calls.get(0));
+        assertFalse(progressFile.exists());
+    }
+
+    @Test
+    public void testRetryConnectionDown() throws IOException {
+        Repository repository = new Repository();
+        repository.failBefore = 3;
+        // the connection is still down when the content length is requested
+        repository.probeFailures = 1;
+        ChunkedContentUploader uploader = createUploader(repository);
+        uploader.setMaxRetries(2);
+
+        uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", null);
+
+        assertArrayEquals(data, repository.content.toByteArray());
+        assertEquals(0, repository.probeFailures);
+    }
+
+    @Test
+    public void testResumeOtherDocument() throws IOException {
+        Repository repository = new Repository();
+        ChunkedContentUploader uploader = createUploader(repository);
+        uploader.setProgressListener(new ChunkedContentUploader.ProgressListener() {
+            @Override
+            public void chunkUploaded(long uploaded, long total, double bytesPerSecond) {
+                if (uploaded == 4 * CHUNK_SIZE) {
+                    throw new IllegalStateException("interrupted");
+                }
+            }
+        });
+
+        try {
+            uploader.upload(new ObjectIdImpl("doc"), file, "application/octet-stream", progressFile);
+            fail("Upload should be interrupted!");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertTrue(progressFile.exists());
+
+        // the progress file belongs to another document
+        Repository other = new Repository();
+        other.docId = "other";
+        uploader = createUploader(other);
+        assertEquals("other", uploader.upload(new ObjectIdImpl("other"), file, "application/octet-stream",
+                progressFile).getId());
+
+        assertArrayEquals(data, other.content.toByteArray());
+        assertEquals("set", other.calls.get(0));
+        assertEquals(4 * CHUNK_SIZE, repository.content.size());
+        assertFalse(progressFile.exists());
+    }
+
+    private ChunkedContentUploader createUploader(Repository repository) {
+        ChunkedContentUploader uploader = new ChunkedContentUploader(repository);
+        uploader.setChunkSize(CHUNK_SIZE);
+        uploader.setMaxRetries(1);
+
+        return uploader;
+    }
+
+    /**
+     * Session of a repository with a single document. The binding and its
+     * object service are proxies served by the session.
+     */
+    private static class Repository extends SessionMock implements InvocationHandler {
+        private static final long serialVersionUID = 1L;
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final List<String> calls = new ArrayList<String>();
+        String docId = "doc";
+        int failBefore = -1;
+        int failAfter = -1;
+        int probeFailures = 0;
+        int count = 0;
+
+        <T> T proxy(Class<T> clazz) {
+            return clazz.cast(Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, this));
+        }
+
+        String calls() {
+            StringBuilder sb = new StringBuilder();
+            for (String call : calls) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(call);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public RepositoryInfo getRepositoryInfo() {
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId("repo");
+            return info;
+        }
+
+        @Override
+        public CmisBinding getBinding() {
+            return proxy(CmisBinding.class);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws IOException {
+            String name = method.getName();
+            if ("getObjectService".equals(name)) {
+                return proxy(ObjectService.class);
+            } else if ("getProperties".equals(name)) {
+                assertEquals(docId, args[1]);
+                if (probeFailures > 0) {
+                    probeFailures--;
+                    throw new CmisConnectionException("Connection refused");
+                }
+
+                PropertiesImpl properties = new PropertiesImpl();
+                properties.addProperty(new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger
+                        .valueOf(content.size())));
+                properties.addProperty(new PropertyIdImpl(PropertyIds.CHANGE_TOKEN, "token" + count));
+                return properties;
+            } else if ("setContentStream".equals(name) || "appendContentStream".equals(name)) {
+                count++;
+                if (count == failBefore) {
+                    throw new CmisConnectionException("Connection reset");
+                }
+
+                ContentStream contentStream;
+                if ("setContentStream".equals(name)) {
+                    content.reset();
+                    contentStream = (ContentStream) args[4];
+                    calls.add("set");
+                } else {
+                    contentStream = (ContentStream) args[3];
+                    calls.add(Boolean.TRUE.equals(args[4]) ? "append-last" : "append");
+                }
+
+                assertEquals(docId, ((Holder<?>) args[1]).getValue());
+                IOUtils.copy(contentStream.getStream(), content);
+
+                if (count == failAfter) {
+                    throw new CmisConnectionException("Connection reset");
+                }
+                return null;
+            }
+
+            throw new UnsupportedOperationException(name);
+        }
+    }
+}
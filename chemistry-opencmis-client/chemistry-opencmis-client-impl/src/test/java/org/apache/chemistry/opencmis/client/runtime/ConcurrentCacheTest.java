@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.cache.ConcurrentCacheImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+
+    @Test
+    public void cacheSingleObjectTest() {
+        Cache cache = createCache(100, 3600 * 1000);
+
+        String id = "1";
+        String cacheKey = "key";
+
+        CmisObject obj1 = new CmisObjectMock(id);
+        cache.put(obj1, cacheKey);
+
+        assertTrue(cache.containsId(id, cacheKey));
+        assertEquals(obj1, cache.getById(id, cacheKey));
+        assertNull(cache.getById(id, "otherKey"));
+
+        cache.remove(id);
+        assertFalse(cache.containsId(id, cacheKey));
+
+        cache.put(obj1, cacheKey);
+        cache.clear();
+
+        assertFalse(cache.containsId(id, cacheKey));
+        assertNull(cache.getById(id, cacheKey));
+    }
+
+    @Test
+    public void cachePathObjectTest() {
+        Cache cache = createCache(100, 3600 * 1000);
+
+        String id = "1";
+        String path = "/1";
+        String cacheKey = "key";
+
+        CmisObject obj1 = new CmisObjectMock(id);
+        cache.putPath(path, obj1, cacheKey);
+
+        assertTrue(cache.containsPath(path, cacheKey));
+        assertEquals(obj1, cache.getById(id, cacheKey));
+        assertEquals(obj1, cache.getByPath(path, cacheKey));
+        assertEquals(obj1.getId(), cache.getObjectIdByPath(path));
+
+        cache.removePath(path);
+        assertNull(cache.getObjectIdByPath(path));
+        assertFalse(cache.containsPath(path, cacheKey));
+
+        // a path must not outlive its object
+        cache.putPath(path, obj1, cacheKey);
+        cache.remove(id);
+        assertNull(cache.getByPath(path, cacheKey));
+        assertFalse(cache.containsPath(path, cacheKey));
+        assertNull(cache.getObjectIdByPath(path));
+    }
+
+    @Test
+    public void lruTest() {
+        int cacheSize = 3;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        for (int i = 0; i < cacheSize + 1; i++) {
+            cache.put(new CmisObjectMock("id" + i), cacheKey);
+        }
+
+        assertNull(cache.getById("id0", cacheKey)); // thrown out
+        assertNotNull(cache.getById("id1", cacheKey));
+        assertNotNull(cache.getById("id2", cacheKey));
+        assertNotNull(cache.getById("id3", cacheKey));
+
+        // recently used entries survive
+        cache.put(new CmisObjectMock("id4"), cacheKey);
+        cache.getById("id4", cacheKey);
+        cache.put(new CmisObjectMock("id5"), cacheKey);
+
+        assertNotNull(cache.getById("id4", cacheKey));
+        assertNotNull(cache.getById("id5", cacheKey));
+    }
+
+    @Test
+    public void ttlTest() throws InterruptedException {
+        Cache cache = createCache(10, 500);
+
+        String cacheKey = "key";
+        String id = "id";
+
+        cache.put(new CmisObjectMock(id), cacheKey);
+        assertNotNull(cache.getById(id, cacheKey));
+
+        Thread.sleep(750);
+
+        assertNull(cache.getById(id, cacheKey));
+        assertFalse(cache.containsId(id, cacheKey));
+    }
+
+    @Test
+    public void concurrencyTest() throws Exception {
+        final int cacheSize = 1000;
+        final Cache cache = createCache(cacheSize, 3600 * 1000);
+        final String cacheKey = "key";
+        final AtomicInteger errors = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            String id = "id" + ((i * 7 + offset) % 3000);
+                            CmisObject obj = cache.getById(id, cacheKey);
+                            if (obj == null) {
+                                cache.putPath("/" + id, new CmisObjectMock(id), cacheKey);
+                            } else if (!id.equals(obj.getId())) {
+                                errors.incrementAndGet();
+                            }
+                            String pathId = cache.getObjectIdByPath("/" + id);
+                            if (pathId != null && !id.equals(pathId)) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            };
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, errors.get());
+
+        int cached = 0;
+        for (int i = 0; i < 3000; i++) {
+            if (cache.containsId("id" + i, cacheKey)) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= cacheSize);
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        int cacheSize = 10;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        for (int i = 0; i < cacheSize; i++) {
+            cache.putPath("/id" + i, new CmisObjectMock("id" + i), cacheKey);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(buffer);
+        out.writeObject(cache);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        Cache cache2 = (Cache) in.readObject();
+        in.close();
+
+        for (int k = 0; k < cacheSize; k++) {
+            CmisObject o1 = cache.getById("id" + k, cacheKey);
+            CmisObject o2 = cache2.getById("id" + k, cacheKey);
+            assertEquals(o1.getId(), o2.getId());
+            assertEquals("id" + k, cache2.getObjectIdByPath("/id" + k));
+        }
+    }
+
+    private static Cache createCache(int cacheSize, int ttl) {
+        Cache cache = new ConcurrentCacheImpl();
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_SIZE_OBJECTS, "" + cacheSize);
+        parameters.put(SessionParameter.CACHE_TTL_OBJECTS, "" + ttl);
+
+        cache.initialize(null, parameters);
+
+        return cache;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.ObjectFactory;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.util.FolderCrawler;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.junit.Test;
+
+public class FolderCrawlerTest {
+
+    // 3 subfolders and 2 documents per folder, 3 levels of subfolders
+    private static final int SUBFOLDERS = 3;
+    private static final int DOCUMENTS = 2;
+    private static final int LEVELS = 3;
+
+    @Test
+    public void testCrawl() {
+        RecordingVisitor visitor = new RecordingVisitor();
+        FolderCrawler crawler = createCrawler();
+
+        FolderCrawler.Statistics stats = crawler.crawl(createFolder("root"), visitor);
+
+        // 1 + 3 + 9 + 27 folders, 2 documents in each of them
+        assertEquals(40 + 40 * DOCUMENTS, visitor.ids.size());
+        assertEquals(visitor.ids.size(), new HashSet<String>(visitor.ids).size());
+        assertEquals(visitor.ids.size(), stats.getObjects());
+        assertEquals(40, stats.getFolders());
+        assertEquals(LEVELS + 1, visitor.maxDepth.get());
+        assertFalse(stats.isCancelled());
+        assertTrue(visitor.failed.isEmpty());
+    }
+
+    @Test
+    public void testMaxDepth() {
+        RecordingVisitor visitor = new RecordingVisitor();
+        FolderCrawler crawler = createCrawler();
+        crawler.setMaxDepth(1);
+
+        FolderCrawler.Statistics stats = crawler.crawl(createFolder("root"), visitor);
+
+        assertEquals(1 + SUBFOLDERS + DOCUMENTS, visitor.ids.size());
+        assertEquals(1, stats.getFolders());
+        assertEquals(1, visitor.maxDepth.get());
+    }
+
+    @Test
+    public void testFailedFolder() {
+        RecordingVisitor visitor = new RecordingVisitor();
+        FolderCrawler crawler = createCrawler("root/1");
+
+        crawler.crawl(createFolder("root"), visitor);
+
+        assertEquals(Collections.singletonList("root/1"), visitor.failed);
+        // the failed folder and its 12 subfolders are not listed
+        assertEquals(40 + 40 * DOCUMENTS - 12 - 13 * DOCUMENTS, visitor.ids.size());
+    }
+
+    @Test
+    public void testCancel() {
+        final FolderCrawler crawler = createCrawler();
+        final AtomicInteger count = new AtomicInteger();
+
+        FolderCrawler.Statistics stats = crawler.crawl(createFolder("root"), new RecordingVisitor() {
+            @Override
+            public void visit(CmisObject object, int depth) {
+                if (count.incrementAndGet() == 10) {
+                    crawler.cancel();
+                }
+            }
+        });
+
+        assertTrue(stats.isCancelled());
+        assertTrue(stats.getObjects() < 40 + 40 * DOCUMENTS);
+    }
+
+    private static FolderCrawler createCrawler() {
+        return createCrawler(null);
+    }
+
+    private static FolderCrawler createCrawler(String failingId) {
+        FolderCrawler crawler = new FolderCrawler(new Repository(failingId));
+        crawler.setThreads(3);
+        return crawler;
+    }
+
+    private static ObjectInFolderList getChildren(String id, String failingId, int maxItems, int skipCount) {
+        if (id.equals(failingId)) {
+            throw new CmisPermissionDeniedException("Access denied: " + id);
+        }
+
+        int level = id.split("/").length - 1;
+        List<ObjectInFolderData> children = new ArrayList<ObjectInFolderData>();
+        if (level < LEVELS) {
+            for (int i = 0; i < SUBFOLDERS; i++) {
+                children.add(createObjectInFolder(id + "/" + i, BaseTypeId.CMIS_FOLDER));
+            }
+        }
+        for (int i = 0; i < DOCUMENTS; i++) {
+            children.add(createObjectInFolder(id + "/doc" + i, BaseTypeId.CMIS_DOCUMENT));
+        }
+
+        int to = Math.min(skipCount + maxItems, children.size());
+        ObjectInFolderListImpl page = new ObjectInFolderListImpl();
+        page.setObjects(new ArrayList<ObjectInFolderData>(children.subList(skipCount, to)));
+        page.setNumItems(BigInteger.valueOf(children.size()));
+        page.setHasMoreItems(to < children.size());
+        return page;
+    }
+
+    private static ObjectInFolderData createObjectInFolder(String id, BaseTypeId baseTypeId) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, baseTypeId.value()));
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+
+        ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl();
+        objectInFolder.setObject(object);
+        return objectInFolder;
+    }
+
+    private static Folder createFolder(final String id) {
+        return (Folder) Proxy.newProxyInstance(Folder.class.getClassLoader(), new Class<?>[] { Folder.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("getId".equals(name) || "toString".equals(name)) {
+                            return id;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    private static class RecordingVisitor implements FolderCrawler.Visitor {
+        final List<String> ids = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger maxDepth = new AtomicInteger();
+
+        @Override
+        public void visit(CmisObject object, int depth) {
+            ids.add(object.getId());
+            synchronized (maxDepth) {
+                if (depth > maxDepth.get()) {
+                    maxDepth.set(depth);
+                }
+            }
+        }
+
+        @Override
+        public void failed(String folderId, int depth, CmisBaseException exception) {
+            failed.add(folderId);
+        }
+    }
+
+    /**
+     * Session of a repository whose folders are listed in pages of two
+     * objects. The binding, its navigation service and the object factory
+     * are proxies served by the session.
+     */
+    private static class Repository extends SessionMock implements InvocationHandler {
+        private static final long serialVersionUID = 1L;
+
+        private final String failingId;
+
+        Repository(String failingId) {
+            this.failingId = failingId;
+        }
+
+        @Override
+        public OperationContext getDefaultContext() {
+            OperationContextImpl context = new OperationContextImpl();
+            context.setMaxItemsPerPage(2);
+            return context;
+        }
+
+        @Override
+        public RepositoryInfo getRepositoryInfo() {
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId("repo");
+            return info;
+        }
+
+        @Override
+        public CmisBinding getBinding() {
+            return proxy(CmisBinding.class);
+        }
+
+        @Override
+        public ObjectFactory getObjectFactory() {
+            return proxy(ObjectFactory.class);
+        }
+
+        private <T> T proxy(Class<T> clazz) {
+            return clazz.cast(Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, this));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("getNavigationService".equals(name)) {
+                return proxy(method.getReturnType());
+            } else if ("getChildren".equals(name)) {
+                return getChildren((String) args[1], failingId, ((BigInteger) args[8]).intValue(),
+                        ((BigInteger) args[9]).intValue());
+            } else if ("convertObject".equals(name)) {
+                ObjectData data = (ObjectData) args[0];
+                if (data.getBaseTypeId() == BaseTypeId.CMIS_FOLDER) {
+                    return FolderCrawlerTest.createFolder(data.getId());
+                }
+                return new CmisObjectMock(data.getId());
+            }
+            throw new UnsupportedOperationException(name);
+        }
+    }
+}
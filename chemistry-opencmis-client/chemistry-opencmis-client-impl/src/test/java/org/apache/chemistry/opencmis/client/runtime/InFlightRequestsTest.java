@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.runtime.util.InFlightRequests;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.junit.Test;
+
+public class InFlightRequestsTest {
+
+    @Test
+    public void testConcurrentCallsShareOneLoad() throws Exception {
+        final InFlightRequests<String> requests = new InFlightRequests<String>();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final InFlightRequests.Loader<String> loader = new InFlightRequests.Loader<String>() {
+            @Override
+            public String load() {
+                loads.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "value";
+            }
+        };
+
+        final List<String> results = new ArrayList<String>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    String result = requests.execute("key", loader);
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        // wait until the first call is running, give the others time to join
+        while (!requests.isInFlight("key")) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(8, results.size());
+        for (String result : results) {
+            assertEquals("value", result);
+        }
+        assertFalse(requests.isInFlight("key"));
+
+        // the next call loads again
+        requests.execute("key", loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testStaleValueWhileLoading() throws Exception {
+        final InFlightRequests<String> requests = new InFlightRequests<String>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                requests.execute("key", new InFlightRequests.Loader<String>() {
+                    @Override
+                    public String load() {
+                        started.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "fresh";
+                    }
+                });
+            }
+        };
+        thread.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        InFlightRequests.Loader<String> failing = new InFlightRequests.Loader<String>() {
+            @Override
+            public String load() {
+                throw new IllegalStateException("Should not be called!");
+            }
+        };
+        assertEquals("stale", requests.execute("key", failing, "stale"));
+
+        release.countDown();
+        thread.join(10000);
+    }
+
+    @Test
+    public void testException() {
+        InFlightRequests<String> requests = new InFlightRequests<String>();
+        final CmisObjectNotFoundException exception = new CmisObjectNotFoundException("not found");
+
+        try {
+            requests.execute("key", new InFlightRequests.Loader<String>() {
+                @Override
+                public String load() {
+                    throw exception;
+                }
+            });
+            fail("Exception expected!");
+        } catch (CmisObjectNotFoundException e) {
+            assertSame(exception, e);
+        }
+
+        assertFalse(requests.isInFlight("key"));
+    }
+}
@@ -25,6 +25,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
@@ -52,9 +54,10 @@ public class ItemIterableTest {
     private final String[] data10 = { "A0", "A1", "A2", "A3", "A4", "A5", "A6", "A7", "A8", "A9" };
     private final String[] data1 = { "A0" };
     private final String[] data0 = {};
+    private int prefetchPages = 0;
 
     private ItemIterable<String> getIterable(final String[] data, long pageSize) {
-        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize) {
+        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize, prefetchPages) {
 
             @Override
             protected Page<String> fetchPage(long skipCount) {
@@ -104,6 +107,61 @@ public class ItemIterableTest {
         this.loopAll(this.data0, 5);
     }
 
+    @Test
+    public void loopAllPrefetch() {
+        this.prefetchPages = 2;
+
+        this.loopAll(this.data10, 100);
+        this.loopAll(this.data10, 3);
+        this.loopAll(this.data10, 1);
+        this.loopAll(this.data1, 1);
+        this.loopAll(this.data0, 5);
+
+        this.loopSkip(this.data10, 3, 2);
+        this.loopSkip(this.data10, 10, 5);
+        this.loopSubPage(this.data10, 2, 3, 5);
+    }
+
+    @Test
+    public void prefetchAhead() throws InterruptedException {
+        final List<Long> fetched = Collections.synchronizedList(new ArrayList<Long>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+
+        ItemIterable<String> p = new CollectionIterable<String>(new AbstractPageFetcher<String>(2, 2) {
+            @Override
+            protected Page<String> fetchPage(long skipCount) {
+                fetched.add(skipCount);
+                threads.add(Thread.currentThread().getName());
+
+                List<String> page = new ArrayList<String>();
+                for (long i = skipCount; i < Math.min(skipCount + 2, data10.length); i++) {
+                    page.add(data10[(int) i]);
+                }
+                return new Page<String>(page, data10.length, skipCount + 2 < data10.length);
+            }
+        });
+
+        Iterator<String> i = p.iterator();
+        assertEquals("A0", i.next());
+
+        // the first page is fetched by the caller, two more in the background
+        for (int wait = 0; wait < 100 && fetched.size() < 3; wait++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(50);
+        assertEquals(Arrays.asList(0L, 2L, 4L), fetched);
+        assertEquals(Thread.currentThread().getName(), threads.get(0));
+        assertFalse(Thread.currentThread().getName().equals(threads.get(1)));
+
+        int count = 1;
+        while (i.hasNext()) {
+            assertEquals("A" + count, i.next());
+            count++;
+        }
+        assertEquals(this.data10.length, count);
+        assertEquals(Arrays.asList(0L, 2L, 4L, 6L, 8L), fetched);
+    }
+
     @Test
     public void loopSubPage() {
         this.loopSubPage(this.data10, 0, 3, 5);
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.util.ParallelContentDownloader;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelContentDownloaderTest {
+
+    private static final int SIZE = 1000 * 1000 + 17;
+    private static final int CHUNK_SIZE = 100 * 1000;
+
+    private byte[] data;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[SIZE];
+        new Random(SIZE).nextBytes(data);
+        file = File.createTempFile("opencmis-download", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testDownload() throws IOException {
+        RangeSession handler = new RangeSession(true);
+        ParallelContentDownloader downloader = createDownloader(handler);
+
+        assertEquals(SIZE, downloader.download(new ObjectIdImpl("doc"), null, SIZE, file));
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(11, handler.requests.get());
+    }
+
+    @Test
+    public void testRetry() throws IOException {
+        RangeSession handler = new RangeSession(true);
+        handler.failingOffsets.add(3L * CHUNK_SIZE);
+        handler.truncatedOffsets.add(7L * CHUNK_SIZE);
+        ParallelContentDownloader downloader = createDownloader(handler);
+
+        assertEquals(SIZE, downloader.download(new ObjectIdImpl("doc"), null, SIZE, file));
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(13, handler.requests.get());
+    }
+
+    @Test
+    public void testRetriesExhausted() throws IOException {
+        RangeSession handler = new RangeSession(true);
+        handler.failingOffsets.add(5L * CHUNK_SIZE);
+        ParallelContentDownloader downloader = createDownloader(handler);
+        downloader.setMaxRetries(0);
+
+        try {
+            downloader.download(new ObjectIdImpl("doc"), null, SIZE, file);
+            fail("Download should fail!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoRangeSupport() throws IOException {
+        RangeSession handler = new RangeSession(false);
+        ParallelContentDownloader downloader = createDownloader(handler);
+
+        assertEquals(SIZE, downloader.download(new ObjectIdImpl("doc"), null, SIZE, file));
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(1, handler.requests.get());
+    }
+
+    @Test
+    public void testUnknownLength() throws IOException {
+        RangeSession handler = new RangeSession(true);
+        ParallelContentDownloader downloader = createDownloader(handler);
+
+        assertEquals(SIZE, downloader.download(new ObjectIdImpl("doc"), null, -1, file));
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        assertEquals(1, handler.requests.get());
+    }
+
+    @Test
+    public void testWrongLength() throws IOException {
+        RangeSession handler = new RangeSession(true);
+        ParallelContentDownloader downloader = createDownloader(handler);
+
+        try {
+            downloader.download(new ObjectIdImpl("doc"), null, SIZE + 1, file);
+            fail("Download should fail!");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private ParallelContentDownloader createDownloader(RangeSession session) {
+        ParallelContentDownloader downloader = new ParallelContentDownloader(session);
+        downloader.setChunkSize(CHUNK_SIZE);
+        downloader.setThreads(3);
+        downloader.setMaxRetries(2);
+
+        return downloader;
+    }
+
+    /**
+     * Session that serves {@code getContentStream} from the test data.
+     */
+    private class RangeSession extends SessionMock {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean supportsRanges;
+        final AtomicInteger requests = new AtomicInteger();
+        final Set<Long> failingOffsets = ConcurrentHashMap.newKeySet();
+        final Set<Long> truncatedOffsets = ConcurrentHashMap.newKeySet();
+
+        public RangeSession(boolean supportsRanges) {
+            this.supportsRanges = supportsRanges;
+        }
+
+        @Override
+        public ContentStream getContentStream(ObjectId docId, String streamId, BigInteger offset, BigInteger length) {
+            requests.incrementAndGet();
+
+            if (!supportsRanges || offset == null) {
+                return new ContentStreamImpl("test", BigInteger.valueOf(SIZE), "application/octet-stream",
+                        new ByteArrayInputStream(data));
+            }
+
+            long start = offset.longValue();
+            if (failingOffsets.remove(start)) {
+                throw new CmisConnectionException("Connection reset");
+            }
+
+            int end = (int) Math.min(SIZE, start + length.longValue());
+            if (truncatedOffsets.remove(start)) {
+                end = (int) start + 10;
+            }
+
+            PartialContentStreamImpl result = new PartialContentStreamImpl();
+            result.setLength(BigInteger.valueOf(end - start));
+            result.setStream(new ByteArrayInputStream(Arrays.copyOfRange(data, (int) start, end)));
+            return result;
+        }
+    }
+}
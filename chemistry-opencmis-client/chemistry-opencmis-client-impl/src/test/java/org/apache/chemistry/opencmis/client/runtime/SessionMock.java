@@ -0,0 +1,531 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+import org.apache.chemistry.opencmis.client.api.ChangeEvents;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.ObjectFactory;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Policy;
+import org.apache.chemistry.opencmis.client.api.QueryResult;
+import org.apache.chemistry.opencmis.client.api.QueryStatement;
+import org.apache.chemistry.opencmis.client.api.Relationship;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.commons.data.Ace;
+import org.apache.chemistry.opencmis.commons.data.Acl;
+import org.apache.chemistry.opencmis.commons.data.BulkUpdateObjectIdAndChangeToken;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
+import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+
+/**
+ * Session for unit tests. All methods throw an
+ * {@link UnsupportedOperationException}, tests override the methods the code
+ * under test is expected to call.
+ */
+public class SessionMock implements Session {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisBinding getBinding() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> getSessionParameters() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OperationContext getDefaultContext() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDefaultContext(OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OperationContext createOperationContext() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OperationContext createOperationContext(Set<String> filter, boolean includeAcls,
+            boolean includeAllowableActions, boolean includePolicies, IncludeRelationships includeRelationships,
+            Set<String> renditionFilter, boolean includePathSegments, String orderBy, boolean cacheEnabled,
+            int maxItemsPerPage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createObjectId(String id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Locale getLocale() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RepositoryInfo getRepositoryInfo() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectFactory getObjectFactory() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectType getTypeDefinition(String typeId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectType getTypeDefinition(String typeId, boolean useCache) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<ObjectType> getTypeChildren(String typeId, boolean includePropertyDefinitions) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Tree<ObjectType>> getTypeDescendants(String typeId, int depth, boolean includePropertyDefinitions) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectType createType(TypeDefinition type) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectType updateType(TypeDefinition type) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteType(String typeId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Folder getRootFolder() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Folder getRootFolder(OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<Document> getCheckedOutDocs() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<Document> getCheckedOutDocs(OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObject(ObjectId objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObject(ObjectId objectId, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObject(String objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObject(String objectId, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<CmisObject> getObjects(Collection<? extends ObjectId> objectIds, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObjectByPath(String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObjectByPath(String path, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObjectByPath(String parentPath, String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CmisObject getObjectByPath(String parentPath, String name, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Document getLatestDocumentVersion(ObjectId objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Document getLatestDocumentVersion(ObjectId objectId, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Document getLatestDocumentVersion(ObjectId objectId, boolean major, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Document getLatestDocumentVersion(String objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Document getLatestDocumentVersion(String objectId, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Document getLatestDocumentVersion(String objectId, boolean major, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean exists(ObjectId objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean exists(String objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean existsPath(String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean existsPath(String parentPath, String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeObjectFromCache(ObjectId objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeObjectFromCache(String objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<QueryResult> query(String statement, boolean searchAllVersions) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<QueryResult> query(String statement, boolean searchAllVersions, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<CmisObject> queryObjects(String typeId, String where, boolean searchAllVersions,
+            OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public QueryStatement createQueryStatement(String statement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public QueryStatement createQueryStatement(Collection<String> selectPropertyIds, Map<String, String> fromTypes,
+            String whereClause, List<String> orderByPropertyIds) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ChangeEvents getContentChanges(String changeLogToken, boolean includeProperties, long maxNumItems) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ChangeEvents getContentChanges(String changeLogToken, boolean includeProperties, long maxNumItems,
+            OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<ChangeEvent> getContentChanges(String changeLogToken, boolean includeProperties) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<ChangeEvent> getContentChanges(String changeLogToken, boolean includeProperties,
+            OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getLatestChangeLogToken() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createDocument(Map<String, ?> properties, ObjectId folderId, ContentStream contentStream,
+            VersioningState versioningState, List<Policy> policies, List<Ace> addAces, List<Ace> removeAces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createDocument(Map<String, ?> properties, ObjectId folderId, ContentStream contentStream,
+            VersioningState versioningState) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createDocumentFromSource(ObjectId source, Map<String, ?> properties, ObjectId folderId,
+            VersioningState versioningState, List<Policy> policies, List<Ace> addAces, List<Ace> removeAces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createDocumentFromSource(ObjectId source, Map<String, ?> properties, ObjectId folderId,
+            VersioningState versioningState) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createFolder(Map<String, ?> properties, ObjectId folderId, List<Policy> policies, List<Ace> addAces,
+            List<Ace> removeAces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createFolder(Map<String, ?> properties, ObjectId folderId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createPath(String newPath, String typeId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createPath(ObjectId startFolderId, String newPath, String typeId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createPath(String newPath, Map<String, ?> properties) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createPath(ObjectId startFolderId, String newPath, Map<String, ?> properties) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createPath(ObjectId startFolderId, String newPath, Map<String, ?> properties, List<Policy> policies,
+            List<Ace> addAces, List<Ace> removeAces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createPolicy(Map<String, ?> properties, ObjectId folderId, List<Policy> policies, List<Ace> addAces,
+            List<Ace> removeAces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createPolicy(Map<String, ?> properties, ObjectId folderId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createItem(Map<String, ?> properties, ObjectId folderId, List<Policy> policies, List<Ace> addAces,
+            List<Ace> removeAces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createItem(Map<String, ?> properties, ObjectId folderId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createRelationship(Map<String, ?> properties, List<Policy> policies, List<Ace> addAces,
+            List<Ace> removeAces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ObjectId createRelationship(Map<String, ?> properties) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ItemIterable<Relationship> getRelationships(ObjectId objectId, boolean includeSubRelationshipTypes,
+            RelationshipDirection relationshipDirection, ObjectType type, OperationContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<BulkUpdateObjectIdAndChangeToken> bulkUpdateProperties(List<CmisObject> objects, Map<String,
+            ?> properties, List<String> addSecondaryTypeIds, List<String> removeSecondaryTypeIds) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(ObjectId objectId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(ObjectId objectId, boolean allVersions) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteByPath(String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteByPath(String parentPath, String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteByPath(String path, boolean allVersions) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> deleteTree(ObjectId folderId, boolean allVersions, UnfileObject unfile,
+            boolean continueOnFailure) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> deleteTreebyPath(String parentPath, String name, boolean allVersions, UnfileObject unfile,
+            boolean continueOnFailure) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> deleteTreebyPath(String path, boolean allVersions, UnfileObject unfile,
+            boolean continueOnFailure) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ContentStream getContentStream(ObjectId docId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ContentStream getContentStream(ObjectId docId, String streamId, BigInteger offset, BigInteger length) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ContentStream getContentStreamByPath(String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ContentStream getContentStreamByPath(String path, String streamId, BigInteger offset, BigInteger length) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Acl getAcl(ObjectId objectId, boolean onlyBasicPermissions) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Acl applyAcl(ObjectId objectId, List<Ace> addAces, List<Ace> removeAces, AclPropagation aclPropagation) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Acl setAcl(ObjectId objectId, List<Ace> aces) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void applyPolicy(ObjectId objectId, ObjectId... policyIds) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removePolicy(ObjectId objectId, ObjectId... policyIds) {
+        throw new UnsupportedOperationException();
+    }
+}
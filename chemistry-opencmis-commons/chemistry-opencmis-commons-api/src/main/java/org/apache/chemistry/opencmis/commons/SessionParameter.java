@@ -267,6 +267,14 @@ package org.apache.chemistry.opencmis.commons;
  * <td>7200000 (2 hours)</td>
  * </tr>
  * <tr>
+ * <td>{@link #CACHE_STALE_OBJECTS}</td>
+ * <td>Time an expired object may still be served while it is being refetched</td>
+ * <td>all</td>
+ * <td>time in milliseconds</td>
+ * <td>no</td>
+ * <td>0 (off)</td>
+ * </tr>
+ * <tr>
  * <td>{@link #CACHE_SIZE_PATHTOID}</td>
  * <td>Path-to-id cache size</td>
  * <td>all</td>
@@ -736,6 +744,7 @@ public final class SessionParameter {
 
     public static final String CACHE_SIZE_OBJECTS = "org.apache.chemistry.opencmis.cache.objects.size";
     public static final String CACHE_TTL_OBJECTS = "org.apache.chemistry.opencmis.cache.objects.ttl";
+    public static final String CACHE_STALE_OBJECTS = "org.apache.chemistry.opencmis.cache.objects.stale";
     public static final String CACHE_SIZE_PATHTOID = "org.apache.chemistry.opencmis.cache.pathtoid.size";
     public static final String CACHE_TTL_PATHTOID = "org.apache.chemistry.opencmis.cache.pathtoid.ttl";
     public static final String CACHE_PATH_OMIT = "org.apache.chemistry.opencmis.cache.path.omit";
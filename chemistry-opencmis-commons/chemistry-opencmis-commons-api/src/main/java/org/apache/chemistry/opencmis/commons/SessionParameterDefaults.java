@@ -22,6 +22,7 @@ public final class SessionParameterDefaults {
 
     public static final int CACHE_SIZE_OBJECTS = 1000;
     public static final int CACHE_TTL_OBJECTS = 2 * 60 * 60 * 1000;
+    public static final int CACHE_STALE_OBJECTS = 0;
     public static final int CACHE_SIZE_PATHTOID = 1000;
     public static final int CACHE_TTL_PATHTOID = 30 * 60 * 1000;
 
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.data;
+
+import java.nio.file.Path;
+
+/**
+ * Content stream that is backed by a file. (AtomPub binding and Browser
+ * binding server only.)
+ * <p>
+ * The server framework may transfer the content directly from the file
+ * instead of reading {@link #getStream()}. In this case the stream is never
+ * requested, implementations should therefore open it lazily.
+ * <p>
+ * The file is expected to hold the complete document content. Offset and
+ * length select the part that is delivered, the file size is reported as the
+ * total length of partial content.
+ */
+public interface FileContentStream extends ContentStream {
+
+    /**
+     * Returns the file that contains the content.
+     * 
+     * @return the path of the file, not {@code null}
+     */
+    Path getPath();
+
+    /**
+     * Returns the position of the first content byte in the file.
+     * 
+     * @return the offset in bytes
+     */
+    long getFileOffset();
+
+    /**
+     * Returns the number of content bytes in the file, starting at the
+     * offset.
+     * 
+     * @return the number of bytes or -1 if the content ends with the file
+     */
+    long getFileLength();
+}
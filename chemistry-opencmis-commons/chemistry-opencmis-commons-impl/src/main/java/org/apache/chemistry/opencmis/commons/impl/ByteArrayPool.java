@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, bounded pool of byte arrays.
+ *
+ * Arrays are pooled in power-of-two size classes, so an acquired array may be
+ * bigger than requested. Callers must use the length of the array, not the
+ * requested size. The pool never holds more than the configured number of
+ * bytes, surplus arrays are left to the garbage collector.
+ *
+ * An array must not be used anymore after it has been released. Released
+ * arrays are not cleared.
+ */
+public final class ByteArrayPool {
+
+    private static final int MIN_SHIFT = 12; // 4 KiB
+
+    private final int maxShift;
+    private final long maxPooledBytes;
+    private final Queue<byte[]>[] pools;
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxArraySize
+     *            the size of the biggest pooled array, bigger arrays are
+     *            allocated and dropped without pooling
+     * @param maxPooledBytes
+     *            the maximum number of bytes held by the pool
+     */
+    @SuppressWarnings("unchecked")
+    public ByteArrayPool(int maxArraySize, long maxPooledBytes) {
+        if (maxArraySize < 1) {
+            throw new IllegalArgumentException("Invalid max array size: " + maxArraySize);
+        }
+
+        this.maxShift = Math.max(MIN_SHIFT, shift(maxArraySize));
+        this.maxPooledBytes = maxPooledBytes;
+
+        pools = new Queue[maxShift - MIN_SHIFT + 1];
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new ConcurrentLinkedQueue<byte[]>();
+        }
+    }
+
+    /**
+     * Returns the exponent of the smallest power of two that is equal to or
+     * greater than the given size.
+     */
+    private static int shift(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Returns if arrays of exactly the given size are pooled, that is, if
+     * {@link #acquire(int)} returns arrays of exactly this size.
+     *
+     * @param size
+     *            the array size
+     *
+     * @return {@code true} if the size is a pooled size class, {@code false}
+     *         otherwise
+     */
+    public boolean isPooledSize(int size) {
+        int s = shift(size);
+        return s >= MIN_SHIFT && s <= maxShift && (1 << s) == size;
+    }
+
+    /**
+     * Gets an array from the pool or allocates a new one.
+     *
+     * @param minSize
+     *            the minimum size of the array
+     *
+     * @return an array with at least {@code minSize} bytes
+     */
+    public byte[] acquire(int minSize) {
+        int s = Math.max(MIN_SHIFT, shift(minSize));
+        if (s > maxShift) {
+            misses.incrementAndGet();
+            return new byte[minSize];
+        }
+
+        byte[] array = pools[s - MIN_SHIFT].poll();
+        if (array == null) {
+            misses.incrementAndGet();
+            return new byte[1 << s];
+        }
+
+        pooledBytes.addAndGet(-array.length);
+        hits.incrementAndGet();
+
+        return array;
+    }
+
+    /**
+     * Returns an array to the pool. Arrays that have not been acquired from a
+     * pool are accepted if they fit into a size class.
+     *
+     * @param array
+     *            the array, may be {@code null}
+     */
+    public void release(byte[] array) {
+        if (array == null) {
+            return;
+        }
+
+        int len = array.length;
+        if (!isPooledSize(len)) {
+            discards.incrementAndGet();
+            return;
+        }
+
+        if (pooledBytes.addAndGet(len) > maxPooledBytes) {
+            pooledBytes.addAndGet(-len);
+            discards.incrementAndGet();
+            return;
+        }
+
+        pools[shift(len) - MIN_SHIFT].offer(array);
+    }
+
+    /**
+     * Returns how many arrays have been served from the pool.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how many arrays had to be allocated.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns how many released arrays have not been pooled because the pool
+     * was full or the array did not fit into a size class.
+     */
+    public long getDiscardCount() {
+        return discards.get();
+    }
+
+    /**
+     * Returns the number of bytes currently held by the pool.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Returns the maximum number of bytes held by the pool.
+     */
+    public long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteArrayPool [hits=" + getHitCount() + ", misses=" + getMissCount() + ", discards="
+                + getDiscardCount() + ", pooledBytes=" + getPooledBytes() + ", maxPooledBytes=" + maxPooledBytes
+                + "]";
+    }
+}
@@ -44,9 +44,32 @@ public final class IOUtils {
     /** ISO-8859-1 character set name. */
     public static final String ISO_8859_1 = "ISO-8859-1";
 
+    /** System property that sets the maximum number of bytes in the buffer pool. */
+    public static final String BUFFER_POOL_MAX_BYTES = "org.apache.chemistry.opencmis.bufferPool.maxBytes";
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    private static final long DEFAULT_BUFFER_POOL_MAX_BYTES = 32L * 1024 * 1024;
+
+    private static final ByteArrayPool BUFFER_POOL = new ByteArrayPool(MAX_POOLED_BUFFER_SIZE, Long.getLong(
+            BUFFER_POOL_MAX_BYTES, DEFAULT_BUFFER_POOL_MAX_BYTES));
+
     private IOUtils() {
     }
 
+    /**
+     * Returns the shared pool for I/O buffers.
+     * 
+     * Buffers acquired from this pool should be released when they are not
+     * used anymore. The size of the pool can be set with the system property
+     * {@value #BUFFER_POOL_MAX_BYTES}.
+     * 
+     * @return the buffer pool
+     */
+    public static ByteArrayPool getBufferPool() {
+        return BUFFER_POOL;
+    }
+
     /**
      * Returns UTF-8 bytes of the given string or throws a
      * {@link CmisRuntimeException} if the charset 'UTF-8' is not available.
@@ -234,14 +257,15 @@ public final class IOUtils {
             return;
         }
 
+        final byte[] buffer = BUFFER_POOL.acquire(DEFAULT_BUFFER_SIZE);
         try {
-            final byte[] buffer = new byte[64 * 1024];
             while (stream.read(buffer) > -1) {
                 // just consume
             }
         } catch (IOException e) {
             // ignore
         } finally {
+            BUFFER_POOL.release(buffer);
             IOUtils.closeQuietly(stream);
         }
     }
@@ -282,7 +306,7 @@ public final class IOUtils {
      *            the output stream, must not be {@code null}
      */
     public static void copy(InputStream in, OutputStream out) throws IOException {
-        copy(in, out, 64 * 1024);
+        copy(in, out, DEFAULT_BUFFER_SIZE);
     }
 
     /**
@@ -296,7 +320,7 @@ public final class IOUtils {
      * @param out
      *            the output stream, must not be {@code null}
      * @param bufferSize
-     *            the size of the internal buffer, must be positive
+     *            the minimum size of the internal buffer, must be positive
      */
     public static void copy(InputStream in, OutputStream out, int bufferSize) throws IOException {
         assert in != null;
@@ -304,10 +328,14 @@ public final class IOUtils {
         assert bufferSize > 0;
 
         int b;
-        byte[] buffer = new byte[bufferSize];
+        byte[] buffer = BUFFER_POOL.acquire(bufferSize);
 
-        while ((b = in.read(buffer)) > -1) {
-            out.write(buffer, 0, b);
+        try {
+            while ((b = in.read(buffer)) > -1) {
+                out.write(buffer, 0, b);
+            }
+        } finally {
+            BUFFER_POOL.release(buffer);
         }
     }
 
@@ -22,6 +22,8 @@ import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNot
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNullOrEmpty;
 import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.*;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -165,6 +167,8 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionList
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeMutabilityImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONWriter;
 
 /**
  * OpenCMIS objects to JSON converter.
@@ -1454,6 +1458,56 @@ public final class JSONConverter {
         return result;
     }
 
+    /**
+     * Returns an object list that is converted while it is written. Only one
+     * object is converted and held in memory at a time.
+     */
+    public static JSONStreamAware stream(final ObjectList list, final TypeCache typeCache,
+            final PropertyMode propertyMode, final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        if (list == null) {
+            return null;
+        }
+
+        return new JSONStreamAware() {
+            @Override
+            public void writeJSONString(Writer out) throws IOException {
+                JSONWriter writer = new JSONWriter(out);
+                writer.beginObject();
+                writeMembers(writer, list, typeCache, propertyMode, succinct, dateTimeFormat);
+                writer.endObject();
+            }
+        };
+    }
+
+    /**
+     * Writes the members of an object list to an open JSON object. The
+     * members are the same as the members of
+     * {@link #convert(ObjectList, TypeCache, PropertyMode, boolean, DateTimeFormat)}
+     * .
+     */
+    public static void writeMembers(final JSONWriter writer, final ObjectList list, final TypeCache typeCache,
+            final PropertyMode propertyMode, final boolean succinct, final DateTimeFormat dateTimeFormat)
+            throws IOException {
+        writer.name(propertyMode == PropertyMode.QUERY ? JSON_QUERYRESULTLIST_RESULTS : JSON_OBJECTLIST_OBJECTS);
+        writer.beginArray();
+        if (list.getObjects() != null) {
+            for (ObjectData object : list.getObjects()) {
+                writer.value(convert(object, typeCache, propertyMode, succinct, dateTimeFormat));
+            }
+        }
+        writer.endArray();
+
+        if (propertyMode == PropertyMode.QUERY) {
+            writer.entryIfNotNull(JSON_QUERYRESULTLIST_HAS_MORE_ITEMS, list.hasMoreItems());
+            writer.entryIfNotNull(JSON_QUERYRESULTLIST_NUM_ITEMS, list.getNumItems());
+        } else {
+            writer.entryIfNotNull(JSON_OBJECTLIST_HAS_MORE_ITEMS, list.hasMoreItems());
+            writer.entryIfNotNull(JSON_OBJECTLIST_NUM_ITEMS, list.getNumItems());
+        }
+
+        writeExtension(writer, list);
+    }
+
     /**
      * Converts an object in a folder list.
      */
@@ -1502,6 +1556,51 @@ public final class JSONConverter {
         return result;
     }
 
+    /**
+     * Returns a folder list that is converted while it is written. Only one
+     * entry is converted and held in memory at a time.
+     */
+    public static JSONStreamAware stream(final ObjectInFolderList objectInFolderList, final TypeCache typeCache,
+            final boolean succinct, final DateTimeFormat dateTimeFormat) {
+        if (objectInFolderList == null) {
+            return null;
+        }
+
+        return new JSONStreamAware() {
+            @Override
+            public void writeJSONString(Writer out) throws IOException {
+                JSONWriter writer = new JSONWriter(out);
+                writer.beginObject();
+                writeMembers(writer, objectInFolderList, typeCache, succinct, dateTimeFormat);
+                writer.endObject();
+            }
+        };
+    }
+
+    /**
+     * Writes the members of a folder list to an open JSON object. The members
+     * are the same as the members of
+     * {@link #convert(ObjectInFolderList, TypeCache, boolean, DateTimeFormat)}
+     * .
+     */
+    public static void writeMembers(final JSONWriter writer, final ObjectInFolderList objectInFolderList,
+            final TypeCache typeCache, final boolean succinct, final DateTimeFormat dateTimeFormat)
+            throws IOException {
+        if (objectInFolderList.getObjects() != null) {
+            writer.name(JSON_OBJECTINFOLDERLIST_OBJECTS);
+            writer.beginArray();
+            for (ObjectInFolderData object : objectInFolderList.getObjects()) {
+                writer.value(convert(object, typeCache, succinct, dateTimeFormat));
+            }
+            writer.endArray();
+        }
+
+        writer.entryIfNotNull(JSON_OBJECTINFOLDERLIST_HAS_MORE_ITEMS, objectInFolderList.hasMoreItems());
+        writer.entryIfNotNull(JSON_OBJECTINFOLDERLIST_NUM_ITEMS, objectInFolderList.getNumItems());
+
+        writeExtension(writer, objectInFolderList);
+    }
+
     /**
      * Converts a folder container.
      */
@@ -2736,6 +2835,19 @@ public final class JSONConverter {
         }
     }
 
+    /**
+     * Writes the extensions as members of an open JSON object.
+     */
+    private static void writeExtension(final JSONWriter writer, final ExtensionsData source) throws IOException {
+        if (source == null || source.getExtensions() == null) {
+            return;
+        }
+
+        JSONObject extensions = new JSONObject();
+        convertExtension(source, extensions);
+        writer.entries(extensions);
+    }
+
     private static JSONObject convertExtensionList(final List<CmisExtensionElement> extensionList) {
         if (extensionList == null) {
             return null;
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.dataobjects;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.chemistry.opencmis.commons.data.FileContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Implementation of the {@link FileContentStream} interface. The stream is
+ * opened when it is requested for the first time.
+ */
+public class FileContentStreamImpl extends ContentStreamImpl implements FileContentStream {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Path is not serializable, the path name is restored on demand
+    private transient Path path;
+    private String pathName;
+    private long fileOffset;
+    private long fileLength;
+
+    /**
+     * Constructor.
+     * 
+     * @param path
+     *            the file
+     * @param fileOffset
+     *            the position of the first content byte in the file
+     * @param fileLength
+     *            the number of content bytes or -1 if the content ends with
+     *            the file
+     */
+    public FileContentStreamImpl(Path path, long fileOffset, long fileLength) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path must be set!");
+        }
+
+        this.path = path;
+        this.pathName = path.toString();
+        this.fileOffset = Math.max(0, fileOffset);
+        this.fileLength = fileLength < 0 ? -1 : fileLength;
+    }
+
+    @Override
+    public Path getPath() {
+        if (path == null) {
+            path = Paths.get(pathName);
+        }
+
+        return path;
+    }
+
+    @Override
+    public long getFileOffset() {
+        return fileOffset;
+    }
+
+    @Override
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    @Override
+    public InputStream getStream() {
+        InputStream stream = super.getStream();
+        if (stream == null) {
+            stream = openStream();
+            setStream(stream);
+        }
+
+        return stream;
+    }
+
+    private InputStream openStream() {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(getPath(), StandardOpenOption.READ);
+            channel.position(fileOffset);
+
+            InputStream stream = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+            if (fileLength >= 0) {
+                stream = new LimitedInputStream(stream, fileLength);
+            }
+
+            return stream;
+        } catch (NoSuchFileException e) {
+            throw new CmisObjectNotFoundException("File not found: " + getPath(), e);
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ce) {
+                    // ignore
+                }
+            }
+
+            throw new CmisRuntimeException("Cannot open file: " + getPath(), e);
+        }
+    }
+
+    /**
+     * Stream that ends after a number of bytes.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        public LimitedInputStream(InputStream stream, long length) {
+            super(stream);
+            remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int b = super.read();
+            if (b > -1) {
+                remaining--;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int r = super.read(b, off, (int) Math.min(len, remaining));
+            if (r > 0) {
+                remaining -= r;
+            }
+
+            return r;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long s = super.skip(Math.min(n, remaining));
+            if (s > 0) {
+                remaining -= s;
+            }
+
+            return s;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -113,7 +113,7 @@ public final class JSONValue {
 
         if (value instanceof String) {
             out.write('\"');
-            out.write(escape((String) value));
+            escape((String) value, out);
             out.write('\"');
             return;
         }
@@ -335,4 +335,65 @@ public final class JSONValue {
             }
         }// for
     }
+
+    /**
+     * Escapes a string and writes it without creating an intermediate string.
+     * 
+     * @param s
+     *            - Must not be null.
+     * @param out
+     */
+    static void escape(String s, Writer out) throws IOException {
+        final int n = s.length();
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+            char ch = s.charAt(i);
+            String replacement;
+            switch (ch) {
+            case '"':
+                replacement = "\\\"";
+                break;
+            case '\\':
+                replacement = "\\\\";
+                break;
+            case '\b':
+                replacement = "\\b";
+                break;
+            case '\f':
+                replacement = "\\f";
+                break;
+            case '\n':
+                replacement = "\\n";
+                break;
+            case '\r':
+                replacement = "\\r";
+                break;
+            case '\t':
+                replacement = "\\t";
+                break;
+            case '/':
+                replacement = "\\/";
+                break;
+            default:
+                // Reference: http://www.unicode.org/versions/Unicode5.1.0/
+                if ((ch >= '\u0000' && ch <= '\u001F') || (ch >= '\u007F' && ch <= '\u009F')
+                        || (ch >= '\u2000' && ch <= '\u20FF')) {
+                    String ss = Integer.toHexString(ch).toUpperCase();
+                    replacement = "\\u0000".substring(0, 6 - ss.length()) + ss;
+                } else {
+                    continue;
+                }
+            }
+
+            if (start < i) {
+                out.write(s, start, i - start);
+            }
+            out.write(replacement);
+            start = i + 1;
+        }
+
+        if (start < n) {
+            out.write(s, start, n - start);
+        }
+    }
 }
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Writes JSON text to a writer without building a tree of {@link JSONObject}
+ * and {@link JSONArray} objects first.
+ * <p>
+ * Values are written with {@link JSONValue#writeJSONString(Object, Writer)},
+ * so maps, lists and {@link JSONStreamAware} objects can be mixed with
+ * streamed structures.
+ */
+public class JSONWriter {
+
+    private static final byte EMPTY_OBJECT = 1;
+    private static final byte NONEMPTY_OBJECT = 2;
+    private static final byte DANGLING_NAME = 3;
+    private static final byte EMPTY_ARRAY = 4;
+    private static final byte NONEMPTY_ARRAY = 5;
+
+    private final Writer out;
+    private byte[] stack = new byte[16];
+    private int depth = 0;
+
+    public JSONWriter(Writer out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Writer must be set!");
+        }
+
+        this.out = out;
+    }
+
+    /**
+     * Starts an object.
+     */
+    public JSONWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        out.write('{');
+        return this;
+    }
+
+    /**
+     * Ends the current object.
+     */
+    public JSONWriter endObject() throws IOException {
+        byte scope = peek();
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("Not in an object!");
+        }
+
+        depth--;
+        out.write('}');
+        return this;
+    }
+
+    /**
+     * Starts an array.
+     */
+    public JSONWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        out.write('[');
+        return this;
+    }
+
+    /**
+     * Ends the current array.
+     */
+    public JSONWriter endArray() throws IOException {
+        byte scope = peek();
+        if (scope != EMPTY_ARRAY && scope != NONEMPTY_ARRAY) {
+            throw new IllegalStateException("Not in an array!");
+        }
+
+        depth--;
+        out.write(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next object member.
+     */
+    public JSONWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name must be set!");
+        }
+
+        byte scope = peek();
+        if (scope == NONEMPTY_OBJECT) {
+            out.write(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("Not in an object!");
+        }
+
+        stack[depth - 1] = DANGLING_NAME;
+
+        out.write('\"');
+        JSONValue.escape(name, out);
+        out.write('\"');
+        out.write(':');
+        return this;
+    }
+
+    /**
+     * Writes a value. The value can be {@code null}, a string, a number, a
+     * boolean, a map, a list or a {@link JSONStreamAware} object.
+     */
+    public JSONWriter value(Object value) throws IOException {
+        beforeValue();
+        JSONValue.writeJSONString(value, out);
+        return this;
+    }
+
+    /**
+     * Writes an object member.
+     */
+    public JSONWriter entry(String name, Object value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes an object member if the value is not {@code null}.
+     */
+    public JSONWriter entryIfNotNull(String name, Object value) throws IOException {
+        if (value != null) {
+            entry(name, value);
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes all entries of a map as members of the current object.
+     */
+    public JSONWriter entries(Map<String, Object> map) throws IOException {
+        if (map != null) {
+            for (Map.Entry<String, Object> e : map.entrySet()) {
+                entry(e.getKey(), e.getValue());
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Flushes the underlying writer.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void beforeValue() throws IOException {
+        if (depth == 0) {
+            return;
+        }
+
+        switch (stack[depth - 1]) {
+        case DANGLING_NAME:
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            break;
+        case EMPTY_ARRAY:
+            stack[depth - 1] = NONEMPTY_ARRAY;
+            break;
+        case NONEMPTY_ARRAY:
+            out.write(',');
+            break;
+        default:
+            throw new IllegalStateException("Name expected!");
+        }
+    }
+
+    private void push(byte scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+
+        stack[depth++] = scope;
+    }
+
+    private byte peek() {
+        if (depth == 0) {
+            throw new IllegalStateException("No open object or array!");
+        }
+
+        return stack[depth - 1];
+    }
+}
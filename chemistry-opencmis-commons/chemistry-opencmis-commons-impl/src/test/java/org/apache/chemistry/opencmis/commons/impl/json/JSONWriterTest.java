@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter.PropertyMode;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.CmisExtensionElementImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.junit.Test;
+
+public class JSONWriterTest {
+
+    @Test
+    public void testWriter() throws IOException {
+        StringWriter out = new StringWriter();
+        JSONWriter writer = new JSONWriter(out);
+
+        writer.beginObject();
+        writer.entry("a", 1);
+        writer.name("b").beginArray().value("x").value(null).beginObject().endObject().beginArray().endArray()
+                .endArray();
+        writer.entryIfNotNull("c", null);
+        writer.entry("d\"/", Collections.singletonMap("e", Boolean.TRUE));
+        writer.endObject();
+
+        assertEquals("{\"a\":1,\"b\":[\"x\",null,{},[]],\"d\\\"\\/\":{\"e\":true}}", out.toString());
+    }
+
+    @Test
+    public void testInvalidStructure() throws IOException {
+        JSONWriter writer = new JSONWriter(new StringWriter());
+        writer.beginObject();
+
+        try {
+            writer.value("no name");
+            fail("Value without name should fail!");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        try {
+            writer.endArray();
+            fail("Closing an array in an object should fail!");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEscape() throws IOException {
+        String s = "plain \" \\ / \b \f \n \r \t \u0001 \u007F   ä end";
+
+        StringWriter out = new StringWriter();
+        JSONValue.writeJSONString(s, out);
+
+        assertEquals("\"" + JSONValue.escape(s) + "\"", out.toString());
+    }
+
+    @Test
+    public void testStreamObjectInFolderList() throws IOException {
+        ObjectInFolderListImpl list = new ObjectInFolderListImpl();
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        for (int i = 0; i < 3; i++) {
+            ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl(createObject("id" + i));
+            objectInFolder.setPathSegment("segment" + i);
+            objects.add(objectInFolder);
+        }
+        list.setObjects(objects);
+        list.setHasMoreItems(Boolean.TRUE);
+        list.setNumItems(BigInteger.valueOf(42));
+        list.setExtensions(createExtensions());
+
+        assertEquals(JSONConverter.convert(list, null, false, DateTimeFormat.SIMPLE).toJSONString(),
+                write(JSONConverter.stream(list, null, false, DateTimeFormat.SIMPLE)));
+    }
+
+    @Test
+    public void testStreamObjectList() throws IOException {
+        ObjectListImpl list = new ObjectListImpl();
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        for (int i = 0; i < 3; i++) {
+            objects.add(createObject("id" + i));
+        }
+        list.setObjects(objects);
+        list.setNumItems(BigInteger.valueOf(3));
+
+        for (PropertyMode mode : new PropertyMode[] { PropertyMode.OBJECT, PropertyMode.QUERY }) {
+            assertEquals(JSONConverter.convert(list, null, mode, false, DateTimeFormat.EXTENDED).toJSONString(),
+                    write(JSONConverter.stream(list, null, mode, false, DateTimeFormat.EXTENDED)));
+        }
+
+        // empty list
+        ObjectListImpl empty = new ObjectListImpl();
+        assertEquals(JSONConverter.convert(empty, null, PropertyMode.OBJECT, false, DateTimeFormat.SIMPLE)
+                .toJSONString(), write(JSONConverter.stream(empty, null, PropertyMode.OBJECT, false,
+                DateTimeFormat.SIMPLE)));
+    }
+
+    private static String write(JSONStreamAware json) throws IOException {
+        StringWriter out = new StringWriter();
+        json.writeJSONString(out);
+        return out.toString();
+    }
+
+    private static ObjectData createObject(String id) {
+        PropertyIdImpl idProperty = new PropertyIdImpl(PropertyIds.OBJECT_ID, id);
+        idProperty.setQueryName(PropertyIds.OBJECT_ID);
+        PropertyStringImpl nameProperty = new PropertyStringImpl(PropertyIds.NAME, "name \"" + id + "\"");
+        nameProperty.setQueryName(PropertyIds.NAME);
+
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(idProperty);
+        properties.addProperty(nameProperty);
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+
+        return object;
+    }
+
+    private static List<CmisExtensionElement> createExtensions() {
+        List<CmisExtensionElement> extensions = new ArrayList<CmisExtensionElement>();
+        extensions.add(new CmisExtensionElementImpl("http://ns", "ext", null, "value"));
+        return extensions;
+    }
+}
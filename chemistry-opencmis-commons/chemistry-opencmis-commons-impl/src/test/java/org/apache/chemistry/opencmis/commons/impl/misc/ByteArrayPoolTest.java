@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.chemistry.opencmis.commons.impl.ByteArrayPool;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.junit.Test;
+
+public class ByteArrayPoolTest {
+
+    @Test
+    public void testAcquireAndRelease() {
+        ByteArrayPool pool = new ByteArrayPool(64 * 1024, 1024 * 1024);
+
+        byte[] a = pool.acquire(10000);
+        assertEquals(16 * 1024, a.length);
+        assertEquals(0, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+
+        pool.release(a);
+        assertEquals(16 * 1024, pool.getPooledBytes());
+
+        // same size class
+        assertSame(a, pool.acquire(16 * 1024));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0, pool.getPooledBytes());
+
+        // small arrays use the smallest size class
+        assertEquals(4096, pool.acquire(1).length);
+
+        // arrays bigger than the biggest size class are not pooled
+        byte[] big = pool.acquire(100000);
+        assertEquals(100000, big.length);
+        pool.release(big);
+        assertEquals(1, pool.getDiscardCount());
+        assertEquals(0, pool.getPooledBytes());
+
+        // arrays that do not fit into a size class are not pooled
+        pool.release(new byte[5000]);
+        assertEquals(2, pool.getDiscardCount());
+
+        assertTrue(pool.isPooledSize(64 * 1024));
+        assertFalse(pool.isPooledSize(1024));
+        assertFalse(pool.isPooledSize(128 * 1024));
+    }
+
+    @Test
+    public void testBound() {
+        ByteArrayPool pool = new ByteArrayPool(64 * 1024, 20 * 1024);
+
+        pool.release(new byte[16 * 1024]);
+        pool.release(new byte[16 * 1024]);
+        pool.release(new byte[4 * 1024]);
+
+        assertEquals(20 * 1024, pool.getPooledBytes());
+        assertEquals(1, pool.getDiscardCount());
+    }
+
+    @Test
+    public void testCopyUsesPool() throws Exception {
+        byte[] data = new byte[200 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        ByteArrayPool pool = IOUtils.getBufferPool();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(new ByteArrayInputStream(data), out);
+        assertArrayEquals(data, out.toByteArray());
+
+        long hits = pool.getHitCount();
+        out.reset();
+        IOUtils.copy(new ByteArrayInputStream(data), out);
+        assertArrayEquals(data, out.toByteArray());
+        assertTrue(pool.getHitCount() > hits);
+    }
+}
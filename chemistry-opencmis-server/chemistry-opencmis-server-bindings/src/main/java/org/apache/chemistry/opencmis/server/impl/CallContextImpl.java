@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -33,6 +34,7 @@ import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
 import org.apache.chemistry.opencmis.commons.server.MutableCallContext;
+import org.apache.chemistry.opencmis.server.shared.ByteRange;
 import org.apache.chemistry.opencmis.server.shared.TempStoreOutputStreamFactory;
 
 /**
@@ -42,6 +44,9 @@ public class CallContextImpl implements MutableCallContext, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Key for suffix ranges and multiple ranges of the request. */
+    public static final String RANGES = "ranges";
+
     private final String binding;
     private final boolean objectInfoRequired;
     private final Map<String, Object> parameter = new HashMap<String, Object>();
@@ -73,6 +78,12 @@ public class CallContextImpl implements MutableCallContext, Serializable {
         }
     }
 
+    /**
+     * Sets the offset and length from a {@code Range} header. A single range
+     * with a first byte position is passed as offset and length. Suffix ranges
+     * and multiple ranges are stored as a list of {@link ByteRange} objects
+     * under the key {@link #RANGES}.
+     */
     public void setRange(String rangeHeader) {
         if (rangeHeader == null) {
             return;
@@ -80,44 +91,35 @@ public class CallContextImpl implements MutableCallContext, Serializable {
 
         remove(OFFSET);
         remove(LENGTH);
+        remove(RANGES);
 
-        rangeHeader = rangeHeader.replaceAll("\\s", "").toLowerCase(Locale.ENGLISH);
-
-        if (rangeHeader.length() > 6 && rangeHeader.startsWith("bytes=") && rangeHeader.indexOf(',') == -1
-                && rangeHeader.charAt(6) != '-') {
-            BigInteger offset = null;
-            BigInteger length = null;
-
-            int ds = rangeHeader.indexOf('-');
-            if (ds > 6) {
-                try {
-                    String firstBytePosStr = rangeHeader.substring(6, ds);
-                    if (firstBytePosStr.length() > 0) {
-                        offset = new BigInteger(firstBytePosStr);
-                    }
-
-                    if (!rangeHeader.endsWith("-")) {
-                        String lastBytePosStr = rangeHeader.substring(ds + 1);
-                        if (offset == null) {
-                            length = (new BigInteger(lastBytePosStr)).add(BigInteger.ONE);
-                        } else {
-                            length = (new BigInteger(lastBytePosStr)).subtract(offset).add(BigInteger.ONE);
-                        }
-                    }
+        List<ByteRange> ranges = ByteRange.parse(rangeHeader);
+        if (ranges == null) {
+            // invalid Range header must be ignored
+            return;
+        }
 
-                    if (offset != null) {
-                        put(OFFSET, offset);
-                    }
-                    if (length != null) {
-                        put(LENGTH, length);
-                    }
-                } catch (NumberFormatException e) {
-                    // invalid Range header must be ignored
-                }
+        if (ranges.size() == 1 && !ranges.get(0).isSuffix()) {
+            ByteRange range = ranges.get(0);
+            put(OFFSET, BigInteger.valueOf(range.getFirstBytePos()));
+            if (range.getLastBytePos() > -1) {
+                put(LENGTH, BigInteger.valueOf(range.getLastBytePos() - range.getFirstBytePos() + 1));
             }
+        } else {
+            put(RANGES, ranges);
         }
     }
 
+    /**
+     * Returns the ranges that cannot be expressed as offset and length.
+     * 
+     * @return the ranges or {@code null} if the request has no such ranges
+     */
+    @SuppressWarnings("unchecked")
+    public List<ByteRange> getRanges() {
+        return (List<ByteRange>) get(RANGES);
+    }
+
     public void setAcceptLanguage(String acceptLanguageHeader) {
         if (acceptLanguageHeader == null) {
             return;
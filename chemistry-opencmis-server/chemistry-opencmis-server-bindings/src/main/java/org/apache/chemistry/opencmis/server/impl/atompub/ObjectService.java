@@ -20,8 +20,6 @@ package org.apache.chemistry.opencmis.server.impl.atompub;
 
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNotEmpty;
 
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.math.BigInteger;
 import java.util.GregorianCalendar;
@@ -46,7 +44,6 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentExcep
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
-import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.MimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
@@ -62,6 +59,7 @@ import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.server.shared.ByteRange;
 import org.apache.chemistry.opencmis.server.shared.TempStoreOutputStreamFactory;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -616,6 +614,7 @@ public class ObjectService {
 
             BigInteger offset = context.getOffset();
             BigInteger length = context.getLength();
+            List<ByteRange> ranges = getRanges(context);
 
             // execute
             if (stopBeforeService(service)) {
@@ -628,7 +627,7 @@ public class ObjectService {
                 return;
             }
 
-            if (content == null || content.getStream() == null) {
+            if (!hasContentStream(content)) {
                 throw new CmisRuntimeException("Content stream is null!");
             }
 
@@ -642,21 +641,18 @@ public class ObjectService {
                 contentType = Constants.MEDIATYPE_OCTETSTREAM;
             }
 
-            // set headers
-            if ((offset == null || offset.signum() == 0) && (length == null)) {
-                response.setStatus(HttpServletResponse.SC_OK);
-            } else {
-                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-
-                if (content.getBigLength() != null && content.getBigLength().signum() == 1) {
-                    BigInteger firstBytePos = (offset == null ? BigInteger.ZERO : offset);
-                    BigInteger lastBytePos = firstBytePos.add(content.getBigLength().subtract(BigInteger.ONE));
+            // set headers, status and content type of ranges are set when
+            // the ranges are sent
+            if (ranges == null) {
+                if ((offset == null || offset.signum() == 0) && (length == null)) {
+                    response.setStatus(HttpServletResponse.SC_OK);
+                } else {
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
 
-                    response.setHeader("Content-Range",
-                            "bytes " + firstBytePos.toString() + "-" + lastBytePos.toString() + "/*");
+                    setContentRangeHeader(content, offset, response);
                 }
+                response.setContentType(contentType);
             }
-            response.setContentType(contentType);
 
             if (content.getFileName() != null) {
                 response.setHeader(MimeHelper.CONTENT_DISPOSITION,
@@ -664,14 +660,12 @@ public class ObjectService {
             }
 
             // send content
-            InputStream in = content.getStream();
-            OutputStream out = response.getOutputStream();
-            try {
-                IOUtils.copy(in, out, BUFFER_SIZE);
-                out.flush();
-            } finally {
-                IOUtils.closeQuietly(in);
+            if (ranges != null) {
+                writeContentRanges(content, ranges, contentType, response, BUFFER_SIZE);
+                return;
             }
+
+            writeContentStream(content, response.getOutputStream(), BUFFER_SIZE);
         }
     }
 
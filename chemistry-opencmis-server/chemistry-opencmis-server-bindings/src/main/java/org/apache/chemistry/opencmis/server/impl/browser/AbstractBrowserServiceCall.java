@@ -66,6 +66,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyUriImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.server.shared.AbstractServiceCall;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
@@ -160,6 +161,58 @@ public abstract class AbstractBrowserServiceCall extends AbstractServiceCall {
         response.getWriter().flush();
     }
 
+    /**
+     * Creates the type cache for one call.
+     */
+    public TypeCache createTypeCache(CallContext context, String repositoryId, CmisService service) {
+        return new ServerTypeCacheImpl(repositoryId, service, getRepositoryTypeCache(context));
+    }
+
+    /**
+     * Removes a type from the type cache that is shared by the requests to
+     * the repository. Must be called after a type has been created.
+     */
+    public void invalidateType(CallContext context, String typeId) {
+        RepositoryTypeCache typeCache = getRepositoryTypeCache(context);
+        if (typeCache != null) {
+            typeCache.removeTypeDefinition(typeId);
+        }
+    }
+
+    /**
+     * Removes all types and object type ids from the type cache that is
+     * shared by the requests to the repository. Must be called after a type
+     * has been updated or deleted because its subtypes inherit its property
+     * definitions.
+     */
+    public void invalidateTypes(CallContext context) {
+        RepositoryTypeCache typeCache = getRepositoryTypeCache(context);
+        if (typeCache != null) {
+            typeCache.clear();
+        }
+    }
+
+    /**
+     * Removes the type ids of an object from the type cache that is shared by
+     * the requests to the repository. Must be called after the properties or
+     * secondary types of the object may have changed or after the object has
+     * been deleted.
+     */
+    public void invalidateObjectTypes(CallContext context, String objectId) {
+        RepositoryTypeCache typeCache = getRepositoryTypeCache(context);
+        if (typeCache != null) {
+            typeCache.removeObjectTypes(objectId);
+        }
+    }
+
+    private static RepositoryTypeCache getRepositoryTypeCache(CallContext context) {
+        if (context instanceof BrowserCallContextImpl) {
+            return ((BrowserCallContextImpl) context).getRepositoryTypeCache();
+        }
+
+        return null;
+    }
+
     public ObjectData getSimpleObject(CmisService service, String repositoryId, String objectId) {
         return service.getObject(repositoryId, objectId, null, false, IncludeRelationships.NONE, "cmis:none", false,
                 false, null);
@@ -52,6 +52,7 @@ public class BrowserCallContextImpl extends CallContextImpl {
     private String typeId;
     private BaseTypeId baseTypeId;
     private String token;
+    private transient RepositoryTypeCache typeCache;
 
     public BrowserCallContextImpl(String binding, CmisVersion cmisVersion, String repositoryId,
             ServletContext servletContext, HttpServletRequest request, HttpServletResponse response,
@@ -71,6 +72,19 @@ public class BrowserCallContextImpl extends CallContextImpl {
         this.token = token;
     }
 
+    /**
+     * Returns the type cache shared by the requests to this repository.
+     * 
+     * @return the type cache or {@code null} if types are not shared
+     */
+    public RepositoryTypeCache getRepositoryTypeCache() {
+        return typeCache;
+    }
+
+    public void setRepositoryTypeCache(RepositoryTypeCache typeCache) {
+        this.typeCache = typeCache;
+    }
+
     /**
      * Returns the token.
      */
@@ -78,8 +78,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -127,6 +129,39 @@ import org.slf4j.LoggerFactory;
  */
 public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
 
+    /**
+     * Init parameter that enables passing the content of multipart requests
+     * directly from the request to the repository, see
+     * {@link MultipartParser}.
+     */
+    public static final String PARAM_STREAM_CONTENT = "streamContent";
+
+    /**
+     * Init parameter that sets the maximum number of type definitions cached
+     * per repository and shared by all requests and users, see
+     * {@link RepositoryTypeCache}. The default 0 disables the shared cache.
+     * It must not be enabled if the repository returns different type
+     * definitions to different users.
+     */
+    public static final String PARAM_TYPE_CACHE_SIZE = "typeCacheSize";
+
+    /**
+     * Init parameter that sets how long a type definition is cached in
+     * milliseconds.
+     */
+    public static final String PARAM_TYPE_CACHE_TTL = "typeCacheTtl";
+
+    /**
+     * Init parameter that sets how long the type ids of an object are
+     * remembered in milliseconds.
+     */
+    public static final String PARAM_OBJECT_TYPE_CACHE_TTL = "objectTypeCacheTtl";
+
+    private static final int DEFAULT_TYPE_CACHE_SIZE = 0;
+    private static final int DEFAULT_TYPE_CACHE_TTL = 60 * 1000;
+    private static final int DEFAULT_OBJECT_TYPE_CACHE_TTL = 10 * 1000;
+    private static final int MAX_TYPE_CACHES = 100;
+
     private static final long serialVersionUID = 1L;
 
     private static final Logger LOG = LoggerFactory.getLogger(CmisBrowserBindingServlet.class);
@@ -135,6 +170,12 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
     private final Dispatcher rootDispatcher = new Dispatcher(false);
     private static final ErrorServiceCall ERROR_SERTVICE_CALL = new ErrorServiceCall();
 
+    private boolean streamContent;
+    private int typeCacheSize;
+    private long typeCacheTtl;
+    private long objectTypeCacheTtl;
+    private final Map<String, RepositoryTypeCache> typeCaches = new ConcurrentHashMap<String, RepositoryTypeCache>();
+
     public enum CallUrl {
         SERVICE, REPOSITORY, ROOT
     }
@@ -149,6 +190,14 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
         // set CMIS version -> can only be 1.1
         setCmisVersion(CmisVersion.CMIS_1_1);
 
+        // content streaming is opt-in
+        streamContent = Boolean.parseBoolean(config.getInitParameter(PARAM_STREAM_CONTENT));
+
+        // shared type cache is opt-in
+        typeCacheSize = getIntInitParameter(config, PARAM_TYPE_CACHE_SIZE, DEFAULT_TYPE_CACHE_SIZE);
+        typeCacheTtl = getIntInitParameter(config, PARAM_TYPE_CACHE_TTL, DEFAULT_TYPE_CACHE_TTL);
+        objectTypeCacheTtl = getIntInitParameter(config, PARAM_OBJECT_TYPE_CACHE_TTL, DEFAULT_OBJECT_TYPE_CACHE_TTL);
+
         // initialize repository resources
         addRepositoryResource("", METHOD_GET, new RepositoryService.GetRepositories());
         addRepositoryResource(SELECTOR_REPOSITORY_INFO, METHOD_GET, new RepositoryService.GetRepositoryInfo());
@@ -216,6 +265,57 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
         addRootResource("folder", METHOD_GET, new NavigationService.GetFolderTree());
     }
 
+    private static int getIntInitParameter(ServletConfig config, String name, int defaultValue)
+            throws ServletException {
+        String value = config.getInitParameter(name);
+        if (value == null || value.trim().length() == 0) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ServletException("Invalid value for init parameter " + name + ": " + value, e);
+        }
+    }
+
+    @Override
+    protected CallContext createContext(ServletContext servletContext, HttpServletRequest request,
+            HttpServletResponse response, TempStoreOutputStreamFactory streamFactory) {
+        CallContext context = super.createContext(servletContext, request, response, streamFactory);
+
+        if (typeCacheSize > 0 && context instanceof BrowserCallContextImpl && context.getRepositoryId() != null) {
+            ((BrowserCallContextImpl) context).setRepositoryTypeCache(getRepositoryTypeCache(context
+                    .getRepositoryId()));
+        }
+
+        return context;
+    }
+
+    /**
+     * Returns the type cache of a repository.
+     * 
+     * @return the type cache or {@code null} if there are too many
+     *         repositories
+     */
+    protected RepositoryTypeCache getRepositoryTypeCache(String repositoryId) {
+        RepositoryTypeCache typeCache = typeCaches.get(repositoryId);
+        if (typeCache == null) {
+            // repository ids come from the URL, don't let them fill the memory
+            if (typeCaches.size() >= MAX_TYPE_CACHES) {
+                return null;
+            }
+
+            typeCache = new RepositoryTypeCache(typeCacheSize, typeCacheTtl, objectTypeCacheTtl);
+            RepositoryTypeCache existing = typeCaches.putIfAbsent(repositoryId, typeCache);
+            if (existing != null) {
+                typeCache = existing;
+            }
+        }
+
+        return typeCache;
+    }
+
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
             IOException {
@@ -244,7 +344,7 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
             if (METHOD_GET.equals(method)) {
                 request = new QueryStringHttpServletRequestWrapper(request);
             } else if (METHOD_POST.equals(method)) {
-                request = new POSTHttpServletRequestWrapper(request, streamFactoy);
+                request = new POSTHttpServletRequestWrapper(request, streamFactoy, streamContent);
             } else if (METHOD_HEAD.equals(method)) {
                 request = new HEADHttpServletRequestWrapper(request);
                 response = new NoBodyHttpServletResponseWrapper(response);
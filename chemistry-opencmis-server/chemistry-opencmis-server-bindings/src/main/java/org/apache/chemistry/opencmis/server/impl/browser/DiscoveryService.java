@@ -24,6 +24,8 @@ import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_FILTER;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_POLICY_IDS;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_PROPERTIES;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigInteger;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -37,7 +39,8 @@ import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
-import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONWriter;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
@@ -91,9 +94,9 @@ public class DiscoveryService {
                 throw new CmisRuntimeException("Results are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonResults = JSONConverter.convert(results, typeCache, JSONConverter.PropertyMode.QUERY,
-                    succinct, dateTimeFormat);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
+            JSONStreamAware jsonResults = JSONConverter.stream(results, typeCache,
+                    JSONConverter.PropertyMode.QUERY, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonResults, request, response);
@@ -120,25 +123,38 @@ public class DiscoveryService {
             Boolean includePolicyIds = getBooleanParameter(request, PARAM_POLICY_IDS);
             Boolean includeAcl = getBooleanParameter(request, PARAM_ACL);
             BigInteger maxItems = getBigIntegerParameter(request, Constants.PARAM_MAX_ITEMS);
-            boolean succinct = getBooleanParameter(request, Constants.PARAM_SUCCINCT, false);
-            DateTimeFormat dateTimeFormat = getDateTimeFormatParameter(request);
+            final boolean succinct = getBooleanParameter(request, Constants.PARAM_SUCCINCT, false);
+            final DateTimeFormat dateTimeFormat = getDateTimeFormatParameter(request);
 
             if (stopBeforeService(service)) {
                 return;
             }
 
             Holder<String> changeLogTokenHolder = new Holder<String>(changeLogToken);
-            ObjectList changes = service.getContentChanges(repositoryId, changeLogTokenHolder, includeProperties,
+            final ObjectList changes = service.getContentChanges(repositoryId, changeLogTokenHolder, includeProperties,
                     filter, includePolicyIds, includeAcl, maxItems, null);
 
             if (stopAfterService(service)) {
                 return;
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChanges = JSONConverter.convert(changes, typeCache, JSONConverter.PropertyMode.CHANGE,
-                    succinct, dateTimeFormat);
-            jsonChanges.put(JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN, changeLogTokenHolder.getValue());
+            if (changes == null) {
+                throw new CmisRuntimeException("Changes are null!");
+            }
+
+            final TypeCache typeCache = createTypeCache(context, repositoryId, service);
+            final String newChangeLogToken = changeLogTokenHolder.getValue();
+            JSONStreamAware jsonChanges = new JSONStreamAware() {
+                @Override
+                public void writeJSONString(Writer out) throws IOException {
+                    JSONWriter writer = new JSONWriter(out);
+                    writer.beginObject();
+                    JSONConverter.writeMembers(writer, changes, typeCache, JSONConverter.PropertyMode.CHANGE,
+                            succinct, dateTimeFormat);
+                    writer.entry(JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN, newChangeLogToken);
+                    writer.endObject();
+                }
+            };
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonChanges, request, response);
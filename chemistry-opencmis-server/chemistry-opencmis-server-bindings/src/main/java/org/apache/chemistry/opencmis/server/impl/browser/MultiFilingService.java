@@ -83,7 +83,7 @@ public class MultiFilingService {
             response.setHeader("Location", compileObjectLocationUrl(request, repositoryId, newObjectId));
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -134,7 +134,7 @@ public class MultiFilingService {
             response.setHeader("Location", compileObjectLocationUrl(request, repositoryId, newObjectId));
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
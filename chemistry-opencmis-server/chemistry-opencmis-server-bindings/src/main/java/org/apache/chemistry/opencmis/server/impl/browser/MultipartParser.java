@@ -30,8 +30,10 @@ import java.util.Map;
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.ByteArrayPool;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.MimeHelper;
@@ -41,6 +43,11 @@ import org.apache.chemistry.opencmis.server.shared.TempStoreOutputStreamFactory;
 /**
  * Simple multi-part parser, following all necessary standards for the CMIS
  * browser binding.
+ * <p>
+ * By default the content part is copied into a {@link TempStoreOutputStream}.
+ * If content streaming is enabled, parsing stops at the content part and the
+ * content stream reads directly from the request. In this mode the content
+ * part must be the last part of the request.
  */
 public class MultipartParser {
 
@@ -59,6 +66,7 @@ public class MultipartParser {
     private final HttpServletRequest request;
     private final TempStoreOutputStreamFactory streamFactory;
     private final InputStream requestStream;
+    private final boolean streamContent;
 
     private byte[] boundary;
     private int[] badCharacters;
@@ -66,6 +74,7 @@ public class MultipartParser {
 
     private byte[] buffer;
     private byte[] buffer2;
+    private int chunkSize;
     private int bufferPosition;
     private int bufferCount;
     private boolean eof;
@@ -85,14 +94,35 @@ public class MultipartParser {
     private String charset = IOUtils.ISO_8859_1;
 
     public MultipartParser(HttpServletRequest request, TempStoreOutputStreamFactory streamFactory) throws IOException {
+        this(request, streamFactory, false);
+    }
+
+    /**
+     * Creates a parser.
+     * 
+     * @param request
+     *            the multipart request
+     * @param streamFactory
+     *            factory for the temporary store of the content
+     * @param streamContent
+     *            {@code true} if the content should be read directly from the
+     *            request instead of being copied to a temporary store,
+     *            {@code false} otherwise
+     */
+    public MultipartParser(HttpServletRequest request, TempStoreOutputStreamFactory streamFactory,
+            boolean streamContent) throws IOException {
         this.request = request;
         this.streamFactory = streamFactory;
         this.requestStream = request.getInputStream();
+        this.streamContent = streamContent;
 
         extractBoundary();
 
-        buffer = new byte[BUFFER_SIZE + boundary.length];
-        buffer2 = new byte[buffer.length];
+        // the buffers are pooled, the boundary must fit into the tail
+        ByteArrayPool pool = IOUtils.getBufferPool();
+        buffer = pool.acquire(BUFFER_SIZE);
+        buffer2 = pool.acquire(BUFFER_SIZE);
+        chunkSize = buffer.length - boundary.length;
         bufferPosition = 0;
         bufferCount = 0;
         eof = false;
@@ -341,7 +371,7 @@ public class MultipartParser {
 
         // the body bytes are not completely in the buffer
         // read all available bytes
-        int len = Math.min(BUFFER_SIZE, bufferCount) - bufferPosition;
+        int len = Math.min(chunkSize, bufferCount) - bufferPosition;
         addFieldBytes(len);
 
         byte[] bodyBytes = new byte[len + BUFFER_SIZE];
@@ -373,7 +403,7 @@ public class MultipartParser {
                 break;
             } else {
                 // not the last chunk
-                len = Math.min(BUFFER_SIZE, bufferCount) - bufferPosition;
+                len = Math.min(chunkSize, bufferCount) - bufferPosition;
                 addFieldBytes(len);
 
                 if (bodyBytesPos + len >= bodyBytes.length) {
@@ -429,7 +459,7 @@ public class MultipartParser {
                     bufferPosition = boundaryPosition + boundary.length;
                     break;
                 } else {
-                    int len = Math.min(BUFFER_SIZE, bufferCount) - bufferPosition;
+                    int len = Math.min(chunkSize, bufferCount) - bufferPosition;
                     stream.write(buffer, bufferPosition, len);
                     bufferPosition = bufferPosition + len;
                 }
@@ -487,7 +517,12 @@ public class MultipartParser {
                 contentType = Constants.MEDIATYPE_OCTETSTREAM;
             }
 
-            readBodyAsStream(contentType, filename);
+            if (streamContent) {
+                contentSize = null;
+                contentStream = new ContentPartInputStream(streamFactory.getMaxContentSize());
+            } else {
+                readBodyAsStream(contentType, filename);
+            }
         } else {
             String name = params.get(MimeHelper.DISPOSITION_NAME);
             byte[] rawValue = readBodyBytes();
@@ -538,11 +573,21 @@ public class MultipartParser {
                 break;
             }
 
-            bufferPosition = BUFFER_SIZE + 1;
+            bufferPosition = chunkSize + 1;
             readBuffer();
         }
     }
 
+    private void releaseBuffers() {
+        if (buffer != null) {
+            ByteArrayPool pool = IOUtils.getBufferPool();
+            pool.release(buffer);
+            pool.release(buffer2);
+            buffer = null;
+            buffer2 = null;
+        }
+    }
+
     private void skipEpilogue() {
         try {
             // read to the end of stream, but max 1 MB
@@ -572,7 +617,8 @@ public class MultipartParser {
 
             readBody();
 
-            return true;
+            // a streamed content must be the last part
+            return !(streamContent && hasContent);
         } catch (IOException e) {
             IOUtils.closeQuietly(contentStream);
 
@@ -627,6 +673,11 @@ public class MultipartParser {
             }
         } finally {
             rawFields = null;
+
+            // a streamed content still needs the buffers
+            if (!(contentStream instanceof ContentPartInputStream)) {
+                releaseBuffers();
+            }
         }
     }
 
@@ -642,6 +693,10 @@ public class MultipartParser {
         return contentType;
     }
 
+    /**
+     * Returns the size of the content or {@code null} if the content is
+     * streamed and the size is unknown.
+     */
     public BigInteger getSize() {
         return contentSize;
     }
@@ -654,6 +709,127 @@ public class MultipartParser {
         return fields;
     }
 
+    /**
+     * Reads the body of the content part directly from the request buffer. The
+     * boundary is detected while reading, after it the request must end.
+     */
+    private class ContentPartInputStream extends InputStream {
+
+        private final long maxContentSize;
+        private long length;
+        private int available;
+        private boolean lastChunk;
+        private boolean endOfPart;
+        private boolean closed;
+
+        public ContentPartInputStream(long maxContentSize) {
+            this.maxContentSize = maxContentSize;
+            this.length = 0;
+            this.available = 0;
+            this.lastChunk = false;
+            this.endOfPart = false;
+            this.closed = false;
+        }
+
+        /**
+         * Makes content bytes available in the buffer.
+         * 
+         * @return {@code false} if the end of the content has been reached
+         */
+        private boolean fill() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is already closed!");
+            }
+
+            while (available == 0) {
+                if (endOfPart) {
+                    return false;
+                }
+
+                if (lastChunk) {
+                    // skip the boundary and make sure that no other part
+                    // follows
+                    bufferPosition += boundary.length;
+                    endOfPart = true;
+
+                    readHeaders();
+                    if (headers != null) {
+                        throw new CmisInvalidArgumentException("Content must be the last part of the request!");
+                    }
+
+                    return false;
+                }
+
+                readBuffer();
+
+                int boundaryPosition = findBoundary();
+                if (boundaryPosition > -1) {
+                    available = boundaryPosition - bufferPosition;
+                    lastChunk = true;
+                } else {
+                    available = Math.min(chunkSize, bufferCount) - bufferPosition;
+                }
+            }
+
+            return true;
+        }
+
+        private void consume(int len) {
+            if (maxContentSize > -1 && length + len > maxContentSize) {
+                throw new CmisConstraintException("Content too big!");
+            }
+
+            length += len;
+            available -= len;
+            bufferPosition += len;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+
+            int b = buffer[bufferPosition] & 0xff;
+            consume(1);
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!fill()) {
+                return -1;
+            }
+
+            int n = Math.min(len, available);
+            System.arraycopy(buffer, bufferPosition, b, off, n);
+            consume(n);
+
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return closed ? 0 : available;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            skipEpilogue();
+            releaseBuffers();
+        }
+    }
+
     /**
      * Returns if the request is a multi-part request
      */
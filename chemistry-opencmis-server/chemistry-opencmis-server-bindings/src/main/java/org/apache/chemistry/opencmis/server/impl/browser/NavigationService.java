@@ -48,6 +48,7 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 
@@ -100,8 +101,8 @@ public class NavigationService {
                 throw new CmisRuntimeException("Children are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChildren = JSONConverter.convert(children, typeCache, succinct, dateTimeFormat);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
+            JSONStreamAware jsonChildren = JSONConverter.stream(children, typeCache, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonChildren, request, response);
@@ -149,7 +150,7 @@ public class NavigationService {
                 throw new CmisRuntimeException("Descendants are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONArray jsonDescendants = new JSONArray();
             for (ObjectInFolderContainer descendant : descendants) {
                 jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
@@ -201,7 +202,7 @@ public class NavigationService {
                 throw new CmisRuntimeException("Folder Tree are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONArray jsonDescendants = new JSONArray();
             for (ObjectInFolderContainer descendant : folderTree) {
                 jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct, dateTimeFormat));
@@ -246,7 +247,7 @@ public class NavigationService {
                 throw new CmisRuntimeException("Parent is null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(parent, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -295,7 +296,7 @@ public class NavigationService {
                 throw new CmisRuntimeException("Parents are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONArray jsonParents = new JSONArray();
             for (ObjectParentData parent : parents) {
                 jsonParents.add(JSONConverter.convert(parent, typeCache, succinct, dateTimeFormat));
@@ -348,9 +349,9 @@ public class NavigationService {
                 throw new CmisRuntimeException("Checked out list is null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonCheckedOut = JSONConverter.convert(checkedout, typeCache, JSONConverter.PropertyMode.OBJECT,
-                    succinct, dateTimeFormat);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
+            JSONStreamAware jsonCheckedOut = JSONConverter.stream(checkedout, typeCache,
+                    JSONConverter.PropertyMode.OBJECT, succinct, dateTimeFormat);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonCheckedOut, request, response);
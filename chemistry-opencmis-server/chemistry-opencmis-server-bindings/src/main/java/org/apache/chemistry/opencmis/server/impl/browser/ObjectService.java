@@ -36,8 +36,6 @@ import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_TARGET_
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_TOKEN;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_VERSIONIG_STATE;
 
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -63,7 +61,6 @@ import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
-import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.MimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
@@ -74,6 +71,7 @@ import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.server.shared.ByteRange;
 
 /**
  * Object Service operations.
@@ -104,7 +102,7 @@ public class ObjectService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
 
             ContentStream contentStream = createContentStream(request);
 
@@ -159,7 +157,7 @@ public class ObjectService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
 
             ObjectData sourceDoc = getSimpleObject(service, repositoryId, sourceId);
             PropertyData<?> sourceTypeId = sourceDoc.getProperties().getProperties().get(PropertyIds.OBJECT_TYPE_ID);
@@ -220,7 +218,7 @@ public class ObjectService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
 
             if (stopBeforeService(service)) {
                 return;
@@ -271,7 +269,7 @@ public class ObjectService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
 
             if (stopBeforeService(service)) {
                 return;
@@ -322,7 +320,7 @@ public class ObjectService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
 
             if (stopBeforeService(service)) {
                 return;
@@ -372,7 +370,7 @@ public class ObjectService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
 
             if (stopBeforeService(service)) {
                 return;
@@ -425,7 +423,7 @@ public class ObjectService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             Holder<String> objectIdHolder = new Holder<String>(objectId);
             Holder<String> changeTokenHolder = (changeToken == null ? null : new Holder<String>(changeToken));
 
@@ -436,11 +434,14 @@ public class ObjectService {
             service.updateProperties(repositoryId, objectIdHolder, changeTokenHolder,
                     createUpdateProperties(cp, typeId, null, Collections.singletonList(objectId), typeCache), null);
 
+            invalidateObjectTypes(context, objectId);
+
             if (stopAfterService(service)) {
                 return;
             }
 
             String newObjectId = (objectIdHolder.getValue() == null ? objectId : objectIdHolder.getValue());
+            invalidateObjectTypes(context, newObjectId);
 
             ObjectData object = getSimpleObject(service, repositoryId, newObjectId);
             if (object == null) {
@@ -503,7 +504,7 @@ public class ObjectService {
             List<String> removeSecondaryTypes = cp.getValues(Constants.CONTROL_REMOVE_SECONDARY_TYPE);
 
             // compile properties
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
 
             Properties properties = createUpdateProperties(cp, null, addSecondaryTypes, objectIds, typeCache);
 
@@ -515,6 +516,17 @@ public class ObjectService {
             List<BulkUpdateObjectIdAndChangeToken> result = service.bulkUpdateProperties(repositoryId,
                     objectIdAndChangeToken, properties, addSecondaryTypes, removeSecondaryTypes, null);
 
+            for (String id : objectIds) {
+                invalidateObjectTypes(context, id);
+            }
+            if (result != null) {
+                for (BulkUpdateObjectIdAndChangeToken oc : result) {
+                    if (oc != null) {
+                        invalidateObjectTypes(context, oc.getNewId());
+                    }
+                }
+            }
+
             if (stopAfterService(service)) {
                 return;
             }
@@ -577,7 +589,7 @@ public class ObjectService {
             }
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(properties, objectId, typeCache,
                     JSONConverter.PropertyMode.OBJECT, succinct, dateTimeFormat);
 
@@ -637,7 +649,7 @@ public class ObjectService {
             }
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -755,6 +767,7 @@ public class ObjectService {
 
             BigInteger offset = context.getOffset();
             BigInteger length = context.getLength();
+            List<ByteRange> ranges = getRanges(context);
 
             // execute
             if (stopBeforeService(service)) {
@@ -767,7 +780,7 @@ public class ObjectService {
                 return;
             }
 
-            if (content == null || content.getStream() == null) {
+            if (!hasContentStream(content)) {
                 throw new CmisRuntimeException("Content stream is null!");
             }
 
@@ -781,21 +794,18 @@ public class ObjectService {
                 contentType = MEDIATYPE_OCTETSTREAM;
             }
 
-            // set headers
-            if ((offset == null || offset.signum() == 0) && length == null) {
-                response.setStatus(HttpServletResponse.SC_OK);
-            } else {
-                setStatus(request, response, HttpServletResponse.SC_PARTIAL_CONTENT);
-
-                if (content.getBigLength() != null && content.getBigLength().signum() == 1) {
-                    BigInteger firstBytePos = (offset == null ? BigInteger.ZERO : offset);
-                    BigInteger lastBytePos = firstBytePos.add(content.getBigLength().subtract(BigInteger.ONE));
+            // set headers, status and content type of ranges are set when
+            // the ranges are sent
+            if (ranges == null) {
+                if ((offset == null || offset.signum() == 0) && length == null) {
+                    response.setStatus(HttpServletResponse.SC_OK);
+                } else {
+                    setStatus(request, response, HttpServletResponse.SC_PARTIAL_CONTENT);
 
-                    response.setHeader("Content-Range",
-                            "bytes " + firstBytePos.toString() + "-" + lastBytePos.toString() + "/*");
+                    setContentRangeHeader(content, offset, response);
                 }
+                response.setContentType(contentType);
             }
-            response.setContentType(contentType);
 
             String contentFilename = content.getFileName();
             if (contentFilename == null) {
@@ -811,14 +821,12 @@ public class ObjectService {
             }
 
             // send content
-            InputStream in = content.getStream();
-            OutputStream out = response.getOutputStream();
-            try {
-                IOUtils.copy(in, out, BUFFER_SIZE);
-                out.flush();
-            } finally {
-                IOUtils.closeQuietly(in);
+            if (ranges != null) {
+                writeContentRanges(content, ranges, contentType, response, BUFFER_SIZE);
+                return;
             }
+
+            writeContentStream(content, response.getOutputStream(), BUFFER_SIZE);
         }
     }
 
@@ -846,6 +854,8 @@ public class ObjectService {
 
             service.deleteObject(repositoryId, objectId, allVersions, null);
 
+            invalidateObjectTypes(context, objectId);
+
             if (stopAfterService(service)) {
                 return;
             }
@@ -882,6 +892,8 @@ public class ObjectService {
             FailedToDeleteData ftd = service.deleteTree(repositoryId, objectId, allVersions, unfileObjects,
                     continueOnFailure, null);
 
+            invalidateObjectTypes(context, objectId);
+
             if (stopAfterService(service)) {
                 return;
             }
@@ -941,7 +953,7 @@ public class ObjectService {
             response.setStatus(HttpServletResponse.SC_OK);
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -997,7 +1009,7 @@ public class ObjectService {
             response.setHeader("Location", compileObjectLocationUrl(request, repositoryId, newObjectId));
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -1053,7 +1065,7 @@ public class ObjectService {
             response.setHeader("Location", compileObjectLocationUrl(request, repositoryId, newObjectId));
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -1106,7 +1118,7 @@ public class ObjectService {
             response.setHeader("Location", compileObjectLocationUrl(request, repositoryId, newObjectId));
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
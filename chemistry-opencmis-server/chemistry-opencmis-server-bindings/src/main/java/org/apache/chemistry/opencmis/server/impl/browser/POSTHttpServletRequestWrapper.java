@@ -50,11 +50,27 @@ public final class POSTHttpServletRequestWrapper extends QueryStringHttpServletR
 
     public POSTHttpServletRequestWrapper(HttpServletRequest request, TempStoreOutputStreamFactory streamFactory)
             throws IOException {
+        this(request, streamFactory, false);
+    }
+
+    /**
+     * Parses a POST request.
+     * 
+     * @param request
+     *            the request
+     * @param streamFactory
+     *            factory for the temporary store of the content
+     * @param streamContent
+     *            {@code true} if the content of a multipart request should be
+     *            read directly from the request, see {@link MultipartParser}
+     */
+    public POSTHttpServletRequestWrapper(HttpServletRequest request, TempStoreOutputStreamFactory streamFactory,
+            boolean streamContent) throws IOException {
         super(request);
 
         if (MultipartParser.isMultipartContent(request)) {
             // multipart processing
-            MultipartParser parser = new MultipartParser(request, streamFactory);
+            MultipartParser parser = new MultipartParser(request, streamFactory, streamContent);
             parser.parse();
 
             if (parser.hasContent()) {
@@ -73,7 +73,7 @@ public class PolicyService {
 
             JSONArray jsonPolicies = new JSONArray();
             if (policies != null) {
-                TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+                TypeCache typeCache = createTypeCache(context, repositoryId, service);
                 for (ObjectData policy : policies) {
                     jsonPolicies.add(JSONConverter.convert(policy, typeCache, JSONConverter.PropertyMode.OBJECT,
                             succinct, dateTimeFormat));
@@ -125,7 +125,7 @@ public class PolicyService {
             // return object
             response.setStatus(HttpServletResponse.SC_OK);
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -173,7 +173,7 @@ public class PolicyService {
             // return object
             response.setStatus(HttpServletResponse.SC_OK);
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -327,6 +327,8 @@ public class RepositoryService {
             }
 
             TypeDefinition typeOut = service.createType(repositoryId, typeIn, null);
+            // the repository may assign a different type id
+            invalidateType(context, typeOut == null ? typeIn.getId() : typeOut.getId());
 
             if (stopAfterService(service)) {
                 return;
@@ -379,6 +381,7 @@ public class RepositoryService {
             }
 
             TypeDefinition typeOut = service.updateType(repositoryId, typeIn, null);
+            invalidateTypes(context);
 
             if (stopAfterService(service)) {
                 return;
@@ -413,6 +416,7 @@ public class RepositoryService {
             }
 
             service.deleteType(repositoryId, typeId, null);
+            invalidateTypes(context);
 
             if (stopAfterService(service)) {
                 return;
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl.browser;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+
+/**
+ * Type definitions of one repository, shared by all browser binding requests
+ * of a servlet.
+ * <p>
+ * The cache holds a bounded number of type definitions and the type ids of
+ * recently serialized objects, both for a limited time. A type that is
+ * created through the browser binding is removed from the cache. Updating or
+ * deleting a type through the browser binding clears the cache because
+ * subtypes inherit the property definitions of their parent type. The type
+ * ids of objects that are updated, checked in or deleted through the browser
+ * binding are removed as well. Changes made by other means are picked up when
+ * the entries expire or when a property is not found and the type is
+ * reloaded, see {@link ServerTypeCacheImpl}.
+ * <p>
+ * All users of a repository share the cache. It must not be used if the
+ * repository returns different type definitions to different users, for
+ * example localized or permission filtered definitions.
+ */
+public class RepositoryTypeCache {
+
+    private final Map<String, TypeEntry> types;
+    private final Map<String, ObjectTypes> objectTypes;
+    private final long typesTtl;
+    private final long objectTypesTtl;
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntries
+     *            the maximum number of type definitions and the maximum
+     *            number of objects
+     * @param typesTtl
+     *            how long a type definition is cached in milliseconds
+     * @param objectTypesTtl
+     *            how long the type ids of an object are remembered in
+     *            milliseconds
+     */
+    public RepositoryTypeCache(int maxEntries, long typesTtl, long objectTypesTtl) {
+        this.types = createLruMap(maxEntries);
+        this.objectTypes = createLruMap(maxEntries);
+        this.typesTtl = typesTtl;
+        this.objectTypesTtl = objectTypesTtl;
+    }
+
+    private static <V> Map<String, V> createLruMap(final int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(Math.min(maxEntries, 1024) + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Returns a cached type definition.
+     *
+     * @return the type definition or {@code null} if it is not cached or
+     *         expired
+     */
+    public TypeDefinition getTypeDefinition(String typeId) {
+        TypeEntry entry = types.get(typeId);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.expires < System.currentTimeMillis()) {
+            types.remove(typeId);
+            return null;
+        }
+
+        return entry.type;
+    }
+
+    /**
+     * Adds or replaces a type definition.
+     */
+    public void putTypeDefinition(TypeDefinition type) {
+        if (type == null || type.getId() == null || typesTtl <= 0) {
+            return;
+        }
+
+        types.put(type.getId(), new TypeEntry(type, System.currentTimeMillis() + typesTtl));
+    }
+
+    /**
+     * Removes a type definition, for example after the type has been updated
+     * or deleted.
+     */
+    public void removeTypeDefinition(String typeId) {
+        if (typeId == null) {
+            return;
+        }
+
+        types.remove(typeId);
+    }
+
+    /**
+     * Returns the remembered type ids of an object.
+     *
+     * @return the type ids or {@code null} if they are not known or expired
+     */
+    public ObjectTypes getObjectTypes(String objectId) {
+        ObjectTypes result = objectTypes.get(objectId);
+        if (result == null) {
+            return null;
+        }
+
+        if (result.expires < System.currentTimeMillis()) {
+            objectTypes.remove(objectId);
+            return null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Remembers the type ids of an object.
+     */
+    public void putObjectTypes(String objectId, String typeId, List<String> secondaryTypeIds) {
+        if (objectId == null || objectTypesTtl <= 0) {
+            return;
+        }
+
+        objectTypes.put(objectId, new ObjectTypes(typeId, secondaryTypeIds, System.currentTimeMillis()
+                + objectTypesTtl));
+    }
+
+    /**
+     * Forgets the type ids of an object, for example after its properties
+     * and secondary types have been updated or after it has been deleted.
+     */
+    public void removeObjectTypes(String objectId) {
+        if (objectId == null) {
+            return;
+        }
+
+        objectTypes.remove(objectId);
+    }
+
+    /**
+     * Removes all type definitions and object type ids.
+     */
+    public void clear() {
+        types.clear();
+        objectTypes.clear();
+    }
+
+    private static class TypeEntry {
+
+        private final TypeDefinition type;
+        private final long expires;
+
+        public TypeEntry(TypeDefinition type, long expires) {
+            this.type = type;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Type id and secondary type ids of an object.
+     */
+    public static class ObjectTypes {
+
+        private final String typeId;
+        private final List<String> secondaryTypeIds;
+        private final long expires;
+
+        public ObjectTypes(String typeId, List<String> secondaryTypeIds, long expires) {
+            this.typeId = typeId;
+            this.secondaryTypeIds = secondaryTypeIds;
+            this.expires = expires;
+        }
+
+        public String getTypeId() {
+            return typeId;
+        }
+
+        public List<String> getSecondaryTypeIds() {
+            return secondaryTypeIds;
+        }
+    }
+}
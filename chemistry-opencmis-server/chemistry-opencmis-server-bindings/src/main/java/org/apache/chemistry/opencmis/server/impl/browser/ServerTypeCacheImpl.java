@@ -19,6 +19,7 @@
 package org.apache.chemistry.opencmis.server.impl.browser;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
@@ -33,17 +34,28 @@ import org.apache.chemistry.opencmis.commons.server.CmisService;
 
 /**
  * Temporary type cache used for one call.
+ * <p>
+ * If a {@link RepositoryTypeCache} is provided, type definitions and the type
+ * ids of objects are looked up there before the repository is asked. Property
+ * definitions are only looked up in the types that have been used in this
+ * call.
  */
 public class ServerTypeCacheImpl implements TypeCache {
 
     private final String repositoryId;
     private final CmisService service;
+    private final RepositoryTypeCache sharedCache;
     private final Map<String, TypeDefinition> typeDefinitions;
     private final Map<String, TypeDefinition> objectToTypeDefinitions;
 
     public ServerTypeCacheImpl(String repositoryId, CmisService service) {
+        this(repositoryId, service, null);
+    }
+
+    public ServerTypeCacheImpl(String repositoryId, CmisService service, RepositoryTypeCache sharedCache) {
         this.repositoryId = repositoryId;
         this.service = service;
+        this.sharedCache = sharedCache;
         typeDefinitions = new HashMap<String, TypeDefinition>();
         objectToTypeDefinitions = new HashMap<String, TypeDefinition>();
     }
@@ -51,10 +63,19 @@ public class ServerTypeCacheImpl implements TypeCache {
     @Override
     public TypeDefinition getTypeDefinition(String typeId) {
         TypeDefinition type = typeDefinitions.get(typeId);
+        if (type == null && sharedCache != null) {
+            type = sharedCache.getTypeDefinition(typeId);
+            if (type != null) {
+                typeDefinitions.put(type.getId(), type);
+            }
+        }
         if (type == null) {
             type = service.getTypeDefinition(repositoryId, typeId, null);
             if (type != null) {
                 typeDefinitions.put(type.getId(), type);
+                if (sharedCache != null) {
+                    sharedCache.putTypeDefinition(type);
+                }
             }
         }
 
@@ -66,6 +87,9 @@ public class ServerTypeCacheImpl implements TypeCache {
         TypeDefinition type = service.getTypeDefinition(repositoryId, typeId, null);
         if (type != null) {
             typeDefinitions.put(type.getId(), type);
+            if (sharedCache != null) {
+                sharedCache.putTypeDefinition(type);
+            }
         }
 
         return type;
@@ -74,7 +98,27 @@ public class ServerTypeCacheImpl implements TypeCache {
     @Override
     public TypeDefinition getTypeDefinitionForObject(String objectId) {
         TypeDefinition type = objectToTypeDefinitions.get(objectId);
+        if (type == null && sharedCache != null) {
+            RepositoryTypeCache.ObjectTypes objectTypes = sharedCache.getObjectTypes(objectId);
+            if (objectTypes != null && objectTypes.getTypeId() != null) {
+                type = getTypeDefinition(objectTypes.getTypeId());
+                if (objectTypes.getSecondaryTypeIds() != null) {
+                    for (String secTypeId : objectTypes.getSecondaryTypeIds()) {
+                        getTypeDefinition(secTypeId);
+                    }
+                }
+
+                if (type != null) {
+                    objectToTypeDefinitions.put(objectId, type);
+                    return type;
+                }
+            }
+        }
+
         if (type == null) {
+            String typeId = null;
+            List<String> secondaryTypeIds = null;
+
             ObjectData obj = service.getObject(repositoryId, objectId,
                     "cmis:objectId,cmis:objectTypeId,cmis:baseTypeId,cmis:secondaryObjectTypeIds", false,
                     IncludeRelationships.NONE, "cmis:none", false, false, null);
@@ -82,7 +126,7 @@ public class ServerTypeCacheImpl implements TypeCache {
             if (obj != null && obj.getProperties() != null) {
                 PropertyData<?> typeProp = obj.getProperties().getProperties().get(PropertyIds.OBJECT_TYPE_ID);
                 if (typeProp instanceof PropertyId) {
-                    String typeId = ((PropertyId) typeProp).getFirstValue();
+                    typeId = ((PropertyId) typeProp).getFirstValue();
                     if (typeId != null) {
                         type = getTypeDefinition(typeId);
                     }
@@ -91,7 +135,8 @@ public class ServerTypeCacheImpl implements TypeCache {
                 PropertyData<?> secTypeProp = obj.getProperties().getProperties()
                         .get(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
                 if ((secTypeProp instanceof PropertyId) && (secTypeProp.getValues() != null)) {
-                    for (String secTypeId : ((PropertyId) secTypeProp).getValues()) {
+                    secondaryTypeIds = ((PropertyId) secTypeProp).getValues();
+                    for (String secTypeId : secondaryTypeIds) {
                         if (secTypeId != null) {
                             getTypeDefinition(secTypeId);
                         }
@@ -100,6 +145,9 @@ public class ServerTypeCacheImpl implements TypeCache {
             }
 
             objectToTypeDefinitions.put(objectId, type);
+            if (sharedCache != null && type != null) {
+                sharedCache.putObjectTypes(objectId, typeId, secondaryTypeIds);
+            }
         }
 
         return type;
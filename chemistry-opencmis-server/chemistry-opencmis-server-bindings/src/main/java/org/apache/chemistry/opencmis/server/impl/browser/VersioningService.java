@@ -85,7 +85,7 @@ public class VersioningService {
             }
 
             // return object
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONObject jsonObject = JSONConverter.convert(object, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct, dateTimeFormat);
 
@@ -123,6 +123,8 @@ public class VersioningService {
 
             service.cancelCheckOut(repositoryId, objectId, null);
 
+            invalidateObjectTypes(context, objectId);
+
             if (stopAfterService(service)) {
                 return;
             }
@@ -156,7 +158,7 @@ public class VersioningService {
 
             // execute
             ControlParser cp = new ControlParser(request);
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             Holder<String> objectIdHolder = new Holder<String>(objectId);
             ContentStream contentStream = createContentStream(request);
 
@@ -168,11 +170,14 @@ public class VersioningService {
                     createUpdateProperties(cp, typeId, null, Collections.singletonList(objectId), typeCache),
                     contentStream, checkinComment, createPolicies(cp), createAddAcl(cp), createRemoveAcl(cp), null);
 
+            invalidateObjectTypes(context, objectId);
+
             if (stopAfterService(service)) {
                 return;
             }
 
             String newObjectId = (objectIdHolder.getValue() == null ? objectId : objectIdHolder.getValue());
+            invalidateObjectTypes(context, newObjectId);
 
             ObjectData object = getSimpleObject(service, repositoryId, newObjectId);
             if (object == null) {
@@ -230,7 +235,7 @@ public class VersioningService {
                 throw new CmisRuntimeException("Versions are null!");
             }
 
-            TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
+            TypeCache typeCache = createTypeCache(context, repositoryId, service);
             JSONArray jsonVersions = new JSONArray();
             for (ObjectData version : versions) {
                 jsonVersions.add(JSONConverter.convert(version, typeCache, JSONConverter.PropertyMode.OBJECT, succinct,
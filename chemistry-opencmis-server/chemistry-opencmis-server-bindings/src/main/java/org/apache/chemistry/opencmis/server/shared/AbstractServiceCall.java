@@ -19,10 +19,22 @@
 package org.apache.chemistry.opencmis.server.shared;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -30,20 +42,29 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.chemistry.opencmis.commons.data.CacheHeaderContentStream;
 import org.apache.chemistry.opencmis.commons.data.ContentLengthContentStream;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.FileContentStream;
 import org.apache.chemistry.opencmis.commons.data.LastModifiedContentStream;
 import org.apache.chemistry.opencmis.commons.data.RedirectingContentStream;
 import org.apache.chemistry.opencmis.commons.enums.DateTimeFormat;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
+import org.apache.chemistry.opencmis.commons.impl.ByteArrayPool;
 import org.apache.chemistry.opencmis.commons.impl.CmisEnumHelper;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ProgressControlCmisService;
 import org.apache.chemistry.opencmis.commons.server.ProgressControlCmisService.Progress;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
 
 public abstract class AbstractServiceCall implements ServiceCall {
 
+    private static final String MULTIPART_BYTERANGES = "multipart/byteranges";
+    private static final Random BOUNDARY_RANDOM = new Random();
+
     /**
      * Extracts a string parameter.
      */
@@ -125,6 +146,314 @@ public abstract class AbstractServiceCall implements ServiceCall {
         return CmisEnumHelper.fromValue(getStringParameter(request, name), clazz);
     }
 
+    /**
+     * Checks if a content stream provides content.
+     */
+    public boolean hasContentStream(ContentStream content) {
+        if (content == null) {
+            return false;
+        }
+
+        // don't open the stream of a file content
+        return content instanceof FileContentStream || content.getStream() != null;
+    }
+
+    /**
+     * Writes the content to the output stream. The content of a
+     * {@link FileContentStream} is transferred directly from the file, all
+     * other content is copied from its stream.
+     */
+    public void writeContentStream(ContentStream content, OutputStream out, int bufferSize) throws IOException {
+        assert content != null;
+        assert out != null;
+
+        if (content instanceof FileContentStream) {
+            FileContentStream fileContent = (FileContentStream) content;
+            FileChannel channel = openFile(fileContent);
+            try {
+                long end = channel.size();
+                if (fileContent.getFileLength() >= 0) {
+                    end = Math.min(end, fileContent.getFileOffset() + fileContent.getFileLength());
+                }
+
+                transfer(channel, fileContent.getFileOffset(), end, out);
+                out.flush();
+            } finally {
+                channel.close();
+            }
+
+            return;
+        }
+
+        InputStream in = content.getStream();
+        try {
+            IOUtils.copy(in, out, bufferSize);
+            out.flush();
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Opens the file of a file content. The file is opened before anything
+     * has been written to the response, so errors are translated into CMIS
+     * exceptions that can still be sent to the client.
+     */
+    private static FileChannel openFile(FileContentStream content) throws IOException {
+        try {
+            return FileChannel.open(content.getPath(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new CmisObjectNotFoundException("File not found!", e);
+        } catch (AccessDeniedException e) {
+            throw new CmisPermissionDeniedException("File cannot be read!", e);
+        }
+    }
+
+    /**
+     * Returns the size of the file of a file content.
+     */
+    private static long getFileSize(FileContentStream content) throws IOException {
+        try {
+            return Files.size(content.getPath());
+        } catch (NoSuchFileException e) {
+            throw new CmisObjectNotFoundException("File not found!", e);
+        }
+    }
+
+    /**
+     * Transfers the bytes from {@code start} (inclusive) to {@code end}
+     * (exclusive) of a file channel.
+     */
+    private static void transfer(FileChannel channel, long start, long end, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = start;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Returns the suffix ranges and multiple ranges of the request, which
+     * cannot be passed to the repository as offset and length.
+     * 
+     * @return the ranges or {@code null} if there are no such ranges
+     */
+    @SuppressWarnings("unchecked")
+    public List<ByteRange> getRanges(CallContext context) {
+        Object ranges = context.get(CallContextImpl.RANGES);
+        return ranges instanceof List ? (List<ByteRange>) ranges : null;
+    }
+
+    /**
+     * Sets the {@code Content-Range} header for content that has been
+     * requested with an offset and a length. The total length is only known
+     * for a {@link FileContentStream}.
+     */
+    public void setContentRangeHeader(ContentStream content, BigInteger offset, HttpServletResponse response)
+            throws IOException {
+        if (content instanceof FileContentStream) {
+            FileContentStream fileContent = (FileContentStream) content;
+            long size = getFileSize(fileContent);
+            long first = fileContent.getFileOffset();
+            long last = (fileContent.getFileLength() < 0 ? size : Math.min(size, first
+                    + fileContent.getFileLength())) - 1;
+
+            if (first <= last) {
+                response.setHeader("Content-Range", "bytes " + first + "-" + last + "/" + size);
+            }
+        } else if (content.getBigLength() != null && content.getBigLength().signum() == 1) {
+            BigInteger firstBytePos = (offset == null ? BigInteger.ZERO : offset);
+            BigInteger lastBytePos = firstBytePos.add(content.getBigLength().subtract(BigInteger.ONE));
+
+            response.setHeader("Content-Range", "bytes " + firstBytePos.toString() + "-" + lastBytePos.toString()
+                    + "/*");
+        }
+    }
+
+    /**
+     * Sends the requested ranges of a content. A single range is sent as
+     * partial content, multiple ranges as a {@code multipart/byteranges}
+     * response. If the total length of the content is unknown, the complete
+     * content is sent.
+     * <p>
+     * The ranges are sorted and overlapping or adjacent ranges are merged, so
+     * that no byte is sent twice (RFC 7233, section 6.1) and the content can
+     * be read in one pass. The content of a {@link FileContentStream} is
+     * transferred directly from the file.
+     * <p>
+     * The {@code Content-Length} header is replaced with the length of the
+     * response body.
+     * 
+     * @param content
+     *            the complete content
+     * @param ranges
+     *            the requested ranges
+     * @param contentType
+     *            the MIME type of the content
+     */
+    public void writeContentRanges(ContentStream content, List<ByteRange> ranges, String contentType,
+            HttpServletResponse response, int bufferSize) throws IOException {
+        long totalLength = getTotalLength(content);
+        if (totalLength < 0) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            writeContentStream(content, response.getOutputStream(), bufferSize);
+            return;
+        }
+
+        List<long[]> resolved = ByteRange.coalesce(ByteRange.resolve(ranges, totalLength));
+
+        RangeSource source = new RangeSource(content);
+        try {
+            if (resolved.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + totalLength);
+                response.setHeader("Content-Length", "0");
+                return;
+            }
+
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+            if (resolved.size() == 1) {
+                long[] range = resolved.get(0);
+                response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + totalLength);
+                response.setHeader("Content-Length", String.valueOf(range[1] - range[0] + 1));
+                response.setContentType(contentType);
+                source.write(range[0], range[1], response.getOutputStream());
+            } else {
+                String boundary = "opencmis" + Long.toHexString(BOUNDARY_RANDOM.nextLong());
+                response.setContentType(MULTIPART_BYTERANGES + "; boundary=" + boundary);
+
+                List<byte[]> partHeaders = new ArrayList<byte[]>(resolved.size());
+                byte[] end = IOUtils.toUTF8Bytes("\r\n--" + boundary + "--\r\n");
+                long length = end.length;
+                for (long[] range : resolved) {
+                    byte[] partHeader = IOUtils.toUTF8Bytes("\r\n--" + boundary + "\r\nContent-Type: " + contentType
+                            + "\r\nContent-Range: bytes " + range[0] + "-" + range[1] + "/" + totalLength
+                            + "\r\n\r\n");
+                    partHeaders.add(partHeader);
+                    length += partHeader.length + range[1] - range[0] + 1;
+                }
+                response.setHeader("Content-Length", String.valueOf(length));
+
+                OutputStream out = response.getOutputStream();
+                for (int i = 0; i < resolved.size(); i++) {
+                    long[] range = resolved.get(i);
+                    out.write(partHeaders.get(i));
+                    source.write(range[0], range[1], out);
+                }
+                out.write(end);
+            }
+
+            response.getOutputStream().flush();
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Returns the total length of a complete content or -1 if it is unknown.
+     */
+    private static long getTotalLength(ContentStream content) throws IOException {
+        if (content instanceof FileContentStream) {
+            FileContentStream fileContent = (FileContentStream) content;
+            long available = Math.max(0, getFileSize(fileContent) - fileContent.getFileOffset());
+            return fileContent.getFileLength() < 0 ? available : Math.min(available, fileContent.getFileLength());
+        }
+
+        BigInteger length = content.getBigLength();
+        return length == null || length.signum() < 0 ? -1 : length.longValue();
+    }
+
+    /**
+     * Reads ranges of a content, either from the file of a
+     * {@link FileContentStream} or from the content stream.
+     */
+    private static class RangeSource {
+
+        private final ContentStream content;
+        private FileChannel channel;
+        private InputStream stream;
+        private long position;
+
+        public RangeSource(ContentStream content) {
+            this.content = content;
+        }
+
+        /**
+         * Writes the bytes from {@code first} to {@code last} (inclusive).
+         * Ranges of a content stream must be written in ascending order.
+         */
+        public void write(long first, long last, OutputStream out) throws IOException {
+            if (content instanceof FileContentStream) {
+                FileContentStream fileContent = (FileContentStream) content;
+                if (channel == null) {
+                    channel = openFile(fileContent);
+                }
+
+                long offset = fileContent.getFileOffset();
+                transfer(channel, offset + first, offset + last + 1, out);
+                return;
+            }
+
+            if (stream == null) {
+                stream = content.getStream();
+                position = 0;
+            } else if (first < position) {
+                throw new IllegalArgumentException("Ranges must be in ascending order!");
+            }
+
+            ByteArrayPool pool = IOUtils.getBufferPool();
+            byte[] buffer = pool.acquire(64 * 1024);
+            try {
+                // skip to the first byte
+                while (position < first) {
+                    long skipped = stream.skip(first - position);
+                    if (skipped <= 0) {
+                        int r = stream.read(buffer, 0, (int) Math.min(buffer.length, first - position));
+                        if (r == -1) {
+                            return;
+                        }
+                        skipped = r;
+                    }
+                    position += skipped;
+                }
+
+                // copy the range
+                while (position <= last) {
+                    int r = stream.read(buffer, 0, (int) Math.min(buffer.length, last - position + 1));
+                    if (r == -1) {
+                        return;
+                    }
+                    out.write(buffer, 0, r);
+                    position += r;
+                }
+            } finally {
+                pool.release(buffer);
+            }
+        }
+
+        public void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+
+            if (stream != null) {
+                IOUtils.closeQuietly(stream);
+            } else if (!(content instanceof FileContentStream)) {
+                IOUtils.closeQuietly(content);
+            }
+        }
+    }
+
     /**
      * Sets certain HTTP headers if the server implementation requested them.
      * 
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A byte range of an HTTP {@code Range} header.
+ * <p>
+ * A range is either a first byte position with an optional last byte
+ * position ({@code bytes=100-199}, {@code bytes=100-}) or a suffix length
+ * ({@code bytes=-100}).
+ */
+public final class ByteRange implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum number of ranges accepted in one header. */
+    public static final int MAX_RANGES = 100;
+
+    private final long firstBytePos;
+    private final long lastBytePos;
+    private final long suffixLength;
+
+    private ByteRange(long firstBytePos, long lastBytePos, long suffixLength) {
+        this.firstBytePos = firstBytePos;
+        this.lastBytePos = lastBytePos;
+        this.suffixLength = suffixLength;
+    }
+
+    /**
+     * Parses a {@code Range} header.
+     *
+     * @param rangeHeader
+     *            the header value
+     *
+     * @return the ranges or {@code null} if the header is not a valid byte
+     *         range header and must be ignored
+     */
+    public static List<ByteRange> parse(String rangeHeader) {
+        if (rangeHeader == null) {
+            return null;
+        }
+
+        String header = rangeHeader.replaceAll("\\s", "").toLowerCase(Locale.ENGLISH);
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> result = new ArrayList<ByteRange>(specs.length);
+        try {
+            for (String spec : specs) {
+                int ds = spec.indexOf('-');
+                if (ds < 0 || spec.length() < 2) {
+                    return null;
+                }
+
+                if (ds == 0) {
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    result.add(new ByteRange(-1, -1, suffix));
+                } else {
+                    long first = Long.parseLong(spec.substring(0, ds));
+                    long last = -1;
+                    if (ds < spec.length() - 1) {
+                        last = Long.parseLong(spec.substring(ds + 1));
+                        if (last < first) {
+                            return null;
+                        }
+                    }
+                    if (first < 0) {
+                        return null;
+                    }
+                    result.add(new ByteRange(first, last, -1));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns if this is a suffix range ({@code bytes=-N}).
+     */
+    public boolean isSuffix() {
+        return suffixLength > -1;
+    }
+
+    /**
+     * Returns the first byte position or -1 for a suffix range.
+     */
+    public long getFirstBytePos() {
+        return firstBytePos;
+    }
+
+    /**
+     * Returns the last byte position or -1 if the range is open or a suffix
+     * range.
+     */
+    public long getLastBytePos() {
+        return lastBytePos;
+    }
+
+    /**
+     * Returns the suffix length or -1 if this is not a suffix range.
+     */
+    public long getSuffixLength() {
+        return suffixLength;
+    }
+
+    /**
+     * Resolves this range against the total length of a content.
+     *
+     * @param totalLength
+     *            the content length in bytes
+     *
+     * @return the first and the last byte position or {@code null} if the
+     *         range cannot be satisfied
+     */
+    public long[] resolve(long totalLength) {
+        if (isSuffix()) {
+            if (suffixLength == 0 || totalLength == 0) {
+                return null;
+            }
+            return new long[] { Math.max(0, totalLength - suffixLength), totalLength - 1 };
+        }
+
+        if (firstBytePos >= totalLength) {
+            return null;
+        }
+
+        long last = lastBytePos < 0 ? totalLength - 1 : Math.min(lastBytePos, totalLength - 1);
+        return new long[] { firstBytePos, last };
+    }
+
+    /**
+     * Resolves ranges against the total length of a content and drops all
+     * ranges that cannot be satisfied.
+     *
+     * @return the first and last byte positions of the satisfiable ranges in
+     *         the requested order
+     */
+    public static List<long[]> resolve(List<ByteRange> ranges, long totalLength) {
+        List<long[]> result = new ArrayList<long[]>(ranges.size());
+        for (ByteRange range : ranges) {
+            long[] resolved = range.resolve(totalLength);
+            if (resolved != null) {
+                result.add(resolved);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sorts resolved ranges and merges ranges that overlap or are adjacent.
+     *
+     * @param ranges
+     *            the first and last byte positions of the ranges
+     *
+     * @return the ranges in ascending order
+     */
+    public static List<long[]> coalesce(List<long[]> ranges) {
+        List<long[]> sorted = new ArrayList<long[]>(ranges);
+        Collections.sort(sorted, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] r1, long[] r2) {
+                return Long.compare(r1[0], r2[0]);
+            }
+        });
+
+        List<long[]> result = new ArrayList<long[]>(sorted.size());
+        long[] current = null;
+        for (long[] range : sorted) {
+            if (current != null && range[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], range[1]);
+            } else {
+                current = new long[] { range[0], range[1] };
+                result.add(current);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (isSuffix()) {
+            return "-" + suffixLength;
+        }
+
+        return firstBytePos + "-" + (lastBytePos < 0 ? "" : String.valueOf(lastBytePos));
+    }
+}
@@ -36,6 +36,7 @@ import javax.crypto.KeyGenerator;
 import javax.crypto.spec.IvParameterSpec;
 
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.server.TempStoreOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,6 +70,7 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
     private final boolean encrypt;
 
     private byte[] buf = null;
+    private boolean pooledBuf = false;
     private int bufSize = 0;
     private long length = 0;
     private File tempFile;
@@ -132,7 +134,25 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
         this.maxContentSize = maxContentSize;
         this.encrypt = encrypt;
 
-        buf = new byte[initSize];
+        if (IOUtils.getBufferPool().isPooledSize(initSize)) {
+            buf = IOUtils.getBufferPool().acquire(initSize);
+            pooledBuf = true;
+        } else {
+            buf = new byte[initSize];
+        }
+    }
+
+    /**
+     * Replaces the internal buffer and returns the old buffer to the pool if
+     * it came from there.
+     */
+    private void setBuffer(byte[] newBuf) {
+        if (pooledBuf) {
+            IOUtils.getBufferPool().release(buf);
+            pooledBuf = false;
+        }
+
+        buf = newBuf;
     }
 
     private void expand(int nextBufferSize) throws IOException {
@@ -148,13 +168,13 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
 
             if (buf.length != memoryThreshold) {
                 if (memoryThreshold >= initSize) {
-                    buf = new byte[memoryThreshold];
+                    setBuffer(new byte[memoryThreshold]);
                 } else if (buf.length != initSize) {
-                    buf = new byte[initSize];
+                    setBuffer(new byte[initSize]);
                 }
             }
             if (buf.length < nextBufferSize) {
-                buf = new byte[nextBufferSize];
+                setBuffer(new byte[nextBufferSize]);
             }
             bufSize = 0;
 
@@ -165,7 +185,7 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
                 : buf.length + nextBufferSize + MAX_GROW);
         byte[] newbuf = new byte[newSize];
         System.arraycopy(buf, 0, newbuf, 0, bufSize);
-        buf = newbuf;
+        setBuffer(newbuf);
     }
 
     private void openTempFile() throws IOException {
@@ -376,7 +396,7 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
             }
         }
 
-        buf = null;
+        setBuffer(null);
     }
 
     /**
@@ -386,7 +406,7 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
     public InputStream getInputStream() throws IOException {
         if (tmpStream != null) {
             close();
-            buf = null;
+            setBuffer(null);
 
             return new InternalTempFileInputStream();
         } else {
@@ -421,7 +441,9 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
          * Gets the byte buffer.
          * 
          * This the underlying byte buffer and might be bigger than then the
-         * total length of the stream.
+         * total length of the stream. A buffer that has been handed out is
+         * not returned to the buffer pool, so it keeps its content after the
+         * stream has been closed.
          * 
          * @return the content in a byte array or {@code null} if the data is
          *         stored in a file
@@ -482,6 +504,9 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
                 throw new IllegalStateException("Stream is already closed!");
             }
 
+            // the caller may keep the array, don't let other streams reuse it
+            pooledBuf = false;
+
             return buf;
         }
 
@@ -576,7 +601,7 @@ public class ThresholdOutputStream extends TempStoreOutputStream {
 
         @Override
         public void close() throws IOException {
-            buf = null;
+            setBuffer(null);
             mark = -1;
         }
     }
@@ -18,11 +18,16 @@
  */
 package org.apache.chemistry.opencmis.server.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
 
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.server.shared.ByteRange;
 import org.junit.Test;
 
 public class CallContextImplTest {
@@ -78,17 +83,58 @@ public class CallContextImplTest {
         assertEquals(456L, context.getOffset().longValue());
         assertNull(context.getLength());
 
-        // not supported ranges
+        assertNull(context.getRanges());
+
+        // ranges that cannot be passed to the repository
         context.setRange("bytes=10-20,30-40");
         assertNull(context.getOffset());
         assertNull(context.getLength());
+        assertEquals(2, context.getRanges().size());
+        assertEquals("10-20", context.getRanges().get(0).toString());
+        assertEquals("30-40", context.getRanges().get(1).toString());
 
         context.setRange("bytes=-123");
         assertNull(context.getOffset());
         assertNull(context.getLength());
+        assertEquals(1, context.getRanges().size());
+        assertTrue(context.getRanges().get(0).isSuffix());
+        assertEquals(123L, context.getRanges().get(0).getSuffixLength());
 
+        // invalid ranges
         context.setRange("kb=100-299");
         assertNull(context.getOffset());
         assertNull(context.getLength());
+        assertNull(context.getRanges());
+
+        context.setRange("bytes=20-10");
+        assertNull(context.getOffset());
+        assertNull(context.getRanges());
+    }
+
+    @Test
+    public void testResolveRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9,-5,95-,200-300");
+        List<long[]> resolved = ByteRange.resolve(ranges, 100);
+
+        assertEquals(3, resolved.size());
+        assertArrayEquals(new long[] { 0, 9 }, resolved.get(0));
+        assertArrayEquals(new long[] { 95, 99 }, resolved.get(1));
+        assertArrayEquals(new long[] { 95, 99 }, resolved.get(2));
+
+        assertArrayEquals(new long[] { 0, 99 }, ByteRange.parse("bytes=-500").get(0).resolve(100));
+        assertNull(ByteRange.parse("bytes=-0").get(0).resolve(100));
+        assertNull(ByteRange.parse("bytes=0-").get(0).resolve(0));
+    }
+
+    @Test
+    public void testCoalesceRanges() {
+        List<long[]> coalesced = ByteRange.coalesce(ByteRange.resolve(
+                ByteRange.parse("bytes=50-59,0-9,10-19,55-70,-5,80-84"), 100));
+
+        assertEquals(4, coalesced.size());
+        assertArrayEquals(new long[] { 0, 19 }, coalesced.get(0));
+        assertArrayEquals(new long[] { 50, 70 }, coalesced.get(1));
+        assertArrayEquals(new long[] { 80, 84 }, coalesced.get(2));
+        assertArrayEquals(new long[] { 95, 99 }, coalesced.get(3));
     }
 }
@@ -22,7 +22,9 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -33,6 +35,7 @@ import java.util.Random;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.server.impl.browser.MultipartParser;
@@ -405,6 +408,76 @@ public class MultipartParserTest {
         assertMultipartBasics(parser, 2, null, true, "file1", "application/something", content);
     }
 
+    @Test
+    public void testStreamContent() throws Exception {
+        String boundary = "---- next ----";
+
+        // content with partial boundaries that spans several buffers
+        ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
+        Random rnd = new Random(42);
+        while (contentStream.size() < 3 * 1024 * 1024) {
+            contentStream.write('a' + rnd.nextInt('z' - 'a'));
+            if (rnd.nextInt(1000) == 0) {
+                contentStream.write(("\r\n--" + boundary.substring(0, rnd.nextInt(boundary.length())))
+                        .getBytes(IOUtils.ISO_8859_1));
+            }
+        }
+        byte[] content = contentStream.toByteArray();
+
+        byte[] formdata = ("\r\n--" + boundary + "\r\n" + "Content-Disposition: form-data; name=\"field1\"\r\n"
+                + "\r\n" + "value1\r\n" + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"content\"; filename=stream.txt\r\n"
+                + "Content-Type: text/plain\r\n" + "\r\n" + new String(content, IOUtils.ISO_8859_1) + "\r\n" + "--"
+                + boundary + "--").getBytes(IOUtils.ISO_8859_1);
+
+        MultipartParser parser = prepareStreamingParser(boundary, formdata, MAX_SIZE);
+        parser.parse();
+
+        assertTrue(parser.hasContent());
+        assertEquals("stream.txt", parser.getFilename());
+        assertEquals("text/plain", parser.getContentType());
+        assertNull(parser.getSize());
+        assertEquals(1, parser.getFields().size());
+        assertEquals("value1", parser.getFields().get("field1")[0]);
+        assertArrayEquals(content, readBytesFromStream(parser.getStream()));
+    }
+
+    @Test
+    public void testStreamContentNotLast() throws Exception {
+        String boundary = "---- next ----";
+        byte[] content = "This is content!".getBytes();
+        byte[] formdata = ("\r\n--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"content\"; filename=test.txt\r\n" + "\r\n"
+                + new String(content) + "\r\n" + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"field1\"\r\n" + "\r\n" + "value1\r\n" + "--" + boundary
+                + "--").getBytes();
+
+        MultipartParser parser = prepareStreamingParser(boundary, formdata, MAX_SIZE);
+        parser.parse();
+
+        try {
+            readBytesFromStream(parser.getStream());
+            fail("Content that is not the last part should fail.");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = CmisConstraintException.class)
+    public void testStreamContentTooBig() throws Exception {
+        String boundary = "---- next ----";
+        byte[] content = new byte[1000];
+        byte[] formdata = ("\r\n--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"content\"; filename=test.txt\r\n" + "\r\n"
+                + new String(content, IOUtils.ISO_8859_1) + "\r\n" + "--" + boundary + "--")
+                .getBytes(IOUtils.ISO_8859_1);
+
+        MultipartParser parser = prepareStreamingParser(boundary, formdata, 999);
+        parser.parse();
+
+        readBytesFromStream(parser.getStream());
+    }
+
     // ---- helpers ----
 
     private MultipartParser prepareParser(String boundary, byte[] content) throws Exception {
@@ -415,6 +488,14 @@ public class MultipartParserTest {
         return new MultipartParser(request, streamFactory);
     }
 
+    private MultipartParser prepareStreamingParser(String boundary, byte[] content, long maxSize) throws Exception {
+        HttpServletRequest request = HttpRequestMockHelper.createMultipartRequest(boundary, content);
+
+        TempStoreOutputStreamFactory streamFactory = TempStoreOutputStreamFactory.newInstance(null, THRESHOLD,
+                maxSize, false);
+        return new MultipartParser(request, streamFactory, true);
+    }
+
     private byte[] readBytesFromStream(InputStream is) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
 
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.impl.browser.RepositoryTypeCache;
+import org.apache.chemistry.opencmis.server.impl.browser.ServerTypeCacheImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RepositoryTypeCacheTest {
+
+    private CmisService service;
+
+    @Before
+    public void setUp() {
+        service = mock(CmisService.class);
+        when(service.getTypeDefinition("repo", "doc", null)).thenReturn(createType("doc", "doc:prop"));
+        when(service.getTypeDefinition("repo", "other", null)).thenReturn(createType("other", "other:prop"));
+
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, "doc"));
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+        when(
+                service.getObject(eq("repo"), eq("123"), anyString(), anyBoolean(), any(IncludeRelationships.class),
+                        anyString(), anyBoolean(), anyBoolean(), any())).thenReturn(object);
+    }
+
+    @Test
+    public void testSharedTypes() {
+        RepositoryTypeCache shared = new RepositoryTypeCache(10, 60000, 60000);
+
+        TypeCache first = new ServerTypeCacheImpl("repo", service, shared);
+        assertNotNull(first.getTypeDefinition("doc"));
+        assertNotNull(first.getTypeDefinition("other"));
+
+        // a second call gets the types from the shared cache but only sees
+        // the properties of the types it used itself
+        TypeCache second = new ServerTypeCacheImpl("repo", service, shared);
+        assertSame(first.getTypeDefinition("doc"), second.getTypeDefinition("doc"));
+        assertNotNull(second.getPropertyDefinition("doc:prop"));
+        assertNull(second.getPropertyDefinition("other:prop"));
+
+        verify(service, times(1)).getTypeDefinition("repo", "doc", null);
+
+        // invalidation
+        shared.removeTypeDefinition("doc");
+        new ServerTypeCacheImpl("repo", service, shared).getTypeDefinition("doc");
+        verify(service, times(2)).getTypeDefinition("repo", "doc", null);
+    }
+
+    @Test
+    public void testTypesExpire() {
+        RepositoryTypeCache shared = new RepositoryTypeCache(10, 0, 60000);
+
+        new ServerTypeCacheImpl("repo", service, shared).getTypeDefinition("doc");
+        new ServerTypeCacheImpl("repo", service, shared).getTypeDefinition("doc");
+        assertNull(shared.getTypeDefinition("doc"));
+
+        verify(service, times(2)).getTypeDefinition("repo", "doc", null);
+    }
+
+    @Test
+    public void testObjectTypes() {
+        RepositoryTypeCache shared = new RepositoryTypeCache(10, 60000, 60000);
+
+        assertEquals("doc", new ServerTypeCacheImpl("repo", service, shared).getTypeDefinitionForObject("123")
+                .getId());
+        assertEquals("doc", new ServerTypeCacheImpl("repo", service, shared).getTypeDefinitionForObject("123")
+                .getId());
+
+        verify(service, times(1)).getObject(eq("repo"), eq("123"), anyString(), anyBoolean(),
+                any(IncludeRelationships.class), anyString(), anyBoolean(), anyBoolean(), any());
+    }
+
+    @Test
+    public void testObjectTypesInvalidation() {
+        RepositoryTypeCache shared = new RepositoryTypeCache(10, 60000, 60000);
+
+        TypeCache first = new ServerTypeCacheImpl("repo", service, shared);
+        first.getTypeDefinitionForObject("123");
+        assertNull(first.getPropertyDefinition("other:prop"));
+
+        // a secondary type has been added to the object
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, "doc"));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.SECONDARY_OBJECT_TYPE_IDS, "other"));
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+        when(
+                service.getObject(eq("repo"), eq("123"), anyString(), anyBoolean(), any(IncludeRelationships.class),
+                        anyString(), anyBoolean(), anyBoolean(), any())).thenReturn(object);
+
+        TypeCache second = new ServerTypeCacheImpl("repo", service, shared);
+        second.getTypeDefinitionForObject("123");
+        assertNull(second.getPropertyDefinition("other:prop"));
+
+        shared.removeObjectTypes("123");
+
+        TypeCache third = new ServerTypeCacheImpl("repo", service, shared);
+        third.getTypeDefinitionForObject("123");
+        assertNotNull(third.getPropertyDefinition("other:prop"));
+
+        verify(service, times(2)).getObject(eq("repo"), eq("123"), anyString(), anyBoolean(),
+                any(IncludeRelationships.class), anyString(), anyBoolean(), anyBoolean(), any());
+    }
+
+    @Test
+    public void testObjectTypesExpire() {
+        RepositoryTypeCache shared = new RepositoryTypeCache(10, 60000, 0);
+
+        new ServerTypeCacheImpl("repo", service, shared).getTypeDefinitionForObject("123");
+        new ServerTypeCacheImpl("repo", service, shared).getTypeDefinitionForObject("123");
+
+        verify(service, times(2)).getObject(eq("repo"), eq("123"), anyString(), anyBoolean(),
+                any(IncludeRelationships.class), anyString(), anyBoolean(), anyBoolean(), any());
+    }
+
+    @Test
+    public void testBound() {
+        RepositoryTypeCache shared = new RepositoryTypeCache(1, 60000, 60000);
+        shared.putTypeDefinition(createType("a", "a:prop"));
+        shared.putTypeDefinition(createType("b", "b:prop"));
+
+        assertNull(shared.getTypeDefinition("a"));
+        assertNotNull(shared.getTypeDefinition("b"));
+
+        shared.putObjectTypes("1", "a", Collections.<String> emptyList());
+        shared.putObjectTypes("2", "b", null);
+        assertNull(shared.getObjectTypes("1"));
+        assertEquals("b", shared.getObjectTypes("2").getTypeId());
+    }
+
+    private static DocumentTypeDefinitionImpl createType(String id, String propId) {
+        DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+        type.setId(id);
+
+        PropertyIdDefinitionImpl propDef = new PropertyIdDefinitionImpl();
+        propDef.setId(propId);
+        type.addPropertyDefinition(propDef);
+
+        return type;
+    }
+}
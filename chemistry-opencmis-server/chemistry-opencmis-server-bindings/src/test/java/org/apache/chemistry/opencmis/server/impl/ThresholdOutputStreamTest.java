@@ -22,6 +22,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -30,6 +31,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.lang.reflect.Field;
 
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.server.TempStoreOutputStream;
 import org.apache.chemistry.opencmis.server.shared.TempStoreOutputStreamFactory;
 import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStream;
@@ -209,6 +211,29 @@ public class ThresholdOutputStreamTest {
         }
     }
 
+    @Test
+    public void testBytesNotPooled() throws Exception {
+        TempStoreOutputStreamFactory streamFactory = TempStoreOutputStreamFactory.newInstance(null, 1024 * 1024,
+                1024 * 1024, false);
+
+        ThresholdOutputStream tos = (ThresholdOutputStream) streamFactory.newOutputStream();
+        tos.write(CONTENT);
+        tos.close();
+
+        ThresholdInputStream tis = (ThresholdInputStream) tos.getInputStream();
+        byte[] bytes = tis.getBytes();
+        tis.close();
+
+        // the exposed array must not be handed out by the pool again
+        byte[] acquired = IOUtils.getBufferPool().acquire(bytes.length);
+        try {
+            assertNotSame(bytes, acquired);
+            assertArrayEquals(CONTENT, getBytesFromArray(bytes, CONTENT.length));
+        } finally {
+            IOUtils.getBufferPool().release(acquired);
+        }
+    }
+
     @Test
     public void testClose() throws Exception {
         TempStoreOutputStreamFactory streamFactory = TempStoreOutputStreamFactory.newInstance(null, 0, 1024, false);
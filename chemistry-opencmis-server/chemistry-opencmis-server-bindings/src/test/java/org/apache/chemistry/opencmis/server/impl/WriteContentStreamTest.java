@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FileContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.shared.AbstractServiceCall;
+import org.apache.chemistry.opencmis.server.shared.ByteRange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class WriteContentStreamTest {
+
+    private static final int SIZE = 300 * 1024 + 7;
+
+    private final AbstractServiceCall serviceCall = new AbstractServiceCall() {
+        @Override
+        public void serve(CallContext context, CmisService service, String repositoryId,
+                HttpServletRequest request, HttpServletResponse response) {
+        }
+    };
+
+    private File file;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[SIZE];
+        new Random(SIZE).nextBytes(data);
+
+        file = File.createTempFile("opencmis-test", ".bin");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testFileContent() throws IOException {
+        FileContentStreamImpl content = new FileContentStreamImpl(file.toPath(), 0, -1);
+        assertTrue(serviceCall.hasContentStream(content));
+        assertArrayEquals(data, write(content));
+
+        // the stream is still available for other consumers
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(content.getStream(), out);
+        content.getStream().close();
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testFileContentRange() throws IOException {
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 101000),
+                write(new FileContentStreamImpl(file.toPath(), 1000, 100000)));
+        assertArrayEquals(Arrays.copyOfRange(data, SIZE - 10, SIZE),
+                write(new FileContentStreamImpl(file.toPath(), SIZE - 10, -1)));
+        assertArrayEquals(Arrays.copyOfRange(data, SIZE - 10, SIZE),
+                write(new FileContentStreamImpl(file.toPath(), SIZE - 10, 1000)));
+        assertArrayEquals(new byte[0], write(new FileContentStreamImpl(file.toPath(), SIZE + 10, -1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(new FileContentStreamImpl(file.toPath(), 1000, 100000).getStream(), out);
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 101000), out.toByteArray());
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        FileContentStreamImpl content = new FileContentStreamImpl(new File(file.getPath() + ".missing").toPath(), 0,
+                -1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            serviceCall.writeContentStream(content, out, 4096);
+            fail("CmisObjectNotFoundException expected!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testSerializedFileContent() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bytes);
+        oos.writeObject(new FileContentStreamImpl(file.toPath(), 1000, 100000));
+        oos.close();
+
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        FileContentStreamImpl content = (FileContentStreamImpl) ois.readObject();
+        ois.close();
+
+        assertEquals(file.toPath(), content.getPath());
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 101000), write(content));
+    }
+
+    @Test
+    public void testStreamContent() throws IOException {
+        ContentStreamImpl content = new ContentStreamImpl("test", BigInteger.valueOf(SIZE), "application/octet-stream",
+                new ByteArrayInputStream(data));
+        assertTrue(serviceCall.hasContentStream(content));
+        assertArrayEquals(data, write(content));
+
+        assertFalse(serviceCall.hasContentStream(null));
+        assertFalse(serviceCall.hasContentStream(new ContentStreamImpl()));
+    }
+
+    @Test
+    public void testSuffixRange() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = getMockResponse(out);
+
+        serviceCall.writeContentRanges(new FileContentStreamImpl(file.toPath(), 0, -1),
+                ByteRange.parse("bytes=-100"), "application/octet-stream", response, 4096);
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes " + (SIZE - 100) + "-" + (SIZE - 1) + "/" + SIZE);
+        verify(response).setHeader("Content-Length", "100");
+        assertArrayEquals(Arrays.copyOfRange(data, SIZE - 100, SIZE), out.toByteArray());
+    }
+
+    @Test
+    public void testMultipleFileRanges() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = getMockResponse(out);
+
+        serviceCall.writeContentRanges(new FileContentStreamImpl(file.toPath(), 0, -1),
+                ByteRange.parse("bytes=1000-1999,-10,0-0"), "text/plain", response, 4096);
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        byte[] expected = expectedMultipart(response, "text/plain", new long[][] { { 0, 0 }, { 1000, 1999 },
+                { SIZE - 10, SIZE - 1 } });
+        assertArrayEquals(expected, out.toByteArray());
+        verify(response).setHeader("Content-Length", String.valueOf(expected.length));
+    }
+
+    @Test
+    public void testOverlappingFileRanges() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = getMockResponse(out);
+
+        // the complete file must be sent only once
+        StringBuilder header = new StringBuilder("bytes=0-");
+        for (int i = 1; i < ByteRange.MAX_RANGES; i++) {
+            header.append(",0-");
+        }
+        serviceCall.writeContentRanges(new FileContentStreamImpl(file.toPath(), 0, -1),
+                ByteRange.parse(header.toString()), "text/plain", response, 4096);
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 0-" + (SIZE - 1) + "/" + SIZE);
+        verify(response).setHeader("Content-Length", String.valueOf(SIZE));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testOverlappingPartialFileRanges() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = getMockResponse(out);
+
+        serviceCall.writeContentRanges(new FileContentStreamImpl(file.toPath(), 0, -1),
+                ByteRange.parse("bytes=5000-9999,100-199,0-5999,20000-20099"), "text/plain", response, 4096);
+
+        byte[] expected = expectedMultipart(response, "text/plain", new long[][] { { 0, 9999 }, { 20000, 20099 } });
+        assertArrayEquals(expected, out.toByteArray());
+        verify(response).setHeader("Content-Length", String.valueOf(expected.length));
+    }
+
+    @Test
+    public void testMultipleStreamRanges() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = getMockResponse(out);
+
+        // the ranges of a stream are sent in ascending order in one pass,
+        // overlapping and adjacent ranges are merged
+        ContentStreamImpl content = new ContentStreamImpl("test", BigInteger.valueOf(SIZE), "text/plain",
+                new ByteArrayInputStream(data));
+        serviceCall.writeContentRanges(content, ByteRange.parse("bytes=200000-200099,100-199,250000-,150-299,300-399"),
+                "text/plain", response, 4096);
+
+        byte[] expected = expectedMultipart(response, "text/plain", new long[][] { { 100, 399 },
+                { 200000, 200099 }, { 250000, SIZE - 1 } });
+        assertArrayEquals(expected, out.toByteArray());
+        verify(response).setHeader("Content-Length", String.valueOf(expected.length));
+    }
+
+    @Test
+    public void testMergedStreamRanges() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = getMockResponse(out);
+
+        ContentStreamImpl content = new ContentStreamImpl("test", BigInteger.valueOf(SIZE), "text/plain",
+                new ByteArrayInputStream(data));
+        serviceCall.writeContentRanges(content, ByteRange.parse("bytes=500-999,0-499"), "text/plain", response,
+                4096);
+
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 0-999/" + SIZE);
+        verify(response).setHeader("Content-Length", "1000");
+        assertArrayEquals(Arrays.copyOfRange(data, 0, 1000), out.toByteArray());
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = getMockResponse(out);
+
+        serviceCall.writeContentRanges(new FileContentStreamImpl(file.toPath(), 0, -1),
+                ByteRange.parse("bytes=" + SIZE + "-"), "text/plain", response, 4096);
+
+        verify(response).setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(response).setHeader("Content-Range", "bytes */" + SIZE);
+        verify(response).setHeader("Content-Length", "0");
+        assertEquals(0, out.size());
+    }
+
+    private byte[] expectedMultipart(HttpServletResponse response, String contentType, long[][] ranges)
+            throws IOException {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(response).setContentType(captor.capture());
+        assertTrue(captor.getValue().startsWith("multipart/byteranges; boundary="));
+        String boundary = captor.getValue().substring(captor.getValue().indexOf('=') + 1);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (long[] range : ranges) {
+            expected.write(IOUtils.toUTF8Bytes("\r\n--" + boundary + "\r\nContent-Type: " + contentType
+                    + "\r\nContent-Range: bytes " + range[0] + "-" + range[1] + "/" + SIZE + "\r\n\r\n"));
+            expected.write(Arrays.copyOfRange(data, (int) range[0], (int) range[1] + 1));
+        }
+        expected.write(IOUtils.toUTF8Bytes("\r\n--" + boundary + "--\r\n"));
+
+        return expected.toByteArray();
+    }
+
+    private HttpServletResponse getMockResponse(OutputStream out) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        ServletOutputStream sos = new HttpRequestHeadMethodTest.StubServletOutputStream(out);
+        when(response.getOutputStream()).thenReturn(sos);
+        return response;
+    }
+
+    private byte[] write(ContentStreamImpl content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serviceCall.writeContentStream(content, out, 4096);
+        return out.toByteArray();
+    }
+}
@@ -22,13 +22,13 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -106,16 +106,16 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlPrinc
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AclCapabilitiesDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AllowableActionsImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.BulkUpdateObjectIdAndChangeTokenImpl;
-import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.CreatablePropertyTypesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.FailedToDeleteDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FileContentStreamImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.NewTypeSettableAttributesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderContainerImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectParentDataImpl;
-import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialFileContentStreamImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PermissionDefinitionDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PermissionMappingDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
@@ -1128,28 +1128,28 @@ public class FileShareRepository {
             throw new CmisConstraintException("Document has no content!");
         }
 
-        InputStream stream = null;
-        try {
-            stream = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
-            if (offset != null || length != null) {
-                stream = new ContentRangeInputStream(stream, offset, length);
-            }
-        } catch (FileNotFoundException e) {
-            throw new CmisObjectNotFoundException(e.getMessage(), e);
+        // the file is opened after the response headers have been sent,
+        // make sure that it can be read
+        if (!Files.isReadable(file.toPath())) {
+            throw new CmisObjectNotFoundException("File cannot be read: " + file.getName());
         }
 
         // compile data
-        ContentStreamImpl result;
+        // the stream is opened on demand, the servlets transfer the file
+        // directly
+        long fileOffset = offset == null ? 0 : offset.longValue();
+        long fileLength = length == null ? -1 : length.longValue();
+
+        FileContentStreamImpl result;
         if ((offset != null && offset.longValue() > 0) || length != null) {
-            result = new PartialContentStreamImpl();
+            result = new PartialFileContentStreamImpl(file.toPath(), fileOffset, fileLength);
         } else {
-            result = new ContentStreamImpl();
+            result = new FileContentStreamImpl(file.toPath(), fileOffset, fileLength);
         }
 
         result.setFileName(file.getName());
         result.setLength(BigInteger.valueOf(file.length()));
         result.setMimeType(MimeTypes.getMIMEType(file));
-        result.setStream(stream);
 
         return result;
     }
@@ -48,6 +48,9 @@ public final class ConfigConstants {
     public static final String CLEAN_REPOSITORY_INTERVAL = "InMemoryServer.CleanIntervalMinutes";
     public static final String DEPLOYMENT_TIME = "InMemoryServer.DeploymentTime";
     public static final String PARSER_MODE = "InMemoryServer.ParserMode";
+    public static final String CHANGE_LOG_SIZE = "InMemoryServer.ChangeLogSize";
+    public static final String INDEXED_PROPERTIES = "InMemoryServer.IndexedProperties";
+    public static final String CONTENT_STORE = "InMemoryServer.ContentStore";
 
     private ConfigConstants() {
     }
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.PropertyIndex;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisQlStrictLexer;
+import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
+import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.QueryObject;
+import org.apache.chemistry.opencmis.server.support.query.StringUtil;
+
+/**
+ * Computes the ids of the objects that may match a query from the indexes of
+ * the object store, so that the where clause does not need to be evaluated
+ * for every object in the repository. Used are the index of the objects by
+ * type, the index of the children of a folder for IN_FOLDER and IN_TREE and
+ * the optional index on custom properties for comparisons with a literal.
+ * <p>
+ * The candidates are a superset of the matching objects, each of them still
+ * has to be checked against the complete where clause.
+ */
+public class InMemoryQueryPlanner {
+
+    private final ObjectStoreImpl objStore;
+    private final TypeManager tm;
+    private final QueryObject queryObj;
+    private final AbstractPredicateWalker literalWalker = new AbstractPredicateWalker() {
+    };
+
+    public InMemoryQueryPlanner(ObjectStoreImpl objStore, TypeManager tm, QueryObject queryObj) {
+        this.objStore = objStore;
+        this.tm = tm;
+        this.queryObj = queryObj;
+    }
+
+    /**
+     * Get the ids of all objects that may match the query.
+     *
+     * @param td
+     *            type of the FROM clause
+     * @param whereTree
+     *            where clause or null
+     * @return candidate ids or null if all objects have to be checked
+     */
+    public Collection<String> getCandidateIds(TypeDefinition td, Tree whereTree) {
+        Set<String> ids = null == whereTree ? null : plan(whereTree);
+        if (null != ids) {
+            return ids;
+        }
+        return getIdsOfTypeTree(td);
+    }
+
+    private Set<String> getIdsOfTypeTree(TypeDefinition td) {
+        // objects are related to secondary types by their properties only
+        if (td.getBaseTypeId() == BaseTypeId.CMIS_SECONDARY) {
+            return null;
+        }
+        Set<String> ids = new HashSet<String>();
+        for (TypeDefinitionContainer tdc : tm.getTypeDefinitionList()) {
+            String typeId = tdc.getTypeDefinition().getId();
+            if (isSubType(typeId, td.getId())) {
+                ids.addAll(objStore.getIdsOfType(typeId));
+            }
+        }
+        return ids;
+    }
+
+    private boolean isSubType(String typeId, String superTypeId) {
+        while (null != typeId) {
+            if (typeId.equals(superTypeId)) {
+                return true;
+            }
+            TypeDefinition parentTD = queryObj.getParentType(typeId);
+            typeId = parentTD == null ? null : parentTD.getId();
+        }
+        return false;
+    }
+
+    private Set<String> plan(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.AND:
+            return intersect(plan(node.getChild(0)), plan(node.getChild(1)));
+        case CmisQlStrictLexer.OR:
+            return union(plan(node.getChild(0)), plan(node.getChild(1)));
+        case CmisQlStrictLexer.EQ:
+            return planCompare(node.getChild(0), node.getChild(1), true, true, true, true);
+        case CmisQlStrictLexer.GT:
+            return planCompare(node.getChild(0), node.getChild(1), true, false, false, false);
+        case CmisQlStrictLexer.GTEQ:
+            return planCompare(node.getChild(0), node.getChild(1), true, true, false, false);
+        case CmisQlStrictLexer.LT:
+            return planCompare(node.getChild(0), node.getChild(1), false, false, true, false);
+        case CmisQlStrictLexer.LTEQ:
+            return planCompare(node.getChild(0), node.getChild(1), false, false, true, true);
+        case CmisQlStrictLexer.IN:
+            return planIn(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IN_FOLDER:
+            return planInFolder(node.getChild(node.getChildCount() - 1), false);
+        case CmisQlStrictLexer.IN_TREE:
+            return planInFolder(node.getChild(node.getChildCount() - 1), true);
+        default:
+            return null;
+        }
+    }
+
+    private static Set<String> intersect(Set<String> ids1, Set<String> ids2) {
+        if (null == ids1) {
+            return ids2;
+        } else if (null == ids2) {
+            return ids1;
+        }
+        Set<String> smaller = ids1.size() <= ids2.size() ? ids1 : ids2;
+        Set<String> larger = smaller == ids1 ? ids2 : ids1;
+        Set<String> res = new HashSet<String>();
+        for (String id : smaller) {
+            if (larger.contains(id)) {
+                res.add(id);
+            }
+        }
+        return res;
+    }
+
+    private static Set<String> union(Set<String> ids1, Set<String> ids2) {
+        if (null == ids1 || null == ids2) {
+            return null;
+        }
+        Set<String> res = new HashSet<String>(ids1);
+        res.addAll(ids2);
+        return res;
+    }
+
+    private Set<String> planCompare(Tree colNode, Tree literalNode, boolean lower, boolean lowerInclusive,
+            boolean upper, boolean upperInclusive) {
+        ColumnReference colRef = getColumnReference(colNode);
+        Object literal = getLiteral(literalNode);
+        if (null == colRef || null == literal) {
+            return null;
+        }
+
+        String propertyId = colRef.getPropertyId();
+        if (lower && upper && PropertyIds.OBJECT_TYPE_ID.equals(propertyId) && literal instanceof String) {
+            return new HashSet<String>(objStore.getIdsOfType((String) literal));
+        }
+
+        Object value = toIndexValue(colRef, literal);
+        if (null == value) {
+            return null;
+        }
+        return objStore.getPropertyIndex().getIds(propertyId, lower ? value : null, lowerInclusive,
+                upper ? value : null, upperInclusive);
+    }
+
+    private Set<String> planIn(Tree colNode, Tree listNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef || listNode.getType() != CmisQlStrictLexer.IN_LIST) {
+            return null;
+        }
+        Set<String> res = new HashSet<String>();
+        for (Object literal : (List<?>) literalWalker.walkExpr(listNode)) {
+            Object value = toIndexValue(colRef, literal);
+            if (null == value) {
+                return null;
+            }
+            res.addAll(objStore.getPropertyIndex().getIds(colRef.getPropertyId(), value, true, value, true));
+        }
+        return res;
+    }
+
+    private Set<String> planInFolder(Tree paramNode, boolean recursive) {
+        Object folderId = getLiteral(paramNode);
+        if (!(folderId instanceof String)) {
+            return null;
+        }
+        Set<String> res = new HashSet<String>();
+        Deque<String> folderIds = new ArrayDeque<String>();
+        folderIds.add((String) folderId);
+        while (!folderIds.isEmpty()) {
+            for (String id : objStore.getChildIds(folderIds.poll())) {
+                StoredObject so = objStore.getObjectById(id);
+                if (so instanceof VersionedDocument) {
+                    for (DocumentVersion ver : ((VersionedDocument) so).getAllVersions()) {
+                        res.add(ver.getId());
+                    }
+                } else if (null != so && res.add(id) && recursive && so instanceof Folder) {
+                    folderIds.add(id);
+                }
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Convert a literal to the value stored for the column, null if the
+     * property is not indexed or the comparison is not done on the stored
+     * values.
+     */
+    private Object toIndexValue(ColumnReference colRef, Object literal) {
+        PropertyIndex index = objStore.getPropertyIndex();
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (!index.isIndexed(colRef.getPropertyId()) || null == pd || pd.getCardinality() != Cardinality.SINGLE) {
+            return null;
+        }
+        switch (pd.getPropertyType()) {
+        case STRING:
+            return literal instanceof String ? StringUtil.unescape((String) literal, null) : null;
+        case ID:
+        case HTML:
+        case URI:
+            return literal instanceof String ? literal : null;
+        case INTEGER:
+            return literal instanceof Long ? BigInteger.valueOf((Long) literal) : null;
+        case DATETIME:
+            return literal instanceof GregorianCalendar ? literal : null;
+        case BOOLEAN:
+            return literal instanceof Boolean ? literal : null;
+        default:
+            // decimals are compared as doubles
+            return null;
+        }
+    }
+
+    private ColumnReference getColumnReference(Tree colNode) {
+        if (colNode.getType() != CmisQlStrictLexer.COL) {
+            return null;
+        }
+        CmisSelector sel = queryObj.getColumnReference(colNode.getTokenStartIndex());
+        return sel instanceof ColumnReference ? (ColumnReference) sel : null;
+    }
+
+    private Object getLiteral(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.BOOL_LIT:
+        case CmisQlStrictLexer.NUM_LIT:
+        case CmisQlStrictLexer.STRING_LIT:
+        case CmisQlStrictLexer.TIME_LIT:
+            return literalWalker.walkExpr(node);
+        default:
+            return null;
+        }
+    }
+}
@@ -22,29 +22,26 @@
  */
 package org.apache.chemistry.opencmis.inmemory.query;
 
-import java.io.UnsupportedEncodingException;
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.PriorityQueue;
 
 import org.antlr.runtime.tree.Tree;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
-import org.apache.chemistry.opencmis.commons.data.PropertyData;
-import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
-import org.apache.chemistry.opencmis.commons.enums.Cardinality;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
-import org.apache.chemistry.opencmis.commons.enums.PropertyType;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
@@ -58,32 +55,38 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataIm
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
 import org.apache.chemistry.opencmis.server.support.TypeManager;
-import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
 import org.apache.chemistry.opencmis.server.support.query.CmisQueryWalker;
 import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
+import org.apache.chemistry.opencmis.server.support.query.CompiledPredicate;
 import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.PredicateCompiler;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject.JoinSpec;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject.SortSpec;
 import org.apache.chemistry.opencmis.server.support.query.QueryUtilStrict;
-import org.apache.chemistry.opencmis.server.support.query.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A processor for a CMIS query for the In-Memory server. During tree traversal
- * conditions are checked against the data contained in the central hash map
- * with all objects. In a first pass one time setup is performed, in a custom
- * walk across the query expression tree an object is checked if it matches. In
- * case of a match it is appended to a list of matching objects.
+ * A processor for a CMIS query for the In-Memory server. The where clause is
+ * compiled once with a {@link PredicateCompiler}. An
+ * {@link InMemoryQueryPlanner} derives the candidate objects from the indexes
+ * of the object store, and only those are checked against the compiled
+ * predicate. Matches are collected in a bounded heap that keeps the first
+ * skipCount + maxItems objects in ORDER BY order, the requested page is taken
+ * from it when the result list is built.
  */
 public class InMemoryQueryProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryQueryProcessor.class);
 
-    private List<StoredObject> matches = new ArrayList<StoredObject>();
+    private PriorityQueue<Match> matches;
+    private Comparator<Match> matchComparator;
+    private int noMatches;
+    private int windowSize = -1;
     private QueryObject queryObj;
     private Tree whereTree;
+    private CompiledPredicate<StoredObject> wherePredicate;
     private ObjectStoreImpl objStore;
     private List<TypeDefinition> secondaryTypeIds;
     private CallContext callContext;
@@ -127,11 +130,23 @@ public class InMemoryQueryProcessor {
             IncludeRelationships includeRelationships, String renditionFilter, BigInteger maxItems, BigInteger skipCount) {
 
         processQueryAndCatchExc(statement, tm); // calls query processor
+        wherePredicate = new PredicateCompiler<StoredObject>(queryObj, new StoredObjectAccessor(user))
+                .compile(whereTree);
+        prepareMatches(getWindowSize(maxItems, skipCount));
 
-        // iterate over all the objects and check for each if the query matches
-        for (String objectId : ((ObjectStoreImpl) objectStore).getIds()) {
+        // check for each object that may match if the query matches
+        String queryName = queryObj.getTypes().values().iterator().next();
+        TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
+        Collection<String> candidateIds = new InMemoryQueryPlanner(objStore, tm, queryObj).getCandidateIds(td,
+                whereTree);
+        if (null == candidateIds) {
+            candidateIds = ((ObjectStoreImpl) objectStore).getIds();
+        }
+        for (String objectId : candidateIds) {
             StoredObject so = objectStore.getObjectById(objectId);
-            match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            if (null != so) {
+                match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            }
         }
 
         ObjectList objList = buildResultList(tm, user, includeAllowableActions, includeRelationships, renditionFilter,
@@ -185,10 +200,14 @@ public class InMemoryQueryProcessor {
     public ObjectList buildResultList(TypeManager tm, String user, Boolean includeAllowableActions,
             IncludeRelationships includeRelationships, String renditionFilter, BigInteger maxItems, BigInteger skipCount) {
 
-        sortMatches();
+        if (null == matches) {
+            prepareMatches(-1);
+        }
+        List<Match> sortedMatches = new ArrayList<Match>(matches);
+        Collections.sort(sortedMatches, matchComparator);
 
         ObjectListImpl res = new ObjectListImpl();
-        res.setNumItems(BigInteger.valueOf(matches.size()));
+        res.setNumItems(BigInteger.valueOf(noMatches));
         int start = 0;
         if (skipCount != null) {
             start = (int) skipCount.longValue();
@@ -196,26 +215,27 @@ public class InMemoryQueryProcessor {
         if (start < 0) {
             start = 0;
         }
-        if (start > matches.size()) {
-            start = matches.size();
+        if (start > noMatches) {
+            start = noMatches;
         }
         int stop = 0;
         if (maxItems != null) {
             stop = start + (int) maxItems.longValue();
         }
-        if (stop <= 0 || stop > matches.size()) {
-            stop = matches.size();
-        }
-        res.setHasMoreItems(stop < matches.size());
-        if (start > 0 || stop > 0) {
-            matches = matches.subList(start, stop);
+        if (stop <= 0 || stop > noMatches) {
+            stop = noMatches;
         }
+        res.setHasMoreItems(stop < noMatches);
+        // only the first windowSize matches are retained
+        List<Match> page = sortedMatches.subList(Math.min(start, sortedMatches.size()),
+                Math.min(stop, sortedMatches.size()));
 
         List<ObjectData> objDataList = new ArrayList<ObjectData>();
         Map<String, String> props = queryObj.getRequestedPropertiesByAlias();
         Map<String, String> funcs = queryObj.getRequestedFuncsByAlias();
 
-        for (StoredObject so : matches) {
+        for (Match match : page) {
+            StoredObject so = match.so;
             String queryName = queryObj.getTypes().values().iterator().next();
             TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
 
@@ -247,31 +267,35 @@ public class InMemoryQueryProcessor {
         return false;
     }
 
-    private void sortMatches() {
-        final List<SortSpec> orderBy = queryObj.getOrderBys();
-        if (orderBy.size() > 1) {
-            LOG.warn("ORDER BY has more than one sort criterium, all but the first are ignored.");
+    /*
+     * Number of matches that need to be retained to build the requested page,
+     * -1 if all matches are returned.
+     */
+    private static int getWindowSize(BigInteger maxItems, BigInteger skipCount) {
+        if (null == maxItems) {
+            return -1;
         }
-        class ResultComparator implements Comparator<StoredObject> {
+        long start = null == skipCount ? 0 : Math.max(0, skipCount.longValue());
+        long stop = start + maxItems.longValue();
+        return stop <= 0 || stop > Integer.MAX_VALUE ? -1 : (int) stop;
+    }
 
+    /*
+     * Set up the collection of matches. Matches are kept in a heap with the
+     * last match according to the ORDER BY clause on top, so that only the
+     * best windowSize matches need to be kept. Matches with equal sort keys
+     * keep the order in which they were found.
+     */
+    private void prepareMatches(int window) {
+        final List<SortSpec> orderBy = queryObj.getOrderBys();
+        matchComparator = new Comparator<Match>() {
             @Override
             @SuppressWarnings("unchecked")
-            public int compare(StoredObject so1, StoredObject so2) {
-                SortSpec s = orderBy.get(0);
-                CmisSelector sel = s.getSelector();
-                int result;
-
-                if (queryObj.isPredfinedQueryName(sel.getName())) {
-                    // must be SEARCH_SCORE which is currently ignored
-                    result = 0;
-                } else if (sel instanceof ColumnReference) {
-                    String propId = ((ColumnReference) sel).getPropertyId();
-                    PropertyDefinition<?> pd = ((ColumnReference) sel).getPropertyDefinition();
-
-                    boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-                    Object propVal1 = PropertyQueryUtil.getProperty(so1, propId, pd, cmis11);
-                    Object propVal2 = PropertyQueryUtil.getProperty(so2, propId, pd, cmis11);
-
+            public int compare(Match m1, Match m2) {
+                for (int i = 0; i < m1.sortKeys.length; i++) {
+                    Object propVal1 = m1.sortKeys[i];
+                    Object propVal2 = m2.sortKeys[i];
+                    int result;
                     if (propVal1 == null && propVal2 == null) {
                         result = 0;
                     } else if (propVal1 == null) {
@@ -281,21 +305,57 @@ public class InMemoryQueryProcessor {
                     } else {
                         result = ((Comparable<Object>) propVal1).compareTo(propVal2);
                     }
-                } else {
-                    // evaluate function here, currently ignore
-                    result = 0;
-                }
-                if (!s.isAscending()) {
-                    result = -result;
+                    if (result != 0) {
+                        return orderBy.get(i).isAscending() ? result : -result;
+                    }
                 }
-                return result;
+                return m1.seq < m2.seq ? -1 : (m1.seq == m2.seq ? 0 : 1);
             }
-        }
+        };
+        matches = new PriorityQueue<Match>(11, Collections.reverseOrder(matchComparator));
+        noMatches = 0;
+        windowSize = window;
+    }
 
-        if (orderBy.size() > 0) {
-            Collections.sort(matches, new ResultComparator());
+    private void addMatch(StoredObject so) {
+        Match match = new Match(so, getSortKeys(so), noMatches++);
+        if (windowSize >= 0 && matches.size() >= windowSize) {
+            if (matchComparator.compare(match, matches.peek()) >= 0) {
+                return;
+            }
+            matches.poll();
         }
+        matches.add(match);
+    }
 
+    /*
+     * Values of the ORDER BY columns, SEARCH_SCORE and functions are ignored.
+     */
+    private Object[] getSortKeys(StoredObject so) {
+        List<SortSpec> orderBy = queryObj.getOrderBys();
+        Object[] sortKeys = new Object[orderBy.size()];
+        boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
+        for (int i = 0; i < sortKeys.length; i++) {
+            CmisSelector sel = orderBy.get(i).getSelector();
+            if (sel instanceof ColumnReference && !queryObj.isPredfinedQueryName(sel.getName())) {
+                ColumnReference colRef = (ColumnReference) sel;
+                sortKeys[i] = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(),
+                        colRef.getPropertyDefinition(), cmis11);
+            }
+        }
+        return sortKeys;
+    }
+
+    private static final class Match {
+        private final StoredObject so;
+        private final Object[] sortKeys;
+        private final int seq;
+
+        Match(StoredObject so, Object[] sortKeys, int seq) {
+            this.so = so;
+            this.sortKeys = sortKeys;
+            this.seq = seq;
+        }
     }
 
     /*
@@ -320,389 +380,106 @@ public class InMemoryQueryProcessor {
         }
         // ... then check expression...
         if (typeMatches && !skip) {
-            evalWhereTree(whereTree, user, so);
+            evalWhereTree(user, so);
         }
     }
 
-    private void evalWhereTree(Tree node, String user, StoredObject so) {
-        boolean match = true;
-        if (null != node) {
-            match = evalWhereNode(so, user, node);
-        }
-        if (match && objStore.hasReadAccess(user, so)) {
-            matches.add(so); // add to list
+    private void evalWhereTree(String user, StoredObject so) {
+        if (wherePredicate.evaluate(so) && objStore.hasReadAccess(user, so)) {
+            addMatch(so);
         }
     }
 
     /*
-     * For each object check if it matches and append it to match-list if it
-     * does. We do here our own walking mechanism so that we can pass additional
-     * parameters and define the return types.
+     * Access to the stored objects for the compiled where clause.
      */
-    private boolean evalWhereNode(StoredObject so, String user, Tree node) {
-        return new InMemoryWhereClauseWalker(so, user).walkPredicate(node);
-    }
-
-    public class InMemoryWhereClauseWalker extends AbstractPredicateWalker {
+    private class StoredObjectAccessor implements PredicateCompiler.ObjectAccessor<StoredObject> {
 
-        protected final StoredObject so;
-        protected final String user;
+        private final String user;
+        private final boolean cmis11;
 
-        public InMemoryWhereClauseWalker(StoredObject so, String user) {
-            this.so = so;
+        public StoredObjectAccessor(String user) {
             this.user = user;
+            this.cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
         }
 
         @Override
-        public Boolean walkNot(Tree opNode, Tree node) {
-            boolean hasMatched = walkPredicate(node);
-            return !hasMatched;
-        }
-
-        @Override
-        public Boolean walkAnd(Tree opNode, Tree leftNode, Tree rightNode) {
-            boolean matches1 = walkPredicate(leftNode);
-            boolean matches2 = walkPredicate(rightNode);
-            return matches1 && matches2;
-        }
-
-        @Override
-        public Boolean walkOr(Tree opNode, Tree leftNode, Tree rightNode) {
-            boolean matches1 = walkPredicate(leftNode);
-            boolean matches2 = walkPredicate(rightNode);
-            return matches1 || matches2;
-        }
-
-        @Override
-        public Boolean walkEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp == 0;
-        }
-
-        @Override
-        public Boolean walkNotEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp != 0;
+        public Object getPropertyValue(StoredObject so, ColumnReference colRef) {
+            return PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), colRef.getPropertyDefinition(), cmis11);
         }
 
         @Override
-        public Boolean walkGreaterThan(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp > 0;
+        public boolean isInFolder(StoredObject so, String folderId) {
+            return so instanceof Filing && hasParent(so, folderId, user);
         }
 
         @Override
-        public Boolean walkGreaterOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp >= 0;
+        public boolean isInTree(StoredObject so, String folderId) {
+            return so instanceof Filing && hasAncestor(so, folderId, user);
         }
 
         @Override
-        public Boolean walkLessThan(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp < 0;
-        }
-
-        @Override
-        public Boolean walkLessOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp <= 0;
-        }
-
-        @Override
-        public Boolean walkIn(Tree opNode, Tree colNode, Tree listNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            List<Object> literals = onLiteralList(listNode);
-            boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-
-            Object prop = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd, cmis11);
-
-            if (pd.getCardinality() != Cardinality.SINGLE) {
-                throw new IllegalStateException("Operator IN only is allowed on single-value properties ");
-            } else if (prop == null) {
-                return false;
-            } else {
-                return literals.contains(prop);
-            }
-        }
-
-        @Override
-        public Boolean walkNotIn(Tree opNode, Tree colNode, Tree listNode) {
-            // Note just return !walkIn(node, colNode, listNode) is wrong,
-            // because
-            // then it evaluates to true for null values (not set properties).
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-            Object prop = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd, cmis11);
-            List<Object> literals = onLiteralList(listNode);
-            if (pd.getCardinality() != Cardinality.SINGLE) {
-                throw new IllegalStateException("Operator IN only is allowed on single-value properties ");
-            } else if (prop == null) {
-                return false;
-            } else {
-                return !literals.contains(prop);
-            }
-        }
-
-        @Override
-        public Boolean walkInAny(Tree opNode, Tree colNode, Tree listNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyData<?> lVal = so.getProperties().get(colRef.getPropertyId());
-            List<Object> literals = onLiteralList(listNode);
-            if (pd.getCardinality() != Cardinality.MULTI) {
-                throw new IllegalStateException("Operator ANY...IN only is allowed on multi-value properties ");
-            } else if (lVal == null) {
-                return false;
-            } else {
-                List<?> props = lVal.getValues();
-                for (Object prop : props) {
-                    LOG.debug("comparing with: " + prop);
-                    if (literals.contains(prop)) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-        }
-
-        @Override
-        public Boolean walkNotInAny(Tree opNode, Tree colNode, Tree listNode) {
-            // Note just return !walkNotInAny(node, colNode, listNode) is
-            // wrong, because
-            // then it evaluates to true for null values (not set properties).
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyData<?> lVal = so.getProperties().get(colRef.getPropertyId());
-            List<Object> literals = onLiteralList(listNode);
-            if (pd.getCardinality() != Cardinality.MULTI) {
-                throw new IllegalStateException("Operator ANY...IN only is allowed on multi-value properties ");
-            } else if (lVal == null) {
-                return false;
-            } else {
-                List<?> props = lVal.getValues();
-                for (Object prop : props) {
-                    LOG.debug("comparing with: " + prop);
-                    if (literals.contains(prop)) {
+        public boolean containsText(StoredObject so, String text) {
+            if (so instanceof Content && ((Content) so).hasContent()) {
+                Content cont = (Content) so;
+                ContentStreamDataImpl cdi = (ContentStreamDataImpl) cont.getContent();
+                if (cdi.getMimeType().startsWith("text/")) {
+                    InputStream stream = cdi.getStream();
+                    if (null == stream) {
                         return false;
                     }
+                    try {
+                        return containsBytes(stream, IOUtils.toUTF8Bytes(text));
+                    } catch (IOException e) {
+                        throw new CmisRuntimeException("Cannot read content of object " + so.getId(), e);
+                    } finally {
+                        IOUtils.closeQuietly(stream);
+                    }
                 }
-                return true;
-            }
-        }
-
-        @Override
-        public Boolean walkEqAny(Tree opNode, Tree literalNode, Tree colNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyData<?> lVal = so.getProperties().get(colRef.getPropertyId());
-            Object literal = walkExpr(literalNode);
-            if (pd.getCardinality() != Cardinality.MULTI) {
-                throw new IllegalStateException("Operator = ANY only is allowed on multi-value properties ");
-            } else if (lVal == null) {
-                return false;
-            } else {
-                List<?> props = lVal.getValues();
-                return props.contains(literal);
-            }
-        }
-
-        @Override
-        public Boolean walkIsNull(Tree opNode, Tree colNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-            Object propVal = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd, cmis11);
-            return propVal == null;
-        }
-
-        @Override
-        public Boolean walkIsNotNull(Tree opNode, Tree colNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-            Object propVal = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd, cmis11);
-            return propVal != null;
-        }
-
-        @Override
-        public Boolean walkLike(Tree opNode, Tree colNode, Tree stringNode) {
-            Object rVal = walkExpr(stringNode);
-            if (!(rVal instanceof String)) {
-                throw new IllegalStateException("LIKE operator requires String literal on right hand side.");
             }
-
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyType propType = pd.getPropertyType();
-            if (propType != PropertyType.STRING && propType != PropertyType.HTML && propType != PropertyType.ID
-                    && propType != PropertyType.URI) {
-                throw new IllegalStateException("Property type " + propType.value() + " is not allowed FOR LIKE");
-            }
-            if (pd.getCardinality() != Cardinality.SINGLE) {
-                throw new IllegalStateException("LIKE is not allowed for multi-value properties ");
-            }
-
-            boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-            String propVal = (String) PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd, cmis11);
-
-            if (null == propVal) {
-                return false;
-            } else {
-                String pattern = translatePattern((String) rVal); // SQL to Java
-                // regex
-                // syntax
-                Pattern p = Pattern.compile(pattern);
-                return p.matcher(propVal).matches();
-            }
-        }
-
-        @Override
-        public Boolean walkNotLike(Tree opNode, Tree colNode, Tree stringNode) {
-            return !walkLike(opNode, colNode, stringNode);
-        }
-
-        @Override
-        public Boolean walkInFolder(Tree opNode, Tree qualNode, Tree paramNode) {
-            if (null != qualNode) {
-                getTableReference(qualNode);
-                // just for error checking we do not evaluate this, there is
-                // only one from without join support
-            }
-            Object lit = walkExpr(paramNode);
-            if (!(lit instanceof String)) {
-                throw new IllegalStateException("Folder id in IN_FOLDER must be of type String");
-            }
-            String folderId = (String) lit;
-
-            // check if object is in folder
-            if (so instanceof Filing) {
-                return hasParent(so, folderId, user);
-            } else {
-                return false;
-            }
-        }
-
-        @Override
-        public Boolean walkInTree(Tree opNode, Tree qualNode, Tree paramNode) {
-            if (null != qualNode) {
-                getTableReference(qualNode);
-                // just for error checking we do not evaluate this, there is
-                // only one from without join support
-            }
-            Object lit = walkExpr(paramNode);
-            if (!(lit instanceof String)) {
-                throw new IllegalStateException("Folder id in IN_FOLDER must be of type String");
-            }
-            String folderId = (String) lit;
-
-            // check if object is in folder
-            if (so instanceof Filing) {
-                return hasAncestor(so, folderId, user);
-            } else {
-                return false;
-            }
-        }
-
-        protected Integer compareTo(Tree leftChild, Tree rightChild) {
-            Object rVal = walkExpr(rightChild);
-
-            ColumnReference colRef = getColumnReference(leftChild);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            boolean cmis11 = callContext.getCmisVersion() != CmisVersion.CMIS_1_0;
-            Object val = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd, cmis11);
-            if (val == null) {
-                return null;
-            } else if (val instanceof List<?>) {
-                throw new IllegalStateException(
-                        "You can't query operators <, <=, ==, !=, >=, > on multi-value properties ");
-            } else {
-                return InMemoryQueryProcessor.this.compareTo(pd, val, rVal);
-            }
-        }
-
-        @SuppressWarnings("unchecked")
-        public List<Object> onLiteralList(Tree node) {
-            return (List<Object>) walkExpr(node);
+            return false;
         }
+    }
 
-        @Override
-        protected Boolean walkTextAnd(Tree node) {
-            List<Tree> terms = getChildrenAsList(node);
-            for (Tree term : terms) {
-                Boolean foundOnce = walkSearchExpr(term);
-                if (foundOnce == null || !foundOnce) {
-                    return false;
-                }
-            }
+    /**
+     * Searches the UTF-8 encoded text in a stream without loading the whole
+     * content. A match of the encoded bytes is a match of the decoded text
+     * because UTF-8 sequences never start inside another character.
+     */
+    private static boolean containsBytes(InputStream stream, byte[] pattern) throws IOException {
+        if (pattern.length == 0) {
             return true;
         }
 
-        @Override
-        protected Boolean walkTextOr(Tree node) {
-            List<Tree> terms = getChildrenAsList(node);
-            for (Tree term : terms) {
-                Boolean foundOnce = walkSearchExpr(term);
-                if (foundOnce != null && foundOnce) {
-                    return true;
-                }
+        // Knuth-Morris-Pratt failure table
+        int[] failure = new int[pattern.length];
+        for (int i = 1, k = 0; i < pattern.length; i++) {
+            while (k > 0 && pattern[i] != pattern[k]) {
+                k = failure[k - 1];
             }
-            return false;
-        }
-
-        @Override
-        protected Boolean walkTextMinus(Tree node) {
-            return !findText(node.getChild(0).getText());
-        }
-
-        @Override
-        protected Boolean walkTextWord(Tree node) {
-            return findText(node.getText());
-        }
-
-        @Override
-        protected Boolean walkTextPhrase(Tree node) {
-            String phrase = node.getText();
-            return findText(phrase.substring(1, phrase.length() - 1));
-        }
-
-        private List<Tree> getChildrenAsList(Tree node) {
-            List<Tree> res = new ArrayList<Tree>(node.getChildCount());
-            for (int i = 0; i < node.getChildCount(); i++) {
-                Tree childNnode = node.getChild(i);
-                res.add(childNnode);
+            if (pattern[i] == pattern[k]) {
+                k++;
             }
-            return res;
+            failure[i] = k;
         }
 
-        private boolean findText(String nodeText) {
-            String pattern = StringUtil.unescape(nodeText, "\\'-");
-            if (null == pattern) {
-                throw new CmisInvalidArgumentException("Illegal Escape sequence in text search expression " + nodeText);
-            }
-
-            if (so instanceof Content && ((Content) so).hasContent()) {
-                Content cont = (Content) so;
-                ContentStreamDataImpl cdi = (ContentStreamDataImpl) cont.getContent();
-                if (cdi.getMimeType().startsWith("text/")) {
-                    byte[] ba = cdi.getBytes();
-                    String text;
-                    try {
-                        text = new String(ba, "UTF-8");
-                    } catch (UnsupportedEncodingException e) {
-                        throw new CmisRuntimeException("Internal error: Unsupported encoding UTF-8", e);
+        byte[] buffer = new byte[64 * 1024];
+        int matched = 0;
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                while (matched > 0 && buffer[i] != pattern[matched]) {
+                    matched = failure[matched - 1];
+                }
+                if (buffer[i] == pattern[matched]) {
+                    matched++;
+                    if (matched == pattern.length) {
+                        return true;
                     }
-                    int match = text.indexOf(pattern);
-                    return match >= 0;
-                } else {
-                    return false;
                 }
             }
-            return false;
         }
-
+        return false;
     }
 
     private boolean hasParent(StoredObject objInFolder, String folderId, String user) {
@@ -733,85 +510,6 @@ public class InMemoryQueryProcessor {
         return false;
     }
 
-    protected int compareTo(PropertyDefinition<?> td, Object lValue, Object rVal) {
-        switch (td.getPropertyType()) {
-        case BOOLEAN:
-            if (rVal instanceof Boolean) {
-                return ((Boolean) lValue).compareTo((Boolean) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        case INTEGER:
-            Long lLongValue = ((BigInteger) lValue).longValue();
-            if (rVal instanceof Long) {
-                return (lLongValue).compareTo((Long) rVal);
-            } else if (rVal instanceof Double) {
-                return Double.valueOf(((Integer) lValue).doubleValue()).compareTo((Double) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        case DATETIME:
-            if (rVal instanceof GregorianCalendar) {
-                return ((GregorianCalendar) lValue).compareTo((GregorianCalendar) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        case DECIMAL:
-            Double lDoubleValue = ((BigDecimal) lValue).doubleValue();
-            if (rVal instanceof Double) {
-                return lDoubleValue.compareTo((Double) rVal);
-            } else if (rVal instanceof Long) {
-                return lDoubleValue.compareTo(Double.valueOf(((Long) rVal)));
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        case HTML:
-        case URI:
-        case ID:
-            if (rVal instanceof String) {
-                LOG.debug("compare strings: " + lValue + " with " + rVal);
-                return ((String) lValue).compareTo((String) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        case STRING:
-            if (rVal instanceof String) {
-                String unesc = StringUtil.unescape((String) rVal, null);
-                LOG.debug("compare strings: " + lValue + " with " + unesc);
-                return ((String) lValue).compareTo(unesc);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        }
-        return 0;
-    }
-
-    private ColumnReference getColumnReference(Tree columnNode) {
-        CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
-        if (null == sel) {
-            throw new IllegalStateException("Unknown property query name " + columnNode.getChild(0));
-        } else if (sel instanceof ColumnReference) {
-            return (ColumnReference) sel;
-        } else {
-            throw new IllegalStateException("Unexpected numerical value function in where clause");
-        }
-    }
-
-    private String getTableReference(Tree tableNode) {
-        String typeQueryName = queryObj.getTypeQueryName(tableNode.getText());
-        if (null == typeQueryName) {
-            throw new IllegalStateException("Inavlid type in IN_FOLDER() or IN_TREE(), must be in FROM list: "
-                    + tableNode.getText());
-        }
-        return typeQueryName;
-    }
-
     private void doAdditionalChecks(CmisQueryWalker walker) {
         if (walker.getNumberOfContainsClauses() > 1) {
             throw new CmisInvalidArgumentException("More than one CONTAINS clause is not allowed");
@@ -831,47 +529,7 @@ public class InMemoryQueryProcessor {
      * @return string with replaced characters
      */
     public static String translatePattern(String wildcardString) {
-        int index = 0;
-        int start = 0;
-        String wildcard = wildcardString;
-
-        StringBuilder res = new StringBuilder();
-
-        while (index >= 0) {
-            index = wildcard.indexOf('%', start);
-            if (index < 0) {
-                res.append(wildcard.substring(start));
-            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
-                res.append(wildcard.substring(start, index));
-                res.append(".*");
-            } else {
-                res.append(wildcard.substring(start, index + 1));
-            }
-            start = index + 1;
-        }
-        wildcard = res.toString();
-
-        index = 0;
-        start = 0;
-        res = new StringBuilder();
-
-        while (index >= 0) {
-            index = wildcard.indexOf('_', start);
-            if (index < 0) {
-                res.append(wildcard.substring(start));
-            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
-                res.append(wildcard.substring(start, index));
-                res.append(".");
-            } else {
-                res.append(wildcard.substring(start, index + 1));
-            }
-            start = index + 1;
-        }
-        return res.toString();
-    }
-
-    private static void throwIncompatibleTypesException(Object o1, Object o2) {
-        throw new CmisInvalidArgumentException("Incompatible Types to compare: " + o1 + " and " + o2);
+        return PredicateCompiler.translatePattern(wildcardString);
     }
 
 }
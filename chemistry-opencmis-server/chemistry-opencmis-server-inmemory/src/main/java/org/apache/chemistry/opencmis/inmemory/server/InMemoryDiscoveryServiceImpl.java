@@ -29,10 +29,8 @@ import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.PolicyIdList;
-import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
-import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ChangeEventInfoDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
@@ -42,6 +40,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,48 +56,25 @@ public class InMemoryDiscoveryServiceImpl extends InMemoryAbstractServiceImpl {
     public ObjectList getContentChanges(CallContext context, String repositoryId, Holder<String> changeLogToken,
             Boolean includeProperties, String filter, Boolean includePolicyIds, Boolean includeAcl,
             BigInteger maxItems, ExtensionsData extension, ObjectInfoHandler objectInfos) {
-        // dummy implementation using hard coded values
-        final int ITEMS_AVAILABLE = 25;
 
-        int token = 0;
-        if (changeLogToken != null && changeLogToken.getValue() != null) {
-            if (!changeLogToken.getValue().startsWith("token-")) {
-                throw new CmisInvalidArgumentException("Unknown change log token!");
-            }
-
-            try {
-                token = Integer.parseInt(changeLogToken.getValue().substring(6));
-            } catch (NumberFormatException nfe) {
-                throw new CmisInvalidArgumentException("Unknown change log token!", nfe);
-            }
-
-            if (token < 0 || token > ITEMS_AVAILABLE) {
-                throw new CmisInvalidArgumentException("Unknown change log token!");
-            }
-        }
+        validator.getContentChanges(context, repositoryId, extension);
 
-        ObjectListImpl objList = new ObjectListImpl();
-        long timestamp = System.currentTimeMillis() - 60 * 1000;
-        // convert ObjectInFolderContainerList to objectList
-        List<ObjectData> lod = new ArrayList<ObjectData>();
-        if (null == maxItems) {
-            maxItems = BigInteger.valueOf(ITEMS_AVAILABLE);
-        }
-        int last = Math.min(ITEMS_AVAILABLE, token + maxItems.intValue());
+        ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
+        String token = null == changeLogToken ? null : changeLogToken.getValue();
+        int max = null == maxItems || maxItems.signum() < 0 ? -1 : maxItems.intValue();
+        ObjectStore.ChangeEventsResult changes = objStore.getChangeEvents(token, max);
 
-        for (int i = token; i < last; i++) {
-            // add a dummy delete event
+        List<ObjectData> lod = new ArrayList<ObjectData>(changes.getEvents().size());
+        for (ObjectStore.ChangeEvent event : changes.getEvents()) {
             ObjectDataImpl odImpl = new ObjectDataImpl();
             PropertiesImpl props = new PropertiesImpl();
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, "cl-" + i));
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
-            props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, event.getObjectId()));
+            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, event.getTypeId()));
+            props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, event.getBaseTypeId().value()));
             odImpl.setProperties(props);
             ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
-            changeEventInfo.setChangeType(ChangeType.DELETED);
-            GregorianCalendar eventTimestamp = new GregorianCalendar();
-            eventTimestamp.setTimeInMillis(timestamp + i * 1000);
-            changeEventInfo.setChangeTime(eventTimestamp);
+            changeEventInfo.setChangeType(event.getChangeType());
+            changeEventInfo.setChangeTime(event.getChangeTime());
             odImpl.setChangeEventInfo(changeEventInfo);
             if (includePolicyIds != null && includePolicyIds) {
                 PolicyIdList policies = new PolicyIdListImpl();
@@ -107,15 +83,16 @@ public class InMemoryDiscoveryServiceImpl extends InMemoryAbstractServiceImpl {
             lod.add(odImpl);
         }
 
+        ObjectListImpl objList = new ObjectListImpl();
         objList.setObjects(lod);
-        objList.setNumItems(BigInteger.valueOf(ITEMS_AVAILABLE - token));
-        objList.setHasMoreItems(false);
+        objList.setNumItems(BigInteger.valueOf(changes.getNoItems()));
+        objList.setHasMoreItems(changes.hasMoreItems());
 
-        String changeToken = "token-" + (token + lod.size() - 1);
-        if(changeLogToken != null) {
-            changeLogToken.setValue(changeToken);
+        // return the token of the last event, the next call starts with it
+        if (null != changeLogToken && !lod.isEmpty()) {
+            changeLogToken.setValue(Long.toString(changes.getEvents().get(lod.size() - 1).getToken()));
         }
-        
+
         // To be able to provide all Atom links in the response we need
         // additional information:
         if (objectInfos != null) {
@@ -83,10 +83,20 @@ public class InMemoryNavigationServiceImpl extends InMemoryAbstractServiceImpl {
 
         String user = context.getUsername();
         ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
+        boolean hasMoreItems = false;
         if (null == folderId) {
             List<StoredObject> checkedOuts = fStoreManager.getObjectStore(repositoryId).getCheckedOutDocuments(orderBy,
                     context.getUsername(), includeRelationships);
-            for (StoredObject checkedOut : checkedOuts) {
+            int noItems = checkedOuts.size();
+            int skipCountInt = skipCount == null || skipCount.signum() < 0 ? 0 : skipCount.intValue();
+            int maxItemsInt = maxItems == null || maxItems.signum() < 0 ? noItems : maxItems.intValue();
+            int from = Math.min(skipCountInt, noItems);
+            int to = (int) Math.min((long) from + maxItemsInt, noItems);
+            hasMoreItems = to < noItems;
+            res.setNumItems(BigInteger.valueOf(noItems));
+
+            // only convert the requested page
+            for (StoredObject checkedOut : checkedOuts.subList(from, to)) {
                 TypeManager tm = fStoreManager.getTypeManager(repositoryId);
                 ObjectData od = PropertyCreationHelper.getObjectData(context, tm, objStore, checkedOut, filter, user,
                         includeAllowableActions, includeRelationships, renditionFilter, false, false, extension);
@@ -116,10 +126,10 @@ public class InMemoryNavigationServiceImpl extends InMemoryAbstractServiceImpl {
                     }
                 }
             }
+            res.setNumItems(BigInteger.valueOf(odList.size()));
         }
         res.setObjects(odList);
-        res.setNumItems(BigInteger.valueOf(odList.size()));
-        res.setHasMoreItems(false);
+        res.setHasMoreItems(hasMoreItems);
 
         LOG.debug("end getCheckedOutDocs()");
         return res;
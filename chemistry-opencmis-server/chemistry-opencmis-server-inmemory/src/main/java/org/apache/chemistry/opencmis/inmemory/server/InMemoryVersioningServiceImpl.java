@@ -113,7 +113,8 @@ public class InMemoryVersioningServiceImpl extends InMemoryAbstractServiceImpl {
 
         boolean major = (null == majorParam ? true : majorParam);
 
-        verDoc.checkIn(major, properties, ((Content)so).getContent(), checkinComment, policies, user);
+        objStore.checkInVersion(verDoc, major, properties, ((Content) so).getContent(), checkinComment, policies,
+                user);
         if (null != properties && null != properties.getProperties()) {
             // rename:
             PropertyData<?> pd = properties.getProperties().get(PropertyIds.NAME);
@@ -18,14 +18,18 @@
  */
 package org.apache.chemistry.opencmis.inmemory.storedobj.api;
 
+import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.commons.data.Acl;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.Properties;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RenditionData;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
@@ -79,6 +83,106 @@ public interface ObjectStore {
         }
     }
 
+    /**
+     * Class to represent a single entry of the change log.
+     */
+    public static class ChangeEvent {
+        private final long token;
+        private final String objectId;
+        private final String typeId;
+        private final BaseTypeId baseTypeId;
+        private final ChangeType changeType;
+        private final GregorianCalendar changeTime;
+
+        /**
+         * Create a new change event.
+         * 
+         * @param token
+         *            change log token of this event
+         * @param objectId
+         *            id of the changed object
+         * @param typeId
+         *            type id of the changed object
+         * @param baseTypeId
+         *            base type id of the changed object
+         * @param changeType
+         *            kind of change
+         * @param changeTime
+         *            time of the change
+         */
+        public ChangeEvent(long token, String objectId, String typeId, BaseTypeId baseTypeId,
+                ChangeType changeType, GregorianCalendar changeTime) {
+            this.token = token;
+            this.objectId = objectId;
+            this.typeId = typeId;
+            this.baseTypeId = baseTypeId;
+            this.changeType = changeType;
+            this.changeTime = changeTime;
+        }
+
+        public long getToken() {
+            return token;
+        }
+
+        public String getObjectId() {
+            return objectId;
+        }
+
+        public String getTypeId() {
+            return typeId;
+        }
+
+        public BaseTypeId getBaseTypeId() {
+            return baseTypeId;
+        }
+
+        public ChangeType getChangeType() {
+            return changeType;
+        }
+
+        public GregorianCalendar getChangeTime() {
+            return changeTime;
+        }
+    }
+
+    /**
+     * Class to represent a result of get change events calls.
+     */
+    public static class ChangeEventsResult {
+        private final List<ChangeEvent> events;
+        private final long noItems;
+        private final boolean hasMoreItems;
+
+        /**
+         * Create new change events result object.
+         * 
+         * @param events
+         *            list of change events
+         * @param noItems
+         *            number of change events available from the requested
+         *            token on
+         * @param hasMoreItems
+         *            true if more events follow the returned ones
+         */
+        public ChangeEventsResult(List<ChangeEvent> events, long noItems, boolean hasMoreItems) {
+            this.events = events;
+            this.noItems = noItems;
+            this.hasMoreItems = hasMoreItems;
+        }
+
+        public List<ChangeEvent> getEvents() {
+            return events;
+        }
+
+        public long getNoItems() {
+            return noItems;
+        }
+
+        public boolean hasMoreItems() {
+            return hasMoreItems;
+        }
+    }
+
     /**
      * Get the root folder of this object store.
      * 
@@ -316,6 +420,28 @@ public interface ObjectStore {
      */
     void storeVersion(DocumentVersion version);
 
+    /**
+     * Check in the private working copy of a version series and update the
+     * indexes of the store.
+     * 
+     * @param verDoc
+     *            checked out version series
+     * @param isMajor
+     *            true if the new version is a major version
+     * @param properties
+     *            properties to be set on the new version
+     * @param content
+     *            content of the new version
+     * @param checkinComment
+     *            check-in comment
+     * @param policyIds
+     *            policies to be applied to the new version
+     * @param user
+     *            user performing the operation
+     */
+    void checkInVersion(VersionedDocument verDoc, boolean isMajor, Properties properties, ContentStream content,
+            String checkinComment, List<String> policyIds, String user);
+
     /**
      * remove a version from the store (after a cancel check-out).
      * 
@@ -348,6 +474,26 @@ public interface ObjectStore {
      */
     void clear();
 
+    /**
+     * Get the recorded change events starting with the event of a given
+     * change log token.
+     * 
+     * @param changeLogToken
+     *            token of the first event to return, null to start with the
+     *            oldest event still available
+     * @param maxItems
+     *            maximum number of events to return, -1 for all
+     * @return list of change events
+     */
+    ChangeEventsResult getChangeEvents(String changeLogToken, int maxItems);
+
+    /**
+     * Get the token of the most recent change event.
+     * 
+     * @return latest change log token or null if nothing has been recorded
+     */
+    String getLatestChangeLogToken();
+
     /**
      * For statistics: return the number of objects contained in the system.
      * 
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore.ChangeEvent;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore.ChangeEventsResult;
+
+/**
+ * A bounded change log. Events are kept in a ring buffer and get a
+ * monotonically increasing token. Once the buffer is full the oldest events
+ * are overwritten. Recording and reading do not lock: a writer first reserves
+ * a token and then publishes the event into its slot, readers stop at the
+ * first slot that is not yet published.
+ */
+public class ChangeLog {
+
+    private final AtomicReferenceArray<ChangeEvent> fEvents;
+    private final int fMask;
+    private final AtomicLong fLatestToken = new AtomicLong();
+
+    /**
+     * Create a new change log.
+     *
+     * @param capacity
+     *            minimum number of events kept, rounded up to a power of two
+     */
+    public ChangeLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        fEvents = new AtomicReferenceArray<ChangeEvent>(size);
+        fMask = size - 1;
+    }
+
+    /**
+     * Record a change.
+     *
+     * @return the token of the new event
+     */
+    public long record(ChangeType changeType, String objectId, String typeId, BaseTypeId baseTypeId) {
+        long token = fLatestToken.incrementAndGet();
+        fEvents.set(index(token), new ChangeEvent(token, objectId, typeId, baseTypeId, changeType,
+                new GregorianCalendar()));
+        return token;
+    }
+
+    /**
+     * Get the token of the most recent event, 0 if nothing is recorded yet.
+     */
+    public long getLatestToken() {
+        return fLatestToken.get();
+    }
+
+    /**
+     * Get the events starting with the event having the given token.
+     *
+     * @param token
+     *            token of first event, 0 or less for the oldest one available
+     * @param maxItems
+     *            maximum number of events returned, negative for all
+     * @return the events
+     */
+    public ChangeEventsResult getEvents(long token, int maxItems) {
+        long latest = fLatestToken.get();
+        long oldest = Math.max(1, latest - fEvents.length() + 1);
+        long first = token > 0 ? token : oldest;
+
+        if (first < oldest) {
+            throw new CmisInvalidArgumentException("Change log token " + token + " is no longer available.");
+        }
+        if (first > latest + 1) {
+            throw new CmisInvalidArgumentException("Unknown change log token " + token + ".");
+        }
+
+        long available = latest - first + 1;
+        int count = (int) (maxItems < 0 ? available : Math.min(available, maxItems));
+        List<ChangeEvent> events = new ArrayList<ChangeEvent>(count);
+        for (long i = first; i < first + count; i++) {
+            ChangeEvent event = fEvents.get(index(i));
+            if (null == event || event.getToken() < i) {
+                // reserved by a writer but not yet published
+                break;
+            }
+            if (event.getToken() > i) {
+                throw new CmisInvalidArgumentException("Change log token " + token + " is no longer available.");
+            }
+            events.add(event);
+        }
+
+        return new ChangeEventsResult(events, available, first + events.size() <= latest);
+    }
+
+    private int index(long token) {
+        return (int) (token & fMask);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable content made of a sequence of sealed {@link ContentBuffer}
+ * chunks. Appending a chunk returns a new content and does not copy any bytes,
+ * the segments of all chunks are kept in an append-only table that is shared
+ * with the content appended to. Appending to a content that is not the latest
+ * one of its table copies the table, but still not the bytes.
+ */
+public final class ChunkedContent {
+
+    private final SegmentTable fTable;
+    private final int fSegmentCount;
+    private final int fChunkCount;
+    private final long fLength;
+
+    /**
+     * Create an empty content.
+     */
+    public ChunkedContent() {
+        this(new SegmentTable(), 0, 0, 0);
+    }
+
+    private ChunkedContent(SegmentTable table, int segmentCount, int chunkCount, long length) {
+        fTable = table;
+        fSegmentCount = segmentCount;
+        fChunkCount = chunkCount;
+        fLength = length;
+    }
+
+    /**
+     * Get the content followed by a chunk.
+     *
+     * @param chunk
+     *            sealed buffer to append
+     * @return the new content, this content is not modified
+     */
+    public ChunkedContent append(ContentBuffer chunk) {
+        ByteBuffer[] segments = chunk.getSegments();
+        SegmentTable table = fTable;
+        if (!table.append(fSegmentCount, fLength, segments)) {
+            table = table.copy(fSegmentCount);
+            table.append(fSegmentCount, fLength, segments);
+        }
+        return new ChunkedContent(table, fSegmentCount + segments.length, fChunkCount + 1, fLength
+                + chunk.getLength());
+    }
+
+    public long getLength() {
+        return fLength;
+    }
+
+    public int getChunkCount() {
+        return fChunkCount;
+    }
+
+    /**
+     * Get a stream reading a range of the content. The stream reads directly
+     * from the chunks.
+     *
+     * @param offset
+     *            first byte to read
+     * @param length
+     *            number of bytes to read, -1 to read to the end
+     * @return stream on the bytes in the range
+     */
+    public InputStream getStream(long offset, long length) {
+        long start = Math.min(Math.max(0, offset), fLength);
+        long end = length < 0 ? fLength : Math.min(fLength, start + length);
+        return new SegmentInputStream(fTable.getSegments(), fTable.getEnds(), fSegmentCount, start, end - start);
+    }
+
+    /**
+     * Copy the complete content into a byte array.
+     */
+    public byte[] toByteArray() {
+        if (fLength > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Content is too large for a byte array.");
+        }
+        ByteBuffer[] segments = fTable.getSegments();
+        byte[] bytes = new byte[(int) fLength];
+        int pos = 0;
+        for (int i = 0; i < fSegmentCount; i++) {
+            ByteBuffer view = segments[i].duplicate();
+            int n = view.remaining();
+            view.get(bytes, pos, n);
+            pos += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Append-only table of segments and their end offsets. Entries below the
+     * size are never modified, so that readers only need a consistent
+     * snapshot of the arrays.
+     */
+    private static final class SegmentTable {
+        private ByteBuffer[] segments = new ByteBuffer[8];
+        private long[] ends = new long[8];
+        private int size;
+
+        synchronized boolean append(int expectedSize, long offset, ByteBuffer[] add) {
+            if (size != expectedSize) {
+                return false;
+            }
+            if (size + add.length > segments.length) {
+                int capacity = Math.max(segments.length * 2, size + add.length);
+                segments = Arrays.copyOf(segments, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            long end = offset;
+            for (ByteBuffer segment : add) {
+                end += segment.remaining();
+                segments[size] = segment;
+                ends[size] = end;
+                size++;
+            }
+            return true;
+        }
+
+        synchronized SegmentTable copy(int count) {
+            SegmentTable res = new SegmentTable();
+            res.segments = Arrays.copyOf(segments, Math.max(8, count * 2));
+            res.ends = Arrays.copyOf(ends, res.segments.length);
+            res.size = count;
+            return res;
+        }
+
+        synchronized ByteBuffer[] getSegments() {
+            return segments;
+        }
+
+        synchronized long[] getEnds() {
+            return ends;
+        }
+    }
+
+    /**
+     * Stream on a range of a sequence of byte buffers. Reads from duplicates
+     * of the buffers so that concurrent streams do not interfere.
+     */
+    private static class SegmentInputStream extends InputStream {
+
+        private final ByteBuffer[] segments;
+        private final int count;
+        private int index;
+        private ByteBuffer current;
+        private long remaining;
+
+        SegmentInputStream(ByteBuffer[] segments, long[] ends, int count, long offset, long length) {
+            this.segments = segments;
+            this.count = count;
+            this.remaining = length;
+            // first segment ending after the offset
+            int pos = Arrays.binarySearch(ends, 0, count, offset);
+            index = pos >= 0 ? pos + 1 : -pos - 1;
+            while (index < count && ends[index] == offset) {
+                index++; // skip empty segments
+            }
+            if (index < count) {
+                long segmentStart = ends[index] - segments[index].remaining();
+                current = segments[index].duplicate();
+                current.position(current.position() + (int) (offset - segmentStart));
+            }
+        }
+
+        private boolean nextSegment() {
+            while (null != current && !current.hasRemaining()) {
+                index++;
+                current = index < count ? segments[index].duplicate() : null;
+            }
+            return null != current;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0 || !nextSegment()) {
+                return -1;
+            }
+            remaining--;
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0 || !nextSegment()) {
+                return -1;
+            }
+            int n = (int) Math.min(Math.min(len, current.remaining()), remaining);
+            current.get(b, off, n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            while (skipped < n && remaining > 0 && nextSegment()) {
+                int step = (int) Math.min(Math.min(n - skipped, current.remaining()), remaining);
+                current.position(current.position() + step);
+                remaining -= step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            if (remaining <= 0 || !nextSegment()) {
+                return 0;
+            }
+            return (int) Math.min(current.remaining(), remaining);
+        }
+    }
+}
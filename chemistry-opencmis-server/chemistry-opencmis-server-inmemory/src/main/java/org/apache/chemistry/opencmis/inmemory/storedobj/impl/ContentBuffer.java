@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The bytes of a content stream held by a {@link ContentStore}. A buffer is
+ * written once and is read-only after {@link #seal()}. The bytes are kept in a
+ * sequence of {@link ByteBuffer} segments, a {@link ChunkedContent} made of
+ * buffers reads directly from these segments without copying them.
+ */
+public abstract class ContentBuffer {
+
+    private ByteBuffer[] fSegments;
+    private long fLength;
+
+    /**
+     * Append bytes, only allowed before the buffer is sealed.
+     */
+    public abstract void write(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Complete writing.
+     *
+     * @return the read-only segments holding the written bytes
+     */
+    protected abstract ByteBuffer[] finish() throws IOException;
+
+    /**
+     * Release the resources of a buffer that is not sealed, called if writing
+     * fails.
+     */
+    public void discard() {
+    }
+
+    /**
+     * Complete writing, the buffer is read-only afterwards.
+     */
+    public void seal() throws IOException {
+        ByteBuffer[] segments = finish();
+        long length = 0;
+        for (ByteBuffer segment : segments) {
+            length += segment.remaining();
+        }
+        fSegments = segments;
+        fLength = length;
+    }
+
+    public long getLength() {
+        return fLength;
+    }
+
+    /**
+     * Get the read-only segments holding the bytes of a sealed buffer.
+     */
+    ByteBuffer[] getSegments() {
+        if (null == fSegments) {
+            throw new IllegalStateException("Content buffer is not sealed.");
+        }
+        return fSegments;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+
+/**
+ * Storage for the content of documents. A store creates the
+ * {@link ContentBuffer}s the content is written to. Available are:
+ * <ul>
+ * <li>{@value #HEAP}: segments of byte arrays on the Java heap (default)</li>
+ * <li>{@value #OFF_HEAP}: segments of direct byte buffers outside of the Java
+ * heap</li>
+ * <li>{@value #MAPPED}: a temporary file mapped into memory</li>
+ * </ul>
+ */
+public abstract class ContentStore {
+
+    public static final String HEAP = "heap";
+    public static final String OFF_HEAP = "offheap";
+    public static final String MAPPED = "mapped";
+
+    private static final ContentStore HEAP_STORE = new SegmentedContentStore(false);
+
+    /**
+     * Get the store keeping the content on the Java heap.
+     */
+    public static ContentStore getHeapStore() {
+        return HEAP_STORE;
+    }
+
+    /**
+     * Create a content store.
+     *
+     * @param type
+     *            one of {@link #HEAP}, {@link #OFF_HEAP}, {@link #MAPPED}, null
+     *            for the default
+     * @param tempDir
+     *            directory for the files of a memory-mapped store, null for
+     *            the default temp directory
+     * @return the content store
+     */
+    public static ContentStore create(String type, File tempDir) {
+        if (null == type || HEAP.equalsIgnoreCase(type.trim())) {
+            return HEAP_STORE;
+        } else if (OFF_HEAP.equalsIgnoreCase(type.trim())) {
+            return new SegmentedContentStore(true);
+        } else if (MAPPED.equalsIgnoreCase(type.trim())) {
+            return new MappedContentStore(tempDir);
+        } else {
+            throw new CmisInvalidArgumentException("Unknown content store: " + type);
+        }
+    }
+
+    /**
+     * Create an empty buffer for a new content.
+     */
+    public abstract ContentBuffer createBuffer() throws IOException;
+
+    /**
+     * Keeps content in byte buffers allocated on demand. Segments start small
+     * and grow up to a maximum size, so that small content does not waste
+     * memory and large content needs few segments.
+     */
+    private static class SegmentedContentStore extends ContentStore {
+        private final boolean direct;
+
+        SegmentedContentStore(boolean direct) {
+            this.direct = direct;
+        }
+
+        @Override
+        public ContentBuffer createBuffer() {
+            return new SegmentedContentBuffer(direct);
+        }
+    }
+
+    private static class SegmentedContentBuffer extends ContentBuffer {
+        private static final int MIN_SEGMENT_SIZE = 8 * 1024;
+        private static final int MAX_SEGMENT_SIZE = 1024 * 1024;
+
+        private final boolean direct;
+        private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+        private ByteBuffer current;
+
+        SegmentedContentBuffer(boolean direct) {
+            this.direct = direct;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            int offset = off;
+            int remaining = len;
+            while (remaining > 0) {
+                if (null == current || !current.hasRemaining()) {
+                    int size = null == current ? MIN_SEGMENT_SIZE : Math.min(MAX_SEGMENT_SIZE,
+                            current.capacity() * 2);
+                    current = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+                    segments.add(current);
+                }
+                int n = Math.min(remaining, current.remaining());
+                current.put(b, offset, n);
+                offset += n;
+                remaining -= n;
+            }
+        }
+
+        @Override
+        protected ByteBuffer[] finish() {
+            ByteBuffer[] res = new ByteBuffer[segments.size()];
+            for (int i = 0; i < res.length; i++) {
+                ByteBuffer segment = segments.get(i);
+                segment.flip();
+                res[i] = segment.asReadOnlyBuffer();
+            }
+            segments.clear();
+            current = null;
+            return res;
+        }
+    }
+
+    /**
+     * Writes content to a temporary file and maps it into memory. The file is
+     * deleted as soon as it is mapped, the mapping stays valid until the
+     * content is garbage collected.
+     */
+    private static class MappedContentStore extends ContentStore {
+        private final File tempDir;
+
+        MappedContentStore(File tempDir) {
+            this.tempDir = tempDir;
+        }
+
+        @Override
+        public ContentBuffer createBuffer() throws IOException {
+            return new MappedContentBuffer(File.createTempFile("opencmis-content", ".bin", tempDir));
+        }
+    }
+
+    private static class MappedContentBuffer extends ContentBuffer {
+        private static final long MAX_MAPPING_SIZE = 1L << 30;
+
+        private final File file;
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+
+        MappedContentBuffer(File file) throws IOException {
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.channel = raf.getChannel();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        protected ByteBuffer[] finish() throws IOException {
+            try {
+                long size = channel.size();
+                List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+                for (long pos = 0; pos < size; pos += MAX_MAPPING_SIZE) {
+                    segments.add(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAX_MAPPING_SIZE, size
+                            - pos)));
+                }
+                return segments.toArray(new ByteBuffer[segments.size()]);
+            } finally {
+                discard();
+            }
+        }
+
+        @Override
+        public void discard() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // ignore, nothing more to do
+            }
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+}
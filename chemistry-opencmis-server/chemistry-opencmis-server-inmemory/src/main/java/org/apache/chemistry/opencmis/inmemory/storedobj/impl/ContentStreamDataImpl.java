@@ -21,8 +21,6 @@ package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
  *
  */
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
@@ -53,7 +51,7 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
 
     private String fFileName;
 
-    private byte[] fContent;
+    private ChunkedContent fContent;
 
     private GregorianCalendar fLastModified;
 
@@ -65,6 +63,8 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
     
     private final boolean doNotStoreContent;
 
+    private final ContentStore contentStore;
+
     private static synchronized long getTotalLength() {
         return totalLength;
     }
@@ -86,15 +86,18 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
     }
 
     public ContentStreamDataImpl(long maxAllowedContentSizeKB) {
-        sizeLimitKB = maxAllowedContentSizeKB;
-        fLength = 0;
-        doNotStoreContent = false;
+        this(maxAllowedContentSizeKB, false);
     }
 
     public ContentStreamDataImpl(long maxAllowedContentSizeKB, boolean doNotStore) {
+        this(maxAllowedContentSizeKB, doNotStore, ContentStore.getHeapStore());
+    }
+
+    public ContentStreamDataImpl(long maxAllowedContentSizeKB, boolean doNotStore, ContentStore store) {
         sizeLimitKB = maxAllowedContentSizeKB;
         fLength = 0;
         doNotStoreContent = doNotStore;
+        contentStore = store;
     }
 
     public void setContent(InputStream in) throws IOException {
@@ -104,26 +107,8 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
             fContent = null; // delete content
             fLength = 0;
         } else {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-            int len = in.read(buffer);
-            while (len != -1) {
-                if (!doNotStoreContent) {
-                    contentStream.write(buffer, 0, len);
-                }
-                fLength += len;
-                if (sizeLimitKB > 0 && fLength > sizeLimitKB * SIZE_KB) {
-                    throw new CmisInvalidArgumentException("Content size exceeds max. allowed size of " + sizeLimitKB
-                            + "KB.");
-                }
-                len = in.read(buffer);
-            }
-            if (!doNotStoreContent) {
-                fContent = contentStream.toByteArray();
-                fLength = contentStream.size();
-            }
-            contentStream.close();
-            in.close();
+            ContentBuffer chunk = readContent(0, in);
+            fContent = null == chunk ? null : new ChunkedContent().append(chunk);
         }
         increaseTotalLength(fLength);
         increaseTotalCalls();
@@ -136,37 +121,53 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         if (null == is) {
             return; // nothing to do
         } else {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-
-            // first read existing stream
-            if (!doNotStoreContent) {
-                contentStream.write(fContent);
+            long oldLength = fLength;
+            ContentBuffer chunk = readContent(fLength, is);
+            if (null != chunk) {
+                fContent = (null == fContent ? new ChunkedContent() : fContent).append(chunk);
             }
-            decreaseTotalLength(fLength);
+            decreaseTotalLength(oldLength);
+        }
+        increaseTotalLength(fLength);
+        increaseTotalCalls();
+        LOG.debug("setting content stream, total no calls " + getTotalCalls() + ".");
+        LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
+    }
 
-            // then append new content
-            int len = is.read(buffer);
+    /*
+     * Write the stream into a new buffer of the content store and update the
+     * length. Returns null if the content is not stored.
+     */
+    private ContentBuffer readContent(long existingLength, InputStream in) throws IOException {
+        ContentBuffer buffer = doNotStoreContent ? null : contentStore.createBuffer();
+        long length = existingLength;
+        boolean success = false;
+        try {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            int len = in.read(bytes);
             while (len != -1) {
-                contentStream.write(buffer, 0, len);
-                fLength += len;
-                if (sizeLimitKB > 0 && fLength > sizeLimitKB * SIZE_KB) {
+                if (null != buffer) {
+                    buffer.write(bytes, 0, len);
+                }
+                length += len;
+                if (sizeLimitKB > 0 && length > sizeLimitKB * SIZE_KB) {
                     throw new CmisInvalidArgumentException("Content size exceeds max. allowed size of " + sizeLimitKB
                             + "KB.");
                 }
-                len = is.read(buffer);
+                len = in.read(bytes);
             }
-            if (!doNotStoreContent) {
-                fContent = contentStream.toByteArray();
+            if (null != buffer) {
+                buffer.seal();
             }
-            fLength = contentStream.size();
-            contentStream.close();
-            is.close();
+            fLength = length;
+            success = true;
+            return buffer;
+        } finally {
+            if (!success && null != buffer) {
+                buffer.discard();
+            }
+            in.close();
         }
-        increaseTotalLength(fLength);
-        increaseTotalCalls();
-        LOG.debug("setting content stream, total no calls " + getTotalCalls() + ".");
-        LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
     }
 
     @Override
@@ -210,10 +211,10 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         if (null == fContent) {
             return null;
         } else if (fStreamLimitOffset <= 0 && fStreamLimitLength < 0) {
-                return new ByteArrayInputStream(fContent);
-        } else {            
-            return new ByteArrayInputStream(fContent, (int) (fStreamLimitOffset < 0 ? 0 : fStreamLimitOffset),
-                    (int) (fStreamLimitLength < 0 ? fLength : fStreamLimitLength));
+            return fContent.getStream(0, -1);
+        } else {
+            return fContent.getStream(fStreamLimitOffset < 0 ? 0 : fStreamLimitOffset,
+                    fStreamLimitLength < 0 ? fLength : fStreamLimitLength);
         }
     }
 
@@ -227,7 +228,7 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
     }
 
     public ContentStream getCloneWithLimits(long offset, long length) {
-        ContentStreamDataImpl clone = new ContentStreamDataImpl(0, doNotStoreContent);
+        ContentStreamDataImpl clone = new ContentStreamDataImpl(0, doNotStoreContent, contentStore);
         clone.fFileName = fFileName;
         clone.fLength = length < 0 ? fLength - offset : Math.min(fLength - offset, length);
         clone.fContent = fContent;
@@ -238,8 +239,11 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         return clone;
     }
 
+    /**
+     * Get a copy of the complete content.
+     */
     public final byte[] getBytes() {
-        return fContent;
+        return null == fContent ? null : fContent.toByteArray();
     }
 
     @Override
@@ -18,11 +18,16 @@
  */
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,10 +39,12 @@ import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.Ace;
 import org.apache.chemistry.opencmis.commons.data.Acl;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.Properties;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RenditionData;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
@@ -56,8 +63,10 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Item;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.MultiFiling;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Policy;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Relationship;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
@@ -102,6 +111,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private static final int FIRST_ID = 100;
     private static final Long MAX_CONTENT_SIZE_KB = ConfigurationSettings
             .getConfigurationValueAsLong(ConfigConstants.MAX_CONTENT_SIZE_KB);
+    private static final int DEFAULT_CHANGE_LOG_SIZE = 10000;
 
     /**
      * User id for administrator always having all rights.
@@ -119,6 +129,61 @@ public class ObjectStoreImpl implements ObjectStore {
      */
     private final Map<String, StoredObject> fStoredObjectMap = new ConcurrentHashMap<String, StoredObject>();
 
+    /**
+     * Index from a folder id to the ids of all objects filed in this folder.
+     * Versioned documents are registered with the id of their version series.
+     */
+    private final Map<String, Set<String>> fChildrenMap = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Index from a folder id and a child name, joined by the path separator,
+     * to the ids under which the children with this name are filed. Used to
+     * resolve paths and to check names without visiting all children of a
+     * folder. Versioned documents are registered with the name of their
+     * latest version.
+     */
+    private final Map<String, Set<String>> fChildNameMap = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Keys of {@link #fChildNameMap} under which an object is registered.
+     */
+    private final Map<String, Set<String>> fChildNameKeys = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Indexes from an object id to the ids of the relationships having this
+     * object as source or target.
+     */
+    private final Map<String, Set<String>> fRelSourceMap = new ConcurrentHashMap<String, Set<String>>();
+    private final Map<String, Set<String>> fRelTargetMap = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Ids of the version series that have a private working copy. Entries are
+     * added when a PWC is stored. A check-in does not pass the object store,
+     * so entries of documents that are no longer checked out are removed when
+     * the checked out documents are read.
+     */
+    private final Set<String> fCheckedOutSet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Bounded log of the recent changes of this repository.
+     */
+    private final ChangeLog fChangeLog;
+
+    /**
+     * Index from a type id to the ids of all objects of exactly this type.
+     */
+    private final Map<String, Set<String>> fTypeMap = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Secondary index on the values of the configured custom properties.
+     */
+    private final PropertyIndex fPropertyIndex;
+
+    /**
+     * Storage for the content of documents.
+     */
+    private final ContentStore fContentStore;
+
     /**
      * A concurrent HashMap to hold all Acls in the repository.
      */
@@ -126,6 +191,13 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private final List<InMemoryAcl> fAcls = new ArrayList<InMemoryAcl>();
 
+    /**
+     * Cache from a principal and a permission to the set of ids of all Acls
+     * granting this permission to the principal. Registered Acls are never
+     * modified, so the cache is replaced as a whole when a new Acl is added.
+     */
+    private volatile Map<String, BitSet> fAclPermissionCache = new ConcurrentHashMap<String, BitSet>();
+
     private final Lock fLock = new ReentrantLock();
 
     private final String fRepositoryId;
@@ -133,6 +205,23 @@ public class ObjectStoreImpl implements ObjectStore {
 
     public ObjectStoreImpl(String repositoryId) {
         fRepositoryId = repositoryId;
+        Long changeLogSize = ConfigurationSettings.getConfigurationValueAsLong(ConfigConstants.CHANGE_LOG_SIZE);
+        fChangeLog = new ChangeLog(null == changeLogSize ? DEFAULT_CHANGE_LOG_SIZE : changeLogSize.intValue());
+        String indexedProperties = ConfigurationSettings
+                .getConfigurationValueAsString(ConfigConstants.INDEXED_PROPERTIES);
+        List<String> propertyIds = new ArrayList<String>();
+        if (null != indexedProperties) {
+            for (String propertyId : Arrays.asList(indexedProperties.split(","))) {
+                if (propertyId.trim().length() > 0) {
+                    propertyIds.add(propertyId.trim());
+                }
+            }
+        }
+        fPropertyIndex = new PropertyIndex(propertyIds);
+        String tempDir = ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.TEMP_DIR);
+        fContentStore = ContentStore.create(
+                ConfigurationSettings.getConfigurationValueAsString(ConfigConstants.CONTENT_STORE),
+                null == tempDir ? null : new File(tempDir));
         createRootFolder();
     }
 
@@ -159,26 +248,50 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public StoredObject getObjectByPath(String path, String user) {
-        StoredObject so = findObjectWithPathInDescendents(path, user, Filing.PATH_SEPARATOR, fRootFolder);
-        return so;
+        if (null == path || !path.startsWith(Filing.PATH_SEPARATOR)) {
+            return null;
+        }
+        if (path.equals(Filing.PATH_SEPARATOR)) {
+            return fRootFolder;
+        }
+
+        String[] segments = path.substring(1).split(Filing.PATH_SEPARATOR, -1);
+        Fileable child = fRootFolder;
+        for (String segment : segments) {
+            if (!(child instanceof Folder)) {
+                return null;
+            }
+            child = getChild((Folder) child, segment);
+            if (null == child) {
+                return null;
+            }
+        }
+        return child;
     }
 
-    private Fileable findObjectWithPathInDescendents(String path, String user, String prefix, Fileable fo) {
-        if (path.equals(prefix)) {
-            return fo;
-        } else if (fo instanceof Folder) {
-            List<Fileable> children = getChildren((Folder) fo);
-            for (Fileable child : children) {
-                String foundPath = prefix.length() == 1 ? prefix + child.getName() : prefix + Filing.PATH_SEPARATOR
-                        + child.getName();
-                if (path.startsWith(foundPath)) {
-                    Fileable found = findObjectWithPathInDescendents(path, user, foundPath, child);
-                    if (null != found) {
-                        return found; // note that there can be multiple folders
-                                      // with the same prefix like folder1,
-                                      // folder10
-                    }
-                }
+    /**
+     * Get the child of a folder with the given name. Versioned documents are
+     * returned as their latest version.
+     */
+    private Fileable getChild(Folder folder, String name) {
+        if (name.length() == 0) {
+            return null;
+        }
+        Set<String> ids = fChildNameMap.get(getChildNameKey(folder.getId(), name));
+        if (null == ids) {
+            return null;
+        }
+        for (String id : ids) {
+            StoredObject obj = getObject(id);
+            if (!(obj instanceof Fileable) || !((Fileable) obj).getParentIds().contains(folder.getId())) {
+                continue;
+            }
+            Fileable child = (Fileable) obj;
+            if (child instanceof VersionedDocument) {
+                child = ((VersionedDocument) child).getLatestVersion(false);
+            }
+            if (null != child && name.equals(child.getName())) {
+                return child;
             }
         }
         return null;
@@ -210,18 +323,19 @@ public class ObjectStoreImpl implements ObjectStore {
                 otherVersionsExists = false;
                 List<DocumentVersion> allVers = parentDoc.getAllVersions();
                 for (DocumentVersion ver : allVers) {
-                    fStoredObjectMap.remove(ver.getId());
+                    removeObject(ver.getId());
                 }
             } else {
-                fStoredObjectMap.remove(objectId);
+                removeObject(objectId);
                 otherVersionsExists = parentDoc.deleteVersion(vers);
+                updateChildNames(parentDoc.getId());
             }
 
             if (!otherVersionsExists) {
-                fStoredObjectMap.remove(parentDoc.getId());
+                removeObject(parentDoc.getId());
             }
         } else {
-            fStoredObjectMap.remove(objectId);
+            removeObject(objectId);
         }
     }
 
@@ -231,7 +345,31 @@ public class ObjectStoreImpl implements ObjectStore {
         if (null == id) {
             id = getNextId().toString();
         }
-        fStoredObjectMap.put(id, so);
+        StoredObject previous = fStoredObjectMap.put(id, so);
+        addToIndex(fTypeMap, so.getTypeId(), id);
+        fPropertyIndex.add(id, so.getProperties());
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            for (String parentId : ((Fileable) so).getParentIds()) {
+                addToIndex(fChildrenMap, parentId, id);
+            }
+        }
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            updateChildNames(id);
+        } else if (so instanceof DocumentVersion) {
+            updateChildNames(((DocumentVersion) so).getParentDocument().getId());
+        }
+        if (so instanceof Relationship) {
+            Relationship rel = (Relationship) so;
+            addToIndex(fRelSourceMap, rel.getSourceObjectId(), id);
+            addToIndex(fRelTargetMap, rel.getTargetObjectId(), id);
+        }
+        if (so instanceof DocumentVersion && ((DocumentVersion) so).isPwc()) {
+            fCheckedOutSet.add(((DocumentVersion) so).getParentDocument().getId());
+        }
+        if (!(so instanceof VersionedDocument)) {
+            fChangeLog.record(null == previous ? ChangeType.CREATED : ChangeType.UPDATED, id, so.getTypeId(),
+                    getBaseTypeId(so));
+        }
         return id;
     }
 
@@ -240,7 +378,168 @@ public class ObjectStoreImpl implements ObjectStore {
     }
 
     void removeObject(String id) {
-        fStoredObjectMap.remove(id);
+        StoredObject so = fStoredObjectMap.remove(id);
+        if (null != so) {
+            removeFromIndex(fTypeMap, so.getTypeId(), id);
+            fPropertyIndex.remove(id, so.getProperties());
+        }
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            for (String parentId : ((Fileable) so).getParentIds()) {
+                removeFromIndex(fChildrenMap, parentId, id);
+            }
+        }
+        updateChildNames(id);
+        if (so instanceof DocumentVersion) {
+            updateChildNames(((DocumentVersion) so).getParentDocument().getId());
+        }
+        if (so instanceof Relationship) {
+            Relationship rel = (Relationship) so;
+            removeFromIndex(fRelSourceMap, rel.getSourceObjectId(), id);
+            removeFromIndex(fRelTargetMap, rel.getTargetObjectId(), id);
+        }
+        fChildrenMap.remove(id);
+        fCheckedOutSet.remove(id);
+        recordChange(ChangeType.DELETED, so);
+    }
+
+    /**
+     * Record a change of a stored object in the change log. Version series
+     * are not logged, changes are recorded for their versions.
+     */
+    private void recordChange(ChangeType changeType, StoredObject so) {
+        if (null == so || null == so.getId() || so instanceof VersionedDocument) {
+            return;
+        }
+        fChangeLog.record(changeType, so.getId(), so.getTypeId(), getBaseTypeId(so));
+    }
+
+    private static BaseTypeId getBaseTypeId(StoredObject so) {
+        if (so instanceof Folder) {
+            return BaseTypeId.CMIS_FOLDER;
+        } else if (so instanceof Relationship) {
+            return BaseTypeId.CMIS_RELATIONSHIP;
+        } else if (so instanceof Policy) {
+            return BaseTypeId.CMIS_POLICY;
+        } else if (so instanceof Item) {
+            return BaseTypeId.CMIS_ITEM;
+        } else {
+            return BaseTypeId.CMIS_DOCUMENT;
+        }
+    }
+
+    @Override
+    public ChangeEventsResult getChangeEvents(String changeLogToken, int maxItems) {
+        long token = 0;
+        if (null != changeLogToken) {
+            try {
+                token = Long.parseLong(changeLogToken);
+            } catch (NumberFormatException e) {
+                throw new CmisInvalidArgumentException("Unknown change log token " + changeLogToken + ".", e);
+            }
+            if (token <= 0) {
+                throw new CmisInvalidArgumentException("Unknown change log token " + changeLogToken + ".");
+            }
+        }
+        return fChangeLog.getEvents(token, maxItems);
+    }
+
+    @Override
+    public String getLatestChangeLogToken() {
+        long token = fChangeLog.getLatestToken();
+        return token > 0 ? Long.toString(token) : null;
+    }
+
+    private static void addToIndex(Map<String, Set<String>> index, String key, String id) {
+        if (null == key) {
+            return;
+        }
+        Set<String> ids = index.get(key);
+        if (null == ids) {
+            Set<String> newIds = ConcurrentHashMap.newKeySet();
+            ids = index.putIfAbsent(key, newIds);
+            if (null == ids) {
+                ids = newIds;
+            }
+        }
+        ids.add(id);
+    }
+
+    private static void removeFromIndex(Map<String, Set<String>> index, String key, String id) {
+        if (null == key) {
+            return;
+        }
+        Set<String> ids = index.get(key);
+        if (null != ids) {
+            ids.remove(id);
+        }
+    }
+
+    private static String getChildNameKey(String parentId, String name) {
+        return parentId + Filing.PATH_SEPARATOR + name;
+    }
+
+    /**
+     * Registers an object in the child name index under its current name and
+     * parents and removes its outdated entries. Must be called whenever the
+     * name or the parents of a filed object change. For a versioned document
+     * this includes any change of its versions.
+     * 
+     * @param filingId
+     *            id under which the object is filed
+     */
+    private void updateChildNames(String filingId) {
+        Set<String> keys = new HashSet<String>();
+        StoredObject so = fStoredObjectMap.get(filingId);
+        if (so instanceof Fileable && !(so instanceof DocumentVersion)) {
+            String name = so.getName();
+            if (so instanceof VersionedDocument) {
+                DocumentVersion latest = ((VersionedDocument) so).getLatestVersion(false);
+                if (null != latest) {
+                    name = latest.getName();
+                }
+            }
+            if (null != name) {
+                for (String parentId : ((Fileable) so).getParentIds()) {
+                    keys.add(getChildNameKey(parentId, name));
+                }
+            }
+        }
+
+        synchronized (fChildNameMap) {
+            Set<String> oldKeys = fChildNameKeys.get(filingId);
+            if (null != oldKeys) {
+                for (String key : oldKeys) {
+                    if (!keys.contains(key)) {
+                        Set<String> ids = fChildNameMap.get(key);
+                        if (null != ids) {
+                            ids.remove(filingId);
+                            if (ids.isEmpty()) {
+                                fChildNameMap.remove(key);
+                            }
+                        }
+                    }
+                }
+            }
+            for (String key : keys) {
+                addToIndex(fChildNameMap, key, filingId);
+            }
+            if (keys.isEmpty()) {
+                fChildNameKeys.remove(filingId);
+            } else {
+                fChildNameKeys.put(filingId, keys);
+            }
+        }
+    }
+
+    /**
+     * Returns the id under which an object is registered in its parent
+     * folders. This is the version series id for document versions.
+     */
+    private static String getFilingId(MultiFiling so) {
+        if (so instanceof DocumentVersion) {
+            return ((DocumentVersion) so).getParentDocument().getId();
+        }
+        return ((StoredObject) so).getId();
     }
 
     public Set<String> getIds() {
@@ -255,6 +554,14 @@ public class ObjectStoreImpl implements ObjectStore {
     public void clear() {
         lock();
         fStoredObjectMap.clear();
+        fChildrenMap.clear();
+        fChildNameMap.clear();
+        fChildNameKeys.clear();
+        fRelSourceMap.clear();
+        fRelTargetMap.clear();
+        fCheckedOutSet.clear();
+        fTypeMap.clear();
+        fPropertyIndex.clear();
         storeObject(fRootFolder);
         unlock();
     }
@@ -357,7 +664,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
                         + " already exists in folder " + getFolderPath(folder.getId()));
             }
-            doc.addParentId(folder.getId());
+            addParentIntern(doc, folder);
         }
         int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
         doc.setAclId(aclId);
@@ -447,20 +754,48 @@ public class ObjectStoreImpl implements ObjectStore {
         version.setId(id);
     }
 
+    @Override
+    public void checkInVersion(VersionedDocument verDoc, boolean isMajor, Properties properties,
+            ContentStream content, String checkinComment, List<String> policyIds, String user) {
+        // the private working copy becomes the new version in place, remove
+        // its old values from the index before they are changed
+        DocumentVersion pwc = verDoc.getPwc();
+        boolean stored = null != pwc && fStoredObjectMap.get(pwc.getId()) == pwc;
+        if (stored) {
+            fPropertyIndex.remove(pwc.getId(), pwc.getProperties());
+        }
+        verDoc.checkIn(isMajor, properties, content, checkinComment, policyIds, user);
+        if (stored) {
+            fPropertyIndex.add(pwc.getId(), pwc.getProperties());
+        }
+        fCheckedOutSet.remove(verDoc.getId());
+        updateChildNames(verDoc.getId());
+        recordChange(ChangeType.UPDATED, pwc);
+    }
+
     @Override
     public void deleteVersion(DocumentVersion version) {
-        StoredObject found = fStoredObjectMap.remove(version.getId());
+        StoredObject found = fStoredObjectMap.get(version.getId());
 
         if (null == found) {
             throw new CmisInvalidArgumentException("Cannot delete object with id  " + version.getId()
                     + ". Object does not exist.");
         }
+        removeObject(version.getId());
+        updateChildNames(version.getParentDocument().getId());
+
+        if (!version.getParentDocument().isCheckedOut()) {
+            fCheckedOutSet.remove(version.getParentDocument().getId());
+        }
     }
 
     @Override
     public void updateObject(StoredObject so, Map<String, PropertyData<?>> newProperties, String user) {
-        // nothing to do
         Map<String, PropertyData<?>> properties = so.getProperties();
+        boolean stored = null != so.getId() && fStoredObjectMap.get(so.getId()) == so;
+        if (stored) {
+            fPropertyIndex.remove(so.getId(), properties);
+        }
         for (String key : newProperties.keySet()) {
             PropertyData<?> value = newProperties.get(key);
 
@@ -476,6 +811,10 @@ public class ObjectStoreImpl implements ObjectStore {
         // update system properties and secondary object type ids
         so.updateSystemBasePropertiesWhenModified(properties, user);
         properties.remove(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+        if (stored) {
+            fPropertyIndex.add(so.getId(), properties);
+        }
+        recordChange(ChangeType.UPDATED, so);
     }
 
     @Override
@@ -483,15 +822,22 @@ public class ObjectStoreImpl implements ObjectStore {
             IncludeRelationships includeRelationships) {
         List<StoredObject> res = new ArrayList<StoredObject>();
 
-        for (StoredObject so : fStoredObjectMap.values()) {
-            if (so instanceof VersionedDocument) {
+        for (String id : fCheckedOutSet) {
+            StoredObject so = fStoredObjectMap.get(id);
+            if (so instanceof VersionedDocument && ((VersionedDocument) so).isCheckedOut()) {
                 VersionedDocument verDoc = (VersionedDocument) so;
-                if (verDoc.isCheckedOut() && hasReadAccess(user, verDoc)) {
+                if (hasReadAccess(user, verDoc)) {
                     res.add(verDoc.getPwc());
                 }
+            } else {
+                fCheckedOutSet.remove(id);
+                if (so instanceof VersionedDocument && ((VersionedDocument) so).isCheckedOut()) {
+                    fCheckedOutSet.add(id); // checked out again meanwhile
+                }
             }
         }
 
+        Collections.sort(res, new OrderByComparator(orderBy));
         return res;
     }
 
@@ -501,17 +847,11 @@ public class ObjectStoreImpl implements ObjectStore {
         List<StoredObject> res = new ArrayList<StoredObject>();
 
         if (typeIds != null && typeIds.size() > 0) {
+            List<StoredObject> allRels = getAllRelationships(objectId, direction);
             for (String typeId : typeIds) {
-                for (StoredObject so : fStoredObjectMap.values()) {
-                    if (so instanceof Relationship && so.getTypeId().equals(typeId)) {
-                        Relationship ro = (Relationship) so;
-                        if (ro.getSourceObjectId().equals(objectId)
-                                && (RelationshipDirection.EITHER == direction || RelationshipDirection.SOURCE == direction)) {
-                            res.add(so);
-                        } else if (ro.getTargetObjectId().equals(objectId)
-                                && (RelationshipDirection.EITHER == direction || RelationshipDirection.TARGET == direction)) {
-                            res.add(so);
-                        }
+                for (StoredObject so : allRels) {
+                    if (so.getTypeId().equals(typeId)) {
+                        res.add(so);
                     }
                 }
             }
@@ -544,7 +884,9 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public Acl applyAcl(StoredObject so, Acl addAces, Acl removeAces, AclPropagation aclPropagation, String principalId) {
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, addAces, removeAces);
+            Acl result = applyAcl(so, addAces, removeAces);
+            recordChange(ChangeType.SECURITY, so);
+            return result;
         } else {
             return applyAclRecursive(((Folder) so), addAces, removeAces, principalId);
         }
@@ -553,22 +895,45 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public Acl applyAcl(StoredObject so, Acl acl, AclPropagation aclPropagation, String principalId) {
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, acl);
+            Acl result = applyAcl(so, acl);
+            recordChange(ChangeType.SECURITY, so);
+            return result;
         } else {
             return applyAclRecursive(((Folder) so), acl, principalId);
         }
     }
 
     public List<Integer> getAllAclsForUser(String principalId, Permission permission) {
-        List<Integer> acls = new ArrayList<Integer>();
-        for (InMemoryAcl acl : fAcls) {
-            if (acl.hasPermission(principalId, permission)) {
-                acls.add(acl.getId());
-            }
+        BitSet aclIds = getAclIdsForUser(principalId, permission);
+        List<Integer> acls = new ArrayList<Integer>(aclIds.cardinality());
+        for (int i = aclIds.nextSetBit(0); i >= 0; i = aclIds.nextSetBit(i + 1)) {
+            acls.add(i);
         }
         return acls;
     }
 
+    private BitSet getAclIdsForUser(String principalId, Permission permission) {
+        Map<String, BitSet> cache = fAclPermissionCache;
+        String key = permission.name() + (null == principalId ? "" : "#" + principalId);
+        BitSet aclIds = cache.get(key);
+        if (null == aclIds) {
+            aclIds = new BitSet();
+            lock();
+            try {
+                for (InMemoryAcl acl : fAcls) {
+                    if (acl.hasPermission(principalId, permission)) {
+                        aclIds.set(acl.getId());
+                    }
+                }
+            } finally {
+                unlock();
+            }
+            // the bit set is never modified once it has been published
+            cache.put(key, aclIds);
+        }
+        return aclIds;
+    }
+
     @Override
     public Acl getAcl(int aclId) {
         InMemoryAcl acl = getInMemoryAcl(aclId);
@@ -656,7 +1021,7 @@ public class ObjectStoreImpl implements ObjectStore {
             throw new CmisConstraintException("Cannot delete folder with id:  " + folderId + ". Folder is not empty.");
         }
 
-        fStoredObjectMap.remove(folderId);
+        removeObject(folderId);
     }
 
     @Override
@@ -675,13 +1040,9 @@ public class ObjectStoreImpl implements ObjectStore {
         return new ChildrenResult(children, noItems);
     }
 
-    private List<Fileable> getChildren(Folder folder) {
-        return getChildren(folder, null, false);
-    }
-
     private List<Fileable> getChildren(Folder folder, String user, boolean usePwc) {
         List<Fileable> children = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : getChildIds(folder)) {
             StoredObject obj = getObject(id);
             if (obj instanceof Fileable) {
                 Fileable pathObj = (Fileable) obj;
@@ -708,12 +1069,54 @@ public class ObjectStoreImpl implements ObjectStore {
         return children;
     }
 
+    private Set<String> getChildIds(Folder folder) {
+        return getChildIds(folder.getId());
+    }
+
+    /**
+     * Get the ids of the objects filed in a folder. Versioned documents are
+     * contained with the id of their version series. The result may contain
+     * ids of objects that have been removed from the folder concurrently.
+     * 
+     * @param folderId
+     *            id of folder
+     * @return ids of filed objects
+     */
+    public Set<String> getChildIds(String folderId) {
+        Set<String> children = fChildrenMap.get(folderId);
+        return null == children ? Collections.<String> emptySet() : Collections.unmodifiableSet(children);
+    }
+
+    /**
+     * Get the ids of all objects having exactly the given type.
+     * 
+     * @param typeId
+     *            id of type
+     * @return ids of objects of this type
+     */
+    public Set<String> getIdsOfType(String typeId) {
+        Set<String> ids = fTypeMap.get(typeId);
+        return null == ids ? Collections.<String> emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Get the index on the custom properties configured with
+     * {@link ConfigConstants#INDEXED_PROPERTIES}. Entries of values changed
+     * without passing the object store may be stale, callers have to check
+     * the values of the objects found.
+     * 
+     * @return property index
+     */
+    public PropertyIndex getPropertyIndex() {
+        return fPropertyIndex;
+    }
+
     @Override
     public ChildrenResult getFolderChildren(Folder folder, int maxItems, int skipCount, String user) {
         List<Fileable> folderChildren = new ArrayList<Fileable>();
-        for (String id : getIds()) {
+        for (String id : getChildIds(folder)) {
             StoredObject obj = getObject(id);
-            if (hasReadAccess(user, obj) && obj instanceof Folder) {
+            if (obj instanceof Folder && hasReadAccess(user, obj)) {
                 Folder childFolder = (Folder) obj;
                 if (childFolder.getParentIds().contains(folder.getId())) {
                     folderChildren.add(childFolder);
@@ -744,7 +1147,11 @@ public class ObjectStoreImpl implements ObjectStore {
                 removeParentIntern(fi, oldParent);
             } else if (so instanceof FolderImpl) {
                 ((FolderImpl) so).setParentId(newParent.getId());
+                removeFromIndex(fChildrenMap, oldParent.getId(), so.getId());
+                addToIndex(fChildrenMap, newParent.getId(), so.getId());
+                updateChildNames(so.getId());
             }
+            recordChange(ChangeType.UPDATED, so);
         } finally {
             unlock();
         }
@@ -770,19 +1177,19 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             so.setName(newName);
+            if (so instanceof DocumentVersion) {
+                updateChildNames(((DocumentVersion) so).getParentDocument().getId());
+            } else {
+                updateChildNames(so.getId());
+            }
+            recordChange(ChangeType.UPDATED, so);
         } finally {
             unlock();
         }
     }
 
     private boolean hasChild(Folder folder, String name) {
-        List<Fileable> children = getChildren(folder);
-        for (Fileable child : children) {
-            if (child.getName().equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        return null != getChild(folder, name);
     }
 
     @Override
@@ -837,8 +1244,7 @@ public class ObjectStoreImpl implements ObjectStore {
         if (null != principalId && principalId.equals(ADMIN_PRINCIPAL_ID)) {
             return true;
         }
-        List<Integer> aclIds = getAllAclsForUser(principalId, permission);
-        return aclIds.contains(((StoredObjectImpl) so).getAclId());
+        return getAclIdsForUser(principalId, permission).get(((StoredObjectImpl) so).getAclId());
     }
 
     private InMemoryAcl getInMemoryAcl(int aclId) {
@@ -892,6 +1298,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 aclId = getNextAclId();
                 acl.setId(aclId);
                 fAcls.add(acl);
+                fAclPermissionCache = new ConcurrentHashMap<String, BitSet>();
             }
         } finally {
             unlock();
@@ -913,6 +1320,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl addAces, Acl removeAces, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, addAces, removeAces);
+        recordChange(ChangeType.SECURITY, folder);
 
         if (null == children) {
             return result;
@@ -924,6 +1332,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, addAces, removeAces, principalId);
                 } else {
                     applyAcl(child, addAces, removeAces);
+                    recordChange(ChangeType.SECURITY, child);
                 }
             }
         }
@@ -934,6 +1343,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl acl, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, acl);
+        recordChange(ChangeType.SECURITY, folder);
 
         if (null == children) {
             return result;
@@ -945,6 +1355,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, acl, principalId);
                 } else {
                     applyAcl(child, acl);
+                    recordChange(ChangeType.SECURITY, child);
                 }
             }
         }
@@ -954,18 +1365,26 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private List<StoredObject> getAllRelationships(String objectId, RelationshipDirection direction) {
 
-        List<StoredObject> res = new ArrayList<StoredObject>();
+        Set<String> relIds = new LinkedHashSet<String>();
+
+        if (RelationshipDirection.EITHER == direction || RelationshipDirection.SOURCE == direction) {
+            Set<String> ids = fRelSourceMap.get(objectId);
+            if (null != ids) {
+                relIds.addAll(ids);
+            }
+        }
+        if (RelationshipDirection.EITHER == direction || RelationshipDirection.TARGET == direction) {
+            Set<String> ids = fRelTargetMap.get(objectId);
+            if (null != ids) {
+                relIds.addAll(ids);
+            }
+        }
 
-        for (StoredObject so : fStoredObjectMap.values()) {
+        List<StoredObject> res = new ArrayList<StoredObject>(relIds.size());
+        for (String relId : relIds) {
+            StoredObject so = fStoredObjectMap.get(relId);
             if (so instanceof Relationship) {
-                Relationship ro = (Relationship) so;
-                if (ro.getSourceObjectId().equals(objectId)
-                        && (RelationshipDirection.EITHER == direction || RelationshipDirection.SOURCE == direction)) {
-                    res.add(so);
-                } else if (ro.getTargetObjectId().equals(objectId)
-                        && (RelationshipDirection.EITHER == direction || RelationshipDirection.TARGET == direction)) {
-                    res.add(so);
-                }
+                res.add(so);
             }
         }
         return res;
@@ -999,6 +1418,7 @@ public class ObjectStoreImpl implements ObjectStore {
             }
 
             addParentIntern(mfi, parent);
+            recordChange(ChangeType.UPDATED, so);
         } finally {
             unlock();
         }
@@ -1016,6 +1436,7 @@ public class ObjectStoreImpl implements ObjectStore {
             }
 
             removeParentIntern(mfi, parent);
+            recordChange(ChangeType.UPDATED, so);
         } finally {
             unlock();
         }
@@ -1023,10 +1444,14 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private void addParentIntern(MultiFiling so, Folder parent) {
         so.addParentId(parent.getId());
+        addToIndex(fChildrenMap, parent.getId(), getFilingId(so));
+        updateChildNames(getFilingId(so));
     }
 
     private void removeParentIntern(MultiFiling so, Folder parent) {
         so.removeParentId(parent.getId());
+        removeFromIndex(fChildrenMap, parent.getId(), getFilingId(so));
+        updateChildNames(getFilingId(so));
     }
 
     private static void sortFolderList(List<? extends StoredObject> list) {
@@ -1073,7 +1498,7 @@ public class ObjectStoreImpl implements ObjectStore {
             } else {
                 boolean useFakeContentStore = so.getTypeId().equals(DefaultTypeSystemCreator.BIG_CONTENT_FAKE_TYPE);
                 newContent = new ContentStreamDataImpl(MAX_CONTENT_SIZE_KB == null ? 0 : MAX_CONTENT_SIZE_KB,
-                        useFakeContentStore);
+                        useFakeContentStore, fContentStore);
                 String fileName = contentStream.getFileName();
                 if (null == fileName || fileName.length() <= 0) {
                     fileName = so.getName(); // use name of document as fallback
@@ -1092,6 +1517,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             content.setContent(newContent);
+            recordChange(ChangeType.UPDATED, so);
             return newContent;
 
         } else {
@@ -1114,6 +1540,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     throw new CmisStorageException("Failed to append content: IO Exception", e);
                 }
             }
+            recordChange(ChangeType.UPDATED, so);
         } else {
             throw new CmisInvalidArgumentException("Cannot set content, object does not implement interface Content.");
         }
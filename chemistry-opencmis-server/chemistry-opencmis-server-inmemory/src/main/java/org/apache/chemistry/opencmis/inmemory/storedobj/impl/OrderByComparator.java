@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+
+/**
+ * Compares stored objects according to a CMIS orderBy specification like
+ * {@code cmis:lastModificationDate DESC,cmis:name}. Properties are given by
+ * their query names, which are the property ids in this repository. Objects
+ * without a value sort last. Objects that are equal in all given properties
+ * are sorted by name.
+ */
+public class OrderByComparator implements Comparator<StoredObject> {
+
+    private static final String ASC = "ASC";
+    private static final String DESC = "DESC";
+
+    private final List<String> fPropertyIds = new ArrayList<String>();
+    private final List<Boolean> fAscending = new ArrayList<Boolean>();
+
+    /**
+     * Create a comparator.
+     *
+     * @param orderBy
+     *            orderBy specification, {@code null} or empty sorts by name
+     */
+    public OrderByComparator(String orderBy) {
+        if (null != orderBy) {
+            for (String part : orderBy.split(",")) {
+                String[] tokens = part.trim().split("\\s+");
+                if (tokens.length == 0 || tokens[0].length() == 0) {
+                    continue;
+                }
+                if (tokens.length > 2 || (tokens.length == 2 && !ASC.equalsIgnoreCase(tokens[1])
+                        && !DESC.equalsIgnoreCase(tokens[1]))) {
+                    throw new CmisInvalidArgumentException("Invalid orderBy: " + orderBy);
+                }
+                fPropertyIds.add(tokens[0]);
+                fAscending.add(tokens.length == 1 || ASC.equalsIgnoreCase(tokens[1]));
+            }
+        }
+        fPropertyIds.add(PropertyIds.NAME);
+        fAscending.add(Boolean.TRUE);
+    }
+
+    @Override
+    public int compare(StoredObject so1, StoredObject so2) {
+        for (int i = 0; i < fPropertyIds.size(); i++) {
+            String propertyId = fPropertyIds.get(i);
+            int result = compareValues(getValue(so1, propertyId), getValue(so2, propertyId));
+            if (result != 0) {
+                return fAscending.get(i) ? result : -result;
+            }
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object value1, Object value2) {
+        if (value1 == value2) {
+            return 0;
+        } else if (null == value1) {
+            return 1;
+        } else if (null == value2) {
+            return -1;
+        } else if (value1.getClass() != value2.getClass() || !(value1 instanceof Comparable)) {
+            return value1.getClass().getName().compareTo(value2.getClass().getName());
+        }
+        return ((Comparable<Object>) value1).compareTo(value2);
+    }
+
+    private static Object getValue(StoredObject so, String propertyId) {
+        if (PropertyIds.NAME.equals(propertyId)) {
+            return so.getName();
+        } else if (PropertyIds.OBJECT_ID.equals(propertyId)) {
+            return so.getId();
+        } else if (PropertyIds.OBJECT_TYPE_ID.equals(propertyId)) {
+            return so.getTypeId();
+        } else if (PropertyIds.DESCRIPTION.equals(propertyId)) {
+            return so.getDescription();
+        } else if (PropertyIds.CREATED_BY.equals(propertyId)) {
+            return so.getCreatedBy();
+        } else if (PropertyIds.LAST_MODIFIED_BY.equals(propertyId)) {
+            return so.getModifiedBy();
+        } else if (PropertyIds.CREATION_DATE.equals(propertyId)) {
+            return so.getCreatedAt();
+        } else if (PropertyIds.LAST_MODIFICATION_DATE.equals(propertyId)) {
+            return so.getModifiedAt();
+        }
+        PropertyData<?> pd = null == so.getProperties() ? null : so.getProperties().get(propertyId);
+        return null == pd ? null : pd.getFirstValue();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+
+/**
+ * Sorted secondary index from the values of a fixed set of custom properties
+ * to the ids of the objects having these values. Supports lookups by value
+ * and by range. Values of different classes are kept apart, a lookup only
+ * returns objects with a value of the same class as the requested one.
+ * <p>
+ * Updates of a property are serialized, lookups do not lock.
+ */
+public class PropertyIndex {
+
+    private static final Comparator<Object> VALUE_COMPARATOR = new Comparator<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(Object o1, Object o2) {
+            if (o1.getClass() != o2.getClass()) {
+                return o1.getClass().getName().compareTo(o2.getClass().getName());
+            }
+            return ((Comparable<Object>) o1).compareTo(o2);
+        }
+    };
+
+    private final Map<String, NavigableMap<Object, Set<String>>> fIndexes;
+
+    /**
+     * Create an index.
+     *
+     * @param propertyIds
+     *            ids of the properties to index
+     */
+    public PropertyIndex(Collection<String> propertyIds) {
+        Map<String, NavigableMap<Object, Set<String>>> indexes = new HashMap<String, NavigableMap<Object, Set<String>>>();
+        for (String propertyId : propertyIds) {
+            indexes.put(propertyId, new ConcurrentSkipListMap<Object, Set<String>>(VALUE_COMPARATOR));
+        }
+        fIndexes = Collections.unmodifiableMap(indexes);
+    }
+
+    public boolean isIndexed(String propertyId) {
+        return fIndexes.containsKey(propertyId);
+    }
+
+    public boolean isEmpty() {
+        return fIndexes.isEmpty();
+    }
+
+    /**
+     * Add the values of the indexed properties of an object.
+     */
+    public void add(String id, Map<String, PropertyData<?>> properties) {
+        if (null == properties) {
+            return;
+        }
+        for (Map.Entry<String, NavigableMap<Object, Set<String>>> entry : fIndexes.entrySet()) {
+            PropertyData<?> pd = properties.get(entry.getKey());
+            if (null == pd || null == pd.getValues()) {
+                continue;
+            }
+            NavigableMap<Object, Set<String>> index = entry.getValue();
+            synchronized (index) {
+                for (Object value : pd.getValues()) {
+                    if (value instanceof Comparable) {
+                        Set<String> ids = index.get(value);
+                        if (null == ids) {
+                            ids = ConcurrentHashMap.newKeySet();
+                            index.put(value, ids);
+                        }
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the values of the indexed properties of an object. Must be called
+     * with the same values the object was added with.
+     */
+    public void remove(String id, Map<String, PropertyData<?>> properties) {
+        if (null == properties) {
+            return;
+        }
+        for (Map.Entry<String, NavigableMap<Object, Set<String>>> entry : fIndexes.entrySet()) {
+            PropertyData<?> pd = properties.get(entry.getKey());
+            if (null == pd || null == pd.getValues()) {
+                continue;
+            }
+            NavigableMap<Object, Set<String>> index = entry.getValue();
+            synchronized (index) {
+                for (Object value : pd.getValues()) {
+                    if (value instanceof Comparable) {
+                        Set<String> ids = index.get(value);
+                        if (null != ids) {
+                            ids.remove(id);
+                            if (ids.isEmpty()) {
+                                index.remove(value);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        for (NavigableMap<Object, Set<String>> index : fIndexes.values()) {
+            synchronized (index) {
+                index.clear();
+            }
+        }
+    }
+
+    /**
+     * Get the ids of all objects having a value in the given range. A null
+     * bound leaves the range open on this side, but at least one bound must
+     * be given.
+     *
+     * @return ids of matching objects or null if the property is not indexed
+     */
+    public Set<String> getIds(String propertyId, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        NavigableMap<Object, Set<String>> index = fIndexes.get(propertyId);
+        if (null == index) {
+            return null;
+        }
+
+        Object bound = null == from ? to : from;
+        NavigableMap<Object, Set<String>> range;
+        if (null != from && null != to) {
+            if (from.getClass() != to.getClass() || VALUE_COMPARATOR.compare(from, to) > 0) {
+                return Collections.emptySet();
+            }
+            range = index.subMap(from, fromInclusive, to, toInclusive);
+        } else if (null != from) {
+            range = index.tailMap(from, fromInclusive);
+        } else {
+            range = index.headMap(to, toInclusive).descendingMap();
+        }
+
+        Set<String> result = new HashSet<String>();
+        for (Map.Entry<Object, Set<String>> entry : range.entrySet()) {
+            if (entry.getKey().getClass() != bound.getClass()) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+}
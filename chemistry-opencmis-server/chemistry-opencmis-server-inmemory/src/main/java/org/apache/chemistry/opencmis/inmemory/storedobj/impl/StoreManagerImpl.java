@@ -366,7 +366,7 @@ public class StoreManagerImpl implements StoreManager {
         repoInfo.setPrincipalAnyone(InMemoryAce.getAnyoneUser());
         repoInfo.setThinClientUri("");
         repoInfo.setChangesIncomplete(Boolean.TRUE);
-        repoInfo.setLatestChangeLogToken("token-24");
+        repoInfo.setLatestChangeLogToken(objStore.getLatestChangeLogToken());
         repoInfo.setVendorName("Apache Chemistry");
         repoInfo.setProductName(OPENCMIS_SERVER);
         repoInfo.setProductVersion(OPENCMIS_VERSION);
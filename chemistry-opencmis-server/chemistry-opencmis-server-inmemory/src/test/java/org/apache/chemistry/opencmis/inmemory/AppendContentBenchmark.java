@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
+
+/**
+ * Measures the throughput of appending content in chunks, as done by clients
+ * uploading large documents with appendContentStream. Not run as part of the
+ * unit tests.
+ * <p>
+ * Arguments: chunk size in MB (default 8), number of chunks (default 64),
+ * content store type (default heap).
+ */
+public final class AppendContentBenchmark {
+
+    private static final int MB = 1024 * 1024;
+
+    private AppendContentBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int chunkSizeMB = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int chunks = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        String storeType = args.length > 2 ? args[2] : ContentStore.HEAP;
+
+        byte[] chunk = new byte[chunkSizeMB * MB];
+        new Random(0).nextBytes(chunk);
+
+        // warm up
+        run(ContentStore.create(storeType, null), chunk, Math.min(chunks, 4));
+
+        ContentStore store = ContentStore.create(storeType, null);
+        long start = System.nanoTime();
+        ContentStreamDataImpl content = run(store, chunk, chunks);
+        long appendNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long read = drain(content.getStream());
+        long readNanos = System.nanoTime() - start;
+
+        double totalMB = (double) content.getLength() / MB;
+        System.out.println("Store:      " + storeType);
+        System.out.println("Appended:   " + chunks + " chunks of " + chunkSizeMB + " MB");
+        System.out.printf("Append:     %.1f MB/s (%.1f ms per chunk)%n", totalMB / (appendNanos / 1e9),
+                appendNanos / 1e6 / chunks);
+        System.out.printf("Read:       %.1f MB/s (%d bytes)%n", totalMB / (readNanos / 1e9), read);
+    }
+
+    private static ContentStreamDataImpl run(ContentStore store, byte[] chunk, int chunks) throws IOException {
+        ContentStreamDataImpl content = new ContentStreamDataImpl(0, false, store);
+        content.setContent(new ByteArrayInputStream(chunk));
+        for (int i = 1; i < chunks; i++) {
+            content.appendContent(new ByteArrayInputStream(chunk));
+        }
+        return content;
+    }
+
+    private static long drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int len;
+        while ((len = stream.read(buffer)) != -1) {
+            total += len;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ChunkedContent;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentBuffer;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
+import org.junit.Test;
+
+/**
+ * Tests for the different content stores.
+ */
+public class ContentStoreTest {
+
+    private static final int SIZE = 300 * 1024 + 17;
+
+    @Test
+    public void testHeapStore() throws IOException {
+        checkStore(ContentStore.create(ContentStore.HEAP, null));
+    }
+
+    @Test
+    public void testOffHeapStore() throws IOException {
+        checkStore(ContentStore.create(ContentStore.OFF_HEAP, null));
+    }
+
+    @Test
+    public void testMappedStore() throws IOException {
+        checkStore(ContentStore.create(ContentStore.MAPPED, null));
+    }
+
+    @Test
+    public void testChunkedAppend() throws IOException {
+        ContentStore store = ContentStore.create(ContentStore.HEAP, null);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ContentStreamDataImpl content = new ContentStreamDataImpl(0, false, store);
+        content.setContent(new ByteArrayInputStream(new byte[0]));
+        ContentStream snapshot = null;
+        for (int i = 0; i < 50; i++) {
+            byte[] chunk = createBytes(i * 997);
+            content.appendContent(new ByteArrayInputStream(chunk));
+            expected.write(chunk);
+            if (i == 25) {
+                snapshot = content.getCloneWithLimits(0, -1);
+            }
+        }
+        byte[] all = expected.toByteArray();
+        assertEquals(all.length, content.getLength());
+        assertArrayEquals(all, read(content.getStream()));
+        assertArrayEquals(all, content.getBytes());
+
+        // ranges spanning several chunks
+        ContentStream range = content.getCloneWithLimits(12345, 300000);
+        assertArrayEquals(Arrays.copyOfRange(all, 12345, 312345), read(range.getStream()));
+
+        // content read before later appends is not changed by them
+        int snapshotLength = 0;
+        for (int i = 0; i <= 25; i++) {
+            snapshotLength += i * 997;
+        }
+        assertEquals(snapshotLength, snapshot.getLength());
+        assertArrayEquals(Arrays.copyOf(all, snapshotLength), read(snapshot.getStream()));
+    }
+
+    @Test
+    public void testAppendToOlderContent() {
+        ContentStore store = ContentStore.create(ContentStore.HEAP, null);
+        ChunkedContent base = new ChunkedContent().append(createBuffer(store, 10, (byte) 1));
+        ChunkedContent first = base.append(createBuffer(store, 10, (byte) 2));
+        ChunkedContent second = base.append(createBuffer(store, 10, (byte) 3));
+        assertEquals(2, first.getChunkCount());
+        assertEquals(2, second.getChunkCount());
+        assertEquals(2, first.toByteArray()[15]);
+        assertEquals(3, second.toByteArray()[15]);
+        assertEquals(10, base.getLength());
+    }
+
+    @Test
+    public void testUnknownStore() {
+        try {
+            ContentStore.create("unknown", null);
+            fail("Unknown content store should fail.");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+    }
+
+    private void checkStore(ContentStore store) throws IOException {
+        byte[] bytes = createBytes(SIZE);
+        ContentStreamDataImpl content = new ContentStreamDataImpl(0, false, store);
+        content.setContent(new ByteArrayInputStream(bytes));
+        assertEquals(SIZE, content.getLength());
+        assertArrayEquals(bytes, read(content.getStream()));
+        assertArrayEquals(bytes, content.getBytes());
+
+        // ranges across segment boundaries
+        ContentStream range = content.getCloneWithLimits(8000, 100000);
+        assertEquals(100000, range.getLength());
+        assertArrayEquals(Arrays.copyOfRange(bytes, 8000, 108000), read(range.getStream()));
+        range = content.getCloneWithLimits(SIZE - 10, -1);
+        assertArrayEquals(Arrays.copyOfRange(bytes, SIZE - 10, SIZE), read(range.getStream()));
+
+        InputStream stream = content.getStream();
+        assertEquals(20000, stream.skip(20000));
+        assertEquals(bytes[20000] & 0xFF, stream.read());
+
+        // append
+        byte[] more = createBytes(1000);
+        content.appendContent(new ByteArrayInputStream(more));
+        assertEquals(SIZE + 1000, content.getLength());
+        byte[] all = read(content.getStream());
+        assertArrayEquals(bytes, Arrays.copyOf(all, SIZE));
+        assertArrayEquals(more, Arrays.copyOfRange(all, SIZE, SIZE + 1000));
+
+        // size limit
+        ContentStreamDataImpl limited = new ContentStreamDataImpl(100, false, store);
+        try {
+            limited.setContent(new ByteArrayInputStream(bytes));
+            fail("Content exceeding the size limit should fail.");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+
+        // empty content
+        ContentStreamDataImpl empty = new ContentStreamDataImpl(0, false, store);
+        empty.setContent(new ByteArrayInputStream(new byte[0]));
+        assertEquals(0, empty.getLength());
+        assertEquals(-1, empty.getStream().read());
+    }
+
+    private static ContentBuffer createBuffer(ContentStore store, int size, byte value) {
+        try {
+            ContentBuffer buffer = store.createBuffer();
+            byte[] bytes = new byte[size];
+            Arrays.fill(bytes, value);
+            buffer.write(bytes, 0, size);
+            buffer.seal();
+            return buffer;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] createBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len;
+        while ((len = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+}
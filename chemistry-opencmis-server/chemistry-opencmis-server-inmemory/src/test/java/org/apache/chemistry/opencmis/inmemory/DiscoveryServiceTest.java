@@ -19,13 +19,22 @@
 package org.apache.chemistry.opencmis.inmemory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.inmemory.ObjectServiceTest.ObjectTestTypeSystemCreator;
 import org.apache.chemistry.opencmis.inmemory.content.ObjectGenerator;
 import org.junit.After;
@@ -41,6 +50,7 @@ public class DiscoveryServiceTest extends AbstractServiceTest {
     private static final String TEST_DOCUMENT_TYPE_ID = ObjectServiceTest.TEST_DOCUMENT_TYPE_ID;
     private static final String TEST_FOLDER_STRING_PROP_ID = ObjectServiceTest.TEST_FOLDER_STRING_PROP_ID;
     private static final String TEST_DOCUMENT_STRING_PROP_ID = ObjectServiceTest.TEST_DOCUMENT_STRING_PROP_ID;
+    private static final int CHANGE_LOG_SIZE = 16;
 
     @Override
     @Before
@@ -55,6 +65,11 @@ public class DiscoveryServiceTest extends AbstractServiceTest {
         super.tearDown();
     }
 
+    @Override
+    protected void addParameters(Map<String, String> parameters) {
+        parameters.put(ConfigConstants.CHANGE_LOG_SIZE, Integer.toString(CHANGE_LOG_SIZE));
+    }
+
     @Test
     public void testQuery() {
         log.info("starting testQuery() ...");
@@ -176,4 +191,69 @@ public class DiscoveryServiceTest extends AbstractServiceTest {
         assertEquals(3, count);
     }
 
+    @Test
+    public void testContentChanges() {
+        log.info("starting testContentChanges() ...");
+
+        String startToken = fRepSvc.getRepositoryInfo(fRepositoryId, null).getLatestChangeLogToken();
+        assertTrue(null != startToken);
+
+        String folderId = createFolder("ChangeFolder", fRootFolderId, TEST_FOLDER_TYPE_ID);
+        String docId = createDocument("ChangeDoc", folderId, TEST_DOCUMENT_TYPE_ID, false);
+        fObjSvc.deleteObject(fRepositoryId, docId, true, null);
+
+        // the event of the given token is returned first
+        Holder<String> token = new Holder<String>(startToken);
+        ObjectList res = getContentChanges(token, null);
+        List<ObjectData> changes = res.getObjects();
+        assertEquals(4, changes.size());
+        assertEquals(4L, res.getNumItems().longValue());
+        assertFalse(res.hasMoreItems());
+        assertEquals(Long.parseLong(startToken) + 3, Long.parseLong(token.getValue()));
+        assertChange(changes.get(1), ChangeType.CREATED, folderId);
+        assertChange(changes.get(2), ChangeType.CREATED, docId);
+        assertChange(changes.get(3), ChangeType.DELETED, docId);
+
+        // paging resumes with the last returned event
+        token = new Holder<String>(startToken);
+        res = getContentChanges(token, BigInteger.valueOf(2));
+        assertEquals(2, res.getObjects().size());
+        assertTrue(res.hasMoreItems());
+        assertChange(res.getObjects().get(1), ChangeType.CREATED, folderId);
+        res = getContentChanges(token, BigInteger.valueOf(2));
+        assertEquals(2, res.getObjects().size());
+        assertTrue(res.hasMoreItems());
+        assertChange(res.getObjects().get(0), ChangeType.CREATED, folderId);
+        assertChange(res.getObjects().get(1), ChangeType.CREATED, docId);
+
+        try {
+            getContentChanges(new Holder<String>("token-1"), null);
+            fail("Invalid change log token should throw exception.");
+        } catch (CmisInvalidArgumentException e) {
+        }
+
+        // older events are dropped once the log is full
+        for (int i = 0; i < CHANGE_LOG_SIZE; i++) {
+            createFolder("ChangeFolder " + i, folderId, TEST_FOLDER_TYPE_ID);
+        }
+        try {
+            getContentChanges(new Holder<String>(startToken), null);
+            fail("Outdated change log token should throw exception.");
+        } catch (CmisInvalidArgumentException e) {
+        }
+        res = getContentChanges(new Holder<String>(), null);
+        assertEquals(CHANGE_LOG_SIZE, res.getObjects().size());
+
+        log.info("... testContentChanges() finished.");
+    }
+
+    private ObjectList getContentChanges(Holder<String> token, BigInteger maxItems) {
+        return fDiscSvc.getContentChanges(fRepositoryId, token, false, null, false, false, maxItems, null);
+    }
+
+    private static void assertChange(ObjectData od, ChangeType changeType, String objectId) {
+        assertEquals(changeType, od.getChangeEventInfo().getChangeType());
+        assertEquals(objectId, od.getProperties().getProperties().get(PropertyIds.OBJECT_ID).getFirstValue());
+    }
+
 }
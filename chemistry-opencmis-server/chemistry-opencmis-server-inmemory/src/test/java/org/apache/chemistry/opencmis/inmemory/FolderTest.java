@@ -18,15 +18,28 @@
  */
 package org.apache.chemistry.opencmis.inmemory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.FolderImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.junit.Before;
@@ -164,6 +177,109 @@ public class FolderTest extends TestCase {
         }
     }
 
+    @Test
+    public void testChildrenAfterMoveAndDelete() {
+        fStore.move(f11, f1, f2, USER);
+        assertEquals(0, fStore.getChildren(f1, -1, -1, USER, false).getNoItems());
+        List<Fileable> children = fStore.getChildren(f2, -1, -1, USER, false).getChildren();
+        assertEquals(1, children.size());
+        assertEquals(f11, children.get(0));
+        assertEquals(1, fStore.getFolderChildren(f2, 10, 0, USER).getNoItems());
+
+        fStore.deleteObject(f11.getId(), true, USER);
+        assertEquals(0, fStore.getChildren(f2, -1, -1, USER, false).getNoItems());
+
+        // paging returns sorted slices
+        ObjectStore.ChildrenResult page = fStore.getChildren(fRoot, 2, 1, USER, false);
+        assertEquals(4, page.getNoItems());
+        assertEquals(2, page.getChildren().size());
+        assertEquals(f2, page.getChildren().get(0));
+        assertEquals(f3, page.getChildren().get(1));
+    }
+
+    @Test
+    public void testGetObjectByPath() {
+        Folder f10 = createFolder("Folder 10", fRoot);
+        Folder f101 = createFolder("Folder 1.1", f10);
+        assertEquals(f10, fStore.getObjectByPath("/Folder 10", USER));
+        assertEquals(f101, fStore.getObjectByPath("/Folder 10/Folder 1.1", USER));
+        assertEquals(f11, fStore.getObjectByPath("/Folder 1/Folder 1.1", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1/", USER));
+        assertNull(fStore.getObjectByPath("Folder 1", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1/Folder 1.1/unknown", USER));
+
+        fStore.move(f101, f10, f2, USER);
+        assertNull(fStore.getObjectByPath("/Folder 10/Folder 1.1", USER));
+        assertEquals(f101, fStore.getObjectByPath("/Folder 2/Folder 1.1", USER));
+
+        fStore.deleteObject(f101.getId(), true, USER);
+        assertNull(fStore.getObjectByPath("/Folder 2/Folder 1.1", USER));
+    }
+
+    @Test
+    public void testGetDocumentByPath() {
+        StoredObject doc = fStore.createDocument(createProperties("Document 1", BaseTypeId.CMIS_DOCUMENT.value()),
+                USER, f1, null, null, null, null);
+        assertEquals(doc, fStore.getObjectByPath("/Folder 1/Document 1", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1/Document 1/Folder 1.1", USER));
+
+        fStore.rename(doc, "Document 2", USER);
+        assertNull(fStore.getObjectByPath("/Folder 1/Document 1", USER));
+        assertEquals(doc, fStore.getObjectByPath("/Folder 1/Document 2", USER));
+
+        fStore.deleteObject(doc.getId(), true, USER);
+        assertNull(fStore.getObjectByPath("/Folder 1/Document 2", USER));
+    }
+
+    @Test
+    public void testGetVersionByPath() {
+        DocumentVersion version = fStore.createVersionedDocument("Versioned",
+                createProperties("Versioned", BaseTypeId.CMIS_DOCUMENT.value()), USER, f2, null, null, null, null,
+                VersioningState.MAJOR);
+        assertEquals(version, fStore.getObjectByPath("/Folder 2/Versioned", USER));
+
+        fStore.rename(version, "Renamed", USER);
+        assertNull(fStore.getObjectByPath("/Folder 2/Versioned", USER));
+        assertEquals(version, fStore.getObjectByPath("/Folder 2/Renamed", USER));
+
+        fStore.deleteObject(version.getId(), false, USER);
+        assertNull(fStore.getObjectByPath("/Folder 2/Renamed", USER));
+    }
+
+    @Test
+    public void testCheckInUpdatesPropertyIndex() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(ConfigConstants.INDEXED_PROPERTIES, "Label");
+        ConfigurationSettings.init(parameters);
+        fStore = new ObjectStoreImpl(TEST_REPOSITORY_ID);
+
+        Map<String, PropertyData<?>> properties = createProperties("Versioned", BaseTypeId.CMIS_DOCUMENT.value());
+        properties.put("Label", new PropertyStringImpl("Label", "first"));
+        DocumentVersion version = fStore.createVersionedDocument("Versioned", properties, USER,
+                fStore.getRootFolder(), null, null, null, null, VersioningState.MAJOR);
+        VersionedDocument verDoc = version.getParentDocument();
+        DocumentVersion pwc = verDoc.checkOut(USER);
+        fStore.storeVersion(pwc);
+
+        PropertiesImpl newProperties = new PropertiesImpl();
+        newProperties.addProperty(new PropertyStringImpl("Label", "second"));
+        fStore.checkInVersion(verDoc, true, newProperties, null, "comment", null, USER);
+
+        Set<String> ids = fStore.getPropertyIndex().getIds("Label", "first", true, "first", true);
+        assertTrue(ids.contains(version.getId()));
+        assertFalse(ids.contains(pwc.getId()));
+        assertEquals(Collections.singleton(pwc.getId()),
+                fStore.getPropertyIndex().getIds("Label", "second", true, "second", true));
+        assertFalse(verDoc.isCheckedOut());
+    }
+
+    private static Map<String, PropertyData<?>> createProperties(String name, String typeId) {
+        Map<String, PropertyData<?>> properties = new HashMap<String, PropertyData<?>>();
+        properties.put(PropertyIds.NAME, new PropertyStringImpl(PropertyIds.NAME, name));
+        properties.put(PropertyIds.OBJECT_TYPE_ID, new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, typeId));
+        return properties;
+    }
+
     private void createFolders() {
         fRoot = (FolderImpl) fStore.getRootFolder();
         f1 = (FolderImpl) createFolder("Folder 1", fRoot);
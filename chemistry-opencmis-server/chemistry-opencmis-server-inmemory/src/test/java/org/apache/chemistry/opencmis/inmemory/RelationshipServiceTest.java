@@ -152,6 +152,27 @@ public class RelationshipServiceTest extends AbstractServiceTest {
 
     }
 
+    @Test
+    public void testDeleteRelationship() {
+        List<PropertyData<?>> relProps = createRelationshipProperties(REL_CUSTOM_PROP_VALUE);
+        String id = createRelationship("CrossReference4", ObjectServiceTest.TEST_RELATION_TYPE_ID, docId1, targetId,
+                relProps);
+        assertNotNull(id);
+
+        ObjectList objectList = fRelSvc.getObjectRelationships(REPOSITORY_ID, docId1, false,
+                RelationshipDirection.EITHER, null, null, null, null, null, null);
+        assertEquals(1, objectList.getNumItems().longValue());
+
+        fObjSvc.deleteObject(fRepositoryId, id, true, null);
+
+        objectList = fRelSvc.getObjectRelationships(REPOSITORY_ID, docId1, false, RelationshipDirection.EITHER,
+                null, null, null, null, null, null);
+        assertEquals(0, objectList.getNumItems().longValue());
+        objectList = fRelSvc.getObjectRelationships(REPOSITORY_ID, targetId, false, RelationshipDirection.TARGET,
+                null, null, null, null, null, null);
+        assertEquals(0, objectList.getNumItems().longValue());
+    }
+
     @Test
     public void testRelationToFolder() {
         // test create with a folder as source
@@ -44,6 +44,7 @@ import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisUpdateConflictException;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
@@ -447,6 +448,40 @@ public class VersioningTest extends AbstractServiceTest {
                 IncludeRelationships.NONE, null, BigInteger.valueOf(-1), BigInteger.valueOf(-1), null);
         assertEquals(2, checkedOutDocuments.getNumItems().longValue());
         assertEquals(2, checkedOutDocuments.getObjects().size());
+
+        // paging
+        checkedOutDocuments = fNavSvc.getCheckedOutDocs(fRepositoryId, null, "*", null, false,
+                IncludeRelationships.NONE, null, BigInteger.valueOf(1), BigInteger.valueOf(0), null);
+        assertEquals(2, checkedOutDocuments.getNumItems().longValue());
+        assertEquals(1, checkedOutDocuments.getObjects().size());
+        assertTrue(checkedOutDocuments.hasMoreItems());
+        checkedOutDocuments = fNavSvc.getCheckedOutDocs(fRepositoryId, null, "*", null, false,
+                IncludeRelationships.NONE, null, BigInteger.valueOf(1), BigInteger.valueOf(1), null);
+        assertEquals(1, checkedOutDocuments.getObjects().size());
+        assertFalse(checkedOutDocuments.hasMoreItems());
+
+        // ordering
+        ObjectList ascending = fNavSvc.getCheckedOutDocs(fRepositoryId, null, "*", "cmis:objectId ASC", false,
+                IncludeRelationships.NONE, null, BigInteger.valueOf(-1), BigInteger.valueOf(-1), null);
+        ObjectList descending = fNavSvc.getCheckedOutDocs(fRepositoryId, null, "*", "cmis:objectId DESC", false,
+                IncludeRelationships.NONE, null, BigInteger.valueOf(-1), BigInteger.valueOf(-1), null);
+        assertEquals(ascending.getObjects().get(0).getId(), descending.getObjects().get(1).getId());
+        assertEquals(ascending.getObjects().get(1).getId(), descending.getObjects().get(0).getId());
+        assertTrue(ascending.getObjects().get(0).getId().compareTo(ascending.getObjects().get(1).getId()) < 0);
+        try {
+            fNavSvc.getCheckedOutDocs(fRepositoryId, null, "*", "cmis:name UP", false, IncludeRelationships.NONE,
+                    null, BigInteger.valueOf(-1), BigInteger.valueOf(-1), null);
+            fail("Invalid orderBy should fail.");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+
+        // cancel check-out removes the document from the list
+        fVerSvc.cancelCheckOut(fRepositoryId, idHolder.getValue(), null);
+        checkedOutDocuments = fNavSvc.getCheckedOutDocs(fRepositoryId, null, "*", null, false,
+                IncludeRelationships.NONE, null, BigInteger.valueOf(-1), BigInteger.valueOf(-1), null);
+        assertEquals(1, checkedOutDocuments.getNumItems().longValue());
+        assertEquals(1, checkedOutDocuments.getObjects().size());
     }
 
     @Test
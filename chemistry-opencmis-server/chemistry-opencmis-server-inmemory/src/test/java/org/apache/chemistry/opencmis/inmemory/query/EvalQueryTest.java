@@ -591,6 +591,37 @@ public class EvalQueryTest extends AbstractServiceTest {
         log.debug("...Stop testOrderByBool.");
     }
 
+    @Test
+    public void testOrderByMultipleColumns() {
+        log.debug("Start testOrderByMultipleColumns...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " ORDER BY " + PROP_ID_BOOLEAN + ", " + PROP_ID_INT
+                + " DESC";
+        ObjectList res = doQuery(statement);
+        assertEquals(5, res.getObjects().size());
+        assertTrue(resultContainsAtPos("epsilon", 0, res));
+        assertTrue(resultContainsAtPos("beta", 1, res));
+        assertTrue(resultContainsAtPos("delta", 2, res));
+        assertTrue(resultContainsAtPos("gamma", 3, res));
+        assertTrue(resultContainsAtPos("alpha", 4, res));
+
+        // only a page of the sorted result
+        res = fDiscSvc.query(fRepositoryId, statement, false, false, IncludeRelationships.NONE, null,
+                BigInteger.valueOf(2), BigInteger.ONE, null);
+        assertEquals(BigInteger.valueOf(5), res.getNumItems());
+        assertTrue(res.hasMoreItems());
+        assertEquals(2, res.getObjects().size());
+        assertTrue(resultContainsAtPos("beta", 0, res));
+        assertTrue(resultContainsAtPos("delta", 1, res));
+
+        res = fDiscSvc.query(fRepositoryId, statement, false, false, IncludeRelationships.NONE, null,
+                BigInteger.valueOf(10), BigInteger.valueOf(3), null);
+        assertFalse(res.hasMoreItems());
+        assertEquals(2, res.getObjects().size());
+        assertTrue(resultContainsAtPos("gamma", 0, res));
+        assertTrue(resultContainsAtPos("alpha", 1, res));
+        log.debug("...Stop testOrderByMultipleColumns.");
+    }
+
     // reported JIRA issue CMIS-510
     @Test
     public void testOrderBySystemProperties() {
@@ -830,6 +861,24 @@ public class EvalQueryTest extends AbstractServiceTest {
         log.debug("...Stop testNotIn.");
     }
 
+    @Test
+    public void testInInteger() {
+        log.debug("Start testInInteger...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE " + PROP_ID_INT + " IN (-50, 50, 75)";
+        ObjectList res = doQuery(statement);
+        assertEquals(2, res.getObjects().size());
+        assertTrue(resultContains("beta", res));
+        assertTrue(resultContains("delta", res));
+
+        statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE " + PROP_ID_INT + " NOT IN (-50, 50, 75)";
+        res = doQuery(statement);
+        assertEquals(3, res.getObjects().size());
+        assertTrue(resultContains("alpha", res));
+        assertTrue(resultContains("gamma", res));
+        assertTrue(resultContains("epsilon", res));
+        log.debug("...Stop testInInteger.");
+    }
+
     @Test
     public void testMultiValueInAny() {
         log.debug("Start testMultiValueNotInAny...");
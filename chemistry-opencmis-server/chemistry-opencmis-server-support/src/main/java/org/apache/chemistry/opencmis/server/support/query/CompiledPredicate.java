@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support.query;
+
+/**
+ * A WHERE clause compiled by a {@link PredicateCompiler}. Instances are
+ * immutable and can be evaluated against any number of objects.
+ *
+ * @param <T>
+ *            type of the objects the predicate is evaluated against
+ */
+public interface CompiledPredicate<T> {
+
+    /**
+     * Check if an object matches the predicate.
+     *
+     * @param object
+     *            object to check
+     * @return true if the object matches
+     */
+    boolean evaluate(T object);
+}
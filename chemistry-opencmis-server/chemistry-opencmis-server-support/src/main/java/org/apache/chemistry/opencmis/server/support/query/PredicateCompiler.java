@@ -0,0 +1,683 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support.query;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Compiles the WHERE clause of a parsed query into a {@link CompiledPredicate}.
+ * <p>
+ * All work that does not depend on the evaluated object is done once during
+ * compilation: column references and property definitions are resolved,
+ * literals are converted to the type of the compared property, LIKE patterns
+ * are compiled to regular expressions and the query is checked for operators
+ * not allowed on a property. Evaluating the predicate then only reads the
+ * property values through an {@link ObjectAccessor} and compares them.
+ * <p>
+ * Comparisons with a property that is not set evaluate to false, NOT negates
+ * the result of its operand.
+ *
+ * @param <T>
+ *            type of the objects the predicate is evaluated against
+ */
+public class PredicateCompiler<T> {
+
+    /**
+     * Access to the objects of a repository implementation, used by a compiled
+     * predicate during evaluation.
+     *
+     * @param <T>
+     *            type of the objects the predicate is evaluated against
+     */
+    public interface ObjectAccessor<T> {
+
+        /**
+         * Get the value of a property.
+         *
+         * @return the value, a list of values for multi-value properties or
+         *         null if the property is not set
+         */
+        Object getPropertyValue(T object, ColumnReference colRef);
+
+        /**
+         * Check if an object is a child of a folder.
+         */
+        boolean isInFolder(T object, String folderId);
+
+        /**
+         * Check if an object is a descendant of a folder.
+         */
+        boolean isInTree(T object, String folderId);
+
+        /**
+         * Check if the full text of an object contains a word or phrase.
+         */
+        boolean containsText(T object, String text);
+    }
+
+    private final QueryObject queryObj;
+    private final ObjectAccessor<T> accessor;
+    private final AbstractPredicateWalker literalWalker = new AbstractPredicateWalker() {
+    };
+
+    public PredicateCompiler(QueryObject queryObj, ObjectAccessor<T> accessor) {
+        this.queryObj = queryObj;
+        this.accessor = accessor;
+    }
+
+    /**
+     * Compile a WHERE clause.
+     *
+     * @param whereTree
+     *            where clause or null for a query without where clause
+     * @return the compiled predicate
+     */
+    public CompiledPredicate<T> compile(Tree whereTree) {
+        if (null == whereTree) {
+            return new Constant<T>(true);
+        }
+        return compilePredicate(whereTree);
+    }
+
+    private CompiledPredicate<T> compilePredicate(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.NOT:
+            return new Not<T>(compilePredicate(node.getChild(0)));
+        case CmisQlStrictLexer.AND:
+            return new And<T>(compilePredicate(node.getChild(0)), compilePredicate(node.getChild(1)));
+        case CmisQlStrictLexer.OR:
+            return new Or<T>(compilePredicate(node.getChild(0)), compilePredicate(node.getChild(1)));
+        case CmisQlStrictLexer.EQ:
+        case CmisQlStrictLexer.NEQ:
+        case CmisQlStrictLexer.GT:
+        case CmisQlStrictLexer.GTEQ:
+        case CmisQlStrictLexer.LT:
+        case CmisQlStrictLexer.LTEQ:
+            return compileComparison(node.getType(), node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IN:
+            return compileIn(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_IN:
+            return compileIn(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.IN_ANY:
+            return compileInAny(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_IN_ANY:
+            return compileInAny(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.EQ_ANY:
+            return compileEqAny(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IS_NULL:
+            return new IsNull(getColumnReference(node.getChild(0)), false);
+        case CmisQlStrictLexer.IS_NOT_NULL:
+            return new IsNull(getColumnReference(node.getChild(0)), true);
+        case CmisQlStrictLexer.LIKE:
+            return compileLike(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.NOT_LIKE:
+            return new Not<T>(compileLike(node.getChild(0), node.getChild(1)));
+        case CmisQlStrictLexer.CONTAINS:
+            return compileTextSearch(node.getChild(node.getChildCount() - 1));
+        case CmisQlStrictLexer.IN_FOLDER:
+            return compileInFolder(node, false);
+        case CmisQlStrictLexer.IN_TREE:
+            return compileInFolder(node, true);
+        case CmisQlStrictLexer.SCORE:
+            return new Constant<T>(false);
+        default:
+            throw new CmisRuntimeException("Unknown node type: " + node.getType() + " (" + node.getText() + ")");
+        }
+    }
+
+    private CompiledPredicate<T> compileComparison(int op, Tree colNode, Tree literalNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (pd.getCardinality() != Cardinality.SINGLE) {
+            throw new CmisInvalidArgumentException(
+                    "You can't query operators <, <=, ==, !=, >=, > on multi-value properties ");
+        }
+        return new Comparison(colRef, op, createComparator(pd, literalWalker.walkExpr(literalNode)));
+    }
+
+    private CompiledPredicate<T> compileIn(Tree colNode, Tree listNode, boolean negate) {
+        ColumnReference colRef = getColumnReference(colNode);
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (pd.getCardinality() != Cardinality.SINGLE) {
+            throw new CmisInvalidArgumentException("Operator IN only is allowed on single-value properties ");
+        }
+        return new In(colRef, createComparators(pd, listNode), negate);
+    }
+
+    private CompiledPredicate<T> compileInAny(Tree colNode, Tree listNode, boolean negate) {
+        ColumnReference colRef = getColumnReference(colNode);
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (pd.getCardinality() != Cardinality.MULTI) {
+            throw new CmisInvalidArgumentException("Operator ANY...IN only is allowed on multi-value properties ");
+        }
+        return new InAny(colRef, createComparators(pd, listNode), negate);
+    }
+
+    private CompiledPredicate<T> compileEqAny(Tree literalNode, Tree colNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (pd.getCardinality() != Cardinality.MULTI) {
+            throw new CmisInvalidArgumentException("Operator = ANY only is allowed on multi-value properties ");
+        }
+        LiteralComparator[] literals = { createComparator(pd, literalWalker.walkExpr(literalNode)) };
+        return new InAny(colRef, literals, false);
+    }
+
+    private CompiledPredicate<T> compileLike(Tree colNode, Tree stringNode) {
+        Object literal = literalWalker.walkExpr(stringNode);
+        if (!(literal instanceof String)) {
+            throw new CmisInvalidArgumentException("LIKE operator requires String literal on right hand side.");
+        }
+
+        ColumnReference colRef = getColumnReference(colNode);
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        PropertyType propType = pd.getPropertyType();
+        if (propType != PropertyType.STRING && propType != PropertyType.HTML && propType != PropertyType.ID
+                && propType != PropertyType.URI) {
+            throw new CmisInvalidArgumentException("Property type " + propType.value() + " is not allowed FOR LIKE");
+        }
+        if (pd.getCardinality() != Cardinality.SINGLE) {
+            throw new CmisInvalidArgumentException("LIKE is not allowed for multi-value properties ");
+        }
+
+        try {
+            return new Like(colRef, Pattern.compile(translatePattern((String) literal)));
+        } catch (PatternSyntaxException e) {
+            throw new CmisInvalidArgumentException("Invalid LIKE pattern: " + literal, e);
+        }
+    }
+
+    private CompiledPredicate<T> compileInFolder(Tree node, boolean recursive) {
+        if (node.getChildCount() > 1) {
+            // only checked, there is only one type in the FROM clause
+            Tree qualNode = node.getChild(0);
+            if (null == queryObj.getTypeQueryName(qualNode.getText())) {
+                throw new CmisInvalidArgumentException(
+                        "Inavlid type in IN_FOLDER() or IN_TREE(), must be in FROM list: " + qualNode.getText());
+            }
+        }
+        Object folderId = literalWalker.walkExpr(node.getChild(node.getChildCount() - 1));
+        if (!(folderId instanceof String)) {
+            throw new CmisInvalidArgumentException("Folder id in IN_FOLDER must be of type String");
+        }
+        return new InFolder((String) folderId, recursive);
+    }
+
+    private CompiledPredicate<T> compileTextSearch(Tree node) {
+        switch (node.getType()) {
+        case TextSearchLexer.TEXT_AND:
+            return new And<T>(compileTextSearchTerms(node));
+        case TextSearchLexer.TEXT_OR:
+            return new Or<T>(compileTextSearchTerms(node));
+        case TextSearchLexer.TEXT_MINUS:
+            return new Not<T>(compileTextSearch(node.getChild(0)));
+        case TextSearchLexer.TEXT_SEARCH_WORD_LIT:
+            return new ContainsText(unescapeSearchText(node.getText()));
+        case TextSearchLexer.TEXT_SEARCH_PHRASE_STRING_LIT:
+            String phrase = node.getText();
+            return new ContainsText(unescapeSearchText(phrase.substring(1, phrase.length() - 1)));
+        default:
+            throw new CmisRuntimeException("Unknown node type: " + node.getType() + " (" + node.getText() + ")");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompiledPredicate<T>[] compileTextSearchTerms(Tree node) {
+        CompiledPredicate<T>[] terms = new CompiledPredicate[node.getChildCount()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = compileTextSearch(node.getChild(i));
+        }
+        return terms;
+    }
+
+    private static String unescapeSearchText(String text) {
+        String unescaped = StringUtil.unescape(text, "\\'-");
+        if (null == unescaped) {
+            throw new CmisInvalidArgumentException("Illegal Escape sequence in text search expression " + text);
+        }
+        return unescaped;
+    }
+
+    private ColumnReference getColumnReference(Tree columnNode) {
+        CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
+        if (null == sel) {
+            throw new CmisInvalidArgumentException("Unknown property query name " + columnNode.getChild(0));
+        } else if (sel instanceof ColumnReference) {
+            return (ColumnReference) sel;
+        } else {
+            throw new CmisInvalidArgumentException("Unexpected numerical value function in where clause");
+        }
+    }
+
+    private LiteralComparator[] createComparators(PropertyDefinition<?> pd, Tree listNode) {
+        Object literals = literalWalker.walkExpr(listNode);
+        if (!(literals instanceof List)) {
+            throw new CmisInvalidArgumentException("IN operator requires a list of literals on right hand side.");
+        }
+        List<?> literalList = (List<?>) literals;
+        LiteralComparator[] res = new LiteralComparator[literalList.size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = createComparator(pd, literalList.get(i));
+        }
+        return res;
+    }
+
+    /*
+     * Convert a literal to a comparator for the values of a property, the
+     * literal is converted to the type of the property.
+     */
+    private static LiteralComparator createComparator(PropertyDefinition<?> pd, Object literal) {
+        switch (pd.getPropertyType()) {
+        case BOOLEAN:
+            if (literal instanceof Boolean) {
+                return new BooleanComparator((Boolean) literal);
+            }
+            break;
+        case INTEGER:
+            if (literal instanceof Long) {
+                return new LongComparator((Long) literal);
+            } else if (literal instanceof Double) {
+                return new DoubleComparator((Double) literal);
+            }
+            break;
+        case DECIMAL:
+            if (literal instanceof Double || literal instanceof Long) {
+                return new DoubleComparator(((Number) literal).doubleValue());
+            }
+            break;
+        case DATETIME:
+            if (literal instanceof Calendar) {
+                return new DateTimeComparator(((Calendar) literal).getTimeInMillis());
+            }
+            break;
+        case HTML:
+        case URI:
+        case ID:
+            if (literal instanceof String) {
+                return new StringComparator((String) literal);
+            }
+            break;
+        case STRING:
+            if (literal instanceof String) {
+                String unescaped = StringUtil.unescape((String) literal, null);
+                if (null == unescaped) {
+                    throw new CmisInvalidArgumentException("Illegal escape sequence in string literal " + literal);
+                }
+                return new StringComparator(unescaped);
+            }
+            break;
+        default:
+            break;
+        }
+        throw new CmisInvalidArgumentException("Incompatible Types to compare: " + pd.getId() + " of type "
+                + pd.getPropertyType().value() + " and " + literal);
+    }
+
+    /**
+     * Translate SQL wildcards %, _ to Java regex syntax.
+     *
+     * @param wildcardString
+     *            string to process
+     * @return string with replaced characters
+     */
+    public static String translatePattern(String wildcardString) {
+        int index = 0;
+        int start = 0;
+        String wildcard = wildcardString;
+
+        StringBuilder res = new StringBuilder();
+
+        while (index >= 0) {
+            index = wildcard.indexOf('%', start);
+            if (index < 0) {
+                res.append(wildcard.substring(start));
+            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
+                res.append(wildcard.substring(start, index));
+                res.append(".*");
+            } else {
+                res.append(wildcard.substring(start, index + 1));
+            }
+            start = index + 1;
+        }
+        wildcard = res.toString();
+
+        index = 0;
+        start = 0;
+        res = new StringBuilder();
+
+        while (index >= 0) {
+            index = wildcard.indexOf('_', start);
+            if (index < 0) {
+                res.append(wildcard.substring(start));
+            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
+                res.append(wildcard.substring(start, index));
+                res.append(".");
+            } else {
+                res.append(wildcard.substring(start, index + 1));
+            }
+            start = index + 1;
+        }
+        return res.toString();
+    }
+
+    private static boolean matchesAny(LiteralComparator[] literals, Object value) {
+        for (LiteralComparator literal : literals) {
+            if (literal.compare(value) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // predicates
+
+    private static final class Constant<T> implements CompiledPredicate<T> {
+        private final boolean result;
+
+        Constant(boolean result) {
+            this.result = result;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            return result;
+        }
+    }
+
+    private static final class Not<T> implements CompiledPredicate<T> {
+        private final CompiledPredicate<T> operand;
+
+        Not(CompiledPredicate<T> operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            return !operand.evaluate(object);
+        }
+    }
+
+    private static final class And<T> implements CompiledPredicate<T> {
+        private final CompiledPredicate<T>[] operands;
+
+        @SafeVarargs
+        And(CompiledPredicate<T>... operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            for (CompiledPredicate<T> operand : operands) {
+                if (!operand.evaluate(object)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or<T> implements CompiledPredicate<T> {
+        private final CompiledPredicate<T>[] operands;
+
+        @SafeVarargs
+        Or(CompiledPredicate<T>... operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            for (CompiledPredicate<T> operand : operands) {
+                if (operand.evaluate(object)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final class Comparison implements CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final int op;
+        private final LiteralComparator literal;
+
+        Comparison(ColumnReference colRef, int op, LiteralComparator literal) {
+            this.colRef = colRef;
+            this.op = op;
+            this.literal = literal;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            Object value = accessor.getPropertyValue(object, colRef);
+            if (null == value) {
+                return false;
+            }
+            int cmp = literal.compare(value);
+            switch (op) {
+            case CmisQlStrictLexer.EQ:
+                return cmp == 0;
+            case CmisQlStrictLexer.NEQ:
+                return cmp != 0;
+            case CmisQlStrictLexer.GT:
+                return cmp > 0;
+            case CmisQlStrictLexer.GTEQ:
+                return cmp >= 0;
+            case CmisQlStrictLexer.LT:
+                return cmp < 0;
+            default:
+                return cmp <= 0;
+            }
+        }
+    }
+
+    private final class In implements CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final LiteralComparator[] literals;
+        private final boolean negate;
+
+        In(ColumnReference colRef, LiteralComparator[] literals, boolean negate) {
+            this.colRef = colRef;
+            this.literals = literals;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            Object value = accessor.getPropertyValue(object, colRef);
+            if (null == value) {
+                return false;
+            }
+            return matchesAny(literals, value) != negate;
+        }
+    }
+
+    private final class InAny implements CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final LiteralComparator[] literals;
+        private final boolean negate;
+
+        InAny(ColumnReference colRef, LiteralComparator[] literals, boolean negate) {
+            this.colRef = colRef;
+            this.literals = literals;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            Object values = accessor.getPropertyValue(object, colRef);
+            if (!(values instanceof List)) {
+                return false;
+            }
+            for (Object value : (List<?>) values) {
+                if (null != value && matchesAny(literals, value)) {
+                    return !negate;
+                }
+            }
+            return negate;
+        }
+    }
+
+    private final class IsNull implements CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final boolean negate;
+
+        IsNull(ColumnReference colRef, boolean negate) {
+            this.colRef = colRef;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            return (null == accessor.getPropertyValue(object, colRef)) != negate;
+        }
+    }
+
+    private final class Like implements CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final Pattern pattern;
+
+        Like(ColumnReference colRef, Pattern pattern) {
+            this.colRef = colRef;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            Object value = accessor.getPropertyValue(object, colRef);
+            return null != value && pattern.matcher((String) value).matches();
+        }
+    }
+
+    private final class InFolder implements CompiledPredicate<T> {
+        private final String folderId;
+        private final boolean recursive;
+
+        InFolder(String folderId, boolean recursive) {
+            this.folderId = folderId;
+            this.recursive = recursive;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            return recursive ? accessor.isInTree(object, folderId) : accessor.isInFolder(object, folderId);
+        }
+    }
+
+    private final class ContainsText implements CompiledPredicate<T> {
+        private final String text;
+
+        ContainsText(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean evaluate(T object) {
+            return accessor.containsText(object, text);
+        }
+    }
+
+    // literals
+
+    /**
+     * A literal converted to the type of a property, compares property values
+     * with the literal.
+     */
+    private abstract static class LiteralComparator {
+        /**
+         * @return a negative number, zero or a positive number if the value is
+         *         less than, equal to or greater than the literal
+         */
+        abstract int compare(Object value);
+    }
+
+    private static final class BooleanComparator extends LiteralComparator {
+        private final boolean literal;
+
+        BooleanComparator(boolean literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compare(Object value) {
+            return Boolean.compare((Boolean) value, literal);
+        }
+    }
+
+    private static final class LongComparator extends LiteralComparator {
+        private final long literal;
+
+        LongComparator(long literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compare(Object value) {
+            return Long.compare(((Number) value).longValue(), literal);
+        }
+    }
+
+    private static final class DoubleComparator extends LiteralComparator {
+        private final double literal;
+
+        DoubleComparator(double literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compare(Object value) {
+            return Double.compare(((Number) value).doubleValue(), literal);
+        }
+    }
+
+    private static final class DateTimeComparator extends LiteralComparator {
+        private final long literal;
+
+        DateTimeComparator(long literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compare(Object value) {
+            return Long.compare(((Calendar) value).getTimeInMillis(), literal);
+        }
+    }
+
+    private static final class StringComparator extends LiteralComparator {
+        private final String literal;
+
+        StringComparator(String literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compare(Object value) {
+            return ((String) value).compareTo(literal);
+        }
+    }
+}
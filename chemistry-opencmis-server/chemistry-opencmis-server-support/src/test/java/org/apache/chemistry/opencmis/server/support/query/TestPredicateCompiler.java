@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support.query;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.definitions.MutableDocumentTypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.server.support.TypeDefinitionFactory;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPredicateCompiler {
+
+    private static final String TYPE = "MyDocType";
+    private static final String INT_PROP = "MyIntProp";
+    private static final String DECIMAL_PROP = "MyDecimalProp";
+    private static final String STRING_PROP = "MyStringProp";
+    private static final String MULTI_PROP = "MyMultiProp";
+
+    private TypeManager typeManager;
+
+    @Before
+    public void setUp() {
+        TypeDefinitionFactory factory = TypeDefinitionFactory.newInstance();
+        MutableDocumentTypeDefinition type = factory.createDocumentTypeDefinition(CmisVersion.CMIS_1_1,
+                "cmis:document");
+        type.setId(TYPE);
+        type.setQueryName(TYPE);
+        type.addPropertyDefinition(factory.createPropertyDefinition(INT_PROP, INT_PROP, null, PropertyType.INTEGER,
+                Cardinality.SINGLE, Updatability.READWRITE, false, false, true, true));
+        type.addPropertyDefinition(factory.createPropertyDefinition(DECIMAL_PROP, DECIMAL_PROP, null,
+                PropertyType.DECIMAL, Cardinality.SINGLE, Updatability.READWRITE, false, false, true, true));
+        type.addPropertyDefinition(factory.createPropertyDefinition(STRING_PROP, STRING_PROP, null,
+                PropertyType.STRING, Cardinality.SINGLE, Updatability.READWRITE, false, false, true, true));
+        type.addPropertyDefinition(factory.createPropertyDefinition(MULTI_PROP, MULTI_PROP, null,
+                PropertyType.STRING, Cardinality.MULTI, Updatability.READWRITE, false, false, true, false));
+        typeManager = new SingleTypeManager(type);
+    }
+
+    @Test
+    public void testIntegerComparison() {
+        Map<String, Object> doc = doc(INT_PROP, BigInteger.valueOf(5));
+        assertTrue(compile(INT_PROP + " = 5").evaluate(doc));
+        assertFalse(compile(INT_PROP + " <> 5").evaluate(doc));
+        assertTrue(compile(INT_PROP + " > 4").evaluate(doc));
+        assertFalse(compile(INT_PROP + " < 5").evaluate(doc));
+        assertTrue(compile(INT_PROP + " <= 5").evaluate(doc));
+        // decimal literal compared with an integer property
+        assertTrue(compile(INT_PROP + " < 5.5").evaluate(doc));
+        assertFalse(compile(INT_PROP + " = 5.5").evaluate(doc));
+        assertTrue(compile(INT_PROP + " >= 5.0").evaluate(doc));
+    }
+
+    @Test
+    public void testDecimalComparison() {
+        Map<String, Object> doc = doc(DECIMAL_PROP, new BigDecimal("2.0"));
+        // integer literal compared with a decimal property
+        assertTrue(compile(DECIMAL_PROP + " = 2").evaluate(doc));
+        assertTrue(compile(DECIMAL_PROP + " > 1.5").evaluate(doc));
+        assertFalse(compile(DECIMAL_PROP + " >= 2.5").evaluate(doc));
+        assertTrue(compile(DECIMAL_PROP + " <> 3").evaluate(doc));
+    }
+
+    @Test
+    public void testIncompatibleLiteral() {
+        assertInvalid(INT_PROP + " = 'abc'");
+        assertInvalid(STRING_PROP + " = 5");
+        assertInvalid(MULTI_PROP + " = 'abc'");
+    }
+
+    @Test
+    public void testLike() {
+        assertTrue(compile(STRING_PROP + " LIKE 'a%'").evaluate(doc(STRING_PROP, "abc")));
+        assertTrue(compile(STRING_PROP + " LIKE 'a_c'").evaluate(doc(STRING_PROP, "abc")));
+        assertFalse(compile(STRING_PROP + " LIKE 'a_c'").evaluate(doc(STRING_PROP, "abbc")));
+        assertFalse(compile(STRING_PROP + " LIKE 'b%'").evaluate(doc(STRING_PROP, "abc")));
+        assertTrue(compile(STRING_PROP + " NOT LIKE 'b%'").evaluate(doc(STRING_PROP, "abc")));
+        assertFalse(compile(STRING_PROP + " LIKE '%'").evaluate(doc(STRING_PROP, null)));
+        assertInvalid(INT_PROP + " LIKE '5%'");
+    }
+
+    @Test
+    public void testLikeEscaping() {
+        CompiledPredicate<Map<String, Object>> percent = compile(STRING_PROP + " LIKE '100\\%'");
+        assertTrue(percent.evaluate(doc(STRING_PROP, "100%")));
+        assertFalse(percent.evaluate(doc(STRING_PROP, "1000")));
+
+        CompiledPredicate<Map<String, Object>> underscore = compile(STRING_PROP + " LIKE 'a\\_c%'");
+        assertTrue(underscore.evaluate(doc(STRING_PROP, "a_cd")));
+        assertFalse(underscore.evaluate(doc(STRING_PROP, "abcd")));
+    }
+
+    @Test
+    public void testIn() {
+        CompiledPredicate<Map<String, Object>> in = compile(STRING_PROP + " IN ('x', 'y')");
+        assertTrue(in.evaluate(doc(STRING_PROP, "y")));
+        assertFalse(in.evaluate(doc(STRING_PROP, "z")));
+        assertFalse(in.evaluate(doc(STRING_PROP, null)));
+
+        CompiledPredicate<Map<String, Object>> notIn = compile(STRING_PROP + " NOT IN ('x', 'y')");
+        assertFalse(notIn.evaluate(doc(STRING_PROP, "y")));
+        assertTrue(notIn.evaluate(doc(STRING_PROP, "z")));
+        assertFalse(notIn.evaluate(doc(STRING_PROP, null)));
+
+        assertTrue(compile(INT_PROP + " IN (1, 2, 3)").evaluate(doc(INT_PROP, BigInteger.valueOf(2))));
+        assertInvalid(MULTI_PROP + " IN ('x')");
+    }
+
+    @Test
+    public void testAny() {
+        Map<String, Object> doc = doc(MULTI_PROP, Arrays.asList("x", "y"));
+        assertTrue(compile("ANY " + MULTI_PROP + " IN ('y', 'z')").evaluate(doc));
+        assertFalse(compile("ANY " + MULTI_PROP + " IN ('z')").evaluate(doc));
+        assertFalse(compile("ANY " + MULTI_PROP + " NOT IN ('y', 'z')").evaluate(doc));
+        assertTrue(compile("ANY " + MULTI_PROP + " NOT IN ('z')").evaluate(doc));
+        assertTrue(compile("'x' = ANY " + MULTI_PROP).evaluate(doc));
+        assertFalse(compile("'z' = ANY " + MULTI_PROP).evaluate(doc));
+        assertFalse(compile("ANY " + MULTI_PROP + " IN ('x')").evaluate(doc(MULTI_PROP, null)));
+        assertInvalid("ANY " + STRING_PROP + " IN ('x')");
+        assertInvalid("'x' = ANY " + STRING_PROP);
+    }
+
+    @Test
+    public void testIsNull() {
+        assertTrue(compile(STRING_PROP + " IS NULL").evaluate(doc(STRING_PROP, null)));
+        assertFalse(compile(STRING_PROP + " IS NULL").evaluate(doc(STRING_PROP, "abc")));
+        assertFalse(compile(STRING_PROP + " IS NOT NULL").evaluate(doc(STRING_PROP, null)));
+        assertTrue(compile(STRING_PROP + " IS NOT NULL").evaluate(doc(STRING_PROP, "abc")));
+    }
+
+    @Test
+    public void testNot() {
+        assertFalse(compile("NOT (" + INT_PROP + " = 5)").evaluate(doc(INT_PROP, BigInteger.valueOf(5))));
+        assertTrue(compile("NOT (" + INT_PROP + " = 5)").evaluate(doc(INT_PROP, BigInteger.valueOf(6))));
+        // a comparison with a property that is not set is false, NOT negates it
+        assertTrue(compile("NOT (" + INT_PROP + " = 5)").evaluate(doc(INT_PROP, null)));
+        assertTrue(compile("NOT (" + STRING_PROP + " IS NULL)").evaluate(doc(STRING_PROP, "abc")));
+    }
+
+    @Test
+    public void testAndOr() {
+        Map<String, Object> doc = doc(INT_PROP, BigInteger.valueOf(5));
+        doc.put(STRING_PROP, "abc");
+        assertTrue(compile(INT_PROP + " = 5 AND " + STRING_PROP + " = 'abc'").evaluate(doc));
+        assertFalse(compile(INT_PROP + " = 5 AND " + STRING_PROP + " = 'x'").evaluate(doc));
+        assertTrue(compile(INT_PROP + " = 6 OR " + STRING_PROP + " = 'abc'").evaluate(doc));
+        assertFalse(compile(INT_PROP + " = 6 OR " + STRING_PROP + " = 'x'").evaluate(doc));
+    }
+
+    private CompiledPredicate<Map<String, Object>> compile(String where) {
+        QueryUtilStrict queryUtil = new QueryUtilStrict("SELECT * FROM " + TYPE + " WHERE " + where, typeManager,
+                null);
+        queryUtil.processStatementUsingCmisExceptions();
+        return new PredicateCompiler<Map<String, Object>>(queryUtil.getQueryObject(), new MapAccessor())
+                .compile(queryUtil.getWalker().getWherePredicateTree());
+    }
+
+    private void assertInvalid(String where) {
+        try {
+            compile(where);
+            fail("Compiling " + where + " should fail.");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+    }
+
+    private static Map<String, Object> doc(String propertyId, Object value) {
+        Map<String, Object> doc = new HashMap<String, Object>();
+        doc.put(propertyId, value);
+        return doc;
+    }
+
+    private static class MapAccessor implements PredicateCompiler.ObjectAccessor<Map<String, Object>> {
+
+        @Override
+        public Object getPropertyValue(Map<String, Object> object, ColumnReference colRef) {
+            return object.get(colRef.getPropertyId());
+        }
+
+        @Override
+        public boolean isInFolder(Map<String, Object> object, String folderId) {
+            return false;
+        }
+
+        @Override
+        public boolean isInTree(Map<String, Object> object, String folderId) {
+            return false;
+        }
+
+        @Override
+        public boolean containsText(Map<String, Object> object, String text) {
+            return false;
+        }
+    }
+
+    private static class SingleTypeManager implements TypeManager {
+
+        private final TypeDefinition type;
+
+        SingleTypeManager(TypeDefinition type) {
+            this.type = type;
+        }
+
+        @Override
+        public TypeDefinitionContainer getTypeById(String typeId) {
+            return null;
+        }
+
+        @Override
+        public TypeDefinition getTypeByQueryName(String typeQueryName) {
+            return type.getQueryName().equals(typeQueryName) ? type : null;
+        }
+
+        @Override
+        public Collection<TypeDefinitionContainer> getTypeDefinitionList() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<TypeDefinitionContainer> getRootTypes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String getPropertyIdForQueryName(TypeDefinition typeDefinition, String propQueryName) {
+            return typeDefinition.getPropertyDefinitions().containsKey(propQueryName) ? propQueryName : null;
+        }
+
+        @Override
+        public void addTypeDefinition(TypeDefinition typeDefinition, boolean addInheritedProperties) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateTypeDefinition(TypeDefinition typeDefinition) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteTypeDefinition(String typeId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}